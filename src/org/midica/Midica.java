@@ -97,6 +97,7 @@ public class Midica {
 						Cli.exportFile(uiController);
 					}
 				}
+				Cli.printStats();
 			}
 		});
 		
@@ -11,6 +11,7 @@ import java.io.File;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.midica.file.PhaseStats;
 import org.midica.file.read.SoundfontParser;
 import org.midica.midi.MidiDevices;
 import org.midica.ui.UiController;
@@ -32,6 +33,21 @@ public class Cli {
 	/** Determins if the process shall stay alive (or exit) after all cli-related work is done. */
 	public static boolean keepAlive = true;
 	
+	/** Determins if the decompile configuration shall be tuned automatically before a decompiling export. */
+	public static boolean autoTune = false;
+	
+	/** Determins if analysis results of MIDI files shall be read from and written into the analysis cache. */
+	public static boolean useAnalysisCache = true;
+	
+	/** Determins if sequences compiled from MidicaPL files shall be read from and written into the compile cache. */
+	public static boolean useCompileCache = true;
+	
+	/** Format of the phase statistics to be printed to STDERR, or **null** for no statistics. */
+	public static String statsFormat = null;
+	
+	/** Maximum number of seconds for parsing, analyzing or decompiling, or **0** for no limit. */
+	public static int timeout = 0;
+	
 	// import/export related fields
 	public  static boolean useSoundfont     = false;
 	public  static boolean isImport         = false;
@@ -64,6 +80,8 @@ public class Cli {
 		Pattern patImport      = Pattern.compile("^\\-\\-(import|import\\-.+?)=(.+)$");
 		Pattern patExport      = Pattern.compile("^\\-\\-(export|export\\-.+?)=(.+)$");
 		Pattern patSoundfont   = Pattern.compile("^\\-\\-(soundfont)=(.+)$");
+		Pattern patStats       = Pattern.compile("^\\-\\-stats=(.*)$");
+		Pattern patTimeout     = Pattern.compile("^\\-\\-timeout=(.*)$");
 		Pattern patInvalidPath = Pattern.compile("^\\-\\-((im|ex)port(\\-[\\w-]+?)|soundfont)(=|$)$");
 		
 		for (String arg : args) {
@@ -77,9 +95,40 @@ public class Cli {
 			else if ("--ignore-local-config".equals(arg)) {
 				useLocalConfig = false;
 			}
+			else if ("--no-analysis-cache".equals(arg)) {
+				useAnalysisCache = false;
+			}
+			else if ("--no-compile-cache".equals(arg)) {
+				useCompileCache = false;
+			}
+			else if ("--auto-tune".equals(arg)) {
+				autoTune = true;
+			}
 			else if ("--help".equals(arg)) {
 				help(true, null);
 			}
+			else if (patStats.matcher(arg).matches()) {
+				Matcher m = patStats.matcher(arg);
+				m.matches();
+				statsFormat = m.group(1);
+				if ( ! "json".equals(statsFormat) ) {
+					help(false, "Unknown stats format: " + statsFormat + ". Try: --stats=json");
+				}
+				PhaseStats.enable();
+			}
+			else if (patTimeout.matcher(arg).matches()) {
+				Matcher m = patTimeout.matcher(arg);
+				m.matches();
+				try {
+					timeout = Integer.parseInt(m.group(1));
+				}
+				catch (NumberFormatException e) {
+					timeout = -1;
+				}
+				if (timeout <= 0) {
+					help(false, "Invalid timeout: " + m.group(1) + ". Try: --timeout=SECONDS");
+				}
+			}
 			else if (patSoundfont.matcher(arg).matches()) {
 				if (useSoundfont) {
 					help(false, "More than one soundfont is not allowed!");
@@ -219,6 +268,21 @@ public class Cli {
 		msg.append("                        Without this argument the config is read from and\n");
 		msg.append("                        written into the file '.midica.conf' in the current\n");
 		msg.append("                        user's home directory.\n");
+		msg.append("--no-analysis-cache   : Always analyze MIDI files. Without this argument the\n");
+		msg.append("                        analysis results are cached in the directory\n");
+		msg.append("                        '.midica.cache' in the current user's home directory.\n");
+		msg.append("                        (Not used together with --ignore-local-config.)\n");
+		msg.append("--no-compile-cache    : Always compile MidicaPL files. Without this argument\n");
+		msg.append("                        the compiled sequences are cached in the directory\n");
+		msg.append("                        '.midica.cache' in the current user's home directory.\n");
+		msg.append("                        (Not used together with --ignore-local-config.)\n");
+		msg.append("--auto-tune           : Before a decompiling export (--export or --export-alda),\n");
+		msg.append("                        search the decompile settings with the best quality\n");
+		msg.append("                        score and use them for the export.\n");
+		msg.append("--stats=json          : Print the time, event count and allocated memory of\n");
+		msg.append("                        each parsing/export phase to STDERR, in JSON format.\n");
+		msg.append("--timeout=SECONDS     : Abort parsing, analyzing or decompiling, if it takes\n");
+		msg.append("                        longer than the specified number of seconds.\n");
 		msg.append("--soundfont=PATH      : Use the specified soundfont file.\n");
 		msg.append("--import=PATH         : Import from the specified MidicaPL file.\n");
 		msg.append("--import-midi=PATH    : Import from the specified MIDI file.\n");
@@ -248,6 +312,15 @@ public class Cli {
 		}
 	}
 	
+	/**
+	 * Prints the collected phase statistics to STDERR, if requested by `--stats`.
+	 */
+	public static void printStats() {
+		if (statsFormat != null) {
+			System.err.println(PhaseStats.toJson());
+		}
+	}
+	
 	/**
 	 * Loads a soundfont file due to a command line argument.
 	 * 
@@ -85,6 +85,17 @@ public class Config {
 	public static final String IMPORT_TYPE           = "import_type";
 	public static final String TAB_FILE_IMPORT       = "tab_file_import";
 	public static final String TAB_FILE_EXPORT       = "tab_file_export";
+	public static final String PROGRESSIVE_PLAYBACK  = "progressive_playback";
+	public static final String SEQUENCER             = "sequencer";
+	public static final String SF2_LOADING           = "sf2_loading";
+	
+	// sequencer implementations
+	public static final String SEQUENCER_JDK       = "jdk";
+	public static final String SEQUENCER_SCHEDULER = "scheduler";
+	
+	// soundfont loading modes
+	public static final String SF2_LOADING_ALL  = "all";  // load all instruments of the soundfont
+	public static final String SF2_LOADING_USED = "used"; // load only the instruments used by the sequence
 	
 	// charsets
 	public static final String CHARSET_MPL        = "charset_mpl";
@@ -271,6 +282,9 @@ public class Config {
 		defaults.put( DIRECTORY_EXPORT_ALDA, homeDir      );
 		defaults.put( REMEMBER_IMPORT,       "false"      );
 		defaults.put( REMEMBER_SF2,          "false"      );
+		defaults.put( PROGRESSIVE_PLAYBACK,  "false"      );
+		defaults.put( SEQUENCER,             SEQUENCER_JDK );
+		defaults.put( SF2_LOADING,           SF2_LOADING_ALL );
 		defaults.put( PATH_SF2,              ""           );
 		defaults.put( PATH_MIDICAPL,         ""           );
 		defaults.put( PATH_MIDI,             ""           );
@@ -1013,17 +1027,13 @@ public class Config {
 						treePath.add(cat);
 						treePath.add(bindingNode);
 						
-						try {
-							if (mustFake) {
-								model.addWithoutIncrementing(treePath);
-							}
-							else {
-								keyBindings.get(id);
-								String kbToolTip = "<br>- " + binding.getDescription();
-								model.add(treePath, kbToolTip);
-							}
+						if (mustFake) {
+							model.addWithoutIncrementing(treePath);
 						}
-						catch (ReflectiveOperationException e) {
+						else {
+							keyBindings.get(id);
+							String kbToolTip = "<br>- " + binding.getDescription();
+							model.add(treePath, kbToolTip);
 						}
 					}
 					
@@ -1035,7 +1045,6 @@ public class Config {
 			}
 			catNum++;
 		}
-		model.postprocess();
 		
 		return model;
 	}
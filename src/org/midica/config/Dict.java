@@ -71,6 +71,12 @@ public class Dict {
 	private static ArrayList<InstrumentElement> drumkitList            = null;
 	private static ArrayList<String>            keyBindingCategories   = null;
 	
+	// immutable lookup tables, built from the dictionaries above
+	private static SymbolTable noteSymbols       = null;
+	private static SymbolTable percussionSymbols = null;
+	private static SymbolTable instrSymbols      = null;
+	private static SymbolTable drumkitSymbols    = null;
+	
 	// needed to build up the note dictionaries (noteNameToInt and noteIntToName)
 	private static String[]                            notes            = new String[12];
 	private static byte[]                              halfTones        = null;
@@ -870,6 +876,7 @@ public class Dict {
 	public static final String DC_RESTORE                   = "dc_restore";
 	public static final String DC_RESTORE_DEFAULTS          = "dc_restore_defaults";
 	public static final String DC_SAVE                      = "dc_save";
+	public static final String DC_AUTO_TUNE                 = "dc_auto_tune";
 	public static final String CHANGED_IN_CONF_FILE         = "changed_in_conf_file";
 	public static final String TICKS_FOR_TARGET_PPQ         = "ticks_for_target_ppq";
 	
@@ -890,6 +897,8 @@ public class Dict {
 	public static final String TAB_MIDI_KARAOKE            = "tab_midi_karaoke";
 	public static final String TAB_BANK_INSTR_NOTE         = "tab_bank_instr_note";
 	public static final String TAB_MESSAGES                = "tab_messages";
+	public static final String TAB_LOADING                 = "tab_loading";
+	public static final String TAB_LOADING_FAILED          = "tab_loading_failed";
 	public static final String SOUNDFONT_DRUMKITS          = "soundfont_drumkits";
 	public static final String SOUNDFONT_VENDOR            = "soundfont_vendor";
 	public static final String SOUNDFONT_CREA_DATE         = "soundfont_crea_date";
@@ -981,6 +990,7 @@ public class Dict {
 	public static final String INFO_COL_SF_RES_FORMAT      = "info_col_sf_res_format";
 	public static final String INFO_COL_SF_RES_CLASS       = "info_col_sf_res_class";
 	public static final String INFO_COL_MSG_TICK           = "info_col_msg_tick";
+	public static final String INFO_COL_MSG_TIME           = "info_col_msg_time";
 	public static final String INFO_COL_MSG_STATUS_BYTE    = "info_col_msg_status_byte";
 	public static final String INFO_COL_MSG_TRACK          = "info_col_msg_track";
 	public static final String INFO_COL_MSG_CHANNEL        = "info_col_msg_channel";
@@ -991,6 +1001,7 @@ public class Dict {
 	public static final String INFO_COL_MSG_TT_TRACK       = "info_col_msg_tt_track";
 	public static final String INFO_COL_MSG_TT_CHANNEL     = "info_col_msg_tt_channel";
 	public static final String INFO_COL_MSG_TT_LENGTH      = "info_col_msg_tt_length";
+	public static final String INFO_COL_MSG_TT_TIME        = "info_col_msg_tt_time";
 	public static final String TOOLTIP_BANK_MSB            = "tooltip_bank_msb";
 	public static final String TOOLTIP_BANK_LSB            = "tooltip_bank_lsb";
 	public static final String TOOLTIP_BANK_FULL           = "tooltip_bank_full";
@@ -1585,9 +1596,6 @@ public class Dict {
 	// NestableBlock
 	public static final String ERROR_BLOCK_ARG_ALREADY_SET      = "error_block_arg_already_set";
 	
-	// SequenceParser
-	public static final String ERROR_ANALYZE_POSTPROCESS        = "error_analyze_postprocess";
-	
 	// ParseException and StackTraceElement
 	public static final String EXCEPTION_CAUSED_BY_LINE         = "exception_caused_by_line";
 	public static final String EXCEPTION_CAUSED_BY_BLK_COND     = "exception_caused_by_blk_cond";
@@ -1611,6 +1619,13 @@ public class Dict {
 	public static final String WAIT_PARSE_FOREIGN               = "wait_parse_foreign";
 	public static final String WAIT_REPARSE                     = "wait_reparse";
 	public static final String WAIT_SETUP_DEVICES               = "wait_setup_devices";
+	public static final String WAIT_AUTO_TUNE                   = "wait_auto_tune";
+	public static final String WAIT_EXPORT                      = "wait_export";
+	public static final String WAIT_CANCEL                      = "wait_cancel";
+	public static final String PROGRESS_LINE                    = "progress_line";
+	public static final String PROGRESS_EVENTS                  = "progress_events";
+	public static final String ERROR_TASK_CANCELLED             = "error_task_cancelled";
+	public static final String ERROR_TASK_TIMEOUT               = "error_task_timeout";
 	
 	// Exporter
 	public static final String ERROR_EXPORT                     = "error_export";
@@ -1668,7 +1683,14 @@ public class Dict {
 	public static final String SOUNDCHECK                       = "soundcheck";
 	public static final String MEMORIZE                         = "memorize";
 	public static final String JUMP                             = "jump";
+	public static final String TIP_JUMP                         = "tip_jump";
 	public static final String SHOW_LYRICS                      = "show_lyrics";
+	public static final String WATCH_SOURCE                     = "watch_source";
+	public static final String TIP_WATCH_SOURCE                 = "tip_watch_source";
+	public static final String WATCH_COMPILING                  = "watch_compiling";
+	public static final String WATCH_SWAPPED                    = "watch_swapped";
+	public static final String WATCH_FAILED                     = "watch_failed";
+	public static final String WATCH_UNAVAILABLE                = "watch_unavailable";
 	public static final String TIME_INFO_UNAVAILABLE            = "time_info_unavailable";
 	public static final String SLIDER_MASTER_VOL                = "slider_master_vol";
 	public static final String SLIDER_TEMPO                     = "slider_tempo";
@@ -2257,6 +2279,7 @@ public class Dict {
 		set( DC_RESTORE,                   "Restore saved settings"                                                    );
 		set( DC_RESTORE_DEFAULTS,          "Restore default settings"                                                  );
 		set( DC_SAVE,                      "Save settings"                                                             );
+		set( DC_AUTO_TUNE,                 "Auto-tune settings"                                                        );
 		set( CHANGED_IN_CONF_FILE,         "Manually changed in Config file"                                           );
 		set( TICKS_FOR_TARGET_PPQ,         "ticks @ 480 PPQ"                                                           );
 		
@@ -2277,6 +2300,8 @@ public class Dict {
 		set( TAB_MIDI_KARAOKE,                       "Karaoke Info"                  );
 		set( TAB_BANK_INSTR_NOTE,                    "Banks, Instruments, Notes"     );
 		set( TAB_MESSAGES,                           "MIDI Messages"                 );
+		set( TAB_LOADING,                            "Loading..."                    );
+		set( TAB_LOADING_FAILED,                     "<html>Loading failed: %s<br>Select the tab again to retry." );
 		set( SOUNDFONT_VENDOR,                       "Vendor"                        );
 		set( SOUNDFONT_CREA_DATE,                    "Creation Date"                 );
 		set( SOUNDFONT_CREA_TOOLS,                   "Creation Tools"                );
@@ -2368,6 +2393,7 @@ public class Dict {
 		set( INFO_COL_SF_RES_FORMAT,                 "Format"                        );
 		set( INFO_COL_SF_RES_CLASS,                  "Class"                         );
 		set( INFO_COL_MSG_TICK,                      "Tick"                          );
+		set( INFO_COL_MSG_TIME,                      "Time"                          );
 		set( INFO_COL_MSG_STATUS_BYTE,               "St"                            );
 		set( INFO_COL_MSG_TRACK,                     "Tr"                            );
 		set( INFO_COL_MSG_CHANNEL,                   "Ch"                            );
@@ -2378,6 +2404,7 @@ public class Dict {
 		set( INFO_COL_MSG_TT_TRACK,                  "Track Number"                  );
 		set( INFO_COL_MSG_TT_CHANNEL,                "Channel"                       );
 		set( INFO_COL_MSG_TT_LENGTH,                 "Message Length in Bytes"       );
+		set( INFO_COL_MSG_TT_TIME,                   "Time in hh:mm:ss.mmm"          );
 		set( TOOLTIP_BANK_MSB,                       "MSB"                           );
 		set( TOOLTIP_BANK_LSB,                       "LSB"                           );
 		set( TOOLTIP_BANK_FULL,                      "Bank Number"                   );
@@ -3081,9 +3108,6 @@ public class Dict {
 		// NestableBlock
 		set( ERROR_BLOCK_ARG_ALREADY_SET,         "Block argument has already been set before: "                      );
 		
-		// SequenceParser
-		set( ERROR_ANALYZE_POSTPROCESS,           "Error while postprocessing the sequence"                           );
-		
 		// ParseException and StackTraceElement
 		set( EXCEPTION_CAUSED_BY_LINE,            "Caused by this line:"                                              );
 		set( EXCEPTION_CAUSED_BY_BLK_COND,        "Caused by erroneous if/elsif/else chain or conditions in nestable block" );
@@ -3107,6 +3131,13 @@ public class Dict {
 		set( WAIT_PARSE_FOREIGN,                  "Importing the file using %s"                                       );
 		set( WAIT_REPARSE,                        "Reloading the File"                                                );
 		set( WAIT_SETUP_DEVICES,                  "Setting up MIDI devices and loading Soundfont"                     );
+		set( WAIT_AUTO_TUNE,                      "Searching the decompile settings with the best quality score"      );
+		set( WAIT_EXPORT,                         "Exporting the file..."                                             );
+		set( WAIT_CANCEL,                         "Cancel"                                                            );
+		set( PROGRESS_LINE,                       "line %d"                                                           );
+		set( PROGRESS_EVENTS,                     "%d events"                                                         );
+		set( ERROR_TASK_CANCELLED,                "Cancelled by the user"                                             );
+		set( ERROR_TASK_TIMEOUT,                  "Timeout: more than %d seconds"                                     );
 		
 		// Exporter
 		set( ERROR_EXPORT,                        "Export Error in the file "                                         );
@@ -3168,7 +3199,14 @@ public class Dict {
 		set( SOUNDCHECK,                          "Soundcheck"                 );
 		set( MEMORIZE,                            "Memorize"                   );
 		set( JUMP,                                "Go"                         );
+		set( TIP_JUMP,                            "Tick or time (hh:mm:ss.mmm) to jump to" );
 		set( SHOW_LYRICS,                         "Show Lyrics"                );
+		set( WATCH_SOURCE,                        "Watch"                      );
+		set( TIP_WATCH_SOURCE,                    "Reparse and swap the sequence after the file or an included file has been saved" );
+		set( WATCH_COMPILING,                     "reparsing..."               );
+		set( WATCH_SWAPPED,                       "swapped (%d ms)"            );
+		set( WATCH_FAILED,                        "parsing failed"             );
+		set( WATCH_UNAVAILABLE,                   "cannot watch the files"     );
 		set( TIME_INFO_UNAVAILABLE,               "-"                          );
 		set( SLIDER_MASTER_VOL,                   "Vol"                        );
 		set( SLIDER_TEMPO,                        "Tempo"                      );
@@ -3582,6 +3620,7 @@ public class Dict {
 				}
 			}
 		}
+		noteSymbols = new SymbolTable(noteNameToInt);
 	}
 	
 	/**
@@ -4116,6 +4155,7 @@ public class Dict {
 				continue;
 			percussionIntToShortId.put(percussionIdToInt.get(key), key);
 		}
+		percussionSymbols = new SymbolTable(percussionIdToInt);
 	}
 	
 	/**
@@ -4143,6 +4183,8 @@ public class Dict {
 		else {
 			initInstrumentsEnglish1();
 		}
+		instrSymbols   = new SymbolTable(instrNameToInt);
+		drumkitSymbols = new SymbolTable(drumkitNameToInt);
 	}
 	
 	/**
@@ -5008,10 +5050,7 @@ public class Dict {
 	 * @return      value of the requested note like it is defined in the MIDI specification
 	 */
 	public static int getNote(String name) {
-		if (noteNameToInt.containsKey(name))
-			return noteNameToInt.get(name);
-		else
-			return UNKNOWN_CODE;
+		return noteSymbols.get(name, UNKNOWN_CODE);
 	}
 	
 	/**
@@ -5081,10 +5120,7 @@ public class Dict {
 	 * @return      value for the instrument as defined by the MIDI specification
 	 */
 	public static int getInstrument(String name) {
-		if (instrNameToInt.containsKey(name))
-			return instrNameToInt.get(name);
-		else
-			return UNKNOWN_CODE;
+		return instrSymbols.get(name, UNKNOWN_CODE);
 	}
 	
 	/**
@@ -5107,9 +5143,7 @@ public class Dict {
 	 * @return      true, if the note name is configured -- otherwise: false
 	 */
 	public static boolean noteExists(String name) {
-		if (noteNameToInt.containsKey(name))
-			return true;
-		return false;
+		return noteSymbols.contains(name);
 	}
 	
 	/**
@@ -5119,10 +5153,7 @@ public class Dict {
 	 * @return    instrument value as defined by the MIDI specification
 	 */
 	public static int getPercussion(String id) {
-		if (percussionIdToInt.containsKey(id))
-			return percussionIdToInt.get(id);
-		else
-			return UNKNOWN_CODE;
+		return percussionSymbols.get(id, UNKNOWN_CODE);
 	}
 	
 	/**
@@ -5177,10 +5208,7 @@ public class Dict {
 	 * @return      drumkit number as defined by the General Standard specification
 	 */
 	public static int getDrumkit(String name) {
-		if (drumkitNameToInt.containsKey(name))
-			return drumkitNameToInt.get(name);
-		else
-			return UNKNOWN_CODE;
+		return drumkitSymbols.get(name, UNKNOWN_CODE);
 	}
 	
 	/**
@@ -5203,9 +5231,7 @@ public class Dict {
 	 * @return      true, if the percussion name is configured -- otherwise: false
 	 */
 	public static boolean percussionExists(String name) {
-		if (percussionIdToInt.containsKey(name))
-			return true;
-		return false;
+		return percussionSymbols.contains(name);
 	}
 	
 	/**
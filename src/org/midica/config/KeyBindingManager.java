@@ -645,6 +645,9 @@ public class KeyBindingManager {
 	 * 
 	 * This is used for the Info View and other tab-based windows.
 	 * 
+	 * The component may be **null**, if it has not been created yet.
+	 * Then the key binding is reserved but has no effect.
+	 * 
 	 * @param c   the component to be controlled by the key binding
 	 * @param id  the key binding ID
 	 */
@@ -0,0 +1,122 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.config;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable lookup table from symbol names to primitive integer values.
+ * 
+ * Used for names that are resolved very often while parsing, like note names,
+ * percussion IDs, instrument or drumkit names.
+ * 
+ * The table is built once from a map, after the names have been configured.
+ * It uses open addressing with linear probing in parallel arrays.
+ * The load factor is at most 0.5, so that probe sequences stay short.
+ * A lookup neither boxes nor allocates anything.
+ * 
+ * @author Jan Trukenmüller
+ */
+public final class SymbolTable {
+	
+	private final String[] keys;
+	private final int[]    hashes;
+	private final int[]    values;
+	private final int      mask;
+	private final int      size;
+	
+	/**
+	 * Creates a symbol table containing all entries of the given map.
+	 * 
+	 * @param symbols  name -- value
+	 */
+	public SymbolTable(Map<String, Integer> symbols) {
+		int capacity = 4;
+		while (capacity < symbols.size() * 2)
+			capacity <<= 1;
+		
+		keys   = new String[capacity];
+		hashes = new int[capacity];
+		values = new int[capacity];
+		mask   = capacity - 1;
+		size   = symbols.size();
+		
+		for (Entry<String, Integer> entry : symbols.entrySet()) {
+			String key  = entry.getKey();
+			int    hash = spread(key.hashCode());
+			int    i    = hash & mask;
+			while (keys[i] != null)
+				i = (i + 1) & mask;
+			keys[i]   = key;
+			hashes[i] = hash;
+			values[i] = entry.getValue();
+		}
+	}
+	
+	/**
+	 * Returns the value of the given symbol.
+	 * 
+	 * @param name     symbol name
+	 * @param unknown  value to be returned if the symbol doesn't exist
+	 * @return the value, or **unknown** if the name is not found.
+	 */
+	public int get(String name, int unknown) {
+		if (null == name)
+			return unknown;
+		int hash = spread(name.hashCode());
+		int i    = hash & mask;
+		String key;
+		while ((key = keys[i]) != null) {
+			if (hashes[i] == hash && key.equals(name))
+				return values[i];
+			i = (i + 1) & mask;
+		}
+		return unknown;
+	}
+	
+	/**
+	 * Indicates if the given symbol exists.
+	 * 
+	 * @param name  symbol name
+	 * @return **true** if the symbol exists, otherwise **false**.
+	 */
+	public boolean contains(String name) {
+		if (null == name)
+			return false;
+		int hash = spread(name.hashCode());
+		int i    = hash & mask;
+		String key;
+		while ((key = keys[i]) != null) {
+			if (hashes[i] == hash && key.equals(name))
+				return true;
+			i = (i + 1) & mask;
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the number of symbols.
+	 * 
+	 * @return number of symbols.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Mixes the higher bits of a hash code into the lower ones, because only
+	 * the lower bits are used for the table index.
+	 * 
+	 * @param h  hash code
+	 * @return the spread hash code.
+	 */
+	private static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map with a maximum number of entries.
+ * 
+ * If the maximum is exceeded, the least recently used entry is removed.
+ * 
+ * This class is not thread-safe.
+ * 
+ * @param <K>  key type
+ * @param <V>  value type
+ * 
+ * @author Jan Trukenmüller
+ */
+public class BoundedCache<K, V> extends LinkedHashMap<K, V> {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final int maxEntries;
+	
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param maxEntries  maximum number of entries
+	 */
+	public BoundedCache(int maxEntries) {
+		super(16, 0.75f, true);
+		this.maxEntries = maxEntries;
+	}
+	
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+		return size() > maxEntries;
+	}
+}
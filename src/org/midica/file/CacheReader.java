@@ -0,0 +1,258 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.midica.ui.model.MidicaTreeNode;
+
+/**
+ * Reads values that have been written by a {@link CacheWriter}.
+ * 
+ * The reader works on a byte buffer, so that the cache file can be memory-mapped.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CacheReader {
+	
+	private final ByteBuffer buffer;
+	
+	/** strings in the order of the first occurrence */
+	private final ArrayList<String> strings = new ArrayList<>();
+	
+	/** tree nodes in the order of registration */
+	private final ArrayList<MidicaTreeNode> nodes = new ArrayList<>();
+	
+	/**
+	 * Creates a reader.
+	 * 
+	 * @param buffer  the source buffer, positioned at the first value
+	 */
+	public CacheReader(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	/**
+	 * Reads a byte.
+	 * 
+	 * @return the value.
+	 * @throws IOException if the end of the buffer has been reached.
+	 */
+	public byte readByte() throws IOException {
+		try {
+			return buffer.get();
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("unexpected end of data");
+		}
+	}
+	
+	/**
+	 * Reads a boolean.
+	 * 
+	 * @return the value.
+	 * @throws IOException if the end of the buffer has been reached.
+	 */
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+	
+	/**
+	 * Reads an integer.
+	 * 
+	 * @return the value.
+	 * @throws IOException if the end of the buffer has been reached.
+	 */
+	public int readInt() throws IOException {
+		try {
+			return buffer.getInt();
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("unexpected end of data");
+		}
+	}
+	
+	/**
+	 * Reads a long.
+	 * 
+	 * @return the value.
+	 * @throws IOException if the end of the buffer has been reached.
+	 */
+	public long readLong() throws IOException {
+		try {
+			return buffer.getLong();
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException("unexpected end of data");
+		}
+	}
+	
+	/**
+	 * Reads a string that may be **null**.
+	 * 
+	 * @return the string or **null**.
+	 * @throws IOException if the string cannot be read.
+	 */
+	public String readString() throws IOException {
+		int length = readLength(2, true);
+		if (-1 == length)
+			return null;
+		if (length < -1) {
+			int index = -2 - length;
+			if (index >= strings.size())
+				throw new IOException("unknown string");
+			return strings.get(index);
+		}
+		char[] chars = new char[length];
+		buffer.asCharBuffer().get(chars);
+		buffer.position(buffer.position() + 2 * length);
+		String str = new String(chars);
+		strings.add(str);
+		return str;
+	}
+	
+	/**
+	 * Determins if there is more data to be read.
+	 * 
+	 * @return **true** if the end of the buffer has not yet been reached.
+	 */
+	public boolean hasRemaining() {
+		return buffer.hasRemaining();
+	}
+	
+	/**
+	 * Remembers a tree node that is about to be read, so that later
+	 * values can refer to it.
+	 * 
+	 * Must be called in the same order as {@link CacheWriter#registerNode(MidicaTreeNode)}.
+	 * 
+	 * @param node  the tree node
+	 */
+	public void registerNode(MidicaTreeNode node) {
+		nodes.add(node);
+	}
+	
+	/**
+	 * Reads a value that has been written by {@link CacheWriter#writeValue(Object)}.
+	 * 
+	 * @return the value.
+	 * @throws IOException if the value cannot be read.
+	 */
+	public Object readValue() throws IOException {
+		byte type = readByte();
+		switch (type) {
+			case CacheWriter.NULL:
+				return null;
+			case CacheWriter.STRING:
+				return readString();
+			case CacheWriter.BOOLEAN:
+				return readBoolean();
+			case CacheWriter.BYTE:
+				return readByte();
+			case CacheWriter.INTEGER:
+				return readInt();
+			case CacheWriter.LONG:
+				return readLong();
+			case CacheWriter.BYTE_ARRAY: {
+				byte[] array = new byte[readLength(1, false)];
+				buffer.get(array);
+				return array;
+			}
+			case CacheWriter.INT_ARRAY: {
+				int[] array = new int[readLength(4, false)];
+				buffer.asIntBuffer().get(array);
+				buffer.position(buffer.position() + 4 * array.length);
+				return array;
+			}
+			case CacheWriter.LONG_ARRAY: {
+				long[] array = new long[readLength(8, false)];
+				buffer.asLongBuffer().get(array);
+				buffer.position(buffer.position() + 8 * array.length);
+				return array;
+			}
+			case CacheWriter.ARRAY: {
+				int classIndex = readByte();
+				if (classIndex < 0 || classIndex >= CacheWriter.ARRAY_CLASSES.length)
+					throw new IOException("unknown array class");
+				Class<?> componentType = CacheWriter.ARRAY_CLASSES[classIndex].getComponentType();
+				Object[] array         = (Object[]) Array.newInstance(componentType, readLength(1, false));
+				for (int i = 0; i < array.length; i++)
+					array[i] = readValue();
+				return array;
+			}
+			case CacheWriter.TREE_MAP:
+				return readEntries(new TreeMap<Object, Object>());
+			case CacheWriter.HASH_MAP:
+				return readEntries(new HashMap<Object, Object>());
+			case CacheWriter.TREE_SET: {
+				TreeSet<Object> set  = new TreeSet<>();
+				int             size = readLength(1, false);
+				for (int i = 0; i < size; i++)
+					set.add(readValue());
+				return set;
+			}
+			case CacheWriter.ARRAY_LIST: {
+				int               size = readLength(1, false);
+				ArrayList<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++)
+					list.add(readValue());
+				return list;
+			}
+			case CacheWriter.TREE_NODE: {
+				int index = readInt();
+				if (index < 0 || index >= nodes.size())
+					throw new IOException("unknown tree node");
+				return nodes.get(index);
+			}
+			default:
+				throw new IOException("unknown type: " + type);
+		}
+	}
+	
+	/**
+	 * Reads the entries of a map.
+	 * 
+	 * @param map  the map to be filled
+	 * @return the filled map.
+	 * @throws IOException if the entries cannot be read.
+	 */
+	private Map<Object, Object> readEntries(Map<Object, Object> map) throws IOException {
+		int size = readLength(2, false);
+		for (int i = 0; i < size; i++) {
+			Object key = readValue();
+			map.put(key, readValue());
+		}
+		return map;
+	}
+	
+	/**
+	 * Reads the length of an array, a string or a collection and checks it against
+	 * the remaining data.
+	 * 
+	 * @param minBytesPerElement  minimum number of bytes for each element
+	 * @param allowNegative       **true**, if negative values (for **null** or string references) are allowed
+	 * @return the length.
+	 * @throws IOException if the length is not possible.
+	 */
+	private int readLength(int minBytesPerElement, boolean allowNegative) throws IOException {
+		int length = readInt();
+		if (allowNegative && length < 0)
+			return length;
+		if (length < 0 || (long) length * minBytesPerElement > buffer.remaining())
+			throw new IOException("invalid length: " + length);
+		return length;
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.midica.ui.model.MidicaTreeNode;
+
+/**
+ * Writes values in the binary cache format that can be read by a {@link CacheReader}.
+ * 
+ * All numbers are written in big-endian byte order. Strings are written as their length
+ * followed by their UTF-16 characters, so that every string is restored exactly.
+ * A string that has already been written is written as a reference to the first one.
+ * 
+ * {@link #writeValue(Object)} writes a type tag followed by the value. Supported are:
+ * 
+ * - **null**, strings, booleans, bytes, integers and longs
+ * - byte, int and long arrays
+ * - some object arrays (see {@link #ARRAY_CLASSES})
+ * - tree maps, tree sets, hash maps and array lists containing supported values
+ * - references to tree nodes that have already been written (see {@link #registerNode(MidicaTreeNode)})
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CacheWriter {
+	
+	// type tags
+	static final byte NULL       =  0;
+	static final byte STRING     =  1;
+	static final byte BOOLEAN    =  2;
+	static final byte BYTE       =  3;
+	static final byte INTEGER    =  4;
+	static final byte LONG       =  5;
+	static final byte BYTE_ARRAY =  6;
+	static final byte INT_ARRAY  =  7;
+	static final byte LONG_ARRAY =  8;
+	static final byte ARRAY      =  9;
+	static final byte TREE_MAP   = 10;
+	static final byte TREE_SET   = 11;
+	static final byte HASH_MAP   = 12;
+	static final byte ARRAY_LIST = 13;
+	static final byte TREE_NODE  = 14;
+	
+	/** Supported object array classes. Only the index is written. */
+	static final Class<?>[] ARRAY_CLASSES = {
+		Object[].class,
+		String[].class,
+		Byte[].class,
+		Integer[].class,
+		Long[].class,
+		byte[][].class,
+		int[][].class,
+		int[][][].class,
+	};
+	
+	private final DataOutputStream out;
+	
+	/** string -- index in the order of the first occurrence */
+	private final HashMap<String, Integer> strings = new HashMap<>();
+	
+	/** node -- index in the order of registration */
+	private final IdentityHashMap<MidicaTreeNode, Integer> nodes = new IdentityHashMap<>();
+	
+	/**
+	 * Creates a writer.
+	 * 
+	 * @param stream  the target stream
+	 */
+	public CacheWriter(OutputStream stream) {
+		out = new DataOutputStream(stream);
+	}
+	
+	/**
+	 * Writes a byte.
+	 * 
+	 * @param value  the value
+	 * @throws IOException if the value cannot be written.
+	 */
+	public void writeByte(int value) throws IOException {
+		out.writeByte(value);
+	}
+	
+	/**
+	 * Writes a boolean.
+	 * 
+	 * @param value  the value
+	 * @throws IOException if the value cannot be written.
+	 */
+	public void writeBoolean(boolean value) throws IOException {
+		out.writeBoolean(value);
+	}
+	
+	/**
+	 * Writes an integer.
+	 * 
+	 * @param value  the value
+	 * @throws IOException if the value cannot be written.
+	 */
+	public void writeInt(int value) throws IOException {
+		out.writeInt(value);
+	}
+	
+	/**
+	 * Writes a long.
+	 * 
+	 * @param value  the value
+	 * @throws IOException if the value cannot be written.
+	 */
+	public void writeLong(long value) throws IOException {
+		out.writeLong(value);
+	}
+	
+	/**
+	 * Writes a string that may be **null**.
+	 * 
+	 * Writes **-1** for **null**, **-2 - index** for a string that has already
+	 * been written, or otherwise the length and the characters.
+	 * 
+	 * @param str  the string or **null**
+	 * @throws IOException if the string cannot be written.
+	 */
+	public void writeString(String str) throws IOException {
+		if (null == str) {
+			out.writeInt(-1);
+			return;
+		}
+		Integer index = strings.get(str);
+		if (index != null) {
+			out.writeInt(-2 - index);
+			return;
+		}
+		strings.put(str, strings.size());
+		out.writeInt(str.length());
+		out.writeChars(str);
+	}
+	
+	/**
+	 * Remembers a tree node that is about to be written, so that later
+	 * values can refer to it.
+	 * 
+	 * Must be called in the same order as {@link CacheReader#registerNode(MidicaTreeNode)}.
+	 * 
+	 * @param node  the tree node
+	 */
+	public void registerNode(MidicaTreeNode node) {
+		nodes.put(node, nodes.size());
+	}
+	
+	/**
+	 * Writes a value of one of the supported types, together with its type.
+	 * 
+	 * @param value  the value
+	 * @throws IOException if the value cannot be written or its type is not supported.
+	 */
+	public void writeValue(Object value) throws IOException {
+		if (null == value) {
+			out.writeByte(NULL);
+		}
+		else if (value instanceof String) {
+			out.writeByte(STRING);
+			writeString((String) value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		}
+		else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		}
+		else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		}
+		else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		}
+		else if (value instanceof byte[]) {
+			byte[] array = (byte[]) value;
+			out.writeByte(BYTE_ARRAY);
+			out.writeInt(array.length);
+			out.write(array);
+		}
+		else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			out.writeByte(INT_ARRAY);
+			out.writeInt(array.length);
+			for (int element : array)
+				out.writeInt(element);
+		}
+		else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			out.writeByte(LONG_ARRAY);
+			out.writeInt(array.length);
+			for (long element : array)
+				out.writeLong(element);
+		}
+		else if (value instanceof Object[]) {
+			writeArray((Object[]) value);
+		}
+		else if (value instanceof TreeMap) {
+			TreeMap<?, ?> map = (TreeMap<?, ?>) value;
+			if (map.comparator() != null)
+				throw new IOException("unsupported comparator");
+			out.writeByte(TREE_MAP);
+			writeEntries(map);
+		}
+		else if (value instanceof HashMap) {
+			out.writeByte(HASH_MAP);
+			writeEntries((HashMap<?, ?>) value);
+		}
+		else if (value instanceof TreeSet) {
+			TreeSet<?> set = (TreeSet<?>) value;
+			if (set.comparator() != null)
+				throw new IOException("unsupported comparator");
+			out.writeByte(TREE_SET);
+			out.writeInt(set.size());
+			for (Object element : set)
+				writeValue(element);
+		}
+		else if (value instanceof ArrayList) {
+			ArrayList<?> list = (ArrayList<?>) value;
+			out.writeByte(ARRAY_LIST);
+			out.writeInt(list.size());
+			for (Object element : list)
+				writeValue(element);
+		}
+		else if (value instanceof MidicaTreeNode) {
+			Integer index = nodes.get(value);
+			if (null == index)
+				throw new IOException("tree node not yet written");
+			out.writeByte(TREE_NODE);
+			out.writeInt(index);
+		}
+		else {
+			throw new IOException("unsupported type: " + value.getClass().getName());
+		}
+	}
+	
+	/**
+	 * Writes an object array of one of the supported classes.
+	 * 
+	 * @param array  the array
+	 * @throws IOException if the array cannot be written or its class is not supported.
+	 */
+	private void writeArray(Object[] array) throws IOException {
+		for (int i = 0; i < ARRAY_CLASSES.length; i++) {
+			if (ARRAY_CLASSES[i] == array.getClass()) {
+				out.writeByte(ARRAY);
+				out.writeByte(i);
+				out.writeInt(array.length);
+				for (Object element : array)
+					writeValue(element);
+				return;
+			}
+		}
+		throw new IOException("unsupported array: " + array.getClass().getName());
+	}
+	
+	/**
+	 * Writes the size and the entries of a map.
+	 * 
+	 * @param map  the map
+	 * @throws IOException if the entries cannot be written.
+	 */
+	private void writeEntries(Map<?, ?> map) throws IOException {
+		out.writeInt(map.size());
+		for (Entry<?, ?> entry : map.entrySet()) {
+			writeValue(entry.getKey());
+			writeValue(entry.getValue());
+		}
+	}
+	
+	/**
+	 * Flushes the underlying stream.
+	 * 
+	 * @throws IOException if the stream cannot be flushed.
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+import org.midica.Midica;
+import org.midica.config.Cli;
+import org.midica.config.Config;
+
+/**
+ * Base class for on-disk caches.
+ * 
+ * Each cache file belongs to one SHA-256 key. The key is built by the derived class
+ * from everything that influences the cached result. In addition the key always
+ * contains the version of Midica, so that an upgrade invalidates all cache files.
+ * Derived classes add a fingerprint of the program code that creates the cached
+ * result, using {@link #updateDigestWithCode(MessageDigest, Class...)}.
+ * 
+ * A cache file consists of a header and the payload, written by a {@link CacheWriter}.
+ * The header contains:
+ * 
+ * - magic number (different for each derived class)
+ * - format version
+ * - key
+ * - payload length
+ * - CRC32 checksum of the payload
+ * 
+ * The header and the checksum are validated before the payload is read.
+ * The file is memory-mapped for reading.
+ * 
+ * The cache files are stored in the directory **.midica.cache** in the current user's
+ * home directory. For each derived class only the {@link #MAX_FILES} most recently used
+ * files are kept.
+ * 
+ * No cache is used with **--ignore-local-config**.
+ * 
+ * @author Jan Trukenmüller
+ */
+public abstract class DiskCache {
+	
+	/** Maximum number of cache files of the same type. Older files are deleted. */
+	public static final int MAX_FILES = 32;
+	
+	private static final String DIR_NAME    = ".midica.cache";
+	private static final int    KEY_LENGTH  = 32;
+	private static final int    HEADER_SIZE = 4 + 4 + KEY_LENGTH + 4 + 8;
+	
+	/** config values that are used for texts and note names */
+	private static final String[] TEXT_CONFIG_KEYS = {
+		Config.LANGUAGE, Config.HALF_TONE, Config.SHARP_FLAT, Config.NOTE,
+		Config.OCTAVE, Config.SYNTAX, Config.PERCUSSION, Config.INSTRUMENT,
+	};
+	
+	private final File   cacheFile;
+	private final byte[] key;
+	private final int    magic;
+	private final int    version;
+	private final String suffix;
+	
+	/**
+	 * Creates a cache entry.
+	 * 
+	 * @param digest   the message digest containing everything that influences the cached result
+	 * @param magic    magic number of the cache type
+	 * @param version  format version of the cache type
+	 * @param suffix   file name suffix of the cache type
+	 */
+	protected DiskCache(MessageDigest digest, int magic, int version, String suffix) {
+		updateDigest(digest, "version=" + version);
+		updateDigest(digest, "midica=" + Midica.VERSION + "/" + Midica.COMMIT_TIME);
+		this.key     = digest.digest();
+		this.magic   = magic;
+		this.version = version;
+		this.suffix  = suffix;
+		
+		StringBuilder name = new StringBuilder();
+		for (byte b : key) {
+			name.append(String.format("%02x", b));
+		}
+		name.append(suffix);
+		cacheFile = new File(getDirectory(), name.toString());
+	}
+	
+	/**
+	 * Returns the cache directory.
+	 * 
+	 * @return the directory, or **null** if no cache is used.
+	 */
+	protected static File getDirectory() {
+		if (! Cli.useLocalConfig)
+			return null;
+		return new File(System.getProperty("user.home"), DIR_NAME);
+	}
+	
+	/**
+	 * Creates a message digest for the key.
+	 * 
+	 * @return the message digest.
+	 * @throws NoSuchAlgorithmException if SHA-256 is not available.
+	 */
+	protected static MessageDigest createDigest() throws NoSuchAlgorithmException {
+		return MessageDigest.getInstance("SHA-256");
+	}
+	
+	/**
+	 * Adds a string to a message digest.
+	 * 
+	 * @param digest  the message digest
+	 * @param str     the string to add
+	 */
+	protected static void updateDigest(MessageDigest digest, String str) {
+		digest.update(str.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+	
+	/**
+	 * Adds the config values to a message digest that are used for texts, note names,
+	 * instrument names and the MidicaPL syntax.
+	 * 
+	 * @param digest  the message digest
+	 */
+	protected static void updateDigestWithTextConfig(MessageDigest digest) {
+		for (String configKey : TEXT_CONFIG_KEYS) {
+			updateDigest(digest, configKey + "=" + Config.get(configKey));
+		}
+	}
+	
+	/**
+	 * Adds a fingerprint of the program code to a message digest.
+	 * 
+	 * The fingerprint consists of:
+	 * 
+	 * - the size and modification time of the jar file, if Midica runs from a jar file
+	 * - the content of the class files of the given classes
+	 * 
+	 * So the cache files become invalid if the code that creates the cached result
+	 * changes, even without a new version number.
+	 * 
+	 * @param digest   the message digest
+	 * @param classes  the classes that create the cached result
+	 * @throws IOException if a class file cannot be read.
+	 */
+	protected static void updateDigestWithCode(MessageDigest digest, Class<?>... classes) throws IOException {
+		
+		// jar file
+		try {
+			CodeSource source = DiskCache.class.getProtectionDomain().getCodeSource();
+			if (source != null) {
+				File location = new File(source.getLocation().toURI());
+				if (location.isFile())
+					updateDigest(digest, "jar=" + location.length() + "/" + location.lastModified());
+			}
+		}
+		catch (URISyntaxException | IllegalArgumentException | SecurityException e) {
+		}
+		
+		// class files
+		for (Class<?> cls : classes) {
+			String name = cls.getName();
+			name        = name.substring(name.lastIndexOf('.') + 1) + ".class";
+			try (InputStream stream = cls.getResourceAsStream(name)) {
+				if (null == stream)
+					throw new IOException("class file not found: " + name);
+				byte[] buffer = new byte[65536];
+				int    length;
+				while ((length = stream.read(buffer)) > 0) {
+					digest.update(buffer, 0, length);
+				}
+			}
+			digest.update((byte) 0);
+		}
+	}
+	
+	/**
+	 * Adds the content of a file to a message digest.
+	 * 
+	 * @param digest  the message digest
+	 * @param file    the file to add
+	 * @throws IOException if the file cannot be read.
+	 */
+	protected static void updateDigest(MessageDigest digest, File file) throws IOException {
+		try (InputStream stream = new FileInputStream(file)) {
+			byte[] buffer = new byte[65536];
+			int    length;
+			while ((length = stream.read(buffer)) > 0) {
+				digest.update(buffer, 0, length);
+			}
+		}
+		digest.update((byte) 0);
+	}
+	
+	/**
+	 * Returns a reader for the payload of the cache file.
+	 * 
+	 * @return the reader, or **null** if the cache file doesn't exist.
+	 * @throws IOException if the cache file is invalid.
+	 */
+	protected CacheReader read() throws IOException {
+		if (! cacheFile.isFile())
+			return null;
+		
+		// the mapped buffer stays valid after closing the channel
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		// header
+		if (buffer.remaining() < HEADER_SIZE)
+			throw new IOException("incomplete header");
+		if (buffer.getInt() != magic)
+			throw new IOException("wrong magic number");
+		if (buffer.getInt() != version)
+			throw new IOException("wrong version");
+		byte[] fileKey = new byte[KEY_LENGTH];
+		buffer.get(fileKey);
+		if (! Arrays.equals(key, fileKey))
+			throw new IOException("wrong key");
+		int  length   = buffer.getInt();
+		long checksum = buffer.getLong();
+		if (length != buffer.remaining())
+			throw new IOException("wrong payload length");
+		
+		// payload
+		ByteBuffer payload = buffer.slice();
+		CRC32      crc     = new CRC32();
+		crc.update(payload.duplicate());
+		if (crc.getValue() != checksum)
+			throw new IOException("wrong checksum");
+		
+		return new CacheReader(payload);
+	}
+	
+	/**
+	 * Writes the cache file.
+	 * 
+	 * The file is written to a temporary file first and then moved, so that no
+	 * incomplete cache file can be read.
+	 * 
+	 * @param payload  the payload, written by a {@link CacheWriter}
+	 * @throws IOException if the file cannot be written.
+	 */
+	protected void write(byte[] payload) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		
+		File dir = cacheFile.getParentFile();
+		if (! dir.isDirectory() && ! dir.mkdirs())
+			throw new IOException("cannot create " + dir);
+		File tmpFile = File.createTempFile("cache", ".tmp", dir);
+		try {
+			try (OutputStream stream = new FileOutputStream(tmpFile)) {
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeInt(magic);
+				out.writeInt(version);
+				out.write(key);
+				out.writeInt(payload.length);
+				out.writeLong(crc.getValue());
+				out.write(payload);
+				out.flush();
+			}
+			Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally {
+			tmpFile.delete();
+		}
+		
+		evict(dir);
+	}
+	
+	/**
+	 * Marks the cache file as recently used.
+	 */
+	protected void markUsed() {
+		cacheFile.setLastModified(System.currentTimeMillis());
+	}
+	
+	/**
+	 * Deletes the cache file, e.g. because it's invalid.
+	 */
+	protected void delete() {
+		cacheFile.delete();
+	}
+	
+	/**
+	 * Deletes the least recently used cache files of the same type, if there are too many.
+	 * 
+	 * @param dir  the cache directory
+	 */
+	private void evict(File dir) {
+		File[] files = dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.getName().endsWith(suffix);
+			}
+		});
+		if (null == files || files.length <= MAX_FILES)
+			return;
+		
+		// newest first
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(b.lastModified(), a.lastModified());
+			}
+		});
+		for (int i = MAX_FILES; i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+}
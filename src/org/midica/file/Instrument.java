@@ -245,6 +245,37 @@ public class Instrument implements Comparable<Instrument> {
 		return stopTickForLegatoCorrection;
 	}
 	
+	/**
+	 * Indicates if a note starting at the given tickstamp would overlap with the last
+	 * key stroke of the same note (legato overlapping).
+	 * 
+	 * @param note  Note number.
+	 * @param tick  Tickstamp of the new note.
+	 * @return **true** if the last key stroke of the note would have to be corrected.
+	 */
+	public boolean isLegatoOverlapping(int note, long tick) {
+		Long lastOnTick  = lastNoteOn.get(note);
+		Long lastOffTick = lastNoteOff.get(note);
+		if (null == lastOnTick || null == lastOffTick)
+			return false;
+		return lastOnTick < tick && lastOffTick >= tick;
+	}
+	
+	/**
+	 * Stores the tickstamps of a key stroke that has not been added by {@link #addNote(int, int)},
+	 * so that the next legato check of this note is still correct.
+	 * 
+	 * This is used for key strokes that are replayed from a recorded function or pattern call.
+	 * 
+	 * @param note       Note number.
+	 * @param onTick     Tickstamp of the NOTE-ON.
+	 * @param offTick    Tickstamp of the NOTE-OFF.
+	 */
+	public void setLastNote(int note, long onTick, long offTick) {
+		lastNoteOn.put(note, onTick);
+		lastNoteOff.put(note, offTick);
+	}
+	
 	/**
 	 * Increments the tickstamp according to the note length duration.
 	 * 
@@ -0,0 +1,75 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one processing phase, recorded by {@link PhaseStats}.
+ * 
+ * This class is only loaded if the JVM supports the Flight Recorder.
+ * That's why the public methods use **Object** instead of this class.
+ * 
+ * The events can be recorded like this:
+ * 
+ *     java -XX:StartFlightRecording=filename=midica.jfr -jar midica.jar ...
+ * 
+ * @author Jan Trukenmüller
+ */
+@Name("org.midica.Phase")
+@Label("Midica Phase")
+@Category("Midica")
+@Description("Processing phase of parsing, analyzing or exporting")
+public class PhaseEvent extends Event {
+	
+	@Label("Phase")
+	public String phase;
+	
+	@Label("Events")
+	@Description("Number of processed lines, messages or slices")
+	public long events;
+	
+	@Label("Allocated")
+	@DataAmount
+	public long allocatedBytes;
+	
+	/**
+	 * Creates and starts an event.
+	 * 
+	 * @return the started event.
+	 */
+	static Object start() {
+		PhaseEvent event = new PhaseEvent();
+		event.begin();
+		return event;
+	}
+	
+	/**
+	 * Finishes and commits an event created by {@link #start()}.
+	 * 
+	 * @param eventObj  the event
+	 * @param name      phase name
+	 * @param events    number of processed events
+	 * @param bytes     allocated bytes, or **-1** if unknown
+	 */
+	static void finish(Object eventObj, String name, long events, long bytes) {
+		PhaseEvent event = (PhaseEvent) eventObj;
+		event.end();
+		if (event.shouldCommit()) {
+			event.phase          = name;
+			event.events         = events;
+			event.allocatedBytes = bytes;
+			event.commit();
+		}
+	}
+}
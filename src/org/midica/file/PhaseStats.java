@@ -0,0 +1,251 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+/**
+ * This class records wall time, event counts and allocated bytes per processing phase.
+ * 
+ * A phase is started with {@link #begin(String)} and finished with {@link Phase#end(long)}.
+ * 
+ * The collected values are used in two ways:
+ * 
+ * - If enabled by {@link #enable()} (e.g. by the command line option `--stats=json`),
+ *   they are aggregated per phase name and can be fetched with {@link #toJson()}.
+ * - If the JVM supports the Flight Recorder, each finished phase is also emitted as a
+ *   {@link PhaseEvent}. These events only cost anything while a recording is running.
+ * 
+ * If neither is possible, {@link #begin(String)} returns a shared dummy phase without
+ * measuring anything.
+ * 
+ * @author Jan Trukenmüller
+ */
+public final class PhaseStats {
+	
+	private static final Phase        NO_PHASE     = new Phase(null);
+	private static final ThreadMXBean threadBean   = ManagementFactory.getThreadMXBean();
+	private static final boolean      isJfrPresent = isClassPresent("jdk.jfr.Event");
+	private static final boolean      isAllocReady = isAllocationSupported();
+	
+	private static boolean isEnabled = false;
+	
+	/** phase name -- { count, nanoseconds, events, allocated bytes } */
+	private static final LinkedHashMap<String, long[]> stats = new LinkedHashMap<>();
+	
+	/**
+	 * This class is only used statically so a public constructor is not needed.
+	 */
+	private PhaseStats() {
+	}
+	
+	/**
+	 * Enables the aggregation of phase statistics.
+	 */
+	public static void enable() {
+		isEnabled = true;
+	}
+	
+	/**
+	 * Determins if the aggregation of phase statistics is enabled.
+	 * 
+	 * @return **true** if enabled, otherwise **false**.
+	 */
+	public static boolean isEnabled() {
+		return isEnabled;
+	}
+	
+	/**
+	 * Starts a phase.
+	 * 
+	 * The returned phase must be finished in the same thread.
+	 * The name is also published as the phase of the current {@link TaskProgress} task.
+	 * 
+	 * @param name  phase name, e.g. **mpl.run.default**
+	 * @return the started phase.
+	 */
+	public static Phase begin(String name) {
+		TaskProgress.setPhase(name);
+		if ( ! isEnabled && ! isJfrPresent )
+			return NO_PHASE;
+		
+		Phase phase      = new Phase(name);
+		phase.startBytes = getAllocatedBytes();
+		phase.jfrEvent   = isJfrPresent ? PhaseEvent.start() : null;
+		phase.startNanos = System.nanoTime();
+		
+		return phase;
+	}
+	
+	/**
+	 * Counts the events of all tracks in the given sequence.
+	 * 
+	 * @param seq  the sequence (may be **null**)
+	 * @return number of events.
+	 */
+	public static long countEvents(Sequence seq) {
+		if (null == seq)
+			return 0;
+		long count = 0;
+		for (Track track : seq.getTracks()) {
+			count += track.size();
+		}
+		return count;
+	}
+	
+	/**
+	 * Deletes all aggregated statistics.
+	 */
+	public static synchronized void reset() {
+		stats.clear();
+	}
+	
+	/**
+	 * Creates a JSON report of all aggregated statistics.
+	 * 
+	 * Structure:
+	 * 
+	 *     {"phases":[{"name":"...","count":1,"wall_ns":123,"events":45,"allocated_bytes":6789}, ...]}
+	 * 
+	 * If the allocation cannot be measured, **allocated_bytes** is **-1**.
+	 * 
+	 * @return the report.
+	 */
+	public static synchronized String toJson() {
+		StringBuilder json = new StringBuilder("{\"phases\":[");
+		boolean isFirst = true;
+		for (Entry<String, long[]> entry : stats.entrySet()) {
+			long[] values = entry.getValue();
+			if ( ! isFirst )
+				json.append(",");
+			json.append("{\"name\":\"" + entry.getKey().replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+			json.append(",\"count\":"           + values[0]);
+			json.append(",\"wall_ns\":"         + values[1]);
+			json.append(",\"events\":"          + values[2]);
+			json.append(",\"allocated_bytes\":" + (isAllocReady ? values[3] : -1));
+			json.append("}");
+			isFirst = false;
+		}
+		json.append("]}");
+		
+		return json.toString();
+	}
+	
+	/**
+	 * Adds the values of a finished phase to the aggregated statistics.
+	 * 
+	 * @param name    phase name
+	 * @param nanos   wall time in nanoseconds
+	 * @param events  number of processed events
+	 * @param bytes   allocated bytes
+	 */
+	private static synchronized void add(String name, long nanos, long events, long bytes) {
+		long[] values = stats.get(name);
+		if (null == values) {
+			values = new long[4];
+			stats.put(name, values);
+		}
+		values[0]++;
+		values[1] += nanos;
+		values[2] += events;
+		values[3] += bytes;
+	}
+	
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 * 
+	 * @return allocated bytes, or **0** if not supported.
+	 */
+	private static long getAllocatedBytes() {
+		if ( ! isAllocReady )
+			return 0;
+		return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Determins if the JVM can measure the allocated bytes per thread.
+	 * 
+	 * @return **true** if supported, otherwise **false**.
+	 */
+	private static boolean isAllocationSupported() {
+		try {
+			if ( ! isClassPresent("com.sun.management.ThreadMXBean") )
+				return false;
+			if ( ! (threadBean instanceof com.sun.management.ThreadMXBean) )
+				return false;
+			com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+			if ( ! bean.isThreadAllocatedMemorySupported() )
+				return false;
+			if ( ! bean.isThreadAllocatedMemoryEnabled() )
+				bean.setThreadAllocatedMemoryEnabled(true);
+			return true;
+		}
+		catch (UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Determins if the given class can be loaded.
+	 * 
+	 * @param className  fully qualified class name
+	 * @return **true** if the class is available, otherwise **false**.
+	 */
+	private static boolean isClassPresent(String className) {
+		try {
+			Class.forName(className);
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * A started phase, returned by {@link PhaseStats#begin(String)}.
+	 */
+	public static final class Phase {
+		
+		private final String name;
+		private long         startNanos;
+		private long         startBytes;
+		private Object       jfrEvent;
+		
+		/**
+		 * Creates a phase.
+		 * 
+		 * @param name  phase name, or **null** for the dummy phase
+		 */
+		private Phase(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Finishes the phase.
+		 * 
+		 * @param events  number of events processed in this phase (lines, messages, slices, ...)
+		 */
+		public void end(long events) {
+			if (null == name)
+				return;
+			
+			long nanos = System.nanoTime() - startNanos;
+			long bytes = getAllocatedBytes() - startBytes;
+			if (isEnabled)
+				add(name, nanos, events, bytes);
+			if (jfrEvent != null)
+				PhaseEvent.finish(jfrEvent, name, events, isAllocReady ? bytes : -1);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+/**
+ * Exceptions of this class are thrown by {@link TaskProgress#check()} if a
+ * time-consuming task has been cancelled or has exceeded the timeout.
+ * 
+ * The exception is unchecked so that it can pass through code that doesn't expect it.
+ * It's converted into the exception type of the task (e.g. a parse exception) where
+ * the task is controlled.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class TaskCancelledException extends RuntimeException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Creates an exception with the given message
+	 * 
+	 * @param message    Error message
+	 */
+	public TaskCancelledException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import org.midica.config.Cli;
+import org.midica.config.Dict;
+import org.midica.midi.SequenceCreator;
+
+/**
+ * This class provides cooperative cancellation and progress reporting for
+ * time-consuming tasks like parsing, analyzing or decompiling.
+ * 
+ * Each task has its own object of this class. It's created by the worker that runs the
+ * task, before the task is executed in the background, so that the task can be
+ * cancelled as soon as it's running. The thread executing the task binds the object
+ * with {@link #attach()} and releases it with {@link #detach()}.
+ * In between, the task calls {@link #check()} regularly. This method throws a
+ * {@link TaskCancelledException}, if:
+ * 
+ * - {@link #cancel()} has been called for the task of the calling thread,
+ *   e.g. by the cancel button of a wait dialog; or
+ * - the timeout of the command line option `--timeout` has been exceeded.
+ * 
+ * The task publishes its progress (phase and line). It can be queried from another
+ * thread with {@link #getDescription()}. The phase is published by {@link PhaseStats#begin(String)}.
+ * 
+ * Outside of a task, {@link #check()} does nothing. Tasks running at the same time
+ * (e.g. a hot swap during an auto-tune search) don't influence each other.
+ * 
+ * @author Jan Trukenmüller
+ */
+public final class TaskProgress {
+	
+	/** task of the current thread */
+	private static final ThreadLocal<TaskProgress> current = new ThreadLocal<>();
+	
+	private volatile boolean isCancelled = false;
+	private final    long    deadline;              // according to System.nanoTime()
+	private final    boolean hasDeadline;
+	private volatile String  phase       = null;
+	private volatile int     line        = 0;
+	
+	/**
+	 * Creates a task.
+	 * The timeout of the command line option `--timeout` starts now.
+	 */
+	public TaskProgress() {
+		hasDeadline = Cli.timeout > 0;
+		deadline    = System.nanoTime() + Cli.timeout * 1000000000L;
+	}
+	
+	/**
+	 * Binds the task to the calling thread, so that the checkpoints in this
+	 * thread refer to it.
+	 * 
+	 * Must be called by the thread executing the task, and also by helper
+	 * threads that are executing a part of the task.
+	 */
+	public void attach() {
+		current.set(this);
+	}
+	
+	/**
+	 * Releases the task from the calling thread.
+	 */
+	public void detach() {
+		current.remove();
+	}
+	
+	/**
+	 * Returns the task of the calling thread.
+	 * 
+	 * @return the task, or **null** outside of a task.
+	 */
+	public static TaskProgress current() {
+		return current.get();
+	}
+	
+	/**
+	 * Cancels the task.
+	 * The task stops at the next call of {@link #check()}.
+	 */
+	public void cancel() {
+		isCancelled = true;
+	}
+	
+	/**
+	 * Determins if the task has been cancelled by {@link #cancel()}.
+	 * 
+	 * @return **true** if cancelled, otherwise **false**.
+	 */
+	public boolean isCancelled() {
+		return isCancelled;
+	}
+	
+	/**
+	 * Checks if the task of the calling thread must stop.
+	 * 
+	 * @throws TaskCancelledException if the task has been cancelled or the timeout is exceeded.
+	 */
+	public static void check() {
+		TaskProgress task = current.get();
+		if (null == task)
+			return;
+		if (task.isCancelled)
+			throw new TaskCancelledException(Dict.get(Dict.ERROR_TASK_CANCELLED));
+		if (task.hasDeadline && System.nanoTime() - task.deadline > 0)
+			throw new TaskCancelledException(String.format(Dict.get(Dict.ERROR_TASK_TIMEOUT), Cli.timeout));
+	}
+	
+	/**
+	 * Publishes the phase of the task of the calling thread.
+	 * Resets the line.
+	 * 
+	 * @param name  phase name, e.g. **mpl.run.default**
+	 */
+	public static void setPhase(String name) {
+		TaskProgress task = current.get();
+		if (null == task)
+			return;
+		task.phase = name;
+		task.line  = 0;
+	}
+	
+	/**
+	 * Publishes the line that is currently processed by the task of the calling thread.
+	 * 
+	 * @param lineNumber  line number
+	 */
+	public static void setLine(int lineNumber) {
+		TaskProgress task = current.get();
+		if (task != null)
+			task.line = lineNumber;
+	}
+	
+	/**
+	 * Describes the progress of the task: phase, line and the number of events
+	 * that have been created so far.
+	 * 
+	 * @return the description, or an empty string if no phase has been published yet.
+	 */
+	public String getDescription() {
+		String currentPhase = phase;
+		if (null == currentPhase)
+			return "";
+		StringBuilder description = new StringBuilder(currentPhase);
+		int currentLine = line;
+		if (currentLine > 0)
+			description.append(", " + String.format(Dict.get(Dict.PROGRESS_LINE), currentLine));
+		long events = PhaseStats.countEvents(SequenceCreator.getSequence());
+		description.append(", " + String.format(Dict.get(Dict.PROGRESS_EVENTS), events));
+		
+		return description.toString();
+	}
+}
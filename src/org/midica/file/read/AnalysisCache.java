@@ -0,0 +1,133 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import javax.sound.midi.Sequence;
+
+import org.midica.config.Cli;
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
+import org.midica.file.DiskCache;
+import org.midica.midi.KaraokeAnalyzer;
+import org.midica.midi.MessageClassifier;
+import org.midica.midi.SequenceAnalyzer;
+
+/**
+ * On-disk cache for the results of the {@link SequenceAnalyzer}.
+ * 
+ * The cache is used for MIDI files. The key is built from:
+ * 
+ * - the content of the MIDI file
+ * - the charset that has been chosen in the file chooser
+ * - the config values that are used for the texts in the analysis results (language,
+ *   note names, percussion and instrument names, and so on)
+ * - the version of Midica and the class files of the analyzers
+ * 
+ * The cache is not used with **--no-analysis-cache**.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class AnalysisCache extends DiskCache {
+	
+	private static final String FILE_SUFFIX = ".analysis";
+	private static final int    MAGIC       = 0x4D444341; // "MDCA"
+	private static final int    VERSION     = 1;
+	
+	/** classes whose code influences the analysis results */
+	private static final Class<?>[] ANALYZER_CLASSES = {
+		MidiParser.class, SequenceAnalyzer.class, KaraokeAnalyzer.class, MessageClassifier.class,
+	};
+	
+	private final String charset;
+	
+	/**
+	 * Creates a cache entry.
+	 * 
+	 * @param digest   the message digest containing the key data
+	 * @param charset  The charset that has been chosen in the file chooser.
+	 */
+	private AnalysisCache(MessageDigest digest, String charset) {
+		super(digest, MAGIC, VERSION, FILE_SUFFIX);
+		this.charset = charset;
+	}
+	
+	/**
+	 * Returns the cache entry for the given MIDI file.
+	 * 
+	 * @param file     the MIDI file
+	 * @param charset  The charset that has been chosen in the file chooser.
+	 * @return the cache entry, or **null** if the cache is not used or the file cannot be read.
+	 */
+	public static AnalysisCache forFile(File file, String charset) {
+		if (null == getDirectory() || ! Cli.useAnalysisCache)
+			return null;
+		
+		try {
+			MessageDigest digest = createDigest();
+			updateDigest(digest, file);
+			updateDigest(digest, "charset=" + charset);
+			updateDigestWithTextConfig(digest);
+			updateDigestWithCode(digest, ANALYZER_CLASSES);
+			
+			return new AnalysisCache(digest, charset);
+		}
+		catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Restores the analysis results of the given sequence from the cache file, if possible.
+	 * 
+	 * If the cache file exists but is invalid, it's deleted.
+	 * 
+	 * @param seq  the sequence that would be analyzed
+	 * @return **true** if the analysis results have been restored, otherwise **false**.
+	 */
+	public boolean restore(Sequence seq) {
+		try {
+			CacheReader reader = read();
+			if (null == reader)
+				return false;
+			SequenceAnalyzer.readFromCache(reader, seq, charset);
+			if (reader.hasRemaining())
+				throw new IOException("unexpected data after the payload");
+		}
+		catch (IOException | RuntimeException e) {
+			delete();
+			return false;
+		}
+		markUsed();
+		
+		return true;
+	}
+	
+	/**
+	 * Writes the results of the last analysis to the cache file.
+	 * 
+	 * Must be called directly after {@link SequenceAnalyzer#analyze(Sequence, String)}.
+	 * Errors are ignored because the cache is optional.
+	 */
+	public void store() {
+		try {
+			ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			CacheWriter           writer  = new CacheWriter(payload);
+			SequenceAnalyzer.writeToCache(writer);
+			writer.flush();
+			write(payload.toByteArray());
+		}
+		catch (IOException | RuntimeException e) {
+		}
+	}
+}
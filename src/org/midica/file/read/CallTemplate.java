@@ -0,0 +1,281 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import javax.sound.midi.InvalidMidiDataException;
+
+import org.midica.file.Instrument;
+import org.midica.midi.SequenceCreator;
+
+/**
+ * Event template of one execution of a function call or pattern call.
+ * 
+ * While a call is executed for the first time, the {@link MidicaPLParser} records
+ * everything that the call does:
+ * 
+ * - the key strokes, relative to the tickstamp of their channel when the channel was touched first
+ * - the entry state (velocity, duration ratio) of all touched channels
+ * - the exit state (velocity, duration ratio, tickstamp increment) of all touched channels
+ * - the values of all global variables that have been read
+ * 
+ * If the call does anything else (e.g. changing variables or tempo, writing lyrics or
+ * correcting legato overlappings), the template is marked as impure and never replayed.
+ * 
+ * A later call with the same key (call, parameters and shift) can be replayed from
+ * the template, if the entry state and the variables are still the same, and if the
+ * replayed notes don't overlap with notes from before the call.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CallTemplate {
+	
+	private static final int NUM_CHANNELS = 16;
+	
+	private final boolean[] touched       = new boolean[NUM_CHANNELS];
+	private final long[]    entryTicks    = new long[NUM_CHANNELS];
+	private final int[]     entryVelocity = new int[NUM_CHANNELS];
+	private final float[]   entryDuration = new float[NUM_CHANNELS];
+	private final int[]     exitVelocity  = new int[NUM_CHANNELS];
+	private final float[]   exitDuration  = new float[NUM_CHANNELS];
+	private final long[]    tickDelta     = new long[NUM_CHANNELS];
+	
+	private boolean exitChainOpened = false;
+	private boolean exitChainHit    = false;
+	
+	// recorded key strokes
+	private int       count      = 0;
+	private int[]     channels   = new int[16];
+	private int[]     notes      = new int[16]; // note numbers before transposition
+	private int[]     midiNotes  = new int[16]; // note numbers after transposition
+	private long[]    startTicks = new long[16];
+	private long[]    endTicks   = new long[16];
+	private int[]     velocities = new int[16];
+	private boolean[] isFirst    = null;        // first key stroke of a note in a channel
+	
+	// global variables that have been read
+	private final ArrayList<String> varNames  = new ArrayList<>();
+	private final ArrayList<String> varValues = new ArrayList<>();
+	
+	private boolean isPure = true;
+	
+	/**
+	 * Remembers the entry state of the given channel, if the channel
+	 * has not been touched yet.
+	 * 
+	 * Must be called before the call changes anything in the channel.
+	 * 
+	 * @param channel  channel number
+	 * @param instr    the channel's instrument
+	 */
+	void touch(int channel, Instrument instr) {
+		if (touched[channel])
+			return;
+		touched[channel]       = true;
+		entryTicks[channel]    = instr.getCurrentTicks();
+		entryVelocity[channel] = instr.getVelocity();
+		entryDuration[channel] = instr.getDurationRatio();
+	}
+	
+	/**
+	 * Records a key stroke.
+	 * 
+	 * @param channel    channel number
+	 * @param note       note number before transposition
+	 * @param midiNote   note number after transposition
+	 * @param startTick  tickstamp of the note-ON event
+	 * @param endTick    tickstamp of the note-OFF event
+	 * @param velocity   velocity
+	 */
+	void addKeystroke(int channel, int note, int midiNote, long startTick, long endTick, int velocity) {
+		if (! touched[channel]) {
+			isPure = false;
+			return;
+		}
+		if (count == channels.length) {
+			int newSize = count * 2;
+			channels   = Arrays.copyOf(channels,   newSize);
+			notes      = Arrays.copyOf(notes,      newSize);
+			midiNotes  = Arrays.copyOf(midiNotes,  newSize);
+			startTicks = Arrays.copyOf(startTicks, newSize);
+			endTicks   = Arrays.copyOf(endTicks,   newSize);
+			velocities = Arrays.copyOf(velocities, newSize);
+		}
+		channels[count]   = channel;
+		notes[count]      = note;
+		midiNotes[count]  = midiNote;
+		startTicks[count] = startTick - entryTicks[channel];
+		endTicks[count]   = endTick   - entryTicks[channel];
+		velocities[count] = velocity;
+		count++;
+	}
+	
+	/**
+	 * Records that a global variable has been read.
+	 * 
+	 * @param name   variable name
+	 * @param value  variable value
+	 */
+	void addVariable(String name, String value) {
+		if (varNames.contains(name))
+			return;
+		varNames.add(name);
+		varValues.add(value);
+	}
+	
+	/**
+	 * Marks the template as impure, so that it will never be replayed.
+	 */
+	void markImpure() {
+		isPure = false;
+	}
+	
+	/**
+	 * Indicates if the template can be replayed at all.
+	 * 
+	 * @return **true** if the recorded call had no other effects than the recorded ones.
+	 */
+	boolean isPure() {
+		return isPure;
+	}
+	
+	/**
+	 * Finishes the recording.
+	 * 
+	 * @param instruments      all channels
+	 * @param chainOpened      the parser's if/elsif chain state after the call
+	 * @param chainHit         the parser's if/elsif hit state after the call
+	 */
+	void finish(ArrayList<Instrument> instruments, boolean chainOpened, boolean chainHit) {
+		for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+			if (! touched[channel])
+				continue;
+			Instrument instr = instruments.get(channel);
+			exitVelocity[channel] = instr.getVelocity();
+			exitDuration[channel] = instr.getDurationRatio();
+			tickDelta[channel]    = instr.getCurrentTicks() - entryTicks[channel];
+		}
+		exitChainOpened = chainOpened;
+		exitChainHit    = chainHit;
+		
+		// only the first key stroke of each note can overlap with a note from before the call
+		isFirst = new boolean[count];
+		HashSet<Long> seen = new HashSet<>();
+		for (int i = 0; i < count; i++) {
+			long key   = ((long) channels[i] << 32) | (notes[i] & 0xFFFFFFFFL);
+			isFirst[i] = seen.add(key);
+		}
+	}
+	
+	/**
+	 * Checks if the template can be replayed in the current state.
+	 * 
+	 * @param instruments  all channels
+	 * @param variables    all global variables
+	 * @return **true** if replaying leads to the same result as executing the call.
+	 */
+	boolean matches(ArrayList<Instrument> instruments, HashMap<String, String> variables) {
+		if (! isPure || null == isFirst)
+			return false;
+		
+		// entry state
+		for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+			if (! touched[channel])
+				continue;
+			Instrument instr = instruments.get(channel);
+			if (instr.getVelocity() != entryVelocity[channel])
+				return false;
+			if (Float.compare(instr.getDurationRatio(), entryDuration[channel]) != 0)
+				return false;
+		}
+		
+		// variables
+		for (int i = 0; i < varNames.size(); i++) {
+			if (! varValues.get(i).equals(variables.get(varNames.get(i))))
+				return false;
+		}
+		
+		// legato overlappings with notes from before the call
+		for (int i = 0; i < count; i++) {
+			if (! isFirst[i])
+				continue;
+			Instrument instr = instruments.get(channels[i]);
+			if (instr.isLegatoOverlapping(notes[i], instr.getCurrentTicks() + startTicks[i]))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Replays the template.
+	 * 
+	 * Adds all key strokes to the sequence, shifted to the current tickstamps of their
+	 * channels, and applies the exit state to the touched channels.
+	 * 
+	 * @param instruments  all channels
+	 * @param recorder     the template of an enclosing call that is currently recorded, or **null**
+	 * @throws InvalidMidiDataException if a MIDI message cannot be created.
+	 */
+	void replay(ArrayList<Instrument> instruments, CallTemplate recorder) throws InvalidMidiDataException {
+		long[] offsets = new long[NUM_CHANNELS];
+		for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+			if (! touched[channel])
+				continue;
+			Instrument instr = instruments.get(channel);
+			if (recorder != null)
+				recorder.touch(channel, instr);
+			offsets[channel] = instr.getCurrentTicks();
+		}
+		
+		SequenceCreator.addMessageKeystrokes(count, channels, midiNotes, startTicks, endTicks, velocities, offsets);
+		
+		for (int i = 0; i < count; i++) {
+			int  channel = channels[i];
+			long offset  = offsets[channel];
+			instruments.get(channel).setLastNote(notes[i], startTicks[i] + offset, endTicks[i] + offset);
+			if (recorder != null)
+				recorder.addKeystroke(channel, notes[i], midiNotes[i], startTicks[i] + offset, endTicks[i] + offset, velocities[i]);
+		}
+		if (recorder != null) {
+			for (int i = 0; i < varNames.size(); i++)
+				recorder.addVariable(varNames.get(i), varValues.get(i));
+		}
+		
+		for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+			if (! touched[channel])
+				continue;
+			Instrument instr = instruments.get(channel);
+			instr.setVelocity(exitVelocity[channel]);
+			instr.setDurationRatio(exitDuration[channel]);
+			instr.setCurrentTicks(offsets[channel] + tickDelta[channel]);
+		}
+	}
+	
+	/**
+	 * Returns the parser's if/elsif chain state after the recorded call.
+	 * 
+	 * @return **true** if the chain was opened.
+	 */
+	boolean getExitChainOpened() {
+		return exitChainOpened;
+	}
+	
+	/**
+	 * Returns the parser's if/elsif hit state after the recorded call.
+	 * 
+	 * @return **true** if the chain had a hit.
+	 */
+	boolean getExitChainHit() {
+		return exitChainHit;
+	}
+}
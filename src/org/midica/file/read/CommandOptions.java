@@ -0,0 +1,322 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+/**
+ * Reusable record of the options found in the options part of a MidicaPL command.
+ * 
+ * The options can belong to:
+ * 
+ * - a channel command
+ * - a CALL command
+ * - a pattern call or pattern line
+ * - an opening or closing brace of a nestable block
+ * 
+ * The record is filled by the option lexer of the {@link MidicaPLParser}.
+ * It is reset and reused for each options string, so the values must be read
+ * before the next options string is parsed.
+ * 
+ * The order in which the options appeared is stored as a list of option IDs.
+ * The values are stored in primitive fields. If an option appears more than
+ * once, the last value is stored. Exceptions:
+ * 
+ * - shift values are summed up
+ * - for **if** and **elsif** the first condition is stored
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CommandOptions {
+	
+	public static final int VELOCITY = 0;
+	public static final int MULTIPLE = 1;
+	public static final int DURATION = 2;
+	public static final int QUANTITY = 3;
+	public static final int LYRICS   = 4;
+	public static final int TUPLET   = 5;
+	public static final int TREMOLO  = 6;
+	public static final int SHIFT    = 7;
+	public static final int IF       = 8;
+	public static final int ELSIF    = 9;
+	public static final int ELSE     = 10;
+	
+	private static final String[] NAMES = {
+		MidicaPLParser.OPT_VELOCITY,
+		MidicaPLParser.OPT_MULTIPLE,
+		MidicaPLParser.OPT_DURATION,
+		MidicaPLParser.OPT_QUANTITY,
+		MidicaPLParser.OPT_LYRICS,
+		MidicaPLParser.OPT_TUPLET,
+		MidicaPLParser.OPT_TREMOLO,
+		MidicaPLParser.OPT_SHIFT,
+		MidicaPLParser.OPT_IF,
+		MidicaPLParser.OPT_ELSIF,
+		MidicaPLParser.OPT_ELSE,
+	};
+	
+	private int[] order = new int[8];
+	private int   count = 0;
+	
+	private int    velocity      = 0;
+	private float  duration      = 0;
+	private int    quantity      = 0;
+	private String lyrics        = null;
+	private String tuplet        = null;
+	private int    tremolo       = 0;
+	private String tremoloString = null;
+	private int    shift         = 0;
+	private String condIf        = null;
+	private String condElsif     = null;
+	
+	/**
+	 * Removes all options so that the record can be reused.
+	 */
+	public void reset() {
+		count         = 0;
+		lyrics        = null;
+		tuplet        = null;
+		tremoloString = null;
+		shift         = 0;
+		condIf        = null;
+		condElsif     = null;
+	}
+	
+	/**
+	 * Returns the number of options, including duplicates.
+	 * 
+	 * @return number of options.
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Returns the ID of the option at the given position.
+	 * 
+	 * @param i  position of the option inside of the options string
+	 * @return the option ID.
+	 */
+	public int getId(int i) {
+		return order[i];
+	}
+	
+	/**
+	 * Returns the option name belonging to the given option ID.
+	 * The name is one of the **OPT_** constants of {@link MidicaPLParser}
+	 * and is used for error messages.
+	 * 
+	 * @param id  option ID
+	 * @return the option name.
+	 */
+	public static String getName(int id) {
+		return NAMES[id];
+	}
+	
+	/**
+	 * Appends an option ID to the order list.
+	 * 
+	 * @param id  option ID
+	 */
+	private void add(int id) {
+		if (count == order.length) {
+			int[] newOrder = new int[count * 2];
+			System.arraycopy(order, 0, newOrder, 0, count);
+			order = newOrder;
+		}
+		order[count++] = id;
+	}
+	
+	/**
+	 * Adds a velocity option.
+	 * 
+	 * @param value  velocity
+	 */
+	void addVelocity(int value) {
+		add(VELOCITY);
+		velocity = value;
+	}
+	
+	/**
+	 * Adds a multiple option.
+	 */
+	void addMultiple() {
+		add(MULTIPLE);
+	}
+	
+	/**
+	 * Adds a duration option.
+	 * 
+	 * @param value  duration ratio
+	 */
+	void addDuration(float value) {
+		add(DURATION);
+		duration = value;
+	}
+	
+	/**
+	 * Adds a quantity option.
+	 * 
+	 * @param value  quantity
+	 */
+	void addQuantity(int value) {
+		add(QUANTITY);
+		quantity = value;
+	}
+	
+	/**
+	 * Adds a lyrics option.
+	 * 
+	 * @param value  lyrics syllable
+	 */
+	void addLyrics(String value) {
+		add(LYRICS);
+		lyrics = value;
+	}
+	
+	/**
+	 * Adds a tuplet option.
+	 * 
+	 * @param value  tuplet modifier
+	 */
+	void addTuplet(String value) {
+		add(TUPLET);
+		tuplet = value;
+	}
+	
+	/**
+	 * Adds a tremolo option.
+	 * 
+	 * @param value        tremolo length in ticks
+	 * @param valueString  tremolo length as written in the source code
+	 */
+	void addTremolo(int value, String valueString) {
+		add(TREMOLO);
+		tremolo       = value;
+		tremoloString = valueString;
+	}
+	
+	/**
+	 * Adds a shift option.
+	 * 
+	 * @param value  shift in half tone steps
+	 */
+	void addShift(int value) {
+		add(SHIFT);
+		shift += value;
+	}
+	
+	/**
+	 * Adds an if option.
+	 * 
+	 * @param condition  the condition
+	 */
+	void addIf(String condition) {
+		add(IF);
+		if (null == condIf)
+			condIf = condition;
+	}
+	
+	/**
+	 * Adds an elsif option.
+	 * 
+	 * @param condition  the condition
+	 */
+	void addElsif(String condition) {
+		add(ELSIF);
+		if (null == condElsif)
+			condElsif = condition;
+	}
+	
+	/**
+	 * Adds an else option.
+	 */
+	void addElse() {
+		add(ELSE);
+	}
+	
+	/**
+	 * Returns the velocity.
+	 * @return velocity.
+	 */
+	public int getVelocity() {
+		return velocity;
+	}
+	
+	/**
+	 * Returns the duration.
+	 * @return duration.
+	 */
+	public float getDuration() {
+		return duration;
+	}
+	
+	/**
+	 * Returns the quantity.
+	 * @return quantity.
+	 */
+	public int getQuantity() {
+		return quantity;
+	}
+	
+	/**
+	 * Returns the lyrics syllable.
+	 * @return lyrics syllable.
+	 */
+	public String getLyrics() {
+		return lyrics;
+	}
+	
+	/**
+	 * Returns the tuplet modifier.
+	 * @return tuplet modifier.
+	 */
+	public String getTuplet() {
+		return tuplet;
+	}
+	
+	/**
+	 * Returns the tremolo length in ticks.
+	 * @return tremolo length.
+	 */
+	public int getTremolo() {
+		return tremolo;
+	}
+	
+	/**
+	 * Returns the tremolo length as written in the source code.
+	 * Needed for patterns.
+	 * 
+	 * @return tremolo string.
+	 */
+	public String getTremoloString() {
+		return tremoloString;
+	}
+	
+	/**
+	 * Returns the sum of all shift options.
+	 * @return shift.
+	 */
+	public int getShift() {
+		return shift;
+	}
+	
+	/**
+	 * Returns the condition of the first if option.
+	 * @return condition.
+	 */
+	public String getIf() {
+		return condIf;
+	}
+	
+	/**
+	 * Returns the condition of the first elsif option.
+	 * @return condition.
+	 */
+	public String getElsif() {
+		return condElsif;
+	}
+}
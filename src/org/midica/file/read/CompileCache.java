@@ -0,0 +1,238 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+
+import org.midica.config.Cli;
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
+import org.midica.file.DiskCache;
+import org.midica.file.Instrument;
+import org.midica.midi.LyricUtil;
+import org.midica.midi.SequenceCreator;
+
+/**
+ * On-disk cache for sequences compiled from MidicaPL source files.
+ * 
+ * The key is built from:
+ * 
+ * - the path and content of the root source file
+ * - the charset that has been chosen in the file chooser
+ * - the transpose level
+ * - the config values that are used for the syntax, note names, percussion and
+ *   instrument names
+ * - the version of Midica and the class files of the parser
+ * 
+ * The cached sequence is stored as a standard MIDI file. Instruments, channel comments,
+ * lyrics and meta information are part of the sequence.
+ * 
+ * The included files and the soundfont are only known after compiling. So they are
+ * stored together with the sequence and validated before the sequence is used:
+ * 
+ * - included files: path and SHA-256 hash of the content
+ * - soundfont: path, size and modification time
+ * 
+ * The cache is not used with **--no-compile-cache**.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CompileCache extends DiskCache {
+	
+	private static final String FILE_SUFFIX = ".compiled";
+	private static final int    MAGIC       = 0x4D444343; // "MDCC"
+	private static final int    VERSION     = 1;
+	
+	/** classes whose code influences the compiled sequence */
+	private static final Class<?>[] PARSER_CLASSES = {
+		MidicaPLParser.class, SequenceParser.class, NestableBlock.class, CompiledCondition.class,
+		CallTemplate.class, CommandOptions.class, Instrument.class, SequenceCreator.class,
+		LyricUtil.class,
+	};
+	
+	private String            soundfontPath = null;
+	private ArrayList<String> includedPaths = null;
+	
+	/**
+	 * Creates a cache entry.
+	 * 
+	 * @param digest  the message digest containing the key data
+	 */
+	private CompileCache(MessageDigest digest) {
+		super(digest, MAGIC, VERSION, FILE_SUFFIX);
+	}
+	
+	/**
+	 * Returns the cache entry for the given MidicaPL source file.
+	 * 
+	 * @param file     the root source file
+	 * @param charset  The charset that has been chosen in the file chooser.
+	 * @return the cache entry, or **null** if the cache is not used or the file cannot be read.
+	 */
+	public static CompileCache forFile(File file, String charset) {
+		if (null == getDirectory() || ! Cli.useCompileCache)
+			return null;
+		
+		try {
+			MessageDigest digest = createDigest();
+			updateDigest(digest, file.getCanonicalPath());
+			updateDigest(digest, file);
+			updateDigest(digest, "charset=" + charset);
+			updateDigest(digest, "transpose=" + SequenceParser.getTransposeLevel());
+			updateDigestWithTextConfig(digest);
+			updateDigestWithCode(digest, PARSER_CLASSES);
+			
+			return new CompileCache(digest);
+		}
+		catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Restores the compiled sequence from the cache file, if possible.
+	 * 
+	 * If the cache file is invalid, it's deleted.
+	 * If an included file or the soundfont has changed, the sequence is outdated.
+	 * 
+	 * @return the sequence, or **null** if no valid and up-to-date sequence is cached.
+	 */
+	public Sequence restore() {
+		Sequence seq;
+		try {
+			CacheReader reader = read();
+			if (null == reader)
+				return null;
+			
+			// included files
+			int               count = reader.readInt();
+			ArrayList<String> paths = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				String path = reader.readString();
+				byte[] hash = (byte[]) reader.readValue();
+				if (! Arrays.equals(hash, hashFile(new File(path))))
+					return null;
+				paths.add(path);
+			}
+			
+			// soundfont
+			String sfPath = reader.readString();
+			if (sfPath != null) {
+				File soundfont = new File(sfPath);
+				long length    = reader.readLong();
+				long modified  = reader.readLong();
+				if (soundfont.length() != length || soundfont.lastModified() != modified)
+					return null;
+			}
+			
+			// sequence
+			byte[] smf = (byte[]) reader.readValue();
+			if (reader.hasRemaining())
+				throw new IOException("unexpected data after the payload");
+			seq           = MidiSystem.getSequence(new ByteArrayInputStream(smf));
+			soundfontPath = sfPath;
+			includedPaths = paths;
+		}
+		catch (IOException | InvalidMidiDataException | NoSuchAlgorithmException | RuntimeException e) {
+			delete();
+			return null;
+		}
+		markUsed();
+		
+		return seq;
+	}
+	
+	/**
+	 * Returns the path of the soundfont that has been loaded by the restored source
+	 * code, if any.
+	 * 
+	 * @return the soundfont path or **null**.
+	 */
+	public String getSoundfontPath() {
+		return soundfontPath;
+	}
+	
+	/**
+	 * Returns the canonical paths of the files that have been included by the restored
+	 * source code.
+	 * 
+	 * @return the included paths, or **null** if no sequence has been restored.
+	 */
+	public ArrayList<String> getIncludedPaths() {
+		return includedPaths;
+	}
+	
+	/**
+	 * Writes a compiled sequence to the cache file.
+	 * 
+	 * Errors are ignored because the cache is optional.
+	 * 
+	 * @param seq            the compiled sequence
+	 * @param includedPaths  canonical paths of all included files
+	 * @param soundfont      the soundfont file of the SOUNDFONT command, or **null**
+	 */
+	public void store(Sequence seq, Collection<String> includedPaths, File soundfont) {
+		try {
+			ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			CacheWriter           writer  = new CacheWriter(payload);
+			
+			// included files
+			writer.writeInt(includedPaths.size());
+			for (String path : includedPaths) {
+				writer.writeString(path);
+				writer.writeValue(hashFile(new File(path)));
+			}
+			
+			// soundfont
+			if (null == soundfont) {
+				writer.writeString(null);
+			}
+			else {
+				writer.writeString(soundfont.getCanonicalPath());
+				writer.writeLong(soundfont.length());
+				writer.writeLong(soundfont.lastModified());
+			}
+			
+			// sequence
+			ByteArrayOutputStream smf = new ByteArrayOutputStream();
+			MidiSystem.write(seq, 1, smf);
+			writer.writeValue(smf.toByteArray());
+			
+			writer.flush();
+			write(payload.toByteArray());
+		}
+		catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+		}
+	}
+	
+	/**
+	 * Returns the SHA-256 hash of the content of the given file.
+	 * 
+	 * @param file  the file
+	 * @return the hash.
+	 * @throws IOException if the file cannot be read.
+	 * @throws NoSuchAlgorithmException if SHA-256 is not available.
+	 */
+	private static byte[] hashFile(File file) throws IOException, NoSuchAlgorithmException {
+		MessageDigest digest = createDigest();
+		updateDigest(digest, file);
+		return digest.digest();
+	}
+}
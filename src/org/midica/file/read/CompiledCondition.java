@@ -0,0 +1,265 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+/**
+ * Precompiled form of an if/elsif condition.
+ * 
+ * A condition consists of an operator and up to two operands. Each operand is
+ * either a literal or a variable slot (variable, indexed parameter or named parameter).
+ * Variable slots are resolved directly against the current variables and parameters,
+ * without replacing them inside of the condition string.
+ * 
+ * Conditions that are not valid or that cannot be compiled safely are evaluated by
+ * the {@link MidicaPLParser} in the classic way (replacing variables and parsing the
+ * string). The same happens if a variable value could change the structure of the
+ * condition or if the evaluation would lead to an error. So the results and error
+ * messages are the same as without compiling.
+ * 
+ * Objects of this class are created by {@link MidicaPLParser#compileCondition(String, boolean)}.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CompiledCondition {
+	
+	static final int OP_DEFINED = 0; // no operator
+	static final int OP_NDEF    = 1; // !
+	static final int OP_EQ      = 2; // ==
+	static final int OP_NEQ     = 3; // !=
+	static final int OP_LT      = 4; // <
+	static final int OP_LE      = 5; // <=
+	static final int OP_GT      = 6; // >
+	static final int OP_GE      = 7; // >=
+	static final int OP_IN      = 8; // in
+	
+	private final String  source;
+	private final boolean withVariables;
+	private final boolean isCompiled;
+	private final int     operator;
+	private final Operand first;
+	private final Operand second;
+	private final String[] candidates;
+	private final boolean hasEmptyCandidate;
+	
+	/**
+	 * Creates a condition that is always evaluated in the classic way.
+	 * 
+	 * @param source         the condition string
+	 * @param withVariables  **true**, if variables must be replaced before evaluating
+	 */
+	CompiledCondition(String source, boolean withVariables) {
+		this(source, withVariables, false, OP_DEFINED, null, null, null, false);
+	}
+	
+	/**
+	 * Creates a compiled condition.
+	 * 
+	 * @param source             the condition string
+	 * @param withVariables      **true**, if the operands may contain variable slots
+	 * @param operator           operator ID (one of the **OP_** constants)
+	 * @param first              first operand (for **OP_DEFINED**: the only operand)
+	 * @param second             second operand or **null**
+	 * @param candidates         elements of an **in** list, or **null**
+	 * @param hasEmptyCandidate  **true**, if the **in** list contains an empty element
+	 */
+	CompiledCondition(String source, boolean withVariables, int operator, Operand first, Operand second,
+			String[] candidates, boolean hasEmptyCandidate) {
+		this(source, withVariables, true, operator, first, second, candidates, hasEmptyCandidate);
+	}
+	
+	/**
+	 * Common constructor.
+	 * 
+	 * @param source             the condition string
+	 * @param withVariables      **true**, if variables must be replaced
+	 * @param isCompiled         **false**, if the condition must always be evaluated in the classic way
+	 * @param operator           operator ID
+	 * @param first              first operand
+	 * @param second             second operand
+	 * @param candidates         elements of an **in** list
+	 * @param hasEmptyCandidate  **true**, if the **in** list contains an empty element
+	 */
+	private CompiledCondition(String source, boolean withVariables, boolean isCompiled, int operator,
+			Operand first, Operand second, String[] candidates, boolean hasEmptyCandidate) {
+		this.source            = source;
+		this.withVariables     = withVariables;
+		this.isCompiled        = isCompiled;
+		this.operator          = operator;
+		this.first             = first;
+		this.second            = second;
+		this.candidates        = candidates;
+		this.hasEmptyCandidate = hasEmptyCandidate;
+	}
+	
+	/**
+	 * Evaluates the condition.
+	 * 
+	 * @param parser  the parser providing the current variables and parameters
+	 * @return **true**, if the condition evaluates to **true**, otherwise: **false**.
+	 * @throws ParseException if the condition is invalid or contains an undefined variable.
+	 */
+	public boolean evaluate(MidicaPLParser parser) throws ParseException {
+		if (! isCompiled)
+			return evaluateClassic(parser);
+		
+		String firstVal  = first.resolve(parser);
+		String secondVal = null == second ? null : second.resolve(parser);
+		
+		// a variable value could change the structure of the condition
+		if (first.isVariable() && ! parser.isSafeConditionValue(firstVal))
+			return evaluateClassic(parser);
+		if (second != null && second.isVariable() && ! parser.isSafeConditionValue(secondVal))
+			return evaluateClassic(parser);
+		
+		boolean isCheckRun = MidicaPLParser.isCondCheckRun();
+		switch (operator) {
+			case OP_DEFINED:
+				return ! "".equals(firstVal);
+			case OP_NDEF:
+				if (isCheckRun && "".equals(secondVal))
+					return evaluateClassic(parser); // error
+				return "".equals(secondVal);
+			case OP_EQ:
+				return firstVal.equals(secondVal);
+			case OP_NEQ:
+				return ! firstVal.equals(secondVal);
+			case OP_IN:
+				if (isCheckRun && hasEmptyCandidate)
+					return evaluateClassic(parser); // error
+				for (String candidate : candidates) {
+					if (candidate.equals(firstVal))
+						return true;
+				}
+				return false;
+			default:
+				break;
+		}
+		
+		// <, <=, >, >=
+		int firstInt  = 0;
+		int secondInt = 0;
+		if (! isCheckRun) {
+			try {
+				firstInt  = Integer.parseInt(firstVal);
+				secondInt = Integer.parseInt(secondVal);
+			}
+			catch (NumberFormatException e) {
+				return evaluateClassic(parser); // error
+			}
+		}
+		if (OP_LT == operator)
+			return firstInt < secondInt;
+		else if (OP_LE == operator)
+			return firstInt <= secondInt;
+		else if (OP_GT == operator)
+			return firstInt > secondInt;
+		else
+			return firstInt >= secondInt;
+	}
+	
+	/**
+	 * Resolves all variables of the condition without evaluating it.
+	 * 
+	 * Used to detect undefined variables in conditions that don't have to be
+	 * evaluated, e.g. because a former block of the same if/elsif chain has been played.
+	 * 
+	 * @param parser  the parser providing the current variables and parameters
+	 * @throws ParseException if the condition contains an undefined variable.
+	 */
+	public void resolveVariables(MidicaPLParser parser) throws ParseException {
+		if (! withVariables)
+			return;
+		if (! isCompiled) {
+			parser.replaceVariables(source);
+			return;
+		}
+		first.resolve(parser);
+		if (second != null)
+			second.resolve(parser);
+	}
+	
+	/**
+	 * Evaluates the condition by parsing the condition string.
+	 * 
+	 * @param parser  the parser
+	 * @return the evaluation result.
+	 * @throws ParseException if the condition is invalid or contains an undefined variable.
+	 */
+	private boolean evaluateClassic(MidicaPLParser parser) throws ParseException {
+		String condition = withVariables ? parser.replaceVariables(source) : source;
+		return parser.evalConditionString(condition);
+	}
+	
+	/**
+	 * Operand of a condition. Either a literal or a variable slot.
+	 */
+	static class Operand {
+		
+		private final String literal;
+		private final String varName;
+		private final String index;
+		private final String paramName;
+		
+		/**
+		 * Creates a literal operand.
+		 * 
+		 * @param literal  the literal value
+		 */
+		Operand(String literal) {
+			this(literal, null, null, null);
+		}
+		
+		/**
+		 * Creates a variable slot.
+		 * 
+		 * @param varName    the whole variable or parameter construct
+		 * @param index      parameter index (for indexed parameters) or **null**
+		 * @param paramName  parameter name (for named parameters) or **null**
+		 */
+		Operand(String varName, String index, String paramName) {
+			this(null, varName, index, paramName);
+		}
+		
+		/**
+		 * Common constructor.
+		 * 
+		 * @param literal    literal value or **null**
+		 * @param varName    variable construct or **null**
+		 * @param index      parameter index or **null**
+		 * @param paramName  parameter name or **null**
+		 */
+		private Operand(String literal, String varName, String index, String paramName) {
+			this.literal   = literal;
+			this.varName   = varName;
+			this.index     = index;
+			this.paramName = paramName;
+		}
+		
+		/**
+		 * Indicates if this operand is a variable slot.
+		 * 
+		 * @return **true** for a variable slot, **false** for a literal.
+		 */
+		boolean isVariable() {
+			return null == literal;
+		}
+		
+		/**
+		 * Returns the current value of the operand.
+		 * 
+		 * @param parser  the parser providing the current variables and parameters
+		 * @return the value.
+		 * @throws ParseException if the variable is undefined.
+		 */
+		String resolve(MidicaPLParser parser) throws ParseException {
+			if (literal != null)
+				return literal;
+			return parser.lookupVariable(varName, index, paramName);
+		}
+	}
+}
@@ -24,6 +24,8 @@ import javax.sound.midi.Track;
 import org.midica.config.Config;
 import org.midica.config.Dict;
 import org.midica.file.CharsetUtils;
+import org.midica.file.PhaseStats;
+import org.midica.file.PhaseStats.Phase;
 import org.midica.midi.LyricUtil;
 import org.midica.midi.MidiListener;
 import org.midica.midi.SequenceCreator;
@@ -76,6 +78,7 @@ public class MidiParser extends SequenceParser {
 	public void parse(File file) throws ParseException {
 		
 		// reset file name and file type
+		Phase totalPhase = PhaseStats.begin("mid.parse");
 		preprocess(file);
 		
 		isProducedByMidica = false;
@@ -87,13 +90,36 @@ public class MidiParser extends SequenceParser {
 		chosenCharset = chosenOption.getIdentifier();
 		
 		try {
+			Phase    phase    = PhaseStats.begin("mid.read");
 			Sequence sequence = MidiSystem.getSequence(file);
+			phase.end(PhaseStats.countEvents(sequence));
+			
+			phase = PhaseStats.begin("mid.create");
 			createSequence(sequence);
-			postprocessSequence(sequence, FORMAT_MIDI, chosenCharset); // we want to analyze the loaded sequence - not the created one
+			phase.end(PhaseStats.countEvents(SequenceCreator.getSequence()));
+			
+			// we want to analyze the loaded sequence - not the created one
+			AnalysisCache cache = AnalysisCache.forFile(file, chosenCharset);
+			if (cache != null) {
+				phase = PhaseStats.begin("analyze.cache");
+				boolean isRestored = cache.restore(sequence);
+				phase.end(isRestored ? 1 : 0);
+				if (isRestored) {
+					publishSequence(FORMAT_MIDI);
+				}
+				else {
+					postprocessSequence(sequence, FORMAT_MIDI, chosenCharset);
+					cache.store();
+				}
+			}
+			else {
+				postprocessSequence(sequence, FORMAT_MIDI, chosenCharset);
+			}
 			
 			// Many MIDI files out there contain channel volume messages.
 			// Transform them into expression messages.
 			replaceChannelVolume();
+			totalPhase.end(PhaseStats.countEvents(SequenceCreator.getSequence()));
 		}
 		catch (InvalidMidiDataException e) {
 			throw new ParseException(e.getMessage());
@@ -22,17 +22,22 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.Sequence;
 
 import org.midica.Midica;
 import org.midica.config.Config;
 import org.midica.config.Dict;
+import org.midica.file.BoundedCache;
 import org.midica.file.Instrument;
+import org.midica.file.PhaseStats;
+import org.midica.file.PhaseStats.Phase;
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
 import org.midica.midi.LyricUtil;
 import org.midica.midi.MidiDevices;
 import org.midica.midi.SequenceCreator;
@@ -205,6 +210,37 @@ public class MidicaPLParser extends SequenceParser {
 	private static LyricUtil lyricUtil = LyricUtil.getInstance();
 	
 	private static Pattern whitespace = Pattern.compile("\\s+");
+	private static Pattern digits     = Pattern.compile("^\\d+$");
+	
+	/** Maximum number of cached duration strings. */
+	private static final int DURATION_CACHE_SIZE = 1024;
+	
+	/** duration string (e.g. **8.** or **4t+2**) -- duration in ticks */
+	private static final BoundedCache<String, Integer> durationCache = new BoundedCache<>(DURATION_CACHE_SIZE);
+	
+	/** Maximum number of cached conditions. */
+	private static final int CONDITION_CACHE_SIZE = 256;
+	
+	/** condition string (with variables already replaced) -- compiled condition */
+	private static final BoundedCache<String, CompiledCondition> conditionCache = new BoundedCache<>(CONDITION_CACHE_SIZE);
+	
+	/** Maximum number of cached event templates of function and pattern calls. */
+	private static final int TEMPLATE_CACHE_SIZE = 512;
+	
+	/** call key (call type, name, parameters, shift) -- event template */
+	private static final BoundedCache<String, CallTemplate> templateCache = new BoundedCache<>(TEMPLATE_CACHE_SIZE);
+	
+	/** event template of the call that is currently recorded, or **null** */
+	private static CallTemplate recordingTemplate = null;
+	
+	/** **false**, if calls must always be executed (used by unit tests to compare the results) */
+	static boolean useTemplates = true;
+	
+	/** number of replayed event templates in the current parsing run */
+	static int templateReplays = 0;
+	
+	/** resolution that has been used to fill the {@link #durationCache} */
+	private static int durationCacheRes = -1;
 	
 	private   static HashMap<String, ArrayList<String>> fileCache            = null;
 	private   static HashMap<String, ArrayList<String>> functions            = null;
@@ -213,7 +249,7 @@ public class MidicaPLParser extends SequenceParser {
 	public    static HashMap<String, ArrayList<String>> patterns             = null;
 	private   static HashMap<String, File>              patternToFile        = null;
 	private   static HashMap<String, Integer>           patternToLineOffset  = null;
-	private   static TreeMap<String, TreeSet<Integer>>  chords               = null;
+	private   static HashMap<String, int[]>             chords               = null;
 	private   static boolean                            instrumentsParsed    = false;
 	private   static HashMap<String, StringBuilder>     metaInfo             = null;
 	private   static HashMap<String, ArrayList<String>> softKaraokeInfo      = null;
@@ -234,15 +270,21 @@ public class MidicaPLParser extends SequenceParser {
 	private   static Deque<File>                        patternFileStack     = null;
 	private   static HashSet<String>                    redefinitions        = null;
 	private   static boolean                            soundfontParsed      = false;
+	private   static File                               soundfontFile        = null;
+	private   static ArrayList<String>                  includedPaths        = new ArrayList<>();
 	protected static HashMap<String, String>            constants            = null;
 	protected static HashMap<String, String>            variables            = null;
 	private   static Pattern                            varPattern           = null;
 	private   static Pattern                            callPattern          = null;
 	private   static Pattern                            condPattern          = null;
 	private   static Pattern                            condInPattern        = null;
+	private   static String                             condOperatorChars    = null;
 	private   static Pattern                            crlfSkPattern        = null;
 	private   static Pattern                            sharpPattern         = null;
 	private   static Pattern                            flatPattern          = null;
+	private   static Pattern                            lengthPlusPattern    = null;
+	private   static Pattern                            durationPattern      = null;
+	private   static Pattern                            tupletPattern        = null;
 	private   static boolean                            isSoftKaraoke        = false;
 	
 	private static boolean isDefineParsRun     = false; // parsing run for define commands
@@ -267,6 +309,9 @@ public class MidicaPLParser extends SequenceParser {
 	private ArrayList<String> currentPattern      = null;
 	private boolean           condChainOpened     = false; // current / last block had an if or elsif
 	private boolean           condChainHit        = false; // if / elsif chain had a hit
+	private CommandOptions    cmdOptions          = new CommandOptions();
+	private int               inheritedShift      = 0;     // shift from the enclosing blocks, calls and patterns
+	private String            inheritedTuplet     = null;  // tuplet modifiers from the enclosing blocks
 	
 	/**
 	 * Returns the absolute path of the successfully parsed MidicaPL file.
@@ -279,6 +324,16 @@ public class MidicaPLParser extends SequenceParser {
 		return getFilePath(FORMAT_MIDICAPL);
 	}
 	
+	/**
+	 * Returns the canonical paths of all files that have been included by the
+	 * successfully parsed MidicaPL file.
+	 * 
+	 * @return the included paths (a copy).
+	 */
+	public static ArrayList<String> getIncludedPaths() {
+		return new ArrayList<>(includedPaths);
+	}
+	
 	/**
 	 * Indicates if the current parser object parses the file chosen by the user.  
 	 * Otherwise it parses an included file.
@@ -428,7 +483,9 @@ public class MidicaPLParser extends SequenceParser {
 		this.file = file;
 		
 		// clean up and make parser ready for parsing
+		Phase totalPhase = null;
 		if (isRootParser) {
+			totalPhase = PhaseStats.begin("mpl.parse");
 			preprocess(file);
 			reset();
 		}
@@ -439,6 +496,16 @@ public class MidicaPLParser extends SequenceParser {
 		).getIdentifier();
 		Charset charset = Charset.forName(chosenCharset);
 		
+		// compiled before?
+		CompileCache cache = null;
+		if (isRootParser) {
+			cache = CompileCache.forFile(file, chosenCharset);
+			if (cache != null && restoreFromCache(cache)) {
+				totalPhase.end(PhaseStats.countEvents(SequenceCreator.getSequence()));
+				return;
+			}
+		}
+		
 		try {
 			String            filePath = file.getCanonicalPath();
 			ArrayList<String> lines    = fileCache.get(filePath);
@@ -467,9 +534,11 @@ public class MidicaPLParser extends SequenceParser {
 			
 			if (isRootParser) {
 				// look for define commands
+				Phase phase = PhaseStats.begin("mpl.run.define");
 				isDefineParsRun = true;
 				parsingRun(lines);
 				isDefineParsRun = false;
+				phase.end(lines.size());
 				
 				// now the comment symbol cannot change any more.
 				cleanLines(lines);
@@ -479,31 +548,41 @@ public class MidicaPLParser extends SequenceParser {
 				compilePatterns();
 				
 				// look for constant definitions
+				phase = PhaseStats.begin("mpl.run.const");
 				isConstParsRun = true;
 				parsingRun(lines);
 				isConstParsRun = false;
+				phase.end(lines.size());
 				
 				// look for chords, the very first instruments block,
 				// meta definitions, and checks block nesting
+				phase = PhaseStats.begin("mpl.run.chInstMeta");
 				isChInstMetaParsRun = true;
 				parsingRun(lines);
 				postprocessMeta(); // apply all collected meta info
 				isChInstMetaParsRun = false;
+				phase.end(lines.size());
 				
 				// collect all function names that are defined somewhere
+				phase = PhaseStats.begin("mpl.run.funcName");
 				isFuncNameParsRun = true;
 				parsingRun(lines);
 				isFuncNameParsRun = false;
+				phase.end(lines.size());
 				
 				// look for functions
+				phase = PhaseStats.begin("mpl.run.func");
 				isFuncParsRun = true;
 				parsingRun(lines);
 				isFuncParsRun = false;
+				phase.end(lines.size());
 				
 				// pre-check if/elsif conditions
+				phase = PhaseStats.begin("mpl.run.condCheck");
 				isCondCheckParsRun = true;
 				parsingRun(lines);
 				isCondCheckParsRun = false;
+				phase.end(lines.size());
 				
 				// prepare if-elsif-else for root-level blocks
 				condChainOpened = false;
@@ -511,9 +590,11 @@ public class MidicaPLParser extends SequenceParser {
 				
 				// look for everything else
 				// final parsing run, building up the sequence
+				phase = PhaseStats.begin("mpl.run.default");
 				isDefaultParsRun = true;
 				parsingRun(lines);
 				isDefaultParsRun = false;
+				phase.end(lines.size());
 			}
 			else {
 				// Not the root parser.
@@ -545,10 +626,51 @@ public class MidicaPLParser extends SequenceParser {
 		
 		// EOF has been reached
 		if (isRootParser) {
+			SequenceCreator.publishEnd();
 			postprocessSequence(SequenceCreator.getSequence(), FORMAT_MIDICAPL, chosenCharset);
+			includedPaths = new ArrayList<>(fileCache.keySet());
+			if (cache != null) {
+				cache.store(SequenceCreator.getSequence(), includedPaths, soundfontFile);
+			}
+			totalPhase.end(PhaseStats.countEvents(SequenceCreator.getSequence()));
 		}
 	}
 	
+	/**
+	 * Uses the sequence from the compile cache instead of parsing the source file, if possible.
+	 * 
+	 * @param cache  the cache entry of the root source file
+	 * @return **true** if the cached sequence has been used, otherwise **false**.
+	 * @throws ParseException if the soundfont cannot be loaded or the sequence cannot be analyzed.
+	 */
+	private boolean restoreFromCache(CompileCache cache) throws ParseException {
+		Phase    phase = PhaseStats.begin("mpl.cache");
+		Sequence seq   = cache.restore();
+		phase.end(null == seq ? 0 : 1);
+		if (null == seq)
+			return false;
+		
+		// do the same as the SOUNDFONT command
+		if (cache.getSoundfontPath() != null) {
+			soundfontParsed = true;
+			soundfontFile   = new File(cache.getSoundfontPath());
+			try {
+				loadSoundfont(soundfontFile);
+			}
+			catch (IOException e) {
+				throw new ParseException(Dict.get(Dict.ERROR_SOUNDFONT_IO) + e.getMessage());
+			}
+		}
+		
+		SequenceCreator.restore(seq, chosenCharset);
+		SequenceCreator.publishWatermark(seq.getTickLength());
+		SequenceCreator.publishEnd();
+		postprocessSequence(seq, FORMAT_MIDICAPL, chosenCharset);
+		includedPaths = cache.getIncludedPaths();
+		
+		return true;
+	}
+	
 	/**
 	 * Create regex patterns.
 	 * This is called after the define run so that the syntax keywords cannot change any more.
@@ -630,14 +752,54 @@ public class MidicaPLParser extends SequenceParser {
 		// split list in "in" conditions for if/elsif
 		condInPattern = Pattern.compile("\\s*" + Pattern.quote(COND_IN_SEP) + "\\s*");
 		
+		// characters that must not appear in variables used by compiled conditions
+		condOperatorChars = COND_EQ + COND_NEQ + COND_NDEF + COND_LT + COND_LE + COND_GT + COND_GE;
+		conditionCache.clear();
+		
 		// find forbidden \r or \n in a soft karaoke field or syllable
 		crlfSkPattern = Pattern.compile(Pattern.quote(LYRICS_CR) + "|" + Pattern.quote(LYRICS_LF));
 		
+		// parse durations
+		compileDurationPatterns();
+		
 		// find sharp(s) or flat(s) in a note name
 		sharpPattern = Pattern.compile("^.+" + Pattern.quote(Config.getConfiguredSharpOrFlat(true)) + ".*");
 		flatPattern  = Pattern.compile("^.+" + Pattern.quote(Config.getConfiguredSharpOrFlat(false)) + ".*");
 	}
 	
+	/**
+	 * Creates the regex patterns needed for parsing durations and clears the duration cache.
+	 * 
+	 * This is called after the define run, because the syntax of durations cannot change any more
+	 * after that run. It's also called if a duration must be parsed before.
+	 */
+	private void compileDurationPatterns() {
+		
+		// separate summands
+		lengthPlusPattern = Pattern.compile(Pattern.quote(LENGTH_PLUS));
+		
+		// basic length and modifiers of one summand
+		durationPattern = Pattern.compile(
+			  "^(\\d+|.+?)"                // basic divisor (basic note length)
+			+ "(("                         // open capturing group for modifiers
+			+ Pattern.quote(TUPLET_INTRO)  //   customized tuplet
+			+ "\\d+"                       //     first number of the customized tuplet
+			+ Pattern.quote(TUPLET_FOR)    //     separator between the 2 numbers
+			+ "\\d+"                       //     second number of the customized tuplet
+			+ "|" + Pattern.quote(TRIPLET) //   ordinary triplet
+			+ "|" + Pattern.quote(DOT)     //   dotted
+			+ ")*)"                        // close capturing group
+			+ "$"
+		);
+		
+		// one customized tuplet inside of the modifiers
+		tupletPattern = Pattern.compile(
+			Pattern.quote(TUPLET_INTRO) + "(\\d+)" + Pattern.quote(TUPLET_FOR) + "(\\d+)"
+		);
+		
+		durationCache.clear();
+	}
+	
 	/**
 	 * Parses one single line of a MidicaPL source file.
 	 * The line is expected to be cleaned already from comments and leading/trailing whitespaces.
@@ -751,6 +913,27 @@ public class MidicaPLParser extends SequenceParser {
 		return tickstampByChannel;
 	}
 	
+	/**
+	 * Publishes the watermark for progressive playback.
+	 * 
+	 * This is only done on the root level. Inside of blocks or function definitions
+	 * the channels may still be reset to an earlier tickstamp.
+	 * 
+	 * The watermark is one tick before the lowest tickstamp of all channels,
+	 * because the correction of legato overlappings may still move a note-off
+	 * message to the tick before the next note of a channel.
+	 */
+	private void publishWatermark() {
+		if (! instrumentsParsed || nestableBlkDepth > 0 || currentMode != MODE_DEFAULT)
+			return;
+		
+		long minTicks = Long.MAX_VALUE;
+		for (Instrument instr : instruments) {
+			minTicks = Math.min(minTicks, instr.getCurrentTicks());
+		}
+		SequenceCreator.publishWatermark(minTicks - 1);
+	}
+	
 	/**
 	 * Restores a snapshot of tickstamps for each channel.
 	 * 
@@ -793,6 +976,10 @@ public class MidicaPLParser extends SequenceParser {
 		try {
 			for (String line : lines) {
 				currentLineNumber++;
+				TaskProgress.check();
+				if (isRootParser) {
+					TaskProgress.setLine(currentLineNumber);
+				}
 				
 				// In the define parsing run, the lines are not yet cleaned because
 				// the comment symbol may change any time. So we need to do that here.
@@ -802,6 +989,11 @@ public class MidicaPLParser extends SequenceParser {
 				currentLineContent = line;
 				
 				parseLine(line);
+				
+				// allow progressive playback
+				if (isDefaultParsRun && isRootParser && SequenceCreator.hasWindowListener()) {
+					publishWatermark();
+				}
 			}
 			
 			// find open blocks at the end of the file
@@ -827,6 +1019,15 @@ public class MidicaPLParser extends SequenceParser {
 			e.setLineContentIfNotYetDone(currentLineContent);
 			throw e;
 		}
+		catch (TaskCancelledException e) {
+			// cancelled or timed out - no stack trace needed
+			ParseException pe = new ParseException(e.getMessage());
+			pe.setLineNumber(currentLineNumber);
+			pe.setFile(file);
+			pe.setStackTrace(stackTrace);
+			pe.setLineContentIfNotYetDone(currentLineContent);
+			throw pe;
+		}
 		catch (Exception e) {
 			// any other exception? - wrap it into a parsing exception with file and line
 			ParseException pe = new ParseException(e.toString());
@@ -877,6 +1078,11 @@ public class MidicaPLParser extends SequenceParser {
 			replaceShortcuts(tokens);
 		}
 		
+		// only key strokes, calls and blocks can be replayed from an event template
+		if (recordingTemplate != null && ! isReplayableCmd(tokens[0])) {
+			recordingTemplate.markImpure();
+		}
+		
 		// Some lines must be parsed directly, others must be stored and executed later.
 		// However we have to fake an execution in order to detect syntax errors as soon as
 		// possible, so that the error message contains the right line number.
@@ -1483,19 +1689,22 @@ public class MidicaPLParser extends SequenceParser {
 		}
 		
 		// only care about normal channel commands
-		if (! tokens[0].matches("^\\d{1,2}$")) {
+		int length = tokens[0].length();
+		if (length > 2 || ! isNumeric(tokens[0])) {
 			return;
 		}
 		
 		// percussion instrument name --> number
-		if (Dict.UNKNOWN_CODE != Dict.getPercussion(tokens[1])) {
-			tokens[1] = Integer.toString(Dict.getPercussion(tokens[1]));
+		int number = Dict.getPercussion(tokens[1]);
+		if (Dict.UNKNOWN_CODE != number) {
+			tokens[1] = Integer.toString(number);
 		}
 		
 		// note name --> number
 		else if (! "9".equals(tokens[0])) {
-			if (Dict.UNKNOWN_CODE != Dict.getNote(tokens[1])) {
-				tokens[1] = Integer.toString(Dict.getNote(tokens[1]));
+			number = Dict.getNote(tokens[1]);
+			if (Dict.UNKNOWN_CODE != number) {
+				tokens[1] = Integer.toString(number);
 			}
 		}
 	}
@@ -1546,13 +1755,28 @@ public class MidicaPLParser extends SequenceParser {
 	 * @throws ParseException  If the duration string cannot be parsed.
 	 */
 	protected int parseDuration(String s) throws ParseException {
-		String[] summands = s.split(Pattern.quote(LENGTH_PLUS), -1);
+		
+		// cached?
+		int resolution = SequenceCreator.getResolution();
+		if (resolution != durationCacheRes) {
+			durationCache.clear();
+			durationCacheRes = resolution;
+		}
+		Integer cached = durationCache.get(s);
+		if (cached != null)
+			return cached;
+		
+		if (null == durationPattern)
+			compileDurationPatterns();
+		
+		String[] summands = lengthPlusPattern.split(s, -1);
 		int      duration = 0;
 		for (String summand : summands) {
 			if ("".equals(summand))
 				throw new ParseException(Dict.get(Dict.ERROR_EMPTY_LENGTH_SUMMAND) + s);
-			duration += parseDurationSummand(summand);
+			duration += parseDurationSummand(summand, resolution);
 		}
+		durationCache.put(s, duration);
 		
 		return duration;
 	}
@@ -1561,24 +1785,13 @@ public class MidicaPLParser extends SequenceParser {
 	 * Parses the duration string from one duration summand channel command
 	 * and calculates the duration in ticks.
 	 * 
-	 * @param s  One duration summand, extracted from the MidicaPL line.
+	 * @param s           One duration summand, extracted from the MidicaPL line.
+	 * @param resolution  The resolution of the sequence.
 	 * @return   The duration of the summand in ticks.
 	 * @throws ParseException  If the duration summand cannot be parsed.
 	 */
-	private int parseDurationSummand(String s) throws ParseException {
-		Pattern pattern = Pattern.compile(
-			  "^(\\d+|.+?)"                // basic divisor (basic note length)
-			+ "(("                         // open capturing group for modifiers
-			+ Pattern.quote(TUPLET_INTRO)  //   customized tuplet
-			+ "\\d+"                       //     first number of the customized tuplet
-			+ Pattern.quote(TUPLET_FOR)    //     separator between the 2 numbers
-			+ "\\d+"                       //     second number of the customized tuplet
-			+ "|" + Pattern.quote(TRIPLET) //   ordinary triplet
-			+ "|" + Pattern.quote(DOT)     //   dotted
-			+ ")*)"                        // close capturing group
-			+ "$"
-		);
-		Matcher matcher = pattern.matcher(s);
+	private int parseDurationSummand(String s, int resolution) throws ParseException {
+		Matcher matcher = durationPattern.matcher(s);
 		if (matcher.matches()) {
 			String prefix  = matcher.group(1);
 			String postfix = matcher.group(2);
@@ -1586,7 +1799,7 @@ public class MidicaPLParser extends SequenceParser {
 			int    divisor = 1;
 			
 			// parse unmodified summand length
-			if (prefix.matches("^\\d+$"))
+			if (digits.matcher(prefix).matches())
 				divisor = toInt(prefix);
 			else if (LENGTH_32.equals(prefix))
 				divisor = 32;
@@ -1617,10 +1830,10 @@ public class MidicaPLParser extends SequenceParser {
 			
 			// parse modifications by dots
 			int dot_count = 0;
-			DOT:
-			while (postfix.matches(".*" + Pattern.quote(DOT) + ".*")) {
+			int pos;
+			while ((pos = postfix.indexOf(DOT)) >= 0) {
 				dot_count++;
-				postfix = postfix.replaceFirst(Pattern.quote(DOT), "");
+				postfix = postfix.substring(0, pos) + postfix.substring(pos + DOT.length());
 			}
 			if (dot_count > 0) {
 				// dots modify the note length like this:
@@ -1634,38 +1847,27 @@ public class MidicaPLParser extends SequenceParser {
 			// parse modifications by (nested) tuplets
 			// this must be before the triplet parsing to support the same symbol
 			// for tuplets and triplets
-			Pattern tupletPattern = Pattern.compile(
-				".*" + Pattern.quote(TUPLET_INTRO) + "(\\d+)" + Pattern.quote(TUPLET_FOR) + "(\\d+)" + ".*"
-			);
-			TUPLET:
-			while (postfix.matches(tupletPattern.toString())) {
-				Matcher tupletMatcher = tupletPattern.matcher(postfix);
-				if (tupletMatcher.matches()) {
-					int count    = toInt(tupletMatcher.group(1), true);
-					int countFor = toInt(tupletMatcher.group(2), true);
-					// cut away the matched tuplet
-					postfix = postfix.replaceFirst(
-						Pattern.quote(TUPLET_INTRO) + count + Pattern.quote(TUPLET_FOR) + countFor,
-						""
-					);
-					// a tuplet a:b (a for b) modifies the note length by the factor b/a
-					factor  *= countFor;
-					divisor *= count;
-				}
+			Matcher tupletMatcher = tupletPattern.matcher(postfix);
+			while (tupletMatcher.find()) {
+				int count    = toInt(tupletMatcher.group(1), true);
+				int countFor = toInt(tupletMatcher.group(2), true);
+				// cut away the matched tuplet
+				postfix       = postfix.substring(0, tupletMatcher.start()) + postfix.substring(tupletMatcher.end());
+				tupletMatcher = tupletPattern.matcher(postfix);
+				// a tuplet a:b (a for b) modifies the note length by the factor b/a
+				factor  *= countFor;
+				divisor *= count;
 			}
 			
 			// parse modifications by (nested) triplets
-			TRIPLET:
-			while (postfix.matches(".*" + Pattern.quote(TRIPLET) + ".*")) {
+			while ((pos = postfix.indexOf(TRIPLET)) >= 0) {
 				// cut away the matched triplet
-				postfix = postfix.replaceFirst(Pattern.quote(TRIPLET), "");
+				postfix = postfix.substring(0, pos) + postfix.substring(pos + TRIPLET.length());
 				// nested triplets modify the note length by 2/3 for each nesting
 				factor  *= 2;
 				divisor *= 3;
 			}
 			
-			int resolution = SequenceCreator.getResolution();
-			
 			// Theoretically: duration = resolution * factor / divisor
 			// But integer divisions are always rounded down and we want to round mathematically
 			int duration = (resolution * factor * 10 + divisor * 5) / (divisor * 10);
@@ -1965,52 +2167,50 @@ public class MidicaPLParser extends SequenceParser {
 		String  tuplet         = null;
 		boolean mustCheckChain = isDefaultParsRun && nestableBlkDepth == 0;
 		if (optionsStr.length() > 0) {
-			ArrayList<CommandOption> options = parseOptions(optionsStr, isFake);
-			for (CommandOption opt : options) {
-				String optName = opt.getName();
-				if (OPT_QUANTITY.equals(optName))
-					quantity = opt.getQuantity();
-				else if (OPT_MULTIPLE.equals(optName))
+			CommandOptions options = parseOptions(optionsStr, isFake);
+			for (int i = 0; i < options.size(); i++) {
+				int optId = options.getId(i);
+				if (CommandOptions.QUANTITY == optId)
+					quantity = options.getQuantity();
+				else if (CommandOptions.MULTIPLE == optId)
 					multiple = true;
-				else if (OPT_TUPLET.equals(optName))
-					tuplet = opt.getTuplet();
-				else if (OPT_SHIFT.equals(optName))
-					shift += opt.getShift();
-				else if (OPT_IF.equals(optName)) {
+				else if (CommandOptions.TUPLET == optId)
+					tuplet = options.getTuplet();
+				else if (CommandOptions.SHIFT == optId)
+					shift = options.getShift();
+				else if (CommandOptions.IF == optId) {
 					if (condIf != null || condElsif != null || isElse) {
 						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_IF_MUST_BE_ALONE));
 					}
-					condIf = opt.getCondition();
+					condIf = options.getIf();
 				}
-				else if (OPT_ELSIF.equals(optName)) {
+				else if (CommandOptions.ELSIF == optId) {
 					if (condIf != null || condElsif != null || isElse) {
 						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_ELSIF_MUST_BE_ALONE));
 					}
 					if (mustCheckChain && ! condChainOpened) {
-						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_NO_IF_FOUND) + ": " + optName);
+						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_NO_IF_FOUND) + ": " + OPT_ELSIF);
 					}
-					condElsif = opt.getCondition();
+					condElsif = options.getElsif();
 				}
-				else if (OPT_ELSE.equals(optName)) {
+				else if (CommandOptions.ELSE == optId) {
 					if (condIf != null || condElsif != null || isElse) {
 						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_ELSE_MUST_BE_ALONE));
 					}
 					if (mustCheckChain && ! condChainOpened) {
-						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_NO_IF_FOUND) + ": " + optName);
+						throw new ParseException(Dict.get(Dict.ERROR_BLOCK_NO_IF_FOUND) + ": " + OPT_ELSE);
 					}
 					isElse = true;
 				}
 				else
-					throw new ParseException(Dict.get(Dict.ERROR_BLOCK_INVALID_OPT) + optName);
+					throw new ParseException(Dict.get(Dict.ERROR_BLOCK_INVALID_OPT) + CommandOptions.getName(optId));
 				
 				// only check?
 				if (isCondCheckParsRun) {
-					if (OPT_IF.equals(optName) || OPT_ELSIF.equals(optName)) {
-						if (OPT_IF.equals(optName))
-							evalCondition(condIf);
-						else if (OPT_ELSIF.equals(optName))
-							evalCondition(condElsif);
-					}
+					if (CommandOptions.IF == optId)
+						evalCondition(condIf);
+					else if (CommandOptions.ELSIF == optId)
+						evalCondition(condElsif);
 				}
 			}
 		}
@@ -2178,7 +2378,13 @@ public class MidicaPLParser extends SequenceParser {
 			}
 			chord.add(noteVal);
 		}
-		chords.put(chordName, chord);
+		
+		// store as a primitive array, so that resolving the chord doesn't need unboxing
+		int[] chordNotes = new int[chord.size()];
+		int   i          = 0;
+		for (int noteVal : chord)
+			chordNotes[i++] = noteVal;
+		chords.put(chordName, chordNotes);
 	}
 	
 	/**
@@ -2214,20 +2420,20 @@ public class MidicaPLParser extends SequenceParser {
 		boolean multiple = false;
 		String  condIf   = null;
 		if (optionString != null && ! "".equals(optionString)) {
-			ArrayList<CommandOption> options = parseOptions(optionString, isFake);
-			for (CommandOption opt : options) {
-				String optName = opt.getName();
-				if (OPT_QUANTITY.equals(optName))
-					quantity = opt.getQuantity();
-				else if (OPT_SHIFT.equals(optName))
-					shift += opt.getShift();
-				else if (OPT_MULTIPLE.equals(optName))
+			CommandOptions options = parseOptions(optionString, isFake);
+			for (int i = 0; i < options.size(); i++) {
+				int optId = options.getId(i);
+				if (CommandOptions.QUANTITY == optId)
+					quantity = options.getQuantity();
+				else if (CommandOptions.SHIFT == optId)
+					shift = options.getShift();
+				else if (CommandOptions.MULTIPLE == optId)
 					multiple = true;
-				else if (OPT_IF.equals(optName)) {
+				else if (CommandOptions.IF == optId) {
 					if (condIf != null) {
-						throw new ParseException(Dict.get(Dict.ERROR_CALL_IF_MUST_BE_ALONE) + optName);
+						throw new ParseException(Dict.get(Dict.ERROR_CALL_IF_MUST_BE_ALONE) + OPT_IF);
 					}
-					condIf = opt.getCondition();
+					condIf = options.getIf();
 					
 					// only check?
 					if (isCondCheckParsRun) {
@@ -2235,9 +2441,10 @@ public class MidicaPLParser extends SequenceParser {
 					}
 				}
 				else
-					throw new ParseException(Dict.get(Dict.ERROR_CALL_UNKNOWN_OPT) + optName);
+					throw new ParseException(Dict.get(Dict.ERROR_CALL_UNKNOWN_OPT) + CommandOptions.getName(optId));
 			}
 		}
+		shift += inheritedShift;
 		
 		if (isCondCheckParsRun)
 			return;
@@ -2289,8 +2496,21 @@ public class MidicaPLParser extends SequenceParser {
 			throw new ParseException(Dict.get(Dict.ERROR_FUNCTION_RECURSION_DEPTH));
 		}
 		
+		// the function inherits the shift but not the tuplets of the caller
+		int    outerShift  = inheritedShift;
+		String outerTuplet = inheritedTuplet;
+		inheritedShift     = shift;
+		inheritedTuplet    = null;
+		
 		// apply all lines of the called function
+		String templateKey = getTemplateKey(CALL + " " + functionName, paramString, shift);
 		for (int i = 0; i < quantity; i++) {
+			TaskProgress.check();
+			
+			// same call already recorded?
+			if (replayTemplate(templateKey))
+				continue;
+			CallTemplate template = startRecording(templateKey);
 			
 			// reset line in stacks
 			traceElem.resetLine();
@@ -2304,19 +2524,13 @@ public class MidicaPLParser extends SequenceParser {
 				int lineNum = functionLineStack.pop();
 				functionLineStack.push(lineNum + 1);
 				
-				// apply shift, if needed
-				if (shift != 0) {
-					if (! functionLine.startsWith(VAR)) {
-						functionLine = replaceVariables(functionLine);
-						String[] functionTokens = functionLine.split("\\s+", 3);
-						functionTokens = addShiftToOptions(functionTokens, shift);
-						functionLine   = String.join(" ", functionTokens);
-					}
-				}
-				
 				parseLine(functionLine);
 			}
+			
+			finishRecording(templateKey, template);
 		}
+		inheritedShift  = outerShift;
+		inheritedTuplet = outerTuplet;
 		
 		// restore tickstamps, if needed
 		if (multiple) {
@@ -2373,6 +2587,8 @@ public class MidicaPLParser extends SequenceParser {
 		
 		// remember channel state
 		Instrument instr = instruments.get(channel);
+		if (recordingTemplate != null && ! isFake)
+			recordingTemplate.touch(channel, instr);
 		long  outerStartTicks = instr.getCurrentTicks();
 		int   outerVelocity   = instr.getVelocity();
 		float outerDuration   = instr.getDurationRatio();
@@ -2383,42 +2599,43 @@ public class MidicaPLParser extends SequenceParser {
 		int     outerShift    = 0;
 		String  outerSyllable = null;
 		if (outerOptStr != null) {
-			ArrayList<CommandOption> callOptions = parseOptions(outerOptStr, false);
+			CommandOptions callOptions = parseOptions(outerOptStr, false);
 			
-			for (CommandOption opt : callOptions) {
-				String optName = opt.getName();
+			for (int i = 0; i < callOptions.size(); i++) {
+				int optId = callOptions.getId(i);
 				
-				if (OPT_VELOCITY.equals(optName)) {
-					int velocity = opt.getVelocity();
+				if (CommandOptions.VELOCITY == optId) {
+					int velocity = callOptions.getVelocity();
 					if (! isFake)
 						instr.setVelocity(velocity);
 					outerVelocity = velocity;
 				}
-				else if (OPT_DURATION.equals(optName)) {
-					float durationRatio = opt.getDuration();
+				else if (CommandOptions.DURATION == optId) {
+					float durationRatio = callOptions.getDuration();
 					if (! isFake)
 						instr.setDurationRatio(durationRatio);
 					outerDuration = durationRatio;
 				}
-				else if (OPT_MULTIPLE.equals(optName)) {
+				else if (CommandOptions.MULTIPLE == optId) {
 					outerMultiple = true;
 				}
-				else if (OPT_QUANTITY.equals(optName)) {
-					outerQuantity = opt.getQuantity();
+				else if (CommandOptions.QUANTITY == optId) {
+					outerQuantity = callOptions.getQuantity();
 				}
-				else if (OPT_LYRICS.equals(optName)) {
-					outerSyllable = opt.getLyrics();
+				else if (CommandOptions.LYRICS == optId) {
+					outerSyllable = callOptions.getLyrics();
 					if (isSoftKaraoke && crlfSkPattern.matcher(outerSyllable).find()) {
 						throw new ParseException(Dict.get(Dict.ERROR_SK_SYLLABLE_CRLF_NOT_ALLOWED));
 					}
 				}
-				else if (OPT_SHIFT.equals(optName)) {
-					outerShift += opt.getShift();
+				else if (CommandOptions.SHIFT == optId) {
+					outerShift = callOptions.getShift();
 				}
 				else
-					throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INVALID_OUTER_OPT) + optName);
+					throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INVALID_OUTER_OPT) + CommandOptions.getName(optId));
 			}
 		}
+		outerShift += inheritedShift;
 		
 		// get notes belonging to the chord
 		ArrayList<Integer> notes = parseChord(tokens[1]);
@@ -2460,6 +2677,17 @@ public class MidicaPLParser extends SequenceParser {
 			throw new ParseException(Dict.get(Dict.ERROR_PATTERN_RECURSION_DEPTH));
 		}
 		
+		// the pattern lines inherit the shift but no tuplets
+		int    formerShift  = inheritedShift;
+		String formerTuplet = inheritedTuplet;
+		inheritedShift      = outerShift;
+		inheritedTuplet     = null;
+		
+		// lyrics cannot be replayed from an event template
+		String templateKey = null;
+		if (null == outerSyllable)
+			templateKey = getTemplateKey(patternName + " " + channel + " " + tokens[1], paramString, outerShift);
+		
 		// apply pattern lines
 		// OUTER_QUANTITY:
 		for (int i = 0; i < outerQuantity; i++) {
@@ -2473,129 +2701,11 @@ public class MidicaPLParser extends SequenceParser {
 				applySyllable(outerSyllable, outerStartTicks);
 			}
 			
-			PATTERN_LINE:
-			for (String patternLine : patternLines) {
-				
-				// increment line in stacks
-				traceElem.incrementLine();
-				int lineNum = patternLineStack.pop();
-				patternLineStack.push(lineNum + 1);
-				
-				// replace variables
-				currentLineContent = patternLine;
-				patternLine        = replaceVariables(patternLine);
-				currentLineContent = patternLine;
-				
-				// special line inside the pattern?
-				String[] patLineTokens = whitespace.split(patternLine);
-				if (patLineTokens.length > 0) {
-					
-					// empty line?
-					if ("".equals(patLineTokens[0])) {
-						parseTokens(patLineTokens);
-						continue PATTERN_LINE;
-					}
-					
-					// block?
-					if (BLOCK_OPEN.equals(patLineTokens[0]) || BLOCK_CLOSE.equals(patLineTokens[0])) {
-						parseTokens(patLineTokens);
-						continue PATTERN_LINE;
-					}
-				}
-				
-				// from now on assume a normal pattern line, beginning with indices
-				String[] patternTokens         = patternLine.split("\\s+", 3);
-				patternTokens                  = reorganizePatternCallTokens(patternTokens, 1); // for nested pattern calls
-				String[]          indexStrings = patternTokens[0].split(Pattern.quote(PATTERN_INDEX_SEP), -1);
-				ArrayList<String> lineNotes    = new ArrayList<String>();
-				
-				// process pattern line options (inner options)
-				boolean innerMultiple = false;
-				Integer innerQuantity = null;
-				Integer innerVelocity = null;
-				Float   innerDuration = null;
-				String  innerTremolo  = null;
-				if (patternTokens.length > 2) {
-					ArrayList<CommandOption> patternOptions = parseOptions(patternTokens[2], false);
-					
-					for (CommandOption opt : patternOptions) {
-						String optName = opt.getName();
-						
-						if (OPT_VELOCITY.equals(optName)) {
-							innerVelocity = opt.getVelocity();
-						}
-						else if (OPT_DURATION.equals(optName)) {
-							innerDuration = opt.getDuration();
-						}
-						else if (OPT_MULTIPLE.equals(optName)) {
-							innerMultiple = true;
-						}
-						else if (OPT_QUANTITY.equals(optName)) {
-							innerQuantity = opt.getQuantity();
-						}
-						else if (OPT_TREMOLO.equals(optName)) {
-							innerTremolo = opt.getValueString();
-						}
-						else
-							throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INVALID_INNER_OPT) + optName);
-					}
-				}
-				
-				// rest?
-				if (REST.equals(patLineTokens[0])) {
-					lineNotes.add(REST);
-				}
-				else {
-					// INDEX:
-					for (String indexStr : indexStrings) {
-						try {
-							int index = Integer.parseInt(indexStr);
-							int note  = noteNumbers[index];
-							lineNotes.add(note + "");
-						}
-						catch (NumberFormatException e) {
-							throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INDEX_INVALID) + indexStr);
-						}
-						catch (IndexOutOfBoundsException e) {
-							throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INDEX_TOO_HIGH) + indexStr);
-						}
-					}
-				}
-				
-				// construct resulting pattern line options
-				ArrayList<String> lineOptions = new ArrayList<String>();
-				if (innerMultiple) {
-					lineOptions.add(M);
-				}
-				if (innerQuantity != null) {
-					lineOptions.add(Q + OPT_ASSIGNER + innerQuantity);
-				}
-				if (innerVelocity != null) {
-					lineOptions.add(V + OPT_ASSIGNER + innerVelocity);
-				}
-				if (innerDuration != null) {
-					lineOptions.add(D + OPT_ASSIGNER + innerDuration);
-				}
-				if (innerTremolo != null) {
-					lineOptions.add(TR + OPT_ASSIGNER + innerTremolo);
-				}
-				if (outerShift != 0) {
-					lineOptions.add(S + OPT_ASSIGNER + outerShift);
-				}
-				
-				// construct resulting tokens for the current pattern line
-				ArrayList<String> lineTokens = new ArrayList<String>();
-				lineTokens.add(channel + "");
-				lineTokens.add(String.join(CHORD_SEPARATOR, lineNotes));
-				lineTokens.add(patternTokens[1]);
-				if (lineOptions.size() > 0) {
-					String patternAndOptions = lineTokens.get(2);
-					patternAndOptions += " " + String.join(OPT_SEPARATOR, lineOptions);
-					lineTokens.set(2, patternAndOptions);
-				}
-				
-				// parse the resulting line
-				parseTokens(lineTokens.toArray(new String[0]));
+			// apply the lines, unless the same pattern call has already been recorded
+			if (! replayTemplate(templateKey)) {
+				CallTemplate template = startRecording(templateKey);
+				applyPatternLines(patternLines, channel, noteNumbers, traceElem);
+				finishRecording(templateKey, template);
 			}
 			
 			// reset channel state (velocity + duration)
@@ -2605,6 +2715,9 @@ public class MidicaPLParser extends SequenceParser {
 			}
 		}
 		
+		inheritedShift  = formerShift;
+		inheritedTuplet = formerTuplet;
+		
 		// reset ticks, if needed
 		if (! isFake) {
 			if (outerMultiple)
@@ -2620,6 +2733,237 @@ public class MidicaPLParser extends SequenceParser {
 		paramStackNamed.pop();
 	}
 	
+	/**
+	 * Applies the lines of a pattern once.
+	 * Used by {@link #parsePatternCall(String[], boolean)}.
+	 * 
+	 * @param patternLines  the lines of the pattern
+	 * @param channel       the channel of the pattern call
+	 * @param noteNumbers   the notes of the pattern call
+	 * @param traceElem     stack trace element of the pattern call
+	 * @throws ParseException if one of the pattern lines cannot be parsed.
+	 */
+	private void applyPatternLines(ArrayList<String> patternLines, int channel, Integer[] noteNumbers,
+			StackTraceElement traceElem) throws ParseException {
+		
+		PATTERN_LINE:
+		for (String patternLine : patternLines) {
+			
+			// increment line in stacks
+			traceElem.incrementLine();
+			int lineNum = patternLineStack.pop();
+			patternLineStack.push(lineNum + 1);
+			
+			// replace variables
+			currentLineContent = patternLine;
+			patternLine        = replaceVariables(patternLine);
+			currentLineContent = patternLine;
+			
+			// special line inside the pattern?
+			String[] patLineTokens = whitespace.split(patternLine);
+			if (patLineTokens.length > 0) {
+				
+				// empty line?
+				if ("".equals(patLineTokens[0])) {
+					parseTokens(patLineTokens);
+					continue PATTERN_LINE;
+				}
+				
+				// block?
+				if (BLOCK_OPEN.equals(patLineTokens[0]) || BLOCK_CLOSE.equals(patLineTokens[0])) {
+					parseTokens(patLineTokens);
+					continue PATTERN_LINE;
+				}
+			}
+			
+			// from now on assume a normal pattern line, beginning with indices
+			String[] patternTokens         = patternLine.split("\\s+", 3);
+			patternTokens                  = reorganizePatternCallTokens(patternTokens, 1); // for nested pattern calls
+			String[]          indexStrings = patternTokens[0].split(Pattern.quote(PATTERN_INDEX_SEP), -1);
+			ArrayList<String> lineNotes    = new ArrayList<String>();
+			
+			// process pattern line options (inner options)
+			boolean innerMultiple = false;
+			Integer innerQuantity = null;
+			Integer innerVelocity = null;
+			Float   innerDuration = null;
+			String  innerTremolo  = null;
+			if (patternTokens.length > 2) {
+				CommandOptions patternOptions = parseOptions(patternTokens[2], false);
+				
+				for (int j = 0; j < patternOptions.size(); j++) {
+					int optId = patternOptions.getId(j);
+					
+					if (CommandOptions.VELOCITY == optId) {
+						innerVelocity = patternOptions.getVelocity();
+					}
+					else if (CommandOptions.DURATION == optId) {
+						innerDuration = patternOptions.getDuration();
+					}
+					else if (CommandOptions.MULTIPLE == optId) {
+						innerMultiple = true;
+					}
+					else if (CommandOptions.QUANTITY == optId) {
+						innerQuantity = patternOptions.getQuantity();
+					}
+					else if (CommandOptions.TREMOLO == optId) {
+						innerTremolo = patternOptions.getTremoloString();
+					}
+					else
+						throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INVALID_INNER_OPT) + CommandOptions.getName(optId));
+				}
+			}
+			
+			// rest?
+			if (REST.equals(patLineTokens[0])) {
+				lineNotes.add(REST);
+			}
+			else {
+				// INDEX:
+				for (String indexStr : indexStrings) {
+					try {
+						int index = Integer.parseInt(indexStr);
+						int note  = noteNumbers[index];
+						lineNotes.add(note + "");
+					}
+					catch (NumberFormatException e) {
+						throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INDEX_INVALID) + indexStr);
+					}
+					catch (IndexOutOfBoundsException e) {
+						throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INDEX_TOO_HIGH) + indexStr);
+					}
+				}
+			}
+			
+			// construct resulting pattern line options
+			ArrayList<String> lineOptions = new ArrayList<String>();
+			if (innerMultiple) {
+				lineOptions.add(M);
+			}
+			if (innerQuantity != null) {
+				lineOptions.add(Q + OPT_ASSIGNER + innerQuantity);
+			}
+			if (innerVelocity != null) {
+				lineOptions.add(V + OPT_ASSIGNER + innerVelocity);
+			}
+			if (innerDuration != null) {
+				lineOptions.add(D + OPT_ASSIGNER + innerDuration);
+			}
+			if (innerTremolo != null) {
+				lineOptions.add(TR + OPT_ASSIGNER + innerTremolo);
+			}
+			
+			// construct resulting tokens for the current pattern line
+			ArrayList<String> lineTokens = new ArrayList<String>();
+			lineTokens.add(channel + "");
+			lineTokens.add(String.join(CHORD_SEPARATOR, lineNotes));
+			lineTokens.add(patternTokens[1]);
+			if (lineOptions.size() > 0) {
+				String patternAndOptions = lineTokens.get(2);
+				patternAndOptions += " " + String.join(OPT_SEPARATOR, lineOptions);
+				lineTokens.set(2, patternAndOptions);
+			}
+			
+			// parse the resulting line
+			parseTokens(lineTokens.toArray(new String[0]));
+		}
+	}
+	
+	/**
+	 * Returns the key of the event template for a function or pattern call.
+	 * 
+	 * Returns **null**, if the call must not be recorded or replayed. This is the case
+	 * outside of the default parsing run or before the instruments are initialized.
+	 * 
+	 * @param call         call type and name (and for patterns: channel and notes)
+	 * @param paramString  parameters of the call, or **null**
+	 * @param shift        shift of the call, including the inherited shift
+	 * @return the key or **null**.
+	 */
+	private String getTemplateKey(String call, String paramString, int shift) {
+		if (! useTemplates || ! isDefaultParsRun || ! instrumentsParsed)
+			return null;
+		return call + "(" + paramString + ")" + shift;
+	}
+	
+	/**
+	 * Replays the event template of a call, if available.
+	 * 
+	 * The template is only replayed if it leads to exactly the same result as
+	 * executing the call. See {@link CallTemplate}.
+	 * 
+	 * @param key  template key or **null**
+	 * @return **true**, if the template has been replayed, otherwise **false**.
+	 * @throws ParseException if a MIDI problem occurs.
+	 */
+	private boolean replayTemplate(String key) throws ParseException {
+		if (null == key)
+			return false;
+		CallTemplate template = templateCache.get(key);
+		if (null == template || ! template.matches(instruments, variables))
+			return false;
+		
+		try {
+			template.replay(instruments, recordingTemplate);
+		}
+		catch (InvalidMidiDataException e) {
+			throw new ParseException(Dict.get(Dict.ERROR_MIDI_PROBLEM) + e.getMessage());
+		}
+		condChainOpened = template.getExitChainOpened();
+		condChainHit    = template.getExitChainHit();
+		templateReplays++;
+		
+		return true;
+	}
+	
+	/**
+	 * Starts recording the event template of a call.
+	 * 
+	 * Only one call is recorded at the same time. Nested calls are recorded as a
+	 * part of the enclosing call.
+	 * 
+	 * @param key  template key or **null**
+	 * @return the template to be recorded, or **null** if nothing is recorded.
+	 */
+	private CallTemplate startRecording(String key) {
+		if (null == key || recordingTemplate != null)
+			return null;
+		
+		// known to be impure?
+		CallTemplate template = templateCache.get(key);
+		if (template != null && ! template.isPure())
+			return null;
+		
+		recordingTemplate = new CallTemplate();
+		return recordingTemplate;
+	}
+	
+	/**
+	 * Finishes recording the event template of a call and caches the template.
+	 * 
+	 * @param key       template key
+	 * @param template  the recorded template, or **null** if nothing has been recorded
+	 */
+	private void finishRecording(String key, CallTemplate template) {
+		if (null == template)
+			return;
+		recordingTemplate = null;
+		template.finish(instruments, condChainOpened, condChainHit);
+		templateCache.put(key, template);
+	}
+	
+	/**
+	 * Determines if the given command can be part of a replayable event template.
+	 * 
+	 * @param cmd  the command (first token of a line)
+	 * @return **true** for key strokes, function calls and blocks, otherwise **false**.
+	 */
+	private boolean isReplayableCmd(String cmd) {
+		if ("".equals(cmd) || CALL.equals(cmd) || BLOCK_OPEN.equals(cmd) || BLOCK_CLOSE.equals(cmd))
+			return true;
+		return isNumeric(cmd);
+	}
+	
 	/**
 	 * Parses (indexed and named) parameters of a function call or a pattern usage.
 	 * 
@@ -2736,17 +3080,17 @@ public class MidicaPLParser extends SequenceParser {
 				
 				// check options
 				if (tokens.length > 2) {
-					ArrayList<CommandOption> patternOptions = parseOptions(tokens[2], true);
+					CommandOptions patternOptions = parseOptions(tokens[2], true);
 					
-					for (CommandOption opt : patternOptions) {
-						String optName = opt.getName();
+					for (int i = 0; i < patternOptions.size(); i++) {
+						int optId = patternOptions.getId(i);
 						
-						if (OPT_VELOCITY.equals(optName) || OPT_DURATION.equals(optName) || OPT_MULTIPLE.equals(optName)
-						 || OPT_QUANTITY.equals(optName) || OPT_TREMOLO.equals(optName)) {
+						if (CommandOptions.VELOCITY == optId || CommandOptions.DURATION == optId || CommandOptions.MULTIPLE == optId
+						 || CommandOptions.QUANTITY == optId || CommandOptions.TREMOLO == optId) {
 							// ok
 						}
 						else
-							throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INVALID_INNER_OPT) + optName);
+							throw new ParseException(Dict.get(Dict.ERROR_PATTERN_INVALID_INNER_OPT) + CommandOptions.getName(optId));
 					}
 				}
 			}
@@ -2830,6 +3174,9 @@ public class MidicaPLParser extends SequenceParser {
 	 * @throws ParseException if a MIDI problem occurs.
 	 */
 	private void applySyllable(String syllable, long tick) throws ParseException {
+		if (recordingTemplate != null)
+			recordingTemplate.markImpure();
+		
 		syllable = syllable.replaceAll( Pattern.quote(LYRICS_SPACE), " "  );
 		syllable = syllable.replaceAll( Pattern.quote(LYRICS_CR),    "\r" );
 		syllable = syllable.replaceAll( Pattern.quote(LYRICS_LF),    "\n" );
@@ -2849,11 +3196,180 @@ public class MidicaPLParser extends SequenceParser {
 	/**
 	 * Evaluates the given if/elsif condition.
 	 * 
+	 * Variables must have been replaced already.
+	 * The compiled form of the condition is cached.
+	 * 
 	 * @param condition  the condition to be evaluated.
 	 * @return **true**, if the condition evaluates to **true**, otherwise: **false**.
 	 * @throws ParseException if the condition is invalid
 	 */
 	public boolean evalCondition(String condition) throws ParseException {
+		CompiledCondition compiled = conditionCache.get(condition);
+		if (null == compiled) {
+			compiled = compileCondition(condition, false);
+			conditionCache.put(condition, compiled);
+		}
+		return compiled.evaluate(this);
+	}
+	
+	/**
+	 * Compiles the given if/elsif condition.
+	 * 
+	 * If the condition is invalid or contains variables that are not a complete operand,
+	 * a condition is returned that is evaluated in the classic way (by
+	 * {@link #evalConditionString(String)}).
+	 * 
+	 * @param source         the condition
+	 * @param withVariables  **true**, if variables and parameters are resolved while evaluating;
+	 *                       **false**, if the condition is treated literally
+	 * @return the compiled condition.
+	 */
+	CompiledCondition compileCondition(String source, boolean withVariables) {
+		CompiledCondition classic   = new CompiledCondition(source, withVariables);
+		String            condition = clean(source);
+		
+		// find the operator
+		Matcher condMatcher = condPattern.matcher(condition);
+		int     opCount     = 0;
+		int     opStart     = -1;
+		int     opEnd       = -1;
+		String  opStr       = null;
+		while (condMatcher.find()) {
+			if (0 == opCount) {
+				opStart = condMatcher.start();
+				opEnd   = condMatcher.end();
+				opStr   = condMatcher.group(1);
+			}
+			opCount++;
+		}
+		if (opCount > 1)
+			return classic;
+		
+		// defined
+		if (0 == opCount) {
+			if (whitespace.matcher(condition).find())
+				return classic;
+			CompiledCondition.Operand operand = compileOperand(condition, withVariables);
+			if (null == operand)
+				return classic;
+			return new CompiledCondition(source, withVariables, CompiledCondition.OP_DEFINED, operand, null, null, false);
+		}
+		
+		// one operator, two operands
+		String first  = clean(condition.substring(0, opStart));
+		String second = clean(condition.substring(opEnd));
+		int    operator;
+		if (COND_NDEF.equals(opStr))
+			operator = CompiledCondition.OP_NDEF;
+		else if (COND_EQ.equals(opStr))
+			operator = CompiledCondition.OP_EQ;
+		else if (COND_NEQ.equals(opStr))
+			operator = CompiledCondition.OP_NEQ;
+		else if (COND_LT.equals(opStr))
+			operator = CompiledCondition.OP_LT;
+		else if (COND_LE.equals(opStr))
+			operator = CompiledCondition.OP_LE;
+		else if (COND_GT.equals(opStr))
+			operator = CompiledCondition.OP_GT;
+		else if (COND_GE.equals(opStr))
+			operator = CompiledCondition.OP_GE;
+		else if (COND_IN.equals(opStr))
+			operator = CompiledCondition.OP_IN;
+		else
+			return classic;
+		
+		// cases leading to errors
+		if (whitespace.matcher(first).find())
+			return classic;
+		if (operator != CompiledCondition.OP_IN && whitespace.matcher(second).find())
+			return classic;
+		if (CompiledCondition.OP_NDEF == operator && ! "".equals(first))
+			return classic;
+		
+		// the word boundaries of "in" must not depend on variable values
+		if (CompiledCondition.OP_IN == operator && withVariables) {
+			if (opStart > 0 && ! isWhitespace(condition.charAt(opStart - 1)))
+				return classic;
+			if (opEnd < condition.length() && ! isWhitespace(condition.charAt(opEnd)))
+				return classic;
+		}
+		
+		CompiledCondition.Operand firstOp = compileOperand(first, withVariables);
+		if (null == firstOp)
+			return classic;
+		if (CompiledCondition.OP_IN == operator) {
+			if (withVariables && second.contains(VAR_SYMBOL))
+				return classic;
+			String[] candidates = condInPattern.split(second);
+			boolean  hasEmpty   = false;
+			for (String candidate : candidates) {
+				if (whitespace.matcher(candidate).find())
+					return classic;
+				if ("".equals(candidate))
+					hasEmpty = true;
+			}
+			return new CompiledCondition(source, withVariables, operator, firstOp, null, candidates, hasEmpty);
+		}
+		CompiledCondition.Operand secondOp = compileOperand(second, withVariables);
+		if (null == secondOp)
+			return classic;
+		
+		return new CompiledCondition(source, withVariables, operator, firstOp, secondOp, null, false);
+	}
+	
+	/**
+	 * Compiles one operand of a condition.
+	 * 
+	 * @param operand        the operand string
+	 * @param withVariables  **true**, if variables and parameters are resolved while evaluating
+	 * @return the compiled operand or **null** if the operand contains variables but is not a single variable.
+	 */
+	private CompiledCondition.Operand compileOperand(String operand, boolean withVariables) {
+		if (! withVariables || ! operand.contains(VAR_SYMBOL))
+			return new CompiledCondition.Operand(operand);
+		
+		Matcher varMatcher = varPattern.matcher(operand);
+		if (! varMatcher.matches())
+			return null;
+		return new CompiledCondition.Operand(varMatcher.group(1), varMatcher.group(5), varMatcher.group(6));
+	}
+	
+	/**
+	 * Indicates if the given variable value can be used as an operand of a compiled
+	 * condition, without changing the structure of the condition.
+	 * 
+	 * That's not the case if the value contains whitespaces, variables or operators.
+	 * 
+	 * @param value  the variable value
+	 * @return **true** if the value is safe, otherwise **false**.
+	 */
+	boolean isSafeConditionValue(String value) {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (isWhitespace(c) || condOperatorChars.indexOf(c) >= 0)
+				return false;
+		}
+		return ! value.contains(VAR_SYMBOL) && ! value.contains(COND_IN);
+	}
+	
+	/**
+	 * Indicates if the current parsing run is the run for pre-checking if/elsif conditions.
+	 * 
+	 * @return **true** in the condition check run, otherwise **false**.
+	 */
+	static boolean isCondCheckRun() {
+		return isCondCheckParsRun;
+	}
+	
+	/**
+	 * Evaluates the given if/elsif condition by parsing the condition string.
+	 * 
+	 * @param condition  the condition to be evaluated.
+	 * @return **true**, if the condition evaluates to **true**, otherwise: **false**.
+	 * @throws ParseException if the condition is invalid
+	 */
+	boolean evalConditionString(String condition) throws ParseException {
 		condition = clean(condition);
 		
 		String first    = null;
@@ -2955,49 +3471,58 @@ public class MidicaPLParser extends SequenceParser {
 	}
 	
 	/**
-	 * Adds the shift option to the given command, if it's a note, chord or call command.
+	 * Adds the given tuplet modifiers to all summands of a duration string.
 	 * 
-	 * @param tokens  command tokens
-	 * @return the resulting command tokens.
+	 * E.g. *1+/8 --> *1t4:3+/8t4:3
+	 * 
+	 * @param durationStr  the duration string
+	 * @param tuplets      the tuplet modifiers
+	 * @return the resulting duration string.
 	 */
-	public String[] addShiftToOptions(String[] tokens, int shift) {
-		
-		String shiftOptionStr = MidicaPLParser.SHIFT + MidicaPLParser.OPT_ASSIGNER + shift;
-		String line           = String.join(" ", (String[]) tokens);
-		
-		// call command?
-		if (MidicaPLParser.CALL.equals(tokens[0])) {
-			if (tokens.length < 3)
-				line += " " + shiftOptionStr;
-			else
-				line += MidicaPLParser.OPT_SEPARATOR + shiftOptionStr;
-			return line.split("\\s+", 3);
-		}
-		
-		// channel command?
-		try {
-			toChannel(tokens[0]);
-			
-			// no exception --> channel command
-			
-			// rest? - ignore
-			if (MidicaPLParser.REST.equals(tokens[1])) {
-				return tokens;
-			}
-			
-			// note or chord
-			if (whitespace.matcher(tokens[2]).find())
-				line += MidicaPLParser.OPT_SEPARATOR + shiftOptionStr;
-			else
-				line += " " + shiftOptionStr;
-			return line.split("\\s+", 3);
-				
-		}
-		catch (ParseException e) {
-			// not a channel command
-		}
-		
-		return tokens;
+	private static String addTuplets(String durationStr, String tuplets) {
+		StringBuilder result = new StringBuilder(durationStr.length() + 2 * tuplets.length());
+		int plusLength = LENGTH_PLUS.length();
+		int start      = 0;
+		int end;
+		while ((end = durationStr.indexOf(LENGTH_PLUS, start)) >= 0) {
+			result.append(durationStr, start, end).append(tuplets).append(LENGTH_PLUS);
+			start = end + plusLength;
+		}
+		result.append(durationStr, start, durationStr.length()).append(tuplets);
+		
+		return result.toString();
+	}
+	
+	/**
+	 * Returns the shift that is inherited from enclosing blocks, function calls or pattern calls.
+	 * 
+	 * @return the inherited shift.
+	 */
+	int getInheritedShift() {
+		return inheritedShift;
+	}
+	
+	/**
+	 * Returns the tuplet modifiers that are inherited from enclosing blocks.
+	 * 
+	 * @return the inherited tuplets or **null**.
+	 */
+	String getInheritedTuplet() {
+		return inheritedTuplet;
+	}
+	
+	/**
+	 * Sets the shift and tuplets to be applied to the following channel commands,
+	 * function calls and pattern calls.
+	 * 
+	 * Used by {@link NestableBlock} while playing a block.
+	 * 
+	 * @param shift    the shift to be inherited
+	 * @param tuplets  the tuplet modifiers to be inherited, or **null**
+	 */
+	void setInheritance(int shift, String tuplets) {
+		inheritedShift  = shift;
+		inheritedTuplet = tuplets;
 	}
 	
 	/**
@@ -3075,29 +3600,10 @@ public class MidicaPLParser extends SequenceParser {
 				}
 				
 				// make it canonical
-				inclFile = inclFile.getCanonicalFile();
-				
-				// check if this file is already loaded
-				String oldPath = SoundfontParser.getFilePath();
-				String newPath = inclFile.getCanonicalPath();
-				if (oldPath != null && oldPath.equals(newPath)) {
-					return;
-				}
-				
-				// check if the file can be parsed
-				if (! inclFile.exists())
-					throw new ParseException(Dict.get(Dict.ERROR_FILE_EXISTS) + inclFile.getCanonicalPath());
-				if (! inclFile.isFile())
-					throw new ParseException(Dict.get(Dict.ERROR_FILE_NORMAL) + inclFile.getCanonicalPath());
-				if (! inclFile.canRead())
-					throw new ParseException(Dict.get(Dict.ERROR_FILE_READABLE) + inclFile.getCanonicalPath());
-				
-				// parse it
-				SoundfontParser parser = new SoundfontParser();
-				parser.parse(inclFile);
+				inclFile      = inclFile.getCanonicalFile();
+				soundfontFile = inclFile;
 				
-				// set the file name label in the main window
-				Midica.uiController.soundfontLoadedBySourceCode();
+				loadSoundfont(inclFile);
 			}
 			catch (IOException e) {
 				throw new ParseException(Dict.get(Dict.ERROR_SOUNDFONT_IO) + e.getMessage());
@@ -3107,6 +3613,38 @@ public class MidicaPLParser extends SequenceParser {
 			throw new ParseException(Dict.get(Dict.ERROR_SOUNDFONT_NUM_OF_ARGS));
 	}
 	
+	/**
+	 * Loads the soundfont file of a SOUNDFONT command, if it's not yet loaded.
+	 * 
+	 * @param inclFile  the canonical soundfont file
+	 * @throws ParseException    If the soundfont cannot be loaded.
+	 * @throws IOException       If the soundfont file cannot be accessed.
+	 */
+	private static void loadSoundfont(File inclFile) throws ParseException, IOException {
+		
+		// check if this file is already loaded
+		String oldPath = SoundfontParser.getFilePath();
+		String newPath = inclFile.getCanonicalPath();
+		if (oldPath != null && oldPath.equals(newPath)) {
+			return;
+		}
+		
+		// check if the file can be parsed
+		if (! inclFile.exists())
+			throw new ParseException(Dict.get(Dict.ERROR_FILE_EXISTS) + inclFile.getCanonicalPath());
+		if (! inclFile.isFile())
+			throw new ParseException(Dict.get(Dict.ERROR_FILE_NORMAL) + inclFile.getCanonicalPath());
+		if (! inclFile.canRead())
+			throw new ParseException(Dict.get(Dict.ERROR_FILE_READABLE) + inclFile.getCanonicalPath());
+		
+		// parse it
+		SoundfontParser parser = new SoundfontParser();
+		parser.parse(inclFile);
+		
+		// set the file name label in the main window
+		Midica.uiController.soundfontLoadedBySourceCode();
+	}
+	
 	/**
 	 * Parses a DEFINE command.
 	 * A DEFINE command is used to re-define a mode command name.
@@ -3467,46 +4005,7 @@ public class MidicaPLParser extends SequenceParser {
 			// find and replace the next variable
 			while (varMatcher.find()) {
 				mustSearchAgain        = true;
-				String varName         = varMatcher.group(1);
-				boolean isIndexedParam = varMatcher.group(5) != null;
-				boolean isNamedParam   = varMatcher.group(6) != null;
-				
-				String varValue = null;
-				try {
-					if (isIndexedParam) {
-						int index = toInt(varMatcher.group(5));
-						ArrayList<String> params = paramStackIndexed.peek();
-						if (null == params) {
-							throw new ParseException(Dict.get(Dict.ERROR_PARAM_OUTSIDE_FUNCTION) + varName);
-						}
-						if (index < params.size()) {
-							varValue = params.get(index);
-						}
-					}
-					else if (isNamedParam) {
-						String name = varMatcher.group(6);
-						HashMap<String, String> params = paramStackNamed.peek();
-						if (null == params) {
-							throw new ParseException(Dict.get(Dict.ERROR_PARAM_OUTSIDE_FUNCTION) + varName);
-						}
-						varValue = params.get(name);
-					}
-					else {
-						varValue = variables.get(varName);
-					}
-				}
-				catch (ParseException e) {
-					e.setCausedByInvalidVar(varName);
-					throw e;
-				}
-				
-				// variable undefined?
-				if (null == varValue) {
-					if (isIndexedParam || isNamedParam)
-						varValue = ""; // allow undefined parameters
-					else
-						throw new ParseException(Dict.get(Dict.ERROR_VAR_NOT_DEFINED) + varName);
-				}
+				String varValue = lookupVariable(varMatcher.group(1), varMatcher.group(5), varMatcher.group(6));
 				
 				// replace
 				varMatcher.appendReplacement(resultingLine, Matcher.quoteReplacement(varValue));
@@ -3527,6 +4026,60 @@ public class MidicaPLParser extends SequenceParser {
 		return str;
 	}
 	
+	/**
+	 * Returns the value of a variable or parameter.
+	 * 
+	 * @param varName    the whole variable or parameter construct, e.g. **$x**, **$[0]** or **${name}**
+	 * @param index      the parameter index for indexed parameters, otherwise **null**
+	 * @param paramName  the parameter name for named parameters, otherwise **null**
+	 * @return the value, or an empty string for undefined parameters.
+	 * @throws ParseException if the variable is undefined or a parameter is used outside of a function or pattern.
+	 */
+	String lookupVariable(String varName, String index, String paramName) throws ParseException {
+		boolean isIndexedParam = index != null;
+		boolean isNamedParam   = paramName != null;
+		
+		String varValue = null;
+		try {
+			if (isIndexedParam) {
+				int i = toInt(index);
+				ArrayList<String> params = paramStackIndexed.peek();
+				if (null == params) {
+					throw new ParseException(Dict.get(Dict.ERROR_PARAM_OUTSIDE_FUNCTION) + varName);
+				}
+				if (i < params.size()) {
+					varValue = params.get(i);
+				}
+			}
+			else if (isNamedParam) {
+				HashMap<String, String> params = paramStackNamed.peek();
+				if (null == params) {
+					throw new ParseException(Dict.get(Dict.ERROR_PARAM_OUTSIDE_FUNCTION) + varName);
+				}
+				varValue = params.get(paramName);
+			}
+			else {
+				varValue = variables.get(varName);
+				if (recordingTemplate != null && varValue != null)
+					recordingTemplate.addVariable(varName, varValue);
+			}
+		}
+		catch (ParseException e) {
+			e.setCausedByInvalidVar(varName);
+			throw e;
+		}
+		
+		// variable undefined?
+		if (null == varValue) {
+			if (isIndexedParam || isNamedParam)
+				varValue = ""; // allow undefined parameters
+			else
+				throw new ParseException(Dict.get(Dict.ERROR_VAR_NOT_DEFINED) + varName);
+		}
+		
+		return varValue;
+	}
+	
 	/**
 	 * Parses a single line instrument switch command (outside of an instruments bock).
 	 * 
@@ -3912,6 +4465,8 @@ public class MidicaPLParser extends SequenceParser {
 		
 		// process duration
 		String durationStr = subTokens[0];
+		if (inheritedTuplet != null && ! patterns.containsKey(durationStr))
+			durationStr = addTuplets(durationStr, inheritedTuplet);
 		int duration;
 		if (isFake) {
 			if (varPattern.matcher(durationStr).find()) {
@@ -3936,6 +4491,11 @@ public class MidicaPLParser extends SequenceParser {
 			postprocessInstruments();
 		}
 		
+		// remember the channel state before the command changes it
+		if (recordingTemplate != null && ! isFake) {
+			recordingTemplate.touch(channel, instruments.get(channel));
+		}
+		
 		// process options
 		boolean multiple = false;
 		int     tremolo  = duration;
@@ -3943,43 +4503,44 @@ public class MidicaPLParser extends SequenceParser {
 		int     shift    = 0;
 		String  syllable = null;
 		if (2 == subTokens.length) {
-			ArrayList<CommandOption> options = parseOptions(subTokens[1], isFake);
+			CommandOptions options = parseOptions(subTokens[1], isFake);
 			
-			for (CommandOption opt : options) {
-				String optName = opt.getName();
+			for (int i = 0; i < options.size(); i++) {
+				int optId = options.getId(i);
 				
-				if (OPT_VELOCITY.equals(optName)) {
-					int velocity = opt.getVelocity();
+				if (CommandOptions.VELOCITY == optId) {
+					int velocity = options.getVelocity();
 					if (! isFake)
 						instruments.get(channel).setVelocity(velocity);
 				}
-				else if (OPT_DURATION.equals(optName)) {
-					float durationRatio = opt.getDuration();
+				else if (CommandOptions.DURATION == optId) {
+					float durationRatio = options.getDuration();
 					if (! isFake)
 						instruments.get(channel).setDurationRatio(durationRatio);
 				}
-				else if (OPT_MULTIPLE.equals(optName)) {
+				else if (CommandOptions.MULTIPLE == optId) {
 					multiple = true;
 				}
-				else if (OPT_QUANTITY.equals(optName)) {
-					quantity = opt.getQuantity();
+				else if (CommandOptions.QUANTITY == optId) {
+					quantity = options.getQuantity();
 				}
-				else if (OPT_LYRICS.equals(optName)) {
-					syllable = opt.getLyrics();
+				else if (CommandOptions.LYRICS == optId) {
+					syllable = options.getLyrics();
 					if (isSoftKaraoke && crlfSkPattern.matcher(syllable).find()) {
 						throw new ParseException(Dict.get(Dict.ERROR_SK_SYLLABLE_CRLF_NOT_ALLOWED));
 					}
 				}
-				else if (OPT_TREMOLO.equals(optName)) {
-					tremolo = opt.getTremolo();
+				else if (CommandOptions.TREMOLO == optId) {
+					tremolo = options.getTremolo();
 				}
-				else if (OPT_SHIFT.equals(optName)) {
-					shift += opt.getShift();
+				else if (CommandOptions.SHIFT == optId) {
+					shift = options.getShift();
 				}
 				else
-					throw new ParseException(Dict.get(Dict.ERROR_CHANNEL_INVALID_OPT) + optName);
+					throw new ParseException(Dict.get(Dict.ERROR_CHANNEL_INVALID_OPT) + CommandOptions.getName(optId));
 			}
 		}
+		shift += inheritedShift;
 		
 		// transpose by source code
 		if (note != REST_VALUE)
@@ -4004,6 +4565,7 @@ public class MidicaPLParser extends SequenceParser {
 			
 			NOTE_QUANTITY:
 			for (int i = 0; i < quantity; i++) {
+				TaskProgress.check();
 				int  currentDuration = duration;
 				int  currentTremolo  = tremolo;
 				long startTicks      = instr.getCurrentTicks();
@@ -4044,6 +4606,8 @@ public class MidicaPLParser extends SequenceParser {
 						// correction of legato overlappings needed?
 						Long tickToCorrect = instr.getStopTickToCorrect();
 						if (tickToCorrect != null) {
+							if (recordingTemplate != null)
+								recordingTemplate.markImpure();
 							long targetTick = startTicks - 1;
 							try {
 								SequenceCreator.moveNoteOffMessage(channel, newNote, tickToCorrect, targetTick);
@@ -4055,6 +4619,8 @@ public class MidicaPLParser extends SequenceParser {
 						
 						// create and add messages
 						SequenceCreator.addMessageKeystroke(channel, newNote, startTicks, endTicks, velocity);
+						if (recordingTemplate != null)
+							recordingTemplate.addKeystroke(channel, note, newNote, startTicks, endTicks, velocity);
 					}
 				}
 			}
@@ -4071,144 +4637,194 @@ public class MidicaPLParser extends SequenceParser {
 	/**
 	 * Parses the options part of a command.
 	 * 
+	 * The options string is scanned in a single pass. The results are written into a
+	 * reusable {@link CommandOptions} record, which is returned. So the values must be
+	 * read before the next options string is parsed.
+	 * 
 	 * @param optString    The options string of the channel command to be parsed.
 	 * @param isFake       **true**, if this is called inside a function definition, pattern definition or block.
 	 * @return             All options and their values that have been found in the
 	 *                     provided options string.
 	 * @throws ParseException    If the command cannot be parsed.
 	 */
-	private ArrayList<CommandOption> parseOptions(String optString, boolean isFake) throws ParseException {
-		ArrayList<CommandOption> options = new ArrayList<>();
-		
-		String[] optTokens = optString.split(OPT_SEPARATOR, -1);
-		for (String opt : optTokens) {
-			opt = clean(opt);
-			String[] optParts = opt.split("[" + Pattern.quote(OPT_ASSIGNER) + "\\s]+", 2); // name and value can be separated by OPT_ASSIGNER (e,g, "=") and/or whitespace(s)
-			if (optParts.length > 2)
-				throw new ParseException(Dict.get(Dict.ERROR_CANT_PARSE_OPTIONS) + opt);
+	private CommandOptions parseOptions(String optString, boolean isFake) throws ParseException {
+		CommandOptions options = cmdOptions;
+		options.reset();
+		
+		int length    = optString.length();
+		int sepLength = OPT_SEPARATOR.length();
+		int start     = 0;
+		while (true) {
+			int end = optString.indexOf(OPT_SEPARATOR, start);
+			if (end < 0)
+				end = length;
+			
+			// cut away leading and trailing whitespaces
+			int from = start;
+			int to   = end;
+			while (from < to && isWhitespace(optString.charAt(from)))
+				from++;
+			while (to > from && isWhitespace(optString.charAt(to - 1)))
+				to--;
+			
+			// name and value can be separated by OPT_ASSIGNER (e,g, "=") and/or whitespace(s)
+			int nameEnd = from;
+			while (nameEnd < to && ! isOptAssignerOrWhitespace(optString.charAt(nameEnd)))
+				nameEnd++;
+			int valueStart = nameEnd;
+			while (valueStart < to && isOptAssignerOrWhitespace(optString.charAt(valueStart)))
+				valueStart++;
+			boolean hasValue = nameEnd < to;
+			String  value    = hasValue ? optString.substring(valueStart, to) : null;
 			
 			// value is a variable? - don't check if this is fake
-			if (isFake && optParts.length > 1 && varPattern.matcher(optParts[1]).find())
+			if (isFake && hasValue && varPattern.matcher(value).find())
 				return options;
 			
-			// construct name and value
-			String        optName  = optParts[0];
-			CommandOption optValue = new CommandOption();
-			
-			if (isCondCheckParsRun && ! IF.equals(optName) && ! ELSIF.equals(optName) && ! ELSE.equals(optName))
-				continue;
+			parseOption(options, optString, from, nameEnd, value);
 			
-			if (V.equals(optName) || VELOCITY.equals(optName)) {
-				if (optParts.length < 2 || "".equals(optParts[1])) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				optName = OPT_VELOCITY;
-				int val = toInt(optParts[1]);
-				if (val > 127)
-					throw new ParseException(Dict.get(Dict.ERROR_VEL_NOT_MORE_THAN_127));
-				if (val < 1)
-					throw new ParseException(Dict.get(Dict.ERROR_VEL_NOT_LESS_THAN_1));
-				optValue.set(optName, val);
-			}
-			else if (D.equals(optName) || DURATION.equals(optName)) {
-				if (optParts.length < 2 || "".equals(optParts[1])) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				optName = OPT_DURATION;
-				String[] valueParts = optParts[1].split(Pattern.quote(DURATION_PERCENT), -1);
-				float    val        = toFloat(valueParts[0]);
-				if (valueParts.length > 1)
-					val /= 100; // percentage --> numeric
-				if (val <= 0.0)
-					throw new ParseException(Dict.get(Dict.ERROR_DURATION_MORE_THAN_0));
-				optValue.set(optName, val);
-			}
-			else if (Q.equals(optName) || QUANTITY.equals(optName)) {
-				if (optParts.length < 2 || "".equals(optParts[1])) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				optName = OPT_QUANTITY;
-				optValue.set(optName, toInt(optParts[1], true));
-			}
-			else if (M.equals(optName) || MULTIPLE.equals(optName)) {
-				optName = OPT_MULTIPLE;
-				optValue.set(optName, true);
-				if (optParts.length > 1)
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_VAL_NOT_ALLOWED) + optName);
-			}
-			else if (L.equals(optName) || LYRICS.equals(optName)) {
-				if (optParts.length < 2 || "".equals(optParts[1])) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				optName = OPT_LYRICS;
-				optValue.set(optName, optParts[1]);
-			}
-			else if (T.equals(optName) || TUPLET.equals(optName)) {
-				optName = OPT_TUPLET;
-				if (1 == optParts.length) {
-					optValue.set(optName, TRIPLET);
-				}
-				else {
-					Pattern pattern = Pattern.compile("^(\\d+)" + Pattern.quote(TUPLET_FOR) + "(\\d+)$");
-					Matcher matcher = pattern.matcher(optParts[1]);
-					if (matcher.matches()) {
-						String num1 = matcher.group(1);
-						String num2 = matcher.group(2);
-						if ("0".equals(num1) || "0".equals(num2))
-							throw new ParseException(Dict.get(Dict.ERROR_TUPLET_INVALID) + optParts[1]);
-						optValue.set(optName, optParts[1]);
-					}
-					else {
-						throw new ParseException(Dict.get(Dict.ERROR_TUPLET_INVALID) + optParts[1]);
-					}
-				}
-			}
-			else if (TR.equals(optName) || TREMOLO.equals(optName)) {
-				if (optParts.length < 2 || "".equals(optParts[1])) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				optName = OPT_TREMOLO;
-				optValue.setValueString(optParts[1]);
-				optValue.set(optName, parseDuration(optParts[1]));
-			}
-			else if (S.equals(optName) || SHIFT.equals(optName)) {
-				if (optParts.length < 2 || "".equals(optParts[1])) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				optName = OPT_SHIFT;
-				optValue.set(optName, toInt(optParts[1], false));
-			}
-			else if (IF.equals(optName)) {
-				if (isCondCheckParsRun && (optParts.length < 2 || "".equals(optParts[1]))) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				String val = optParts.length >= 2 ? optParts[1] : "";
-				optName = OPT_IF;
-				optValue.set(optName, val);
-			}
-			else if (ELSIF.equals(optName)) {
-				if (isCondCheckParsRun && (optParts.length < 2 || "".equals(optParts[1]))) {
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optName);
-				}
-				String val = optParts.length >= 2 ? optParts[1] : "";
-				optName = OPT_ELSIF;
-				optValue.set(optName, val);
-			}
-			else if (ELSE.equals(optName)) {
-				optName = OPT_ELSE;
-				optValue.set(optName, true);
-				if (optParts.length > 1)
-					throw new ParseException(Dict.get(Dict.ERROR_OPTION_VAL_NOT_ALLOWED) + optName);
-			}
-			else {
-				throw new ParseException(Dict.get(Dict.ERROR_UNKNOWN_OPTION) + optName);
-			}
-			options.add(optValue);
+			if (end == length)
+				break;
+			start = end + sepLength;
 		}
 		
 		return options;
 	}
 	
+	/**
+	 * Parses one option from an options string and adds it to the given record.
+	 * 
+	 * @param options  the record to be filled
+	 * @param optStr   the whole options string
+	 * @param from     start index of the option name
+	 * @param nameEnd  end index (exclusive) of the option name
+	 * @param value    the option value, or **null** if the option has no value
+	 * @throws ParseException    If the option cannot be parsed.
+	 */
+	private void parseOption(CommandOptions options, String optStr, int from, int nameEnd, String value) throws ParseException {
+		boolean hasValue = value != null && value.length() > 0;
+		
+		if (isCondCheckParsRun && ! isOptName(optStr, from, nameEnd, IF)
+			&& ! isOptName(optStr, from, nameEnd, ELSIF) && ! isOptName(optStr, from, nameEnd, ELSE))
+			return;
+		
+		if (isOptName(optStr, from, nameEnd, V) || isOptName(optStr, from, nameEnd, VELOCITY)) {
+			if (! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optStr.substring(from, nameEnd));
+			int val = toInt(value);
+			if (val > 127)
+				throw new ParseException(Dict.get(Dict.ERROR_VEL_NOT_MORE_THAN_127));
+			if (val < 1)
+				throw new ParseException(Dict.get(Dict.ERROR_VEL_NOT_LESS_THAN_1));
+			options.addVelocity(val);
+		}
+		else if (isOptName(optStr, from, nameEnd, D) || isOptName(optStr, from, nameEnd, DURATION)) {
+			if (! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optStr.substring(from, nameEnd));
+			int   percentPos = value.indexOf(DURATION_PERCENT);
+			float val        = toFloat(percentPos < 0 ? value : value.substring(0, percentPos));
+			if (percentPos >= 0)
+				val /= 100; // percentage --> numeric
+			if (val <= 0.0)
+				throw new ParseException(Dict.get(Dict.ERROR_DURATION_MORE_THAN_0));
+			options.addDuration(val);
+		}
+		else if (isOptName(optStr, from, nameEnd, Q) || isOptName(optStr, from, nameEnd, QUANTITY)) {
+			if (! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optStr.substring(from, nameEnd));
+			options.addQuantity(toInt(value, true));
+		}
+		else if (isOptName(optStr, from, nameEnd, M) || isOptName(optStr, from, nameEnd, MULTIPLE)) {
+			if (value != null)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_VAL_NOT_ALLOWED) + OPT_MULTIPLE);
+			options.addMultiple();
+		}
+		else if (isOptName(optStr, from, nameEnd, L) || isOptName(optStr, from, nameEnd, LYRICS)) {
+			if (! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optStr.substring(from, nameEnd));
+			options.addLyrics(value);
+		}
+		else if (isOptName(optStr, from, nameEnd, T) || isOptName(optStr, from, nameEnd, TUPLET)) {
+			if (null == value) {
+				options.addTuplet(TRIPLET);
+			}
+			else {
+				// must be: (\d+)TUPLET_FOR(\d+)
+				int forPos = value.indexOf(TUPLET_FOR);
+				if (forPos < 0)
+					throw new ParseException(Dict.get(Dict.ERROR_TUPLET_INVALID) + value);
+				String num1 = value.substring(0, forPos);
+				String num2 = value.substring(forPos + TUPLET_FOR.length());
+				if (! isNumeric(num1) || ! isNumeric(num2) || "0".equals(num1) || "0".equals(num2))
+					throw new ParseException(Dict.get(Dict.ERROR_TUPLET_INVALID) + value);
+				options.addTuplet(value);
+			}
+		}
+		else if (isOptName(optStr, from, nameEnd, TR) || isOptName(optStr, from, nameEnd, TREMOLO)) {
+			if (! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optStr.substring(from, nameEnd));
+			options.addTremolo(parseDuration(value), value);
+		}
+		else if (isOptName(optStr, from, nameEnd, S) || isOptName(optStr, from, nameEnd, SHIFT)) {
+			if (! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + optStr.substring(from, nameEnd));
+			options.addShift(toInt(value, false));
+		}
+		else if (isOptName(optStr, from, nameEnd, IF)) {
+			if (isCondCheckParsRun && ! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + IF);
+			options.addIf(null == value ? "" : value);
+		}
+		else if (isOptName(optStr, from, nameEnd, ELSIF)) {
+			if (isCondCheckParsRun && ! hasValue)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_NEEDS_VAL) + ELSIF);
+			options.addElsif(null == value ? "" : value);
+		}
+		else if (isOptName(optStr, from, nameEnd, ELSE)) {
+			if (value != null)
+				throw new ParseException(Dict.get(Dict.ERROR_OPTION_VAL_NOT_ALLOWED) + OPT_ELSE);
+			options.addElse();
+		}
+		else {
+			throw new ParseException(Dict.get(Dict.ERROR_UNKNOWN_OPTION) + optStr.substring(from, nameEnd));
+		}
+	}
+	
+	/**
+	 * Checks if the option name inside of the given region equals the given keyword.
+	 * 
+	 * @param optStr   the options string
+	 * @param from     start index of the option name
+	 * @param nameEnd  end index (exclusive) of the option name
+	 * @param keyword  the keyword to compare with
+	 * @return **true** if the name equals the keyword, otherwise **false**.
+	 */
+	private static boolean isOptName(String optStr, int from, int nameEnd, String keyword) {
+		int length = nameEnd - from;
+		return keyword.length() == length && optStr.regionMatches(from, keyword, 0, length);
+	}
+	
+	/**
+	 * Indicates if the given character is a whitespace (same as **\\s** in a regular expression).
+	 * 
+	 * @param c  the character to be checked
+	 * @return **true** if c is a whitespace, otherwise **false**.
+	 */
+	private static boolean isWhitespace(char c) {
+		return ' ' == c || '\t' == c || '\n' == c || '\u000B' == c || '\f' == c || '\r' == c;
+	}
+	
+	/**
+	 * Indicates if the given character can separate an option name from its value.
+	 * That's the case for whitespaces and for each character of the {@link #OPT_ASSIGNER}.
+	 * 
+	 * @param c  the character to be checked
+	 * @return **true** if c can separate name and value, otherwise **false**.
+	 */
+	private static boolean isOptAssignerOrWhitespace(char c) {
+		return isWhitespace(c) || OPT_ASSIGNER.indexOf(c) >= 0;
+	}
+	
 	/**
 	 * Returns the note value of a given string in the context of the given channel.
 	 * (Used to parse a note from a channel command)
@@ -4228,7 +4844,7 @@ public class MidicaPLParser extends SequenceParser {
 	private int parseNote(String note, int channel) throws ParseException {
 		if (note.equals(REST))
 			return REST_VALUE;
-		else if (note.matches("^\\d+$"))
+		else if (isNumeric(note))
 			return toInt(note);
 		else {
 			if (9 == channel)
@@ -4252,7 +4868,7 @@ public class MidicaPLParser extends SequenceParser {
 	 */
 	private int parseNote(String noteName) throws ParseException {
 		int noteVal;
-		if (noteName.matches("^\\d+$")) {
+		if (isNumeric(noteName)) {
 			noteVal = toInt(noteName);
 		}
 		else {
@@ -4278,16 +4894,18 @@ public class MidicaPLParser extends SequenceParser {
 	 * @throws ParseException if one of the notes cannot be parsed.
 	 */
 	private ArrayList<Integer> parseChord(String token) throws ParseException {
-		if (token.matches(".*" + Pattern.quote(CHORD_SEPARATOR) + ".*") || chords.containsKey(token)) {
+		int[] predefined = chords.get(token);
+		if (predefined != null || token.contains(CHORD_SEPARATOR)) {
 			ArrayList<Integer> chordElements = new ArrayList<>();
 			
 			// collect comma-separated inline chord parts
-			String[] inlineElements = token.split(Pattern.quote(CHORD_SEPARATOR));
+			String[] inlineElements = null == predefined ? splitInlineChord(token) : new String[] {token};
 			for (String inlineElement : inlineElements) {
 				
 				// collect predefined chord elements
-				if (chords.containsKey(inlineElement)) {
-					for (int note : chords.get(inlineElement)) {
+				int[] chordNotes = chords.get(inlineElement);
+				if (chordNotes != null) {
+					for (int note : chordNotes) {
 						chordElements.add(note);
 					}
 				}
@@ -4307,6 +4925,54 @@ public class MidicaPLParser extends SequenceParser {
 		return null;
 	}
 	
+	/**
+	 * Splits an inline chord into its elements, separated by the {@link #CHORD_SEPARATOR}.
+	 * 
+	 * Behaves like {@link String#split(String)} with a quoted separator, but without
+	 * compiling a regular expression: trailing empty elements are removed.
+	 * 
+	 * @param token  the inline chord
+	 * @return the chord elements.
+	 */
+	private static String[] splitInlineChord(String token) {
+		ArrayList<String> elements = new ArrayList<>();
+		int sepLength = CHORD_SEPARATOR.length();
+		int start     = 0;
+		int end;
+		while ((end = token.indexOf(CHORD_SEPARATOR, start)) >= 0) {
+			elements.add(token.substring(start, end));
+			start = end + sepLength;
+		}
+		elements.add(token.substring(start));
+		
+		// remove trailing empty elements
+		int size = elements.size();
+		while (size > 0 && elements.get(size - 1).isEmpty())
+			size--;
+		
+		return elements.subList(0, size).toArray(new String[size]);
+	}
+	
+	/**
+	 * Indicates if the given string consists only of decimal digits.
+	 * 
+	 * Same as matching against **^\\d+$**, but without a regular expression.
+	 * 
+	 * @param s  the string to be checked
+	 * @return **true** if the string is not empty and contains only digits, otherwise **false**.
+	 */
+	private static boolean isNumeric(String s) {
+		int length = s.length();
+		if (0 == length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < '0' || c > '9')
+				return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Splits a channel command with a chord into the single notes and applies one channel command for each note.
 	 * 
@@ -4436,6 +5102,7 @@ public class MidicaPLParser extends SequenceParser {
 	 * @throws ParseException    if something went wrong.
 	 */
 	private void postprocessInstruments() throws ParseException {
+		Phase phase = PhaseStats.begin("mpl.postprocessInstruments");
 		
 		// sort instruments ascending
 		Collections.sort(instruments);
@@ -4490,6 +5157,7 @@ public class MidicaPLParser extends SequenceParser {
 		}
 		
 		instrumentsParsed = true;
+		phase.end(instruments.size());
 	}
 	
 	/**
@@ -4713,7 +5381,7 @@ public class MidicaPLParser extends SequenceParser {
 			patterns             = new HashMap<>();
 			patternToFile        = new HashMap<>();
 			patternToLineOffset  = new HashMap<>();
-			chords               = new TreeMap<>();
+			chords               = new HashMap<>();
 			nestableBlkDepth     = 0;
 			nestableBlkStack     = new ArrayDeque<>();
 			stackTrace           = new ArrayDeque<>();
@@ -4727,6 +5395,7 @@ public class MidicaPLParser extends SequenceParser {
 			patternFileStack     = new ArrayDeque<>();
 			redefinitions        = new HashSet<>();
 			soundfontParsed      = false;
+			soundfontFile        = null;
 			isSoftKaraoke        = false;
 			constants            = new HashMap<>();
 			variables            = new HashMap<>();
@@ -4735,8 +5404,16 @@ public class MidicaPLParser extends SequenceParser {
 			condPattern          = null;
 			condInPattern        = null;
 			crlfSkPattern        = null;
+			lengthPlusPattern    = null;
+			durationPattern      = null;
+			tupletPattern        = null;
+			condOperatorChars    = null;
+			durationCache.clear();
+			conditionCache.clear();
+			templateCache.clear();
+			recordingTemplate = null;
+			templateReplays   = 0;
 			refreshSyntax();
-			NestableBlock.reset();
 		}
 	}
 }
@@ -10,9 +10,9 @@ package org.midica.file.read;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.regex.Pattern;
 
 import org.midica.config.Dict;
+import org.midica.file.TaskProgress;
 
 /**
  * This class represents a nestable block, used by the MidicaPL parser.
@@ -21,9 +21,6 @@ import org.midica.config.Dict;
  */
 public class NestableBlock {
 	
-	private static Pattern plus        = null;
-	private static Pattern whitespaces = Pattern.compile("\\s+");
-	
 	private MidicaPLParser    parser    = null;
 	private boolean           multiple  = false;
 	private int               quantity  = 1;
@@ -32,6 +29,8 @@ public class NestableBlock {
 	private ArrayList<Object> elements  = null;
 	private String            condition = null;
 	
+	private CompiledCondition compiledCondition = null;
+	
 	private boolean condChainOpened = false;
 	private boolean condChainHit    = false;
 	
@@ -53,13 +52,6 @@ public class NestableBlock {
 		this.elements = new ArrayList<Object>();
 	}
 	
-	/**
-	 * Resets the precompiled PLUS pattern because in the next compile run it could be redefined.
-	 */
-	public static void reset() {
-		plus = null;
-	}
-	
 	/**
 	 * Sets the multiple option.
 	 * This option indicates if the channel tickstamps are reverted at the end of the block.
@@ -197,6 +189,20 @@ public class NestableBlock {
 		return MidicaPLParser.COND_TYPE_NONE;
 	}
 	
+	/**
+	 * Returns the compiled condition, if this block contains an **if** or **elsif**.
+	 * Otherwise: returns **null**.
+	 * 
+	 * The condition is compiled when this method is called the first time.
+	 * 
+	 * @return the compiled block condition.
+	 */
+	public CompiledCondition getCompiledCondition() {
+		if (null == compiledCondition && condition != null)
+			compiledCondition = parser.compileCondition(condition, true);
+		return compiledCondition;
+	}
+	
 	/**
 	 * Returns the condition, if this block contains an **if** or **elsif**.
 	 * Otherwise: returns **null**.
@@ -232,58 +238,6 @@ public class NestableBlock {
 		}
 	}
 	
-	/**
-	 * Adds the tuplets to the duration column of a channel command.
-	 * 
-	 * @param tokens  command tokens
-	 * @return resulting command tokens.
-	 */
-	private String[] addTuplets(String[] tokens) {
-		
-		if (tokens.length < 3)
-			return tokens;
-		
-		try {
-			// channel command?
-			parser.toChannel(tokens[0]);
-			
-			// no exception - channel command
-			
-			if (null == plus)
-				plus = Pattern.compile( Pattern.quote(MidicaPLParser.LENGTH_PLUS) );
-			
-			// add tuplet to all summands inside of the duration column
-			// e.g. *1+/8 --> *1t4:3+/8t4:3
-			if (tuplet != null) {
-				// separate duration from options
-				String[] durationAndOptions = whitespaces.split(tokens[2], 2);
-				
-				// pattern instead of duration? - ignore tuplets
-				if (MidicaPLParser.patterns.containsKey(durationAndOptions[0])) {
-					// ignore
-				}
-				else {
-					String[] atoms = plus.split(durationAndOptions[0], -1);
-					for (int j=0; j < atoms.length; j++) {
-						atoms[j] += tuplet;
-					}
-					tokens[2] = String.join(MidicaPLParser.LENGTH_PLUS, atoms);
-					
-					// add options again, if necessary
-					if (durationAndOptions.length > 1)
-						tokens[2] += " " + durationAndOptions[1];
-				}
-			}
-		}
-		catch (ParseException e) {
-			// not a channel command - probably a call
-		}
-		
-		return tokens;
-	}
-	
-	
-	
 	/**
 	 * Adds a new content element to this block.
 	 * The content to be added can be one of the following objects:
@@ -347,6 +301,7 @@ public class NestableBlock {
 			condChainHit    = false;
 			
 			for (Object element : elements) {
+				TaskProgress.check();
 				
 				// increment line
 				lineNumber++;
@@ -368,12 +323,13 @@ public class NestableBlock {
 					callStack.push(childTraceElem);
 					
 					// check if/elsif/else conditions
-					String  childCondition     = childBlock.getCondition();
-					int     childConditionType = childBlock.getConditionType();
+					CompiledCondition childCondition     = childBlock.getCompiledCondition();
+					int               childConditionType = childBlock.getConditionType();
 					boolean mustPlay = true;
 					try {
+						// detect undefined variables, even if the condition is not evaluated
 						if (childCondition != null) {
-							childCondition = parser.replaceVariables(childCondition);
+							childCondition.resolveVariables(parser);
 						}
 						if (MidicaPLParser.COND_TYPE_NONE == childConditionType) {
 							condChainOpened = false;
@@ -392,7 +348,7 @@ public class NestableBlock {
 							else if (condChainHit)
 								mustPlay = false;
 							else
-								mustPlay = parser.evalCondition(childCondition);
+								mustPlay = childCondition.evaluate(parser);
 						}
 					}
 					catch (ParseException e) {
@@ -431,22 +387,17 @@ public class NestableBlock {
 						condChainHit    = false;
 					}
 					
-					// parse line
-					String line;
-					if (shift != 0 || tuplet != null) {
-						if ( ! MidicaPLParser.VAR.equals(tokens[0]) ) {
-							line = String.join(" ", tokens);
-							line = parser.replaceVariables(line);
-							tokens = line.split("\\s+", 3);
-						}
-					}
-					if (shift != 0) {
-						tokens = parser.addShiftToOptions(tokens, shift);
+					// parse line, applying shifts and tuplets of this block
+					int    outerShift  = parser.getInheritedShift();
+					String outerTuplet = parser.getInheritedTuplet();
+					String lineTuplet  = null == outerTuplet ? tuplet : null == tuplet ? outerTuplet : tuplet + outerTuplet;
+					parser.setInheritance(outerShift + shift, lineTuplet);
+					try {
+						parser.parseLine( String.join(" ", tokens) );
 					}
-					if (tuplet != null) {
-						tokens = addTuplets(tokens);
+					finally {
+						parser.setInheritance(outerShift, outerTuplet);
 					}
-					parser.parseLine( String.join(" ", tokens) );
 					
 					// remove line from call stack
 					callStack.pop();
@@ -139,15 +139,27 @@ public abstract class SequenceParser implements IParser {
 	 * @param seq        The MIDI sequence to be analyzed.
 	 * @param format     one of the FORMAT_... fields, depending on the derived parser class.
 	 * @param charset    The charset that has been chosen in the file chooser.
-	 * @throws ParseException if a marker event cannot be created during
-	 *                        the postprocessing of the analyzing process
+	 * @throws ParseException if the sequence cannot be analyzed.
 	 */
 	protected void postprocessSequence(Sequence seq, int format, String charset) throws ParseException {
 		
-		// analyze sequence and add marker events
+		// analyze sequence
 		SequenceAnalyzer.analyze(seq, charset);
 		
-		// publich successfully parsed file
+		publishSequence(format);
+	}
+	
+	/**
+	 * Makes the created sequence available for the player.
+	 * 
+	 * Must be called after the sequence has been analyzed, or after the
+	 * analysis results have been restored from the {@link AnalysisCache}.
+	 * 
+	 * @param format  one of the FORMAT_... fields, depending on the derived parser class.
+	 */
+	protected void publishSequence(int format) {
+		
+		// publish successfully parsed file
 		sequenceFile = currentFile;
 		fileFormat   = format;
 		MidiDevices.setSequence(SequenceCreator.getSequence());
@@ -0,0 +1,196 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Metadata of a soundfont file, as needed for the soundfont information tables.
+ * 
+ * Contains the general information (INFO chunk), the presets (phdr), the
+ * instruments/layers (inst) and the samples (shdr). The sample data itself
+ * is not contained.
+ * 
+ * The values are the same as the ones delivered by the Java Sound soundbank
+ * implementation for SF2 files, so that the resulting tables don't depend on
+ * the way how they have been retrieved.
+ * 
+ * Objects of this class are created by the {@link SoundfontScanner} and can be
+ * written to and read from the soundfont index.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class SoundfontMetadata {
+	
+	private static final int FORMAT_MAGIC   = 0x4D534649; // "MSFI"
+	private static final int FORMAT_VERSION = 1;
+	
+	// general information
+	String name         = "untitled";
+	String version      = "2.1";
+	String vendor       = null;
+	String description  = null;
+	String creationDate = null;
+	String tools        = null;
+	String product      = null;
+	String targetEngine = "EMU8000";
+	
+	// presets (without the terminal record)
+	String[]    presetNames    = new String[0];
+	int[]       presetPrograms = new int[0];
+	int[]       presetBanks    = new int[0];  // bank number as stored in the file (128 = percussion)
+	boolean[][] presetKeys     = new boolean[0][]; // null, if the keys cannot be determined
+	
+	// layers (without the terminal record)
+	String[] layerNames = new String[0];
+	
+	// samples (without the terminal record)
+	String[] sampleNames   = new String[0];
+	long[]   sampleLengths = new long[0]; // length of the sample data in bytes
+	long[]   sampleRates   = new long[0];
+	
+	/**
+	 * Writes the metadata to the given stream.
+	 * 
+	 * @param out  output stream
+	 * @throws IOException if the data cannot be written.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(FORMAT_MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		
+		writeString(out, name);
+		writeString(out, version);
+		writeString(out, vendor);
+		writeString(out, description);
+		writeString(out, creationDate);
+		writeString(out, tools);
+		writeString(out, product);
+		writeString(out, targetEngine);
+		
+		out.writeInt(presetNames.length);
+		for (int i = 0; i < presetNames.length; i++) {
+			writeString(out, presetNames[i]);
+			out.writeShort(presetPrograms[i]);
+			out.writeShort(presetBanks[i]);
+			boolean[] keys = presetKeys[i];
+			out.writeBoolean(keys != null);
+			if (keys != null) {
+				long low  = 0;
+				long high = 0;
+				for (int key = 0; key < 64; key++) {
+					if (keys[key])
+						low |= 1L << key;
+					if (keys[key + 64])
+						high |= 1L << key;
+				}
+				out.writeLong(low);
+				out.writeLong(high);
+			}
+		}
+		
+		out.writeInt(layerNames.length);
+		for (String layerName : layerNames)
+			writeString(out, layerName);
+		
+		out.writeInt(sampleNames.length);
+		for (int i = 0; i < sampleNames.length; i++) {
+			writeString(out, sampleNames[i]);
+			out.writeLong(sampleLengths[i]);
+			out.writeLong(sampleRates[i]);
+		}
+	}
+	
+	/**
+	 * Reads metadata from the given stream.
+	 * 
+	 * @param in  input stream
+	 * @return the metadata.
+	 * @throws IOException if the data cannot be read or has an unknown format.
+	 */
+	static SoundfontMetadata read(DataInputStream in) throws IOException {
+		if (in.readInt() != FORMAT_MAGIC || in.readInt() != FORMAT_VERSION)
+			throw new IOException("unknown index format");
+		
+		SoundfontMetadata meta = new SoundfontMetadata();
+		meta.name         = readString(in);
+		meta.version      = readString(in);
+		meta.vendor       = readString(in);
+		meta.description  = readString(in);
+		meta.creationDate = readString(in);
+		meta.tools        = readString(in);
+		meta.product      = readString(in);
+		meta.targetEngine = readString(in);
+		
+		int presetCount     = in.readInt();
+		meta.presetNames    = new String[presetCount];
+		meta.presetPrograms = new int[presetCount];
+		meta.presetBanks    = new int[presetCount];
+		meta.presetKeys     = new boolean[presetCount][];
+		for (int i = 0; i < presetCount; i++) {
+			meta.presetNames[i]    = readString(in);
+			meta.presetPrograms[i] = in.readUnsignedShort();
+			meta.presetBanks[i]    = in.readUnsignedShort();
+			if (in.readBoolean()) {
+				long      low  = in.readLong();
+				long      high = in.readLong();
+				boolean[] keys = new boolean[128];
+				for (int key = 0; key < 64; key++) {
+					keys[key]      = (low  & (1L << key)) != 0;
+					keys[key + 64] = (high & (1L << key)) != 0;
+				}
+				meta.presetKeys[i] = keys;
+			}
+		}
+		
+		int layerCount  = in.readInt();
+		meta.layerNames = new String[layerCount];
+		for (int i = 0; i < layerCount; i++)
+			meta.layerNames[i] = readString(in);
+		
+		int sampleCount    = in.readInt();
+		meta.sampleNames   = new String[sampleCount];
+		meta.sampleLengths = new long[sampleCount];
+		meta.sampleRates   = new long[sampleCount];
+		for (int i = 0; i < sampleCount; i++) {
+			meta.sampleNames[i]   = readString(in);
+			meta.sampleLengths[i] = in.readLong();
+			meta.sampleRates[i]   = in.readLong();
+		}
+		
+		return meta;
+	}
+	
+	/**
+	 * Writes a string that may be **null**.
+	 * 
+	 * @param out  output stream
+	 * @param str  the string or **null**
+	 * @throws IOException if the string cannot be written.
+	 */
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		out.writeBoolean(str != null);
+		if (str != null)
+			out.writeUTF(str);
+	}
+	
+	/**
+	 * Reads a string that may be **null**.
+	 * 
+	 * @param in  input stream
+	 * @return the string or **null**.
+	 * @throws IOException if the string cannot be read.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		if (in.readBoolean())
+			return in.readUTF();
+		return null;
+	}
+}
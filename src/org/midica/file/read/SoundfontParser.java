@@ -11,6 +11,7 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -34,6 +35,9 @@ import org.midica.midi.MidiDevices;
  * 
  * It's also used for retrieving information from the currently loaded (or standard) soundfont.
  * 
+ * For SF2 files, this information is retrieved from the metadata of the {@link SoundfontScanner},
+ * so that no sample data has to be read.
+ * 
  * @author Jan Trukenmüller
  */
 public class SoundfontParser implements IParser {
@@ -53,6 +57,15 @@ public class SoundfontParser implements IParser {
 	/** Data structure for resources of the currently loaded soundfont. */
 	private static ArrayList<HashMap<String, Object>> soundfontResources = null;
 	
+	/** Metadata of the currently loaded soundfont file, if it has been scanned successfully. */
+	private static SoundfontMetadata metadata = null;
+	
+	/** Pattern to get the resource type from the resource description. */
+	private static final Pattern typePattern = Pattern.compile("^(.+?):.*");
+	
+	/** Pattern to get the simple class name from a full class name. */
+	private static final Pattern classPattern = Pattern.compile(".+\\.([^.]+)$");
+	
 	/**
 	 * Parses a soundfont file.
 	 * 
@@ -63,12 +76,16 @@ public class SoundfontParser implements IParser {
 		
 		// reset file - in case the parsing fails
 		soundfontFile = null;
+		metadata      = null;
 		
 		try {
 			// load the soundfont
 			soundfont = MidiSystem.getSoundbank(file);
 			MidiDevices.setSoundfont(soundfont);
 			
+			// get the metadata without reading the sample data
+			metadata = SoundfontScanner.getMetadata(file);
+			
 			// read it and build up data structures
 			parseSoundfontInstruments();
 			parseSoundfontResources();
@@ -206,11 +223,13 @@ public class SoundfontParser implements IParser {
 		}
 		
 		// get general information
+		SoundfontMetadata meta = getMetadata();
+		
 		String unknown     = Dict.get(Dict.UNKNOWN);
-		String name        = soundfont.getName();
-		String version     = soundfont.getVersion();
-		String vendor      = soundfont.getVendor();
-		String description = soundfont.getDescription();
+		String name        = null == meta ? soundfont.getName()        : meta.name;
+		String version     = null == meta ? soundfont.getVersion()     : meta.version;
+		String vendor      = null == meta ? soundfont.getVendor()      : meta.vendor;
+		String description = null == meta ? soundfont.getDescription() : meta.description;
 		generalInfo.put( "name",        name        != null ? name        : unknown );
 		generalInfo.put( "version",     version     != null ? version     : unknown );
 		generalInfo.put( "vendor",      vendor      != null ? vendor      : unknown );
@@ -221,17 +240,25 @@ public class SoundfontParser implements IParser {
 		String tools           = unknown;
 		String product         = unknown;
 		String targetEngine    = unknown;
-		try {
-			Method getCreationDate = soundfont.getClass().getMethod("getCreationDate");
-			Method getTools        = soundfont.getClass().getMethod("getTools");
-			Method getProduct      = soundfont.getClass().getMethod("getProduct");
-			Method getTargetEngine = soundfont.getClass().getMethod("getTargetEngine");
-			creationDate = (String) getCreationDate.invoke(soundfont, (Object[]) null);
-			tools        = (String) getTools.invoke(soundfont, (Object[]) null);
-			product      = (String) getProduct.invoke(soundfont, (Object[]) null);
-			targetEngine = (String) getTargetEngine.invoke(soundfont, (Object[]) null);
+		if (meta != null) {
+			creationDate = meta.creationDate;
+			tools        = meta.tools;
+			product      = meta.product;
+			targetEngine = meta.targetEngine;
 		}
-		catch(Exception e) {
+		else {
+			try {
+				Method getCreationDate = soundfont.getClass().getMethod("getCreationDate");
+				Method getTools        = soundfont.getClass().getMethod("getTools");
+				Method getProduct      = soundfont.getClass().getMethod("getProduct");
+				Method getTargetEngine = soundfont.getClass().getMethod("getTargetEngine");
+				creationDate = (String) getCreationDate.invoke(soundfont, (Object[]) null);
+				tools        = (String) getTools.invoke(soundfont, (Object[]) null);
+				product      = (String) getProduct.invoke(soundfont, (Object[]) null);
+				targetEngine = (String) getTargetEngine.invoke(soundfont, (Object[]) null);
+			}
+			catch(Exception e) {
+			}
 		}
 		creationDate = null == creationDate ? unknown : creationDate;
 		tools        = null == tools        ? unknown : tools;
@@ -350,19 +377,52 @@ public class SoundfontParser implements IParser {
 			return;
 		
 		// collect instruments
-		Instrument[] instruments = soundfont.getInstruments();
-		for (int i=0; i < instruments.length; i++) {
+		SoundfontMetadata meta        = getMetadata();
+		Instrument[]      instruments = null == meta ? soundfont.getInstruments() : null;
+		int               count       = null == meta ? instruments.length : meta.presetNames.length;
+		for (int i=0; i < count; i++) {
+			
+			// get general instrument data, channels and keys
+			String    name;
+			int       bank;
+			int       program;
+			boolean[] sf2Channels = null;
+			boolean[] sf2keys     = null;
+			if (meta != null) {
+				boolean isPercussion = 128 == meta.presetBanks[i];
+				name    = meta.presetNames[i];
+				bank    = isPercussion ? 0 : meta.presetBanks[i] << 7;
+				program = meta.presetPrograms[i];
+				sf2keys = meta.presetKeys[i];
+				if (sf2keys != null)
+					sf2Channels = getChannels(isPercussion, bank);
+			}
+			else {
+				Instrument midiInstr = instruments[ i ];
+				Patch      patch     = midiInstr.getPatch();
+				name    = midiInstr.getName();
+				bank    = patch.getBank();
+				program = patch.getProgram();
+				try {
+					Method    getChannels = midiInstr.getClass().getMethod("getChannels");
+					Method    getKeys     = midiInstr.getClass().getMethod("getKeys");
+					boolean[] channels    = (boolean[]) getChannels.invoke(midiInstr, (Object[]) null);
+					String[]  keyNames    = (String[]) getKeys.invoke(midiInstr, (Object[]) null);
+					sf2keys = new boolean[keyNames.length];
+					for (int key = 0; key < keyNames.length; key++)
+						sf2keys[key] = keyNames[key] != null;
+					sf2Channels = channels;
+				}
+				catch(Exception e) {
+				}
+			}
 			
 			// add general instrument data
 			HashMap<String, String> instrument = new HashMap<String, String>();
 			soundfontInstruments.add(instrument);
-			Instrument midiInstr = instruments[ i ];
-			Patch      patch     = midiInstr.getPatch();
-			int        bank      = patch.getBank();
-			int        bankMsb   = bank >> 7;
-			int        bankLsb   = bank & 0b00000000_01111111;
-			int        program   = patch.getProgram();
-			instrument.put( "name",     midiInstr.getName()       );
+			int bankMsb = bank >> 7;
+			int bankLsb = bank & 0b00000000_01111111;
+			instrument.put( "name",     name                      );
 			instrument.put( "program",  Integer.toString(program) );
 			instrument.put( "bank",     Integer.toString(bank)    );
 			instrument.put( "bank_msb", Integer.toString(bankMsb) );
@@ -384,16 +444,8 @@ public class SoundfontParser implements IParser {
 			syntaxDrum  += postfix;
 			syntaxChrom += postfix;
 			
-			// get channels and keys
-			boolean[] sf2Channels = null;
-			String[]  sf2keys     = null;
-			try {
-				Method getChannels = midiInstr.getClass().getMethod("getChannels");
-				Method getKeys     = midiInstr.getClass().getMethod("getKeys");
-				sf2Channels = (boolean[]) getChannels.invoke(midiInstr, (Object[]) null);
-				sf2keys     = (String[]) getKeys.invoke(midiInstr, (Object[]) null);
-			}
-			catch(Exception e) {
+			// channels and keys not available?
+			if (null == sf2Channels) {
 				needCategoryUnknown = true;
 				instrument.put( "channels",      "-"  );
 				instrument.put( "channels_long", "-1" );
@@ -442,7 +494,7 @@ public class SoundfontParser implements IParser {
 			for (int key = 0; key < sf2keys.length; key++) {
 				
 				// key not available?
-				if (null == sf2keys[key])
+				if ( ! sf2keys[key] )
 					continue;
 				
 				// remember the key
@@ -576,23 +628,40 @@ public class SoundfontParser implements IParser {
 			return;
 		
 		// collect resources
-		SoundbankResource[] resources = soundfont.getResources();
-		for (int i=0; i < resources.length; i++) {
+		SoundfontMetadata   meta       = getMetadata();
+		SoundbankResource[] resources  = null == meta ? soundfont.getResources() : null;
+		int                 layerCount = null == meta ? 0 : meta.layerNames.length;
+		int                 count      = null == meta ? resources.length : layerCount + meta.sampleNames.length;
+		for (int i=0; i < count; i++) {
+			
+			// get general resource data
+			String   name;
+			String   classDesc;
+			Class<?> dataClass;
+			if (meta != null) {
+				boolean isLayer = i < layerCount;
+				name      = isLayer ? meta.layerNames[i] : meta.sampleNames[i - layerCount];
+				classDesc = (isLayer ? "Layer: " : "Sample: ") + name;
+				dataClass = isLayer ? null : AudioInputStream.class;
+			}
+			else {
+				name      = resources[i].getName();
+				classDesc = resources[i].toString();
+				dataClass = resources[i].getDataClass();
+			}
 			
 			HashMap<String, Object> resource = new HashMap<String, Object>();
 			soundfontResources.add(resource);
 			
 			// apply general information and defaults
 			resource.put( "index",        i );
-			resource.put( "name",         resources[i].getName() );
+			resource.put( "name",         name );
 			resource.put( "class",        "-" );
 			resource.put( "class_detail", "-" );
 			resource.put( "type",         "-" );
 			resource.put( "format",       "-" );
 			resource.put( "frame_length", 0   );
-			String  classDesc      = resources[i].toString();
-			Pattern pattern        = Pattern.compile("^(.+?):.*");
-			Matcher matcher        = pattern.matcher(classDesc);
+			Matcher matcher        = typePattern.matcher(classDesc);
 			String  identifiedType = null;
 			if (matcher.matches()) {
 				String type = matcher.group(1);
@@ -604,7 +673,6 @@ public class SoundfontParser implements IParser {
 			}
 			
 			// apply null-class information
-			Class<?> dataClass = resources[ i ].getDataClass();
 			if (null == dataClass) {
 				resource.put( "class",        "null" );
 				resource.put( "class_detail", "null" );
@@ -612,9 +680,8 @@ public class SoundfontParser implements IParser {
 			
 			// apply class name information
 			else {
-				String fullClassName = dataClass.getCanonicalName();
-				Pattern classPattern = Pattern.compile(".+\\.([^.]+)$");
-				Matcher classMatcher = classPattern.matcher(fullClassName);
+				String  fullClassName = dataClass.getCanonicalName();
+				Matcher classMatcher  = classPattern.matcher(fullClassName);
 				if (classMatcher.matches()) {
 					resource.put("class", classMatcher.group(1));
 				}
@@ -632,18 +699,34 @@ public class SoundfontParser implements IParser {
 				identifiedType     = "Sample";
 				
 				// get stream and format information
-				AudioInputStream stream       = (AudioInputStream) resources[i].getData();
-				long             frameCount   = stream.getFrameLength();
-				AudioFormat      format       = stream.getFormat();
-				String           formatDetail = format.toString();
-				String           encoding     = format.getEncoding().toString().toLowerCase();
-				float            frameRate    = format.getFrameRate();
-				int              frameSize    = format.getFrameSize();
-				int              bitRate      = format.getSampleSizeInBits();
-				String           frameKHz     = String.format("%.1f", frameRate / 1000);
-				double           seconds      = (frameCount + 0.0) / frameRate;
-				int              channels     = format.getChannels();
-				long             bytes        = frameCount * frameSize * channels;
+				long        frameCount;
+				AudioFormat format;
+				if (meta != null) {
+					int sample = i - layerCount;
+					frameCount = meta.sampleLengths[sample];
+					format     = new AudioFormat(meta.sampleRates[sample], 16, 1, true, false);
+				}
+				else {
+					AudioInputStream stream = (AudioInputStream) resources[i].getData();
+					frameCount = stream.getFrameLength();
+					format     = stream.getFormat();
+					
+					// close the stream to avoid an exception caused by "too many open files"
+					try {
+						stream.close();
+					}
+					catch (IOException e) {
+					}
+				}
+				String formatDetail = format.toString();
+				String encoding     = format.getEncoding().toString().toLowerCase();
+				float  frameRate    = format.getFrameRate();
+				int    frameSize    = format.getFrameSize();
+				int    bitRate      = format.getSampleSizeInBits();
+				String frameKHz     = String.format("%.1f", frameRate / 1000);
+				double seconds      = (frameCount + 0.0) / frameRate;
+				int    channels     = format.getChannels();
+				long   bytes        = frameCount * frameSize * channels;
 				
 				// construct a frame length details field (for the frames tooltip text)
 				String lengthDetail = frameCount + " " + Dict.get(Dict.FRAMES) + ", "
@@ -663,13 +746,6 @@ public class SoundfontParser implements IParser {
 				resource.put( "format_detail", formatDetail ); // tooltip for the format column
 				resource.put( "seconds",       seconds      );
 				resource.put( "bytes",         bytes        );
-				
-				// close the stream to avoid an exception caused by "too many open files"
-				try {
-	                stream.close();
-                }
-                catch (IOException e) {
-                }
 			}
 			
 			// We failed to guess the type?
@@ -746,6 +822,43 @@ public class SoundfontParser implements IParser {
 		return;
 	}
 	
+	/**
+	 * Returns the metadata of the currently loaded soundfont, if available.
+	 * 
+	 * @return the metadata, or **null** if no soundfont file has been scanned successfully.
+	 */
+	private static SoundfontMetadata getMetadata() {
+		if (metadata != null && soundfont != null && soundfont == MidiDevices.getSoundfont())
+			return metadata;
+		return null;
+	}
+	
+	/**
+	 * Returns the channels where an instrument will probably respond on a General
+	 * MIDI synthesizer.
+	 * 
+	 * Same logic as in the Java Sound soundbank implementation.
+	 * 
+	 * @param isPercussion  **true** for a drum kit (bank 128 in the soundfont file)
+	 * @param bank          full bank number
+	 * @return the supported channels.
+	 */
+	private static boolean[] getChannels(boolean isPercussion, int bank) {
+		boolean[] channels = new boolean[16];
+		if (isPercussion) {
+			channels[9] = true;
+			return channels;
+		}
+		Arrays.fill(channels, true);
+		
+		// General MIDI 2 default banks
+		if (bank >> 7 == 0x78 || bank >> 7 == 0x79)
+			return channels;
+		
+		channels[9] = false;
+		return channels;
+	}
+	
 	/**
 	 * Transforms a list of numbers into a String describing these numbers in ranges.
 	 * 
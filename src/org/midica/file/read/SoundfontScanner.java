@@ -0,0 +1,555 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Reads the metadata of SF2 soundfont files without reading the sample data.
+ * 
+ * The RIFF chunks are walked through by their headers. Only the **INFO** and **pdta**
+ * lists are memory-mapped and parsed. The **sdta** list (containing the samples) is
+ * skipped. Only the header of its **smpl** chunk is read, in order to know the size
+ * of the sample data.
+ * 
+ * The scanned metadata are stored in an index in the user's home directory.
+ * The index is keyed by a hash of the file path, size and modification time.
+ * So a soundfont that has been scanned before is not even mapped again.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class SoundfontScanner {
+	
+	private static final String INDEX_DIR_NAME  = ".midica_sf2_index";
+	private static final String INDEX_FILE_EXT  = ".idx";
+	private static final int    MAX_INDEX_FILES = 32;
+	
+	// generator operators
+	private static final int GEN_INSTRUMENT = 41;
+	private static final int GEN_KEY_RANGE  = 43;
+	private static final int GEN_SAMPLE_ID  = 53;
+	
+	/**
+	 * Returns the metadata of the given soundfont file.
+	 * 
+	 * Uses the index, if possible. Otherwise the file is scanned and the result is
+	 * stored in the index.
+	 * 
+	 * @param file  soundfont file
+	 * @return the metadata, or **null** if the file is not an SF2 file or cannot be scanned.
+	 */
+	public static SoundfontMetadata getMetadata(File file) {
+		
+		// try the index
+		File indexFile = getIndexFile(file);
+		if (indexFile != null && indexFile.isFile()) {
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+				SoundfontMetadata meta = SoundfontMetadata.read(in);
+				indexFile.setLastModified(System.currentTimeMillis());
+				return meta;
+			}
+			catch (IOException e) {
+				indexFile.delete();
+			}
+		}
+		
+		// scan the file
+		SoundfontMetadata meta;
+		try {
+			meta = scan(file);
+		}
+		catch (IOException e) {
+			return null;
+		}
+		
+		// store the result
+		if (indexFile != null)
+			writeIndexFile(indexFile, meta);
+		
+		return meta;
+	}
+	
+	/**
+	 * Scans the given soundfont file.
+	 * 
+	 * @param file  soundfont file
+	 * @return the metadata.
+	 * @throws IOException if the file cannot be read or is not a valid SF2 file.
+	 */
+	public static SoundfontMetadata scan(File file) throws IOException {
+		SoundfontMetadata meta = new SoundfontMetadata();
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			
+			// RIFF header
+			ByteBuffer header = readHeader(channel, 0);
+			if (null == header || ! "RIFF".equals(readFourcc(header)))
+				throw new IOException("not a RIFF file");
+			long end = Math.min(channel.size(), 8 + (header.getInt() & 0xFFFFFFFFL));
+			if (! "sfbk".equals(readFourcc(header)))
+				throw new IOException("not a soundfont");
+			
+			// walk through the top level chunks
+			long       sampleDataSize = -1;
+			long       pos            = 12;
+			ByteBuffer pdta           = null;
+			while (pos < end) {
+				header = readHeader(channel, pos);
+				if (null == header)
+					break;
+				
+				// skip null paddings
+				if (0 == header.get(0)) {
+					pos++;
+					continue;
+				}
+				String fourcc = readFourcc(header);
+				long   size   = header.getInt() & 0xFFFFFFFFL;
+				long   next   = pos + 8 + size;
+				if ("LIST".equals(fourcc)) {
+					String type      = readFourcc(header);
+					long   listStart = pos + 12;
+					long   listSize  = Math.min(size - 4, end - listStart);
+					if ("INFO".equals(type))
+						readInfo(map(channel, listStart, listSize), meta);
+					else if ("pdta".equals(type))
+						pdta = map(channel, listStart, listSize);
+					else if ("sdta".equals(type))
+						sampleDataSize = getSampleDataSize(channel, listStart, listStart + listSize);
+				}
+				pos = next;
+			}
+			
+			// the sample sizes depend on the sample data size
+			if (pdta != null)
+				readPdta(pdta, meta, sampleDataSize);
+		}
+		catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+			throw new IOException("invalid soundfont structure");
+		}
+		
+		return meta;
+	}
+	
+	/**
+	 * Reads the general information from the INFO list.
+	 * 
+	 * @param list  content of the INFO list
+	 * @param meta  metadata to be filled
+	 */
+	private static void readInfo(ByteBuffer list, SoundfontMetadata meta) {
+		ByteBuffer chunk;
+		String[]   fourcc = new String[1];
+		while ((chunk = nextChunk(list, fourcc)) != null) {
+			switch (fourcc[0]) {
+				case "ifil":
+					int major = chunk.getShort() & 0xFFFF;
+					int minor = chunk.getShort() & 0xFFFF;
+					meta.version = major + "." + minor;
+					break;
+				case "isng": meta.targetEngine = readString(chunk, chunk.remaining()); break;
+				case "INAM": meta.name         = readString(chunk, chunk.remaining()); break;
+				case "ICRD": meta.creationDate = readString(chunk, chunk.remaining()); break;
+				case "IENG": meta.vendor       = readString(chunk, chunk.remaining()); break;
+				case "IPRD": meta.product      = readString(chunk, chunk.remaining()); break;
+				case "ICMT": meta.description  = readString(chunk, chunk.remaining()); break;
+				case "ISFT": meta.tools        = readString(chunk, chunk.remaining()); break;
+				default:
+					break;
+			}
+		}
+	}
+	
+	/**
+	 * Reads presets, instruments and samples from the pdta list.
+	 * 
+	 * @param list            content of the pdta list
+	 * @param meta            metadata to be filled
+	 * @param sampleDataSize  size of the **smpl** chunk in bytes, or **-1** if not available
+	 * @throws IOException if the list is inconsistent.
+	 */
+	private static void readPdta(ByteBuffer list, SoundfontMetadata meta, long sampleDataSize) throws IOException {
+		ByteBuffer phdr = null, pbag = null, pgen = null;
+		ByteBuffer inst = null, ibag = null, igen = null;
+		ByteBuffer shdr = null;
+		ByteBuffer chunk;
+		String[]   fourcc = new String[1];
+		while ((chunk = nextChunk(list, fourcc)) != null) {
+			switch (fourcc[0]) {
+				case "phdr": phdr = chunk; break;
+				case "pbag": pbag = chunk; break;
+				case "pgen": pgen = chunk; break;
+				case "inst": inst = chunk; break;
+				case "ibag": ibag = chunk; break;
+				case "igen": igen = chunk; break;
+				case "shdr": shdr = chunk; break;
+				default:
+					break;
+			}
+		}
+		if (null == phdr || null == pbag || null == pgen || null == inst || null == ibag || null == igen || null == shdr)
+			throw new IOException("incomplete pdta list");
+		if (phdr.remaining() % 38 != 0 || inst.remaining() % 22 != 0 || shdr.remaining() % 46 != 0
+			|| pbag.remaining() % 4 != 0 || ibag.remaining() % 4 != 0)
+			throw new IOException("invalid pdta chunk size");
+		
+		// samples
+		int sampleCount    = Math.max(0, shdr.remaining() / 46 - 1);
+		meta.sampleNames   = new String[sampleCount];
+		meta.sampleLengths = new long[sampleCount];
+		meta.sampleRates   = new long[sampleCount];
+		for (int i = 0; i < sampleCount; i++) {
+			int  offset = i * 46;
+			long start  = (shdr.getInt(offset + 20) & 0xFFFFFFFFL) * 2;
+			long stop   = (shdr.getInt(offset + 24) & 0xFFFFFFFFL) * 2;
+			long limit  = Math.max(0, sampleDataSize);
+			start = Math.min(start, limit);
+			stop  = Math.min(stop,  limit);
+			meta.sampleNames[i]   = readString(shdr, offset, 20);
+			meta.sampleLengths[i] = Math.max(0, stop - start);
+			meta.sampleRates[i]   = shdr.getInt(offset + 36) & 0xFFFFFFFFL;
+		}
+		
+		// instruments (layers) and the key ranges of their zones
+		int     layerCount  = Math.max(0, inst.remaining() / 22 - 1);
+		int[][] layerRanges = new int[layerCount][]; // pairs of (from, to)
+		meta.layerNames     = new String[layerCount];
+		for (int i = 0; i < layerCount; i++) {
+			int offset   = i * 22;
+			int bagStart = inst.getShort(offset + 20) & 0xFFFF;
+			int bagEnd   = inst.getShort(offset + 42) & 0xFFFF;
+			meta.layerNames[i] = readString(inst, offset, 20);
+			
+			// The last zone without a sample is the global zone.
+			// Other zones without a sample are still used.
+			int globalZone = -1;
+			for (int bag = bagStart; bag < bagEnd; bag++) {
+				int sample = getGenerator(ibag, igen, bag, GEN_SAMPLE_ID);
+				if (sample < 0)
+					globalZone = bag;
+				else if (sample >= sampleCount)
+					throw new IOException("invalid sample ID");
+			}
+			int   zoneCount = Math.max(0, bagEnd - bagStart - (globalZone < 0 ? 0 : 1));
+			int[] ranges    = new int[zoneCount * 2];
+			int   zone      = 0;
+			for (int bag = bagStart; bag < bagEnd; bag++) {
+				if (bag == globalZone)
+					continue;
+				int keyFrom = 0;
+				int keyTo   = 127;
+				int range   = getGenerator(ibag, igen, bag, GEN_KEY_RANGE);
+				if (range >= 0) {
+					byte low  = (byte) (range & 0xFF);
+					byte high = (byte) ((range & 0xFF00) >> 8);
+					if (low >= 0 && low > keyFrom)
+						keyFrom = low;
+					if (high >= 0 && high < keyTo)
+						keyTo = high;
+				}
+				ranges[zone++] = keyFrom;
+				ranges[zone++] = keyTo;
+			}
+			layerRanges[i] = ranges;
+		}
+		
+		// presets
+		int presetCount     = Math.max(0, phdr.remaining() / 38 - 1);
+		meta.presetNames    = new String[presetCount];
+		meta.presetPrograms = new int[presetCount];
+		meta.presetBanks    = new int[presetCount];
+		meta.presetKeys     = new boolean[presetCount][];
+		for (int i = 0; i < presetCount; i++) {
+			int offset   = i * 38;
+			int bagStart = phdr.getShort(offset + 24) & 0xFFFF;
+			int bagEnd   = phdr.getShort(offset + 62) & 0xFFFF;
+			meta.presetNames[i]    = readString(phdr, offset, 20);
+			meta.presetPrograms[i] = phdr.getShort(offset + 20) & 0xFFFF;
+			meta.presetBanks[i]    = phdr.getShort(offset + 22) & 0xFFFF;
+			
+			// The last zone without an instrument is the global zone.
+			// Other zones without an instrument make the keys undeterminable.
+			int globalZone   = -1;
+			int missingCount = 0;
+			for (int bag = bagStart; bag < bagEnd; bag++) {
+				int layer = getGenerator(pbag, pgen, bag, GEN_INSTRUMENT);
+				if (layer < 0) {
+					globalZone = bag;
+					missingCount++;
+				}
+				else if (layer >= layerCount) {
+					throw new IOException("invalid instrument ID");
+				}
+			}
+			if (missingCount > 1)
+				continue;
+			
+			boolean[] keys = new boolean[128];
+			for (int bag = bagStart; bag < bagEnd; bag++) {
+				if (bag == globalZone)
+					continue;
+				int   range  = getGenerator(pbag, pgen, bag, GEN_KEY_RANGE);
+				int[] ranges = layerRanges[getGenerator(pbag, pgen, bag, GEN_INSTRUMENT)];
+				for (int r = 0; r < ranges.length; r += 2) {
+					int keyFrom = ranges[r];
+					int keyTo   = ranges[r + 1];
+					if (range >= 0) {
+						byte low  = (byte) (range & 0xFF);
+						byte high = (byte) ((range & 0xFF00) >> 8);
+						if (low > keyFrom)
+							keyFrom = low;
+						if (high < keyTo)
+							keyTo = high;
+					}
+					for (int key = Math.max(0, keyFrom); key <= keyTo && key < 128; key++)
+						keys[key] = true;
+				}
+			}
+			meta.presetKeys[i] = keys;
+		}
+	}
+	
+	/**
+	 * Returns the value of a generator in the given zone.
+	 * If the zone contains the generator more than once, the last value is returned.
+	 * 
+	 * @param bags       bag chunk (pbag or ibag)
+	 * @param gens       generator chunk (pgen or igen)
+	 * @param bag        zone index
+	 * @param operator   generator operator
+	 * @return the unsigned 16 bit value, or **-1** if the zone doesn't contain the generator.
+	 * @throws IOException if the zone index or generator indices are out of range.
+	 */
+	private static int getGenerator(ByteBuffer bags, ByteBuffer gens, int bag, int operator) throws IOException {
+		if ((bag + 2) * 4 > bags.remaining())
+			throw new IOException("invalid zone index");
+		int genStart = bags.getShort(bag * 4) & 0xFFFF;
+		int genEnd   = bags.getShort((bag + 1) * 4) & 0xFFFF;
+		if (genEnd * 4 > gens.remaining())
+			throw new IOException("invalid generator index");
+		int value = -1;
+		for (int gen = genStart; gen < genEnd; gen++) {
+			if ((gens.getShort(gen * 4) & 0xFFFF) == operator)
+				value = gens.getShort(gen * 4 + 2) & 0xFFFF;
+		}
+		return value;
+	}
+	
+	/**
+	 * Returns the size of the **smpl** chunk inside of the sdta list.
+	 * Only the chunk headers are read.
+	 * 
+	 * @param channel  file channel
+	 * @param pos      start of the list content
+	 * @param end      end of the list content
+	 * @return the size in bytes, or **-1** if there is no smpl chunk.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static long getSampleDataSize(FileChannel channel, long pos, long end) throws IOException {
+		while (pos + 8 <= end) {
+			ByteBuffer header = readHeader(channel, pos);
+			if (null == header)
+				break;
+			if (0 == header.get(0)) {
+				pos++;
+				continue;
+			}
+			String fourcc = readFourcc(header);
+			long   size   = header.getInt() & 0xFFFFFFFFL;
+			if ("smpl".equals(fourcc))
+				return Math.min(size, end - pos - 8);
+			pos += 8 + size;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Reads up to 12 bytes (chunk ID, size and list type) from the given position.
+	 * 
+	 * @param channel  file channel
+	 * @param pos      file position
+	 * @return the header bytes, or **null** if less than 8 bytes are available.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static ByteBuffer readHeader(FileChannel channel, long pos) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(12);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining()) {
+			int read = channel.read(header, pos + header.position());
+			if (read < 0)
+				break;
+		}
+		if (header.position() < 8)
+			return null;
+		header.flip();
+		return header;
+	}
+	
+	/**
+	 * Maps a region of the file into memory.
+	 * 
+	 * @param channel  file channel
+	 * @param pos      start of the region
+	 * @param size     size of the region
+	 * @return the mapped region.
+	 * @throws IOException if the region cannot be mapped or is too big.
+	 */
+	private static ByteBuffer map(FileChannel channel, long pos, long size) throws IOException {
+		if (size < 0 || size > Integer.MAX_VALUE)
+			throw new IOException("invalid list size");
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+	
+	/**
+	 * Returns the next sub chunk of a list and moves the list's position behind it.
+	 * 
+	 * @param list    list content
+	 * @param fourcc  array to store the chunk ID at index 0
+	 * @return the chunk content, or **null** if there are no more chunks.
+	 */
+	private static ByteBuffer nextChunk(ByteBuffer list, String[] fourcc) {
+		while (list.remaining() >= 8) {
+			
+			// skip null paddings
+			if (0 == list.get(list.position())) {
+				list.get();
+				continue;
+			}
+			fourcc[0] = readFourcc(list);
+			long size   = list.getInt() & 0xFFFFFFFFL;
+			int  length = (int) Math.min(size, list.remaining());
+			
+			ByteBuffer chunk = list.slice();
+			chunk.order(ByteOrder.LITTLE_ENDIAN);
+			chunk.limit(length);
+			list.position(list.position() + length);
+			return chunk;
+		}
+		return null;
+	}
+	
+	/**
+	 * Reads a four character code at the buffer's position.
+	 * 
+	 * @param buffer  the buffer
+	 * @return the code.
+	 */
+	private static String readFourcc(ByteBuffer buffer) {
+		byte[] bytes = new byte[4];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Reads a zero-terminated ASCII string at the buffer's position.
+	 * 
+	 * @param buffer  the buffer
+	 * @param length  maximum length
+	 * @return the string.
+	 */
+	private static String readString(ByteBuffer buffer, int length) {
+		String result = readString(buffer, buffer.position(), length);
+		buffer.position(buffer.position() + length);
+		return result;
+	}
+	
+	/**
+	 * Reads a zero-terminated ASCII string at the given buffer index.
+	 * 
+	 * @param buffer  the buffer
+	 * @param index   start index
+	 * @param length  maximum length
+	 * @return the string.
+	 */
+	private static String readString(ByteBuffer buffer, int index, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(index + i);
+			if (0 == bytes[i])
+				return new String(bytes, 0, i, StandardCharsets.US_ASCII);
+		}
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+	
+	/**
+	 * Returns the index file for the given soundfont file.
+	 * 
+	 * @param file  soundfont file
+	 * @return the index file, or **null** if the index is not available.
+	 */
+	private static File getIndexFile(File file) {
+		try {
+			String fingerprint = file.getCanonicalPath() + "\n" + file.length() + "\n" + file.lastModified();
+			MessageDigest md   = MessageDigest.getInstance("MD5");
+			String hash        = new BigInteger(1, md.digest(fingerprint.getBytes(StandardCharsets.UTF_8))).toString(16);
+			File   dir         = new File(System.getProperty("user.home"), INDEX_DIR_NAME);
+			return new File(dir, hash + INDEX_FILE_EXT);
+		}
+		catch (IOException | NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Writes an index file and removes the least recently used index files,
+	 * if there are too many.
+	 * 
+	 * Errors are ignored. In this case the soundfont will just be scanned again next time.
+	 * 
+	 * @param indexFile  index file
+	 * @param meta       metadata to be stored
+	 */
+	private static void writeIndexFile(File indexFile, SoundfontMetadata meta) {
+		File dir = indexFile.getParentFile();
+		if (! dir.isDirectory() && ! dir.mkdirs())
+			return;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+			meta.write(out);
+		}
+		catch (IOException e) {
+			indexFile.delete();
+			return;
+		}
+		
+		// limit the index size
+		File[] indexFiles = dir.listFiles();
+		if (null == indexFiles || indexFiles.length <= MAX_INDEX_FILES)
+			return;
+		Arrays.sort(indexFiles, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+		for (int i = 0; i < indexFiles.length - MAX_INDEX_FILES; i++) {
+			if (indexFiles[i].getName().endsWith(INDEX_FILE_EXT))
+				indexFiles[i].delete();
+		}
+	}
+}
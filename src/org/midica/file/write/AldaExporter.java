@@ -15,6 +15,7 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.midica.file.Instrument;
+import org.midica.file.TaskProgress;
 
 /**
  * This class is used to export the currently loaded MIDI sequence as an ALDA source file.
@@ -23,9 +24,9 @@ import org.midica.file.Instrument;
  */
 public class AldaExporter extends Decompiler {
 	
-	public static ArrayList<String> instrumentNames = new ArrayList<>();
-	public static ArrayList<String> noteNames       = new ArrayList<>();
-	public static ArrayList<Byte>   noteOctaves     = new ArrayList<>();
+	private ArrayList<String> instrumentNames = new ArrayList<>();
+	private ArrayList<String> noteNames       = new ArrayList<>();
+	private ArrayList<Byte>   noteOctaves     = new ArrayList<>();
 	
 	private int                 currentSliceNumber = 0;
 	private Instrument          currentInstrument  = null;
@@ -61,6 +62,7 @@ public class AldaExporter extends Decompiler {
 		
 		// SLICE:
 		for (Slice slice : slices) {
+			TaskProgress.check();
 			
 			usedInSlice = new TreeSet<>();
 			
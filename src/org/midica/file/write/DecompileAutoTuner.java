@@ -0,0 +1,280 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.write;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.midica.config.Config;
+import org.midica.file.PhaseStats;
+import org.midica.file.PhaseStats.Phase;
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
+import org.midica.file.read.MidicaPLParser;
+import org.midica.midi.MidiDevices;
+
+/**
+ * Searches the decompile configuration with the best quality score for the
+ * currently loaded sequence.
+ * 
+ * The search runs in stages. Each stage varies one group of settings:
+ * 
+ * - note length strategy, maximum target note length and duration ratio tolerance
+ * - dotted and tripletted notes and rests
+ * - chord tolerances (note-on, note-off, velocity)
+ * 
+ * This is a beam search: only the three best candidates of a stage are used as
+ * the base for the next stage. All other combinations are pruned.
+ * The pruning happens between the stages, not inside of a decompilation, because
+ * the quality score of a configuration is only known after decompiling the whole
+ * sequence. So instead of aborting single candidates early, the search avoids
+ * the full cross product of all settings.
+ * 
+ * The candidates of a stage are decompiled in parallel, without writing anything.
+ * They all read the same analyzed sequence structures from the
+ * {@link org.midica.midi.SequenceAnalyzer}, so that the sequence is neither parsed
+ * nor analyzed again.
+ * 
+ * All other settings (e.g. the statistics or karaoke options) are taken unchanged
+ * from the base configuration.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class DecompileAutoTuner {
+	
+	/** number of candidates that survive a stage */
+	private static final int BEAM_WIDTH = 3;
+	
+	private static final String[] STRATEGIES = {
+		Decompiler.STRATEGY_NEXT_DURATION_PRESS + "",
+		Decompiler.STRATEGY_DURATION_NEXT_PRESS + "",
+		Decompiler.STRATEGY_NEXT_PRESS          + "",
+		Decompiler.STRATEGY_DURATION_PRESS      + "",
+		Decompiler.STRATEGY_PRESS               + "",
+	};
+	private static final String[] MAX_TARGET_TICKS = { "960", "1920", "3840", "7680" };
+	private static final String[] DURATION_RATIOS  = { "0.0", "0.014", "0.05" };
+	private static final String[] VELOCITY_TOLS    = { "0", "5", "15" };
+	
+	private final HashMap<String, String> baseConfig;
+	private final int                     format;
+	
+	/** already evaluated candidates (config -- score) */
+	private final HashMap<HashMap<String, String>, Double> scores = new HashMap<>();
+	
+	/**
+	 * Creates a tuner for the currently loaded sequence.
+	 * 
+	 * @param baseConfig  the configuration to start with (config ID -- value)
+	 * @param format      {@link Decompiler#MIDICA} or {@link Decompiler#ALDA}
+	 */
+	DecompileAutoTuner(HashMap<String, String> baseConfig, int format) {
+		this.baseConfig = baseConfig;
+		this.format     = format;
+	}
+	
+	/**
+	 * Searches the best configuration for a MidicaPL export of the currently loaded sequence.
+	 * 
+	 * @param baseConfig  the configuration to start with (config ID -- value)
+	 * @return a copy of the base configuration with the best found settings.
+	 */
+	public static HashMap<String, String> tune(HashMap<String, String> baseConfig) {
+		return new DecompileAutoTuner(baseConfig, Decompiler.MIDICA).tune();
+	}
+	
+	/**
+	 * Executes the search.
+	 * 
+	 * Returns a copy of the base configuration, if nothing better is found
+	 * or no sequence is loaded.
+	 * 
+	 * @return a copy of the base configuration with the best found settings.
+	 * @throws TaskCancelledException if the search has been cancelled or timed out.
+	 */
+	HashMap<String, String> tune() {
+		ArrayList<HashMap<String, String>> beam = new ArrayList<>();
+		beam.add(new HashMap<>(baseConfig));
+		if (null == MidiDevices.getSequence())
+			return beam.get(0);
+		
+		Phase phase = PhaseStats.begin("decompile.autotune");
+		
+		// the decompilers only read the syntax, so it must be up to date before
+		MidicaPLParser.refreshSyntax();
+		
+		int             threads  = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			
+			// the base config always competes
+			beam = runStage(executor, beam, beam);
+			
+			// stage 1: note lengths
+			ArrayList<HashMap<String, String>> candidates = new ArrayList<>();
+			for (HashMap<String, String> base : beam) {
+				for (String strategy : STRATEGIES) {
+					for (String maxTicks : MAX_TARGET_TICKS) {
+						for (String ratio : DURATION_RATIOS) {
+							HashMap<String, String> candidate = new HashMap<>(base);
+							candidate.put( Config.DC_LENGTH_STRATEGY,          strategy );
+							candidate.put( Config.DC_MAX_TARGET_TICKS_ON,      maxTicks );
+							candidate.put( Config.DC_DURATION_RATIO_TOLERANCE, ratio    );
+							candidates.add(candidate);
+						}
+					}
+				}
+			}
+			beam = runStage(executor, beam, candidates);
+			
+			// stage 2: dotted and tripletted lengths
+			candidates = new ArrayList<>();
+			for (HashMap<String, String> base : beam) {
+				for (int bits = 0; bits < 16; bits++) {
+					HashMap<String, String> candidate = new HashMap<>(base);
+					candidate.put( Config.DC_USE_DOTTED_NOTES,     ((bits & 1) != 0) + "" );
+					candidate.put( Config.DC_USE_DOTTED_RESTS,     ((bits & 2) != 0) + "" );
+					candidate.put( Config.DC_USE_TRIPLETTED_NOTES, ((bits & 4) != 0) + "" );
+					candidate.put( Config.DC_USE_TRIPLETTED_RESTS, ((bits & 8) != 0) + "" );
+					candidates.add(candidate);
+				}
+			}
+			beam = runStage(executor, beam, candidates);
+			
+			// stage 3: chord tolerances, relative to the source resolution
+			int      resolution = MidiDevices.getSequence().getResolution();
+			String[] onTols     = { "0", (resolution / 64) + "", (resolution / 16) + "" };
+			String[] offTols    = { "0", (resolution / 16) + "", (resolution / 4)  + "" };
+			candidates = new ArrayList<>();
+			for (HashMap<String, String> base : beam) {
+				for (String onTol : onTols) {
+					for (String offTol : offTols) {
+						for (String velocityTol : VELOCITY_TOLS) {
+							HashMap<String, String> candidate = new HashMap<>(base);
+							candidate.put( Config.DC_CHORD_NOTE_ON_TOLERANCE,  onTol       );
+							candidate.put( Config.DC_CHORD_NOTE_OFF_TOLERANCE, offTol      );
+							candidate.put( Config.DC_CHORD_VELOCITY_TOLERANCE, velocityTol );
+							candidates.add(candidate);
+						}
+					}
+				}
+			}
+			beam = runStage(executor, beam, candidates);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		phase.end(scores.size());
+		
+		return beam.get(0);
+	}
+	
+	/**
+	 * Returns the score of the given configuration, if it has been evaluated.
+	 * 
+	 * @param config  the configuration
+	 * @return the score, or **NaN** if not evaluated or not rateable.
+	 */
+	double getScore(HashMap<String, String> config) {
+		Double score = scores.get(config);
+		if (null == score)
+			return Double.NaN;
+		return score;
+	}
+	
+	/**
+	 * Evaluates all new candidates in parallel and returns the best configurations
+	 * of the current beam and the candidates.
+	 * 
+	 * On equal scores the configuration that has been found first wins, so that
+	 * the base configuration is only replaced by a really better one.
+	 * 
+	 * @param executor    executor for the evaluations
+	 * @param beam        best configurations so far
+	 * @param candidates  configurations to be evaluated
+	 * @return the best configurations, best first.
+	 * @throws TaskCancelledException if the search has been cancelled or timed out.
+	 */
+	private ArrayList<HashMap<String, String>> runStage(ExecutorService executor, ArrayList<HashMap<String, String>> beam, List<HashMap<String, String>> candidates) {
+		
+		// evaluate each candidate only once, as a part of the search task
+		final TaskProgress                 progress   = TaskProgress.current();
+		ArrayList<HashMap<String, String>> newConfigs = new ArrayList<>();
+		ArrayList<Callable<Double>>        tasks      = new ArrayList<>();
+		for (final HashMap<String, String> candidate : candidates) {
+			if (scores.containsKey(candidate) || newConfigs.contains(candidate))
+				continue;
+			newConfigs.add(candidate);
+			tasks.add(new Callable<Double>() {
+				@Override
+				public Double call() {
+					if (progress != null)
+						progress.attach();
+					try {
+						Decompiler decompiler = Decompiler.ALDA == format ? new AldaExporter() : new MidicaPLExporter();
+						return decompiler.evaluate(candidate);
+					}
+					finally {
+						if (progress != null)
+							progress.detach();
+					}
+				}
+			});
+		}
+		try {
+			List<Future<Double>> results = executor.invokeAll(tasks);
+			
+			// cancelled evaluations must not be scored as not decompilable
+			TaskProgress.check();
+			for (int i = 0; i < results.size(); i++) {
+				double score;
+				try {
+					score = results.get(i).get();
+				}
+				catch (ExecutionException e) {
+					score = Double.NaN; // not decompilable with this config
+				}
+				scores.put(newConfigs.get(i), score);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return beam;
+		}
+		
+		// collect beam and candidates, keeping the order
+		ArrayList<HashMap<String, String>> all = new ArrayList<>(beam);
+		for (HashMap<String, String> candidate : candidates) {
+			if ( ! all.contains(candidate) )
+				all.add(candidate);
+		}
+		
+		// select the best ones
+		ArrayList<HashMap<String, String>> best = new ArrayList<>();
+		while (best.size() < BEAM_WIDTH && ! all.isEmpty()) {
+			int    bestIndex = 0;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < all.size(); i++) {
+				double score = getScore(all.get(i));
+				if (score > bestScore) {
+					bestIndex = i;
+					bestScore = score;
+				}
+			}
+			best.add(all.remove(bestIndex));
+		}
+		
+		return best;
+	}
+}
@@ -30,6 +30,10 @@ import org.midica.config.Cli;
 import org.midica.config.Config;
 import org.midica.config.Dict;
 import org.midica.file.Instrument;
+import org.midica.file.PhaseStats;
+import org.midica.file.PhaseStats.Phase;
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
 import org.midica.file.read.MidicaPLParser;
 import org.midica.midi.KaraokeAnalyzer;
 import org.midica.midi.MessageClassifier;
@@ -124,60 +128,56 @@ public abstract class Decompiler extends Exporter {
 	public static final boolean DEFAULT_KARAOKE_ONE_CHANNEL      = false;
 	public static final String  DEFAULT_EXTRA_GLOBALS_STR        = "";
 	
-	/* *****************
-	 * class fields
-	 *******************/
+	/* ******************
+	 * instance fields
+	 ********************/
 	
-	protected static int format = -1;
+	protected int format = -1;
 	
 	// decompile configuration
-	protected static boolean       MUST_ADD_TICK_COMMENTS   = DEFAULT_MUST_ADD_TICK_COMMENTS;
-	protected static boolean       MUST_ADD_CONFIG          = DEFAULT_MUST_ADD_CONFIG;
-	protected static boolean       MUST_ADD_QUALITY_SCORE   = DEFAULT_MUST_ADD_QUALITY_SCORE;
-	protected static boolean       MUST_ADD_STATISTICS      = DEFAULT_MUST_ADD_STATISTICS;
-	protected static boolean       MUST_ADD_STRATEGY_STAT   = DEFAULT_MUST_ADD_STRATEGY_STAT;
-	protected static byte          LENGTH_STRATEGY          = DEFAULT_LENGTH_STRATEGY;
-	protected static long          MAX_TARGET_TICKS_ON      = DEFAULT_MAX_TARGET_TICKS_ON;
-	protected static long          MAX_SOURCE_TICKS_ON      = 0L;
-	protected static float         MIN_DURATION_TO_KEEP     = DEFAULT_MIN_DURATION_TO_KEEP;
-	protected static long          LENGTH_TICK_TOLERANCE    = DEFAULT_LENGTH_TICK_TOLERANCE;
-	protected static float         DURATION_RATIO_TOLERANCE = DEFAULT_DURATION_RATIO_TOLERANCE;
-	protected static boolean       USE_PRE_DEFINED_CHORDS   = DEFAULT_USE_PRE_DEFINED_CHORDS;
-	protected static long          CHORD_NOTE_ON_TOLERANCE  = DEFAULT_CHORD_NOTE_ON_TOLERANCE;
-	protected static long          CHORD_NOTE_OFF_TOLERANCE = DEFAULT_CHORD_NOTE_OFF_TOLERANCE;
-	protected static long          CHORD_VELOCITY_TOLERANCE = DEFAULT_CHORD_VELOCITY_TOLERANCE;
-	protected static boolean       USE_DOTTED_NOTES         = DEFAULT_USE_DOTTED_NOTES;
-	protected static boolean       USE_DOTTED_RESTS         = DEFAULT_USE_DOTTED_RESTS;
-	protected static boolean       USE_TRIPLETTED_NOTES     = DEFAULT_USE_TRIPLETTED_NOTES;
-	protected static boolean       USE_TRIPLETTED_RESTS     = DEFAULT_USE_TRIPLETTED_RESTS;
-	protected static byte          ORPHANED_SYLLABLES       = DEFAULT_ORPHANED_SYLLABLES;
-	protected static boolean       KARAOKE_ONE_CHANNEL      = DEFAULT_KARAOKE_ONE_CHANNEL;
-	protected static TreeSet<Long> EXTRA_GLOBALS            = null;
+	protected boolean       MUST_ADD_TICK_COMMENTS   = DEFAULT_MUST_ADD_TICK_COMMENTS;
+	protected boolean       MUST_ADD_CONFIG          = DEFAULT_MUST_ADD_CONFIG;
+	protected boolean       MUST_ADD_QUALITY_SCORE   = DEFAULT_MUST_ADD_QUALITY_SCORE;
+	protected boolean       MUST_ADD_STATISTICS      = DEFAULT_MUST_ADD_STATISTICS;
+	protected boolean       MUST_ADD_STRATEGY_STAT   = DEFAULT_MUST_ADD_STRATEGY_STAT;
+	protected byte          LENGTH_STRATEGY          = DEFAULT_LENGTH_STRATEGY;
+	protected long          MAX_TARGET_TICKS_ON      = DEFAULT_MAX_TARGET_TICKS_ON;
+	protected long          MAX_SOURCE_TICKS_ON      = 0L;
+	protected float         MIN_DURATION_TO_KEEP     = DEFAULT_MIN_DURATION_TO_KEEP;
+	protected long          LENGTH_TICK_TOLERANCE    = DEFAULT_LENGTH_TICK_TOLERANCE;
+	protected float         DURATION_RATIO_TOLERANCE = DEFAULT_DURATION_RATIO_TOLERANCE;
+	protected boolean       USE_PRE_DEFINED_CHORDS   = DEFAULT_USE_PRE_DEFINED_CHORDS;
+	protected long          CHORD_NOTE_ON_TOLERANCE  = DEFAULT_CHORD_NOTE_ON_TOLERANCE;
+	protected long          CHORD_NOTE_OFF_TOLERANCE = DEFAULT_CHORD_NOTE_OFF_TOLERANCE;
+	protected long          CHORD_VELOCITY_TOLERANCE = DEFAULT_CHORD_VELOCITY_TOLERANCE;
+	protected boolean       USE_DOTTED_NOTES         = DEFAULT_USE_DOTTED_NOTES;
+	protected boolean       USE_DOTTED_RESTS         = DEFAULT_USE_DOTTED_RESTS;
+	protected boolean       USE_TRIPLETTED_NOTES     = DEFAULT_USE_TRIPLETTED_NOTES;
+	protected boolean       USE_TRIPLETTED_RESTS     = DEFAULT_USE_TRIPLETTED_RESTS;
+	protected byte          ORPHANED_SYLLABLES       = DEFAULT_ORPHANED_SYLLABLES;
+	protected boolean       KARAOKE_ONE_CHANNEL      = DEFAULT_KARAOKE_ONE_CHANNEL;
+	protected TreeSet<Long> EXTRA_GLOBALS            = null;
 	
-	protected static int          sourceResolution = 0;
-	protected static int          targetResolution = SequenceCreator.DEFAULT_RESOLUTION;
-	protected static ExportResult exportResult     = null;
-	protected static boolean      isSoftKaraoke    = false;
+	protected int          sourceResolution = 0;
+	protected int          targetResolution = SequenceCreator.DEFAULT_RESOLUTION;
+	protected ExportResult exportResult     = null;
+	protected boolean      isSoftKaraoke    = false;
 	
 	/** stores the current state of each channel */
-	protected static ArrayList<Instrument>       instrumentsByChannel = null;
-	protected static TreeMap<String, Instrument> instrumentsByName    = null;
+	protected ArrayList<Instrument>       instrumentsByChannel = null;
+	protected TreeMap<String, Instrument> instrumentsByName    = null;
 	
-	protected static TreeMap<Long, String> noteLength = null;
-	protected static TreeMap<Long, String> restLength = null;
+	protected TreeMap<Long, String> noteLength = null;
+	protected TreeMap<Long, String> restLength = null;
 	
 	/** comma-separated note bytes  --  chord name */
-	protected static TreeMap<String, String> chords = null;
+	protected TreeMap<String, String> chords = null;
 	
 	/** lowest note  --  chord count */
-	protected static TreeMap<String, Integer> chordCount = null;
+	protected TreeMap<String, Integer> chordCount = null;
 	
 	/** lowest note  --  comma-separated note bytes (This structure is only needed for the sorting: lowest note first, then chord name) */
-	protected static TreeMap<String, ArrayList<String>> chordsByBaseNote = null;
-	
-	/* ******************
-	 * instance fields
-	 ********************/
+	protected TreeMap<String, ArrayList<String>> chordsByBaseNote = null;
 	
 	/** channels that can be used for lyrics, sorted by priority */
 	protected ArrayList<Byte> lyricsChannels = null;
@@ -199,6 +199,12 @@ public abstract class Decompiler extends Exporter {
 	 */
 	private TreeMap<Byte, TreeMap<Byte, Integer>> statistics = null;
 	
+	/** total quality score, calculated by the last call of {@link #createQualityStatsPart(TreeMap)} */
+	private double qualityScore = 0;
+	
+	/** decompile configuration of the current run (config ID -- value) */
+	private HashMap<String, String> config = null;
+	
 	/**
 	 * Stores each **slice** of the sequence.
 	 * 
@@ -208,7 +214,7 @@ public abstract class Decompiler extends Exporter {
 	 * 
 	 * index -- slice
 	 */
-	protected static ArrayList<Slice> slices = null;
+	protected ArrayList<Slice> slices = null;
 	
 	/**
 	 * Initializes format-specific data structures.
@@ -252,9 +258,7 @@ public abstract class Decompiler extends Exporter {
 	 */
 	public ExportResult export(File file) throws ExportException {
 		
-		// initialize format specific structures, if necessary
-		init();
-		
+		Phase totalPhase = PhaseStats.begin("decompile");
 		exportResult         = new ExportResult(true);
 		String targetCharset = ((ComboboxStringOption) ConfigComboboxModel.getModel(Config.CHARSET_EXPORT_MPL).getSelectedItem()).getIdentifier();
 		
@@ -276,55 +280,19 @@ public abstract class Decompiler extends Exporter {
 			}
 			BufferedWriter writer = new BufferedWriter(osw);
 			
-			// get pre-parsed data structures
-			instrumentHistory = SequenceAnalyzer.getInstrumentHistory();
-			commentHistory    = SequenceAnalyzer.getCommentHistory();
-			noteHistory       = SequenceAnalyzer.getNoteHistory();
-			noteOnOff         = SequenceAnalyzer.getOnOffHistory();
-			lyricsSyllables   = KaraokeAnalyzer.getLyricsFlat();
-			
-			// init data structures
-			chords           = new TreeMap<>();
-			chordCount       = new TreeMap<>();
-			chordsByBaseNote = new TreeMap<>();
-			
-			// get resolution
-			sourceResolution = MidiDevices.getSequence().getResolution();
-			
-			// refresh decompile config
-			refreshConfig();
-			
-			// initialize statistics
-			initStatistics();
-			
-			// initialize instruments (to track the channel configuration)
-			initInstruments();
-			
-			// Prioritize channels to be used for karaoke.
-			lyricsChannels = prioritizeChannelsForLyrics();
+			// search the best configuration, if requested
+			HashMap<String, String> decompileConfig = DecompileConfigController.getSessionConfig();
+			if (Cli.autoTune)
+				decompileConfig = new DecompileAutoTuner(decompileConfig, format).tune();
 			
 			// make sure that the syntax configuration is up to date
 			MidicaPLParser.refreshSyntax();
 			
-			// fill the timeline with instrument changes and note events
-			slices = new ArrayList<>();
-			
-			// detect global commands and split the sequence into slices accordingly
-			splitSequence();
-			
-			// calculate what tick length corresponds to what note length
-			noteLength = initLengths(false);
-			restLength = initLengths(true);
-			
-			// fill slices
-			addInstrumentsToSlices();
-			groupNotes();
-			addNotesToSlices();
-			addLyricsToSlices();
-			
-			// create MidicaPL string from the data structures and write it into the file
-			writer.write( createOutput() );
+			// decompile and write the result into the file
+			String output = decompile(decompileConfig);
+			writer.write(output);
 			writer.close();
+			totalPhase.end(slices.size());
 		}
 		catch (FileNotFoundException e) {
 			e.printStackTrace();
@@ -332,38 +300,125 @@ public abstract class Decompiler extends Exporter {
 		catch (IOException e) {
 			e.printStackTrace();
 		}
+		catch (TaskCancelledException e) {
+			throw new ExportException(e.getMessage());
+		}
 		
 		return exportResult;
 	}
 	
+	/**
+	 * Decompiles the currently loaded sequence with the given configuration
+	 * without writing anything and returns the total quality score.
+	 * 
+	 * This is used by the {@link DecompileAutoTuner} to compare configurations.
+	 * The analyzed sequence structures are only read, so that several decompilers
+	 * can evaluate configurations in parallel, as long as the syntax does not change
+	 * in the meantime.
+	 * 
+	 * @param candidateConfig  decompile configuration (config ID -- value)
+	 * @return the total quality score, or **NaN** if there is nothing to rate.
+	 */
+	public double evaluate(HashMap<String, String> candidateConfig) {
+		exportResult = new ExportResult(true);
+		decompile(candidateConfig);
+		createQualityStatsPart(statistics.get(STAT_TOTAL));
+		
+		return qualityScore;
+	}
+	
+	/**
+	 * Decompiles the currently loaded sequence.
+	 * 
+	 * @param decompileConfig  decompile configuration (config ID -- value)
+	 * @return the decompiled file content.
+	 */
+	private String decompile(HashMap<String, String> decompileConfig) {
+		
+		// initialize format specific structures, if necessary
+		config = decompileConfig;
+		init();
+		
+		// get pre-parsed data structures
+		instrumentHistory = SequenceAnalyzer.getInstrumentHistory();
+		commentHistory    = SequenceAnalyzer.getCommentHistory();
+		noteHistory       = SequenceAnalyzer.getNoteHistory();
+		noteOnOff         = SequenceAnalyzer.getOnOffHistory();
+		lyricsSyllables   = KaraokeAnalyzer.getLyricsFlat();
+		
+		// init data structures
+		chords           = new TreeMap<>();
+		chordCount       = new TreeMap<>();
+		chordsByBaseNote = new TreeMap<>();
+		
+		// get resolution
+		sourceResolution = MidiDevices.getSequence().getResolution();
+		
+		// refresh decompile config
+		refreshConfig();
+		
+		// initialize statistics
+		initStatistics();
+		
+		// initialize instruments (to track the channel configuration)
+		initInstruments();
+		
+		// Prioritize channels to be used for karaoke.
+		lyricsChannels = prioritizeChannelsForLyrics();
+		
+		// fill the timeline with instrument changes and note events
+		Phase phase = PhaseStats.begin("decompile.slice");
+		slices = new ArrayList<>();
+		
+		// detect global commands and split the sequence into slices accordingly
+		splitSequence();
+		
+		// calculate what tick length corresponds to what note length
+		noteLength = initLengths(false);
+		restLength = initLengths(true);
+		
+		// fill slices
+		addInstrumentsToSlices();
+		groupNotes();
+		addNotesToSlices();
+		addLyricsToSlices();
+		phase.end(slices.size());
+		
+		// create MidicaPL string from the data structures
+		phase = PhaseStats.begin("decompile.output");
+		String output = createOutput();
+		phase.end(output.length());
+		
+		return output;
+	}
+	
 	/**
 	 * Re-reads all config variables that are relevant for decompilation.
 	 */
 	private void refreshConfig() {
 		
 		// apply direct configuration
-		HashMap<String, String> sessionConfig = DecompileConfigController.getSessionConfig();
-		MUST_ADD_TICK_COMMENTS   = Boolean.parseBoolean( sessionConfig.get(Config.DC_MUST_ADD_TICK_COMMENTS)   );
-		MUST_ADD_CONFIG          = Boolean.parseBoolean( sessionConfig.get(Config.DC_MUST_ADD_CONFIG)          );
-		MUST_ADD_QUALITY_SCORE   = Boolean.parseBoolean( sessionConfig.get(Config.DC_MUST_ADD_QUALITY_SCORE)   );
-		MUST_ADD_STATISTICS      = Boolean.parseBoolean( sessionConfig.get(Config.DC_MUST_ADD_STATISTICS)      );
-		MUST_ADD_STRATEGY_STAT   = Boolean.parseBoolean( sessionConfig.get(Config.DC_MUST_ADD_STRATEGY_STAT)   );
-		LENGTH_STRATEGY          = Byte.parseByte(       sessionConfig.get(Config.DC_LENGTH_STRATEGY)          );
-		MAX_TARGET_TICKS_ON      = Long.parseLong(       sessionConfig.get(Config.DC_MAX_TARGET_TICKS_ON)      );
-		MIN_DURATION_TO_KEEP     = Float.parseFloat(     sessionConfig.get(Config.DC_MIN_DURATION_TO_KEEP)     );
-		LENGTH_TICK_TOLERANCE    = Long.parseLong(       sessionConfig.get(Config.DC_LENGTH_TICK_TOLERANCE)    );
-		DURATION_RATIO_TOLERANCE = Float.parseFloat(     sessionConfig.get(Config.DC_DURATION_RATIO_TOLERANCE) );
-		USE_PRE_DEFINED_CHORDS   = Boolean.parseBoolean( sessionConfig.get(Config.DC_USE_PRE_DEFINED_CHORDS)   );
-		CHORD_NOTE_ON_TOLERANCE  = Long.parseLong(       sessionConfig.get(Config.DC_CHORD_NOTE_ON_TOLERANCE)  );
-		CHORD_NOTE_OFF_TOLERANCE = Long.parseLong(       sessionConfig.get(Config.DC_CHORD_NOTE_OFF_TOLERANCE) );
-		CHORD_VELOCITY_TOLERANCE = Long.parseLong(       sessionConfig.get(Config.DC_CHORD_VELOCITY_TOLERANCE) );
-		USE_DOTTED_NOTES         = Boolean.parseBoolean( sessionConfig.get(Config.DC_USE_DOTTED_NOTES)         );
-		USE_DOTTED_RESTS         = Boolean.parseBoolean( sessionConfig.get(Config.DC_USE_DOTTED_RESTS)         );
-		USE_TRIPLETTED_NOTES     = Boolean.parseBoolean( sessionConfig.get(Config.DC_USE_TRIPLETTED_NOTES)     );
-		USE_TRIPLETTED_RESTS     = Boolean.parseBoolean( sessionConfig.get(Config.DC_USE_TRIPLETTED_RESTS)     );
-		ORPHANED_SYLLABLES       = Byte.parseByte(       sessionConfig.get(Config.DC_ORPHANED_SYLLABLES)       );
-		KARAOKE_ONE_CHANNEL      = Boolean.parseBoolean( sessionConfig.get(Config.DC_KARAOKE_ONE_CHANNEL)      );
-		EXTRA_GLOBALS            = DecompileConfigController.getExtraGlobalTicks();
+		MUST_ADD_TICK_COMMENTS   = Boolean.parseBoolean( config.get(Config.DC_MUST_ADD_TICK_COMMENTS)   );
+		MUST_ADD_CONFIG          = Boolean.parseBoolean( config.get(Config.DC_MUST_ADD_CONFIG)          );
+		MUST_ADD_QUALITY_SCORE   = Boolean.parseBoolean( config.get(Config.DC_MUST_ADD_QUALITY_SCORE)   );
+		MUST_ADD_STATISTICS      = Boolean.parseBoolean( config.get(Config.DC_MUST_ADD_STATISTICS)      );
+		MUST_ADD_STRATEGY_STAT   = Boolean.parseBoolean( config.get(Config.DC_MUST_ADD_STRATEGY_STAT)   );
+		LENGTH_STRATEGY          = Byte.parseByte(       config.get(Config.DC_LENGTH_STRATEGY)          );
+		MAX_TARGET_TICKS_ON      = Long.parseLong(       config.get(Config.DC_MAX_TARGET_TICKS_ON)      );
+		MIN_DURATION_TO_KEEP     = Float.parseFloat(     config.get(Config.DC_MIN_DURATION_TO_KEEP)     );
+		LENGTH_TICK_TOLERANCE    = Long.parseLong(       config.get(Config.DC_LENGTH_TICK_TOLERANCE)    );
+		DURATION_RATIO_TOLERANCE = Float.parseFloat(     config.get(Config.DC_DURATION_RATIO_TOLERANCE) );
+		USE_PRE_DEFINED_CHORDS   = Boolean.parseBoolean( config.get(Config.DC_USE_PRE_DEFINED_CHORDS)   );
+		CHORD_NOTE_ON_TOLERANCE  = Long.parseLong(       config.get(Config.DC_CHORD_NOTE_ON_TOLERANCE)  );
+		CHORD_NOTE_OFF_TOLERANCE = Long.parseLong(       config.get(Config.DC_CHORD_NOTE_OFF_TOLERANCE) );
+		CHORD_VELOCITY_TOLERANCE = Long.parseLong(       config.get(Config.DC_CHORD_VELOCITY_TOLERANCE) );
+		USE_DOTTED_NOTES         = Boolean.parseBoolean( config.get(Config.DC_USE_DOTTED_NOTES)         );
+		USE_DOTTED_RESTS         = Boolean.parseBoolean( config.get(Config.DC_USE_DOTTED_RESTS)         );
+		USE_TRIPLETTED_NOTES     = Boolean.parseBoolean( config.get(Config.DC_USE_TRIPLETTED_NOTES)     );
+		USE_TRIPLETTED_RESTS     = Boolean.parseBoolean( config.get(Config.DC_USE_TRIPLETTED_RESTS)     );
+		ORPHANED_SYLLABLES       = Byte.parseByte(       config.get(Config.DC_ORPHANED_SYLLABLES)       );
+		KARAOKE_ONE_CHANNEL      = Boolean.parseBoolean( config.get(Config.DC_KARAOKE_ONE_CHANNEL)      );
+		EXTRA_GLOBALS            = new TreeSet<>(DecompileConfigController.getExtraGlobalTicks());
 		
 		// apply indirect configuration
 		MAX_SOURCE_TICKS_ON = (MAX_TARGET_TICKS_ON * sourceResolution * 10 + 5) / (targetResolution * 10);
@@ -720,8 +775,15 @@ public abstract class Decompiler extends Exporter {
 			return;
 		
 		// clone the local copy of the structures to be modified
+		// (deep enough to leave the analyzed structures untouched)
 		TreeMap<Byte, TreeMap<Long, TreeMap<Byte, Byte>>>    noteHistoryClone = new TreeMap<>();
-		TreeMap<Byte, TreeMap<Byte, TreeMap<Long, Boolean>>> noteOnOffClone   = (TreeMap<Byte, TreeMap<Byte, TreeMap<Long, Boolean>>>) noteOnOff.clone();
+		TreeMap<Byte, TreeMap<Byte, TreeMap<Long, Boolean>>> noteOnOffClone   = new TreeMap<>();
+		for (Entry<Byte, TreeMap<Byte, TreeMap<Long, Boolean>>> channelEntry : noteOnOff.entrySet()) {
+			TreeMap<Byte, TreeMap<Long, Boolean>> channelOnOff = new TreeMap<>();
+			for (Entry<Byte, TreeMap<Long, Boolean>> noteEntry : channelEntry.getValue().entrySet())
+				channelOnOff.put(noteEntry.getKey(), new TreeMap<>(noteEntry.getValue()));
+			noteOnOffClone.put(channelEntry.getKey(), channelOnOff);
+		}
 		
 		// CHANNEL:
 		for (byte channel : noteHistory.keySet()) {
@@ -733,6 +795,7 @@ public abstract class Decompiler extends Exporter {
 			
 			TICK:
 			for (Long tick : channelHistoryOriginal.keySet()) {
+				TaskProgress.check();
 				
 				if (tick <= skipUntil)
 					continue TICK;
@@ -831,6 +894,7 @@ public abstract class Decompiler extends Exporter {
 		
 		// process notes slice by slice
 		for (Slice slice : slices) {
+			TaskProgress.check();
 			
 			// filter notes by slice
 			TreeMap<Byte, TreeMap<Long, TreeMap<Byte, Byte>>>    sliceNoteHistory = slice.filterNotes(noteHistory);
@@ -1513,9 +1577,9 @@ public abstract class Decompiler extends Exporter {
 		}
 		
 		// quality score
+		qualityScore = ((double) markerSum) / markerCount;
 		if (MUST_ADD_QUALITY_SCORE) {
-			double totalScore    = ((double) markerSum) / markerCount;
-			String totalScoreStr = String.format("%.2f", totalScore);
+			String totalScoreStr = String.format("%.2f", qualityScore);
 			stats.append(comment + "     Quality Score: " + totalScoreStr + NEW_LINE);
 		}
 		
@@ -1655,11 +1719,10 @@ public abstract class Decompiler extends Exporter {
 		statLines.append(comment + NEW_LINE);
 		
 		// config values
-		HashMap<String, String> sessionConfig = DecompileConfigController.getSessionConfig();
-		ArrayList<String> configKeys = new ArrayList<String>(sessionConfig.keySet());
+		ArrayList<String> configKeys = new ArrayList<String>(config.keySet());
 		Collections.sort(configKeys);
 		for (String key : configKeys) {
-			String value = sessionConfig.get(key);
+			String value = config.get(key);
 			statLines.append(
 				comment + " "
 				+ String.format("%-30s", key) + " " + value + NEW_LINE
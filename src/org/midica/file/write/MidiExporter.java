@@ -134,15 +134,8 @@ public class MidiExporter extends Exporter {
 					int    type = ((MetaMessage) msg).getType();
 					byte[] data = ((MetaMessage) msg).getData();
 					
-					// ignore marker messages created by the SequenceCreator
-					if ( MidiListener.META_MARKER == type
-					  && data.length > 0
-					  && data.length <= 16 ) {
-						continue EVENT;
-					}
-					
 					// convert charset of text-based messages
-					else if ( type >= 0x01 && type <= 0x0F ) {
+					if ( type >= 0x01 && type <= 0x0F ) {
 						String text = CharsetUtils.getTextFromBytes( data, sourceCharset, fileCharset );
 						event       = convertCharset( event, text, fileCharset, type, event.getTick(), trackNum );
 						
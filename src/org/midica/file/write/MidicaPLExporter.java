@@ -15,6 +15,7 @@ import java.util.TreeMap;
 
 import org.midica.config.Dict;
 import org.midica.file.Instrument;
+import org.midica.file.TaskProgress;
 import org.midica.file.read.MidicaPLParser;
 import org.midica.midi.KaraokeAnalyzer;
 import org.midica.midi.SequenceAnalyzer;
@@ -58,6 +59,7 @@ public class MidicaPLExporter extends Decompiler {
 		
 		// SLICE:
 		for (Slice slice : slices) {
+			TaskProgress.check();
 			
 			// if necessary: add rest from current tick to the slice's begin tick
 			output.append( createRestBeforeSlice(slice) );
@@ -0,0 +1,187 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+/**
+ * Note-on events of one channel in primitive arrays, ordered by tick and note number.
+ * 
+ * It's created by the {@link SequenceAnalyzer} and used by the player to show
+ * the note history without allocating anything during playback.
+ * 
+ * The player keeps a **cursor** for each channel. The cursor is the index of the
+ * first note after the current tick. So the past notes end before the cursor, and
+ * the future notes start at the cursor. See {@link #moveCursor(int, long)},
+ * {@link #getWindowStart(int)} and {@link #getWindowEnd(int)}.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class ChannelNoteHistory {
+	
+	/** History of a channel without notes. */
+	public static final ChannelNoteHistory EMPTY = new ChannelNoteHistory(new long[0], new byte[0], new byte[0]);
+	
+	/** Maximum number of steps to move the cursor forward before searching. */
+	private static final int MAX_CURSOR_STEPS = 16;
+	
+	private final long[] ticks;
+	private final byte[] notes;
+	private final byte[] velocities;
+	
+	/**
+	 * Creates a note history from the given arrays.
+	 * 
+	 * @param ticks       the ticks, in ascending order
+	 * @param notes       the note numbers
+	 * @param velocities  the velocities
+	 */
+	private ChannelNoteHistory(long[] ticks, byte[] notes, byte[] velocities) {
+		this.ticks      = ticks;
+		this.notes      = notes;
+		this.velocities = velocities;
+	}
+	
+	/**
+	 * Creates the note history of one channel.
+	 * 
+	 * @param channelHistory  tick -- note -- velocity
+	 * @return the created note history.
+	 */
+	public static ChannelNoteHistory create(TreeMap<Long, TreeMap<Byte, Byte>> channelHistory) {
+		int size = 0;
+		for (TreeMap<Byte, Byte> notesAtTick : channelHistory.values()) {
+			size += notesAtTick.size();
+		}
+		if (0 == size)
+			return EMPTY;
+		
+		long[] ticks      = new long[size];
+		byte[] notes      = new byte[size];
+		byte[] velocities = new byte[size];
+		int    i          = 0;
+		for (Entry<Long, TreeMap<Byte, Byte>> tickEntry : channelHistory.entrySet()) {
+			long tick = tickEntry.getKey();
+			for (Entry<Byte, Byte> noteEntry : tickEntry.getValue().entrySet()) {
+				ticks[i]      = tick;
+				notes[i]      = noteEntry.getKey();
+				velocities[i] = noteEntry.getValue();
+				i++;
+			}
+		}
+		return new ChannelNoteHistory(ticks, notes, velocities);
+	}
+	
+	/**
+	 * Returns the number of notes.
+	 * 
+	 * @return the number of notes.
+	 */
+	public int size() {
+		return ticks.length;
+	}
+	
+	/**
+	 * Returns the tick of the given note.
+	 * 
+	 * @param index  note index
+	 * @return the tick.
+	 */
+	public long getTick(int index) {
+		return ticks[index];
+	}
+	
+	/**
+	 * Returns the note number of the given note.
+	 * 
+	 * @param index  note index
+	 * @return the note number.
+	 */
+	public byte getNote(int index) {
+		return notes[index];
+	}
+	
+	/**
+	 * Returns the velocity of the given note.
+	 * 
+	 * @param index  note index
+	 * @return the velocity.
+	 */
+	public byte getVelocity(int index) {
+		return velocities[index];
+	}
+	
+	/**
+	 * Moves a cursor to the given tick.
+	 * 
+	 * During playback the cursor only moves a few notes forward, so it's moved
+	 * step by step. After a bigger jump the new cursor is searched.
+	 * 
+	 * @param cursor  the last cursor (may be out of range, e.g. from another sequence)
+	 * @param tick    the current tick
+	 * @return the index of the first note with a higher tick, or {@link #size()}
+	 *         if there is no such note.
+	 */
+	public int moveCursor(int cursor, long tick) {
+		int size = ticks.length;
+		if (cursor < 0 || cursor > size)
+			cursor = size;
+		
+		// backwards
+		if (cursor > 0 && ticks[cursor - 1] > tick)
+			return search(0, cursor - 1, tick);
+		
+		// forward
+		for (int step = 0; step < MAX_CURSOR_STEPS; step++) {
+			if (cursor == size || ticks[cursor] > tick)
+				return cursor;
+			cursor++;
+		}
+		return search(cursor, size, tick);
+	}
+	
+	/**
+	 * Returns the index of the first note to be shown, which is the oldest past note.
+	 * 
+	 * @param cursor  the current cursor
+	 * @return the first index of the window.
+	 */
+	public int getWindowStart(int cursor) {
+		return Math.max(0, cursor - SequenceAnalyzer.NOTE_HISTORY_BUFFER_SIZE_PAST);
+	}
+	
+	/**
+	 * Returns the index after the last note to be shown, which is the latest future note.
+	 * 
+	 * @param cursor  the current cursor
+	 * @return the end index (exclusive) of the window.
+	 */
+	public int getWindowEnd(int cursor) {
+		return Math.min(ticks.length, cursor + SequenceAnalyzer.NOTE_HISTORY_BUFFER_SIZE_FUTURE);
+	}
+	
+	/**
+	 * Searches the first note with a higher tick than the given tick.
+	 * 
+	 * @param from  the lowest possible result
+	 * @param to    the highest possible result
+	 * @param tick  the tick
+	 * @return the index of the first note with a higher tick.
+	 */
+	private int search(int from, int to, long tick) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (ticks[mid] > tick)
+				to = mid;
+			else
+				from = mid + 1;
+		}
+		return from;
+	}
+}
@@ -0,0 +1,1089 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.midi.ControllerEventListener;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaEventListener;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import javax.sound.midi.Transmitter;
+
+/**
+ * Sequencer implementation that can be used instead of the sequencer of the JDK.
+ * 
+ * It's selected with the config key **sequencer** (see {@link org.midica.config.Config#SEQUENCER}).
+ * 
+ * Differences to the JDK sequencer:
+ * 
+ * - All events of all tracks are merged into one array when the sequence is set.
+ *   At the same time each tick is converted to a microsecond position, using a
+ *   {@link TempoMap}.
+ * - The events are sent to the receivers from one dedicated thread with maximum priority.
+ *   This thread parks until shortly before the next deadline and then spins until
+ *   the deadline is reached.
+ * - Meta messages (e.g. the end of the sequence) and controller events
+ *   are passed to the listeners by a second thread. So a slow listener cannot delay
+ *   the MIDI output.
+ * - The lateness of each sent event is recorded in a histogram.
+ *   See {@link #getTimingHistogram()} and {@link #getTimingReport()}.
+ * 
+ * Not supported: recording, loops, synchronization modes and changing the tempo
+ * via {@link #setTempoInMPQ(float)}. The tempo is always taken from the sequence.
+ * Changing the tempo factor is supported.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class EventScheduler implements Sequencer {
+	
+	/** Remaining time (in nanoseconds) below which the dispatcher spins instead of parking. */
+	private static final long SPIN_NANOS = 1_500_000;
+	
+	/** Upper bounds (in microseconds) of the timing histogram buckets. The last bucket is open. */
+	public static final long[] HISTOGRAM_BOUNDS = { 50, 100, 250, 500, 1000, 2000, 5000 };
+	
+	private static final int    CC_ALL_NOTES_OFF = 123;
+	private static final int    CHANNELS         = 16;
+	private static final Info   INFO             = new SchedulerInfo();
+	private static final Object END_OF_QUEUE     = new Object();
+	
+	private final Object lock = new Object();
+	
+	// sequence data, created by setSequence()
+	private Sequence      sequence    = null;
+	private long[]        eventTicks  = new long[0];
+	private long[]        eventMicros = new long[0];
+	private MidiMessage[] eventMsgs   = new MidiMessage[0];
+	private int[]         eventTracks = new int[0];
+	private int[]         trackEvents = new int[0]; // number of merged events per track
+	private TempoMap      tempoMap    = null;
+	private long          tickLength  = 0;
+	private boolean[]     trackMute   = new boolean[0];
+	private boolean[]     trackSolo   = new boolean[0];
+	
+	// playback state, guarded by lock
+	private boolean       isOpen       = false;
+	private boolean       isRunning    = false;
+	private int           nextIndex    = 0;
+	private long          stopTick     = 0;
+	private long          anchorNanos  = 0;
+	private long          anchorMicros = 0;
+	private float         tempoFactor  = 1;
+	private volatile long generation   = 0;
+	
+	// timing statistics, guarded by lock
+	private final long[] histogram    = new long[HISTOGRAM_BOUNDS.length + 1];
+	private long         maxLateNanos = 0;
+	private long         sumLateNanos = 0;
+	private long         sentEvents   = 0;
+	
+	private final List<SchedulerTransmitter>    transmitters     = new CopyOnWriteArrayList<>();
+	private final List<MetaEventListener>       metaListeners    = new CopyOnWriteArrayList<>();
+	private final List<ControllerEventListener> ctrlListeners    = new CopyOnWriteArrayList<>();
+	private final List<boolean[]>               ctrlListenerNums = new CopyOnWriteArrayList<>();
+	private final LinkedBlockingQueue<Object>   listenerQueue    = new LinkedBlockingQueue<>();
+	
+	private Thread dispatcher     = null;
+	private Thread listenerThread = null;
+	
+	@Override
+	public Info getDeviceInfo() {
+		return INFO;
+	}
+	
+	@Override
+	public void open() {
+		synchronized (lock) {
+			if (isOpen)
+				return;
+			isOpen = true;
+			
+			dispatcher = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					dispatch();
+				}
+			}, "midica-event-scheduler");
+			dispatcher.setDaemon(true);
+			dispatcher.setPriority(Thread.MAX_PRIORITY);
+			dispatcher.start();
+			
+			listenerThread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					notifyListeners();
+				}
+			}, "midica-event-scheduler-listeners");
+			listenerThread.setDaemon(true);
+			listenerThread.start();
+		}
+	}
+	
+	@Override
+	public void close() {
+		synchronized (lock) {
+			if (! isOpen)
+				return;
+			if (isRunning)
+				stop();
+			isOpen = false;
+			generation++;
+		}
+		LockSupport.unpark(dispatcher);
+		listenerQueue.add(END_OF_QUEUE);
+		for (SchedulerTransmitter transmitter : transmitters) {
+			transmitter.close();
+		}
+		transmitters.clear();
+	}
+	
+	@Override
+	public boolean isOpen() {
+		synchronized (lock) {
+			return isOpen;
+		}
+	}
+	
+	@Override
+	public int getMaxReceivers() {
+		return 0;
+	}
+	
+	@Override
+	public int getMaxTransmitters() {
+		return -1;
+	}
+	
+	@Override
+	public Receiver getReceiver() throws MidiUnavailableException {
+		throw new MidiUnavailableException("recording is not supported");
+	}
+	
+	@Override
+	public List<Receiver> getReceivers() {
+		return Collections.emptyList();
+	}
+	
+	@Override
+	public Transmitter getTransmitter() {
+		SchedulerTransmitter transmitter = new SchedulerTransmitter();
+		transmitters.add(transmitter);
+		return transmitter;
+	}
+	
+	@Override
+	public List<Transmitter> getTransmitters() {
+		return Collections.unmodifiableList(new ArrayList<Transmitter>(transmitters));
+	}
+	
+	@Override
+	public void setSequence(Sequence seq) throws InvalidMidiDataException {
+		synchronized (lock) {
+			if (isRunning)
+				stop();
+			sequence = seq;
+			if (null == seq) {
+				eventTicks  = new long[0];
+				eventMicros = new long[0];
+				eventMsgs   = new MidiMessage[0];
+				eventTracks = new int[0];
+				trackEvents = new int[0];
+				tempoMap    = null;
+				tickLength  = 0;
+			}
+			else {
+				prepareSequence(seq);
+			}
+			nextIndex = 0;
+			stopTick  = 0;
+			generation++;
+		}
+	}
+	
+	@Override
+	public void setSequence(InputStream stream) throws IOException, InvalidMidiDataException {
+		setSequence(MidiSystem.getSequence(stream));
+	}
+	
+	@Override
+	public Sequence getSequence() {
+		return sequence;
+	}
+	
+	@Override
+	public void start() {
+		synchronized (lock) {
+			if (! isOpen)
+				throw new IllegalStateException("sequencer not open");
+			if (null == sequence)
+				throw new IllegalStateException("sequence not set");
+			if (isRunning)
+				return;
+			anchorNanos  = System.nanoTime();
+			anchorMicros = tickToMicros(stopTick);
+			isRunning    = true;
+			generation++;
+		}
+		LockSupport.unpark(dispatcher);
+	}
+	
+	@Override
+	public void stop() {
+		synchronized (lock) {
+			if (! isOpen)
+				throw new IllegalStateException("sequencer not open");
+			if (! isRunning)
+				return;
+			stopTick  = getRunningTick();
+			isRunning = false;
+			generation++;
+			sendAllNotesOff();
+		}
+		LockSupport.unpark(dispatcher);
+	}
+	
+	@Override
+	public boolean isRunning() {
+		synchronized (lock) {
+			return isRunning;
+		}
+	}
+	
+	@Override
+	public void startRecording() {
+		throw new IllegalStateException("recording is not supported");
+	}
+	
+	@Override
+	public void stopRecording() {
+	}
+	
+	@Override
+	public boolean isRecording() {
+		return false;
+	}
+	
+	@Override
+	public void recordEnable(Track track, int channel) {
+	}
+	
+	@Override
+	public void recordDisable(Track track) {
+	}
+	
+	/**
+	 * Returns the tempo at the current position.
+	 * 
+	 * @return the tempo in beats per minute.
+	 */
+	@Override
+	public float getTempoInBPM() {
+		return 60_000_000f / getTempoInMPQ();
+	}
+	
+	/**
+	 * Not supported - the tempo is always taken from the sequence.
+	 */
+	@Override
+	public void setTempoInBPM(float bpm) {
+	}
+	
+	/**
+	 * Returns the tempo at the current position.
+	 * 
+	 * @return the tempo in microseconds per quarter note.
+	 */
+	@Override
+	public float getTempoInMPQ() {
+		synchronized (lock) {
+			if (null == tempoMap)
+				return TempoMap.DEFAULT_MPQ;
+			return tempoMap.getMpq(getTickPosition());
+		}
+	}
+	
+	/**
+	 * Not supported - the tempo is always taken from the sequence.
+	 */
+	@Override
+	public void setTempoInMPQ(float mpq) {
+	}
+	
+	@Override
+	public void setTempoFactor(float factor) {
+		if (factor <= 0)
+			return;
+		synchronized (lock) {
+			if (isRunning) {
+				long now     = System.nanoTime();
+				anchorMicros = getRunningMicros(now);
+				anchorNanos  = now;
+			}
+			tempoFactor = factor;
+			generation++;
+		}
+		LockSupport.unpark(dispatcher);
+	}
+	
+	@Override
+	public float getTempoFactor() {
+		synchronized (lock) {
+			return tempoFactor;
+		}
+	}
+	
+	@Override
+	public long getTickLength() {
+		synchronized (lock) {
+			return tickLength;
+		}
+	}
+	
+	@Override
+	public long getTickPosition() {
+		synchronized (lock) {
+			if (isRunning)
+				return getRunningTick();
+			return stopTick;
+		}
+	}
+	
+	/**
+	 * Sets the current position.
+	 * 
+	 * The last program changes, controller values and pitch bends before the new position
+	 * are sent to the receivers so that the playback continues with the right instruments.
+	 * 
+	 * @param tick  the new position
+	 */
+	@Override
+	public void setTickPosition(long tick) {
+		synchronized (lock) {
+			tick      = Math.max(0, Math.min(tick, tickLength));
+			nextIndex = findFirstEvent(tick);
+			stopTick  = tick;
+			if (isRunning) {
+				anchorNanos  = System.nanoTime();
+				anchorMicros = tickToMicros(tick);
+				sendAllNotesOff();
+			}
+			chase(nextIndex);
+			generation++;
+		}
+		LockSupport.unpark(dispatcher);
+	}
+	
+	@Override
+	public long getMicrosecondLength() {
+		synchronized (lock) {
+			return tickToMicros(tickLength);
+		}
+	}
+	
+	@Override
+	public long getMicrosecondPosition() {
+		synchronized (lock) {
+			if (isRunning)
+				return Math.min(getRunningMicros(System.nanoTime()), tickToMicros(tickLength));
+			return tickToMicros(stopTick);
+		}
+	}
+	
+	@Override
+	public void setMicrosecondPosition(long microseconds) {
+		long tick;
+		synchronized (lock) {
+			tick = microsToTick(microseconds);
+		}
+		setTickPosition(tick);
+	}
+	
+	@Override
+	public void setMasterSyncMode(SyncMode sync) {
+	}
+	
+	@Override
+	public SyncMode getMasterSyncMode() {
+		return SyncMode.INTERNAL_CLOCK;
+	}
+	
+	@Override
+	public SyncMode[] getMasterSyncModes() {
+		return new SyncMode[] { SyncMode.INTERNAL_CLOCK };
+	}
+	
+	@Override
+	public void setSlaveSyncMode(SyncMode sync) {
+	}
+	
+	@Override
+	public SyncMode getSlaveSyncMode() {
+		return SyncMode.NO_SYNC;
+	}
+	
+	@Override
+	public SyncMode[] getSlaveSyncModes() {
+		return new SyncMode[] { SyncMode.NO_SYNC };
+	}
+	
+	@Override
+	public void setTrackMute(int track, boolean mute) {
+		synchronized (lock) {
+			if (track >= 0 && track < trackMute.length)
+				trackMute[track] = mute;
+		}
+	}
+	
+	@Override
+	public boolean getTrackMute(int track) {
+		synchronized (lock) {
+			return track >= 0 && track < trackMute.length && trackMute[track];
+		}
+	}
+	
+	@Override
+	public void setTrackSolo(int track, boolean solo) {
+		synchronized (lock) {
+			if (track >= 0 && track < trackSolo.length)
+				trackSolo[track] = solo;
+		}
+	}
+	
+	@Override
+	public boolean getTrackSolo(int track) {
+		synchronized (lock) {
+			return track >= 0 && track < trackSolo.length && trackSolo[track];
+		}
+	}
+	
+	@Override
+	public boolean addMetaEventListener(MetaEventListener listener) {
+		if (! metaListeners.contains(listener))
+			metaListeners.add(listener);
+		return true;
+	}
+	
+	@Override
+	public void removeMetaEventListener(MetaEventListener listener) {
+		metaListeners.remove(listener);
+	}
+	
+	@Override
+	public int[] addControllerEventListener(ControllerEventListener listener, int[] controllers) {
+		int index = ctrlListeners.indexOf(listener);
+		boolean[] numbers;
+		if (index < 0) {
+			numbers = new boolean[128];
+			ctrlListeners.add(listener);
+			ctrlListenerNums.add(numbers);
+		}
+		else {
+			numbers = ctrlListenerNums.get(index);
+		}
+		if (controllers != null) {
+			for (int controller : controllers) {
+				if (controller >= 0 && controller < 128)
+					numbers[controller] = true;
+			}
+		}
+		return getControllers(numbers);
+	}
+	
+	@Override
+	public int[] removeControllerEventListener(ControllerEventListener listener, int[] controllers) {
+		int index = ctrlListeners.indexOf(listener);
+		if (index < 0)
+			return new int[0];
+		boolean[] numbers = ctrlListenerNums.get(index);
+		if (null == controllers) {
+			Arrays.fill(numbers, false);
+		}
+		else {
+			for (int controller : controllers) {
+				if (controller >= 0 && controller < 128)
+					numbers[controller] = false;
+			}
+		}
+		int[] remaining = getControllers(numbers);
+		if (0 == remaining.length) {
+			ctrlListeners.remove(index);
+			ctrlListenerNums.remove(index);
+		}
+		return remaining;
+	}
+	
+	/**
+	 * Not supported - loops are not used by Midica.
+	 */
+	@Override
+	public void setLoopStartPoint(long tick) {
+	}
+	
+	@Override
+	public long getLoopStartPoint() {
+		return 0;
+	}
+	
+	/**
+	 * Not supported - loops are not used by Midica.
+	 */
+	@Override
+	public void setLoopEndPoint(long tick) {
+	}
+	
+	@Override
+	public long getLoopEndPoint() {
+		return -1;
+	}
+	
+	/**
+	 * Not supported - loops are not used by Midica.
+	 * 
+	 * @throws IllegalArgumentException if the count is not **0**.
+	 */
+	@Override
+	public void setLoopCount(int count) {
+		if (count != 0)
+			throw new IllegalArgumentException("loops are not supported");
+	}
+	
+	@Override
+	public int getLoopCount() {
+		return 0;
+	}
+	
+	/**
+	 * Returns a copy of the timing histogram.
+	 * 
+	 * Each element contains the number of events that have been sent with a lateness
+	 * up to the according bound in {@link #HISTOGRAM_BOUNDS} (in microseconds).
+	 * The last element counts all events that were later than the last bound.
+	 * 
+	 * @return the histogram.
+	 */
+	public long[] getTimingHistogram() {
+		synchronized (lock) {
+			return histogram.clone();
+		}
+	}
+	
+	/**
+	 * Returns a human-readable summary of the timing errors.
+	 * 
+	 * @return the report.
+	 */
+	public String getTimingReport() {
+		synchronized (lock) {
+			StringBuilder report = new StringBuilder("event scheduler timing: ");
+			report.append(sentEvents + " events");
+			if (sentEvents > 0) {
+				report.append(String.format(", mean late %.1f us", sumLateNanos / 1000.0 / sentEvents));
+				report.append(String.format(", max late %.1f us", maxLateNanos / 1000.0));
+			}
+			for (int i = 0; i < histogram.length; i++) {
+				String bound = i < HISTOGRAM_BOUNDS.length ? "<=" + HISTOGRAM_BOUNDS[i] : ">" + HISTOGRAM_BOUNDS[i - 1];
+				report.append(", " + bound + "us: " + histogram[i]);
+			}
+			return report.toString();
+		}
+	}
+	
+	/**
+	 * Takes over the events that have been added to the end of the tracks of the current
+	 * sequence since it has been set, without interrupting the playback.
+	 * 
+	 * This is used by the {@link ProgressivePlayer}, whose sequence grows while it's played.
+	 * The added events must not be earlier than the events that are already known.
+	 * The end of the sequence may also be moved forward without adding events.
+	 */
+	void sequenceExtended() {
+		synchronized (lock) {
+			if (null == sequence)
+				return;
+			mergeEvents(sequence);
+			generation++;
+		}
+		LockSupport.unpark(dispatcher);
+	}
+	
+	/**
+	 * Merges the events of all tracks and calculates the microsecond position of each event.
+	 * 
+	 * @param seq  the sequence
+	 */
+	private void prepareSequence(Sequence seq) {
+		int numTracks = seq.getTracks().length;
+		eventTicks  = new long[0];
+		eventMicros = new long[0];
+		eventMsgs   = new MidiMessage[0];
+		eventTracks = new int[0];
+		trackEvents = new int[numTracks];
+		tempoMap    = null;
+		mergeEvents(seq);
+		
+		trackMute  = new boolean[numTracks];
+		trackSolo  = new boolean[numTracks];
+	}
+	
+	/**
+	 * Appends the events that have not yet been merged to the merged events and
+	 * calculates their microsecond positions.
+	 * 
+	 * The tempo map is only created again if a tempo change has been added.
+	 * 
+	 * Must be called while holding the lock.
+	 * 
+	 * @param seq  the sequence
+	 */
+	private void mergeEvents(Sequence seq) {
+		Track[] tracks = seq.getTracks();
+		
+		// merge the new events, ordered by tick and then by track (sorting is stable)
+		ArrayList<long[]> order    = new ArrayList<>();
+		boolean           hasTempo = false;
+		for (int t = 0; t < tracks.length && t < trackEvents.length; t++) {
+			Track track = tracks[t];
+			int   end   = track.size();
+			if (end > 0 && isEndOfTrack(track.get(end - 1).getMessage()))
+				end--;
+			for (int i = trackEvents[t]; i < end; i++) {
+				MidiEvent   event = track.get(i);
+				MidiMessage msg   = event.getMessage();
+				if (isEndOfTrack(msg))
+					continue;
+				if (msg instanceof MetaMessage && MidiListener.META_SET_TEMPO == ((MetaMessage) msg).getType())
+					hasTempo = true;
+				order.add(new long[] { event.getTick(), t, i });
+			}
+			trackEvents[t] = end;
+		}
+		Collections.sort(order, new Comparator<long[]>() {
+			@Override
+			public int compare(long[] a, long[] b) {
+				return Long.compare(a[0], b[0]);
+			}
+		});
+		
+		int offset  = eventTicks.length;
+		int count   = offset + order.size();
+		eventTicks  = Arrays.copyOf(eventTicks, count);
+		eventMicros = Arrays.copyOf(eventMicros, count);
+		eventMsgs   = Arrays.copyOf(eventMsgs, count);
+		eventTracks = Arrays.copyOf(eventTracks, count);
+		
+		if (null == tempoMap || hasTempo)
+			tempoMap = TempoMap.fromSequence(seq);
+		for (int i = offset; i < count; i++) {
+			long[] pos     = order.get(i - offset);
+			int    t       = (int) pos[1];
+			eventTicks[i]  = pos[0];
+			eventMicros[i] = tempoMap.tickToMicros(pos[0]);
+			eventMsgs[i]   = tracks[t].get((int) pos[2]).getMessage();
+			eventTracks[i] = t;
+		}
+		
+		tickLength = seq.getTickLength();
+	}
+	
+	/**
+	 * Determines if the given message is an end of track message.
+	 * 
+	 * @param msg  the message
+	 * @return **true** for an end of track message, otherwise **false**.
+	 */
+	private static boolean isEndOfTrack(MidiMessage msg) {
+		return msg instanceof MetaMessage && MidiListener.META_END_OF_SEQUENCE == ((MetaMessage) msg).getType();
+	}
+	
+	/**
+	 * Main loop of the dispatcher thread.
+	 * 
+	 * Waits for the deadline of the next event, sends it and records the lateness.
+	 * Waiting is done by parking until shortly before the deadline and spinning
+	 * for the rest of the time.
+	 * 
+	 * After the last event the dispatcher waits until the tick length (the end of track)
+	 * is reached, before the sequence is finished.
+	 */
+	private void dispatch() {
+		while (true) {
+			long deadline;
+			long gen;
+			synchronized (lock) {
+				if (! isOpen)
+					return;
+				gen = generation;
+				if (! isRunning) {
+					deadline = -1;
+				}
+				else {
+					long micros = nextIndex < eventMsgs.length ? eventMicros[nextIndex] : tickToMicros(tickLength);
+					deadline    = anchorNanos + (long) ((micros - anchorMicros) * 1000 / tempoFactor);
+				}
+			}
+			
+			// not running - wait for start()
+			if (deadline < 0) {
+				LockSupport.park(this);
+				continue;
+			}
+			
+			// wait for the deadline
+			long remaining = deadline - System.nanoTime();
+			if (remaining > SPIN_NANOS) {
+				LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+				continue;
+			}
+			while (System.nanoTime() < deadline && gen == generation) {
+				Thread.yield();
+			}
+			
+			// send all events with the same deadline
+			synchronized (lock) {
+				if (gen != generation || ! isRunning)
+					continue;
+				if (nextIndex >= eventMsgs.length) {
+					finishSequence();
+					continue;
+				}
+				long now  = System.nanoTime();
+				long late = Math.max(0, now - deadline);
+				long tick = eventTicks[nextIndex];
+				while (nextIndex < eventMsgs.length && eventTicks[nextIndex] == tick) {
+					send(nextIndex, late);
+					nextIndex++;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sends one event to the transmitters (or to the listener thread) and records its lateness.
+	 * 
+	 * Must be called while holding the lock.
+	 * 
+	 * @param index  event index
+	 * @param late   lateness in nanoseconds
+	 */
+	private void send(int index, long late) {
+		MidiMessage msg = eventMsgs[index];
+		
+		if (msg instanceof MetaMessage) {
+			listenerQueue.add(msg);
+			return;
+		}
+		
+		if (msg instanceof ShortMessage) {
+			ShortMessage shortMsg = (ShortMessage) msg;
+			if (ShortMessage.NOTE_ON == shortMsg.getCommand() && isMuted(eventTracks[index]))
+				return;
+			if (ShortMessage.CONTROL_CHANGE == shortMsg.getCommand() && ! ctrlListeners.isEmpty())
+				listenerQueue.add(msg);
+		}
+		
+		for (SchedulerTransmitter transmitter : transmitters) {
+			transmitter.send(msg);
+		}
+		
+		// statistics
+		int  bucket     = 0;
+		long lateMicros = late / 1000;
+		while (bucket < HISTOGRAM_BOUNDS.length && lateMicros > HISTOGRAM_BOUNDS[bucket])
+			bucket++;
+		histogram[bucket]++;
+		sentEvents++;
+		sumLateNanos += late;
+		maxLateNanos  = Math.max(maxLateNanos, late);
+	}
+	
+	/**
+	 * Stops the playback at the end of the sequence and informs the meta event listeners.
+	 * 
+	 * Must be called while holding the lock.
+	 */
+	private void finishSequence() {
+		isRunning = false;
+		stopTick  = tickLength;
+		generation++;
+		try {
+			listenerQueue.add(new MetaMessage(MidiListener.META_END_OF_SEQUENCE, new byte[0], 0));
+		}
+		catch (InvalidMidiDataException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Main loop of the listener thread.
+	 * 
+	 * Passes meta messages and controller events to the registered listeners.
+	 */
+	private void notifyListeners() {
+		while (true) {
+			Object item;
+			try {
+				item = listenerQueue.take();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			if (END_OF_QUEUE == item)
+				return;
+			
+			if (item instanceof MetaMessage) {
+				for (MetaEventListener listener : metaListeners) {
+					listener.meta((MetaMessage) item);
+				}
+			}
+			else if (item instanceof ShortMessage) {
+				ShortMessage msg = (ShortMessage) item;
+				for (int i = 0; i < ctrlListeners.size(); i++) {
+					if (ctrlListenerNums.get(i)[msg.getData1()])
+						ctrlListeners.get(i).controlChange(msg);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sends the last program change, bank select, controller values and pitch bend
+	 * of each channel before the given event index.
+	 * 
+	 * Must be called while holding the lock.
+	 * 
+	 * @param endIndex  first event index that is not chased
+	 */
+	private void chase(int endIndex) {
+		if (transmitters.isEmpty())
+			return;
+		ShortMessage[]   programs    = new ShortMessage[CHANNELS];
+		ShortMessage[]   pitchBends  = new ShortMessage[CHANNELS];
+		ShortMessage[][] controllers = new ShortMessage[CHANNELS][128];
+		for (int i = 0; i < endIndex; i++) {
+			if (! (eventMsgs[i] instanceof ShortMessage))
+				continue;
+			ShortMessage msg     = (ShortMessage) eventMsgs[i];
+			int          channel = msg.getChannel();
+			int          command = msg.getCommand();
+			if (ShortMessage.PROGRAM_CHANGE == command)
+				programs[channel] = msg;
+			else if (ShortMessage.PITCH_BEND == command)
+				pitchBends[channel] = msg;
+			else if (ShortMessage.CONTROL_CHANGE == command)
+				controllers[channel][msg.getData1()] = msg;
+		}
+		for (int channel = 0; channel < CHANNELS; channel++) {
+			for (ShortMessage msg : controllers[channel]) {
+				if (msg != null)
+					sendToAll(msg);
+			}
+			if (programs[channel] != null)
+				sendToAll(programs[channel]);
+			if (pitchBends[channel] != null)
+				sendToAll(pitchBends[channel]);
+		}
+	}
+	
+	/**
+	 * Sends an **all notes off** message to each channel.
+	 * 
+	 * Must be called while holding the lock.
+	 */
+	private void sendAllNotesOff() {
+		try {
+			for (int channel = 0; channel < CHANNELS; channel++) {
+				sendToAll(new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, CC_ALL_NOTES_OFF, 0));
+			}
+		}
+		catch (InvalidMidiDataException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Sends a message to all transmitters without recording statistics.
+	 * 
+	 * @param msg  the message
+	 */
+	private void sendToAll(MidiMessage msg) {
+		for (SchedulerTransmitter transmitter : transmitters) {
+			transmitter.send(msg);
+		}
+	}
+	
+	/**
+	 * Determins if the events of the given track must not be played,
+	 * according to the mute and solo settings.
+	 * 
+	 * @param track  track index
+	 * @return **true** if muted, otherwise **false**.
+	 */
+	private boolean isMuted(int track) {
+		if (trackMute[track])
+			return true;
+		boolean hasSolo = false;
+		for (boolean solo : trackSolo) {
+			hasSolo |= solo;
+		}
+		return hasSolo && ! trackSolo[track];
+	}
+	
+	/**
+	 * Returns the microsecond position of a running sequence.
+	 * 
+	 * Must be called while holding the lock.
+	 * 
+	 * @param now  current value of {@link System#nanoTime()}
+	 * @return the position in microseconds.
+	 */
+	private long getRunningMicros(long now) {
+		return anchorMicros + (long) ((now - anchorNanos) / 1000 * tempoFactor);
+	}
+	
+	/**
+	 * Returns the tick position of a running sequence.
+	 * 
+	 * Must be called while holding the lock.
+	 * 
+	 * @return the position in ticks.
+	 */
+	private long getRunningTick() {
+		return Math.min(tickLength, microsToTick(getRunningMicros(System.nanoTime())));
+	}
+	
+	/**
+	 * Converts a tick into a microsecond position.
+	 * 
+	 * @param tick  the tick
+	 * @return the microseconds.
+	 */
+	private long tickToMicros(long tick) {
+		if (null == tempoMap)
+			return 0;
+		return tempoMap.tickToMicros(tick);
+	}
+	
+	/**
+	 * Converts a microsecond position into a tick.
+	 * 
+	 * @param micros  the microseconds
+	 * @return the tick.
+	 */
+	private long microsToTick(long micros) {
+		if (null == tempoMap)
+			return 0;
+		return tempoMap.microsToTick(micros);
+	}
+	
+	/**
+	 * Returns the index of the first event at or after the given tick.
+	 * 
+	 * @param tick  the tick
+	 * @return the event index.
+	 */
+	private int findFirstEvent(long tick) {
+		int low  = 0;
+		int high = eventTicks.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (eventTicks[mid] < tick)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	
+	/**
+	 * Converts the given flags into a list of controller numbers.
+	 * 
+	 * @param numbers  one flag per controller number
+	 * @return the controller numbers.
+	 */
+	private static int[] getControllers(boolean[] numbers) {
+		int count = 0;
+		for (boolean number : numbers) {
+			if (number)
+				count++;
+		}
+		int[] result = new int[count];
+		int   i      = 0;
+		for (int controller = 0; controller < numbers.length; controller++) {
+			if (numbers[controller])
+				result[i++] = controller;
+		}
+		return result;
+	}
+	
+	/**
+	 * Transmitter of the event scheduler.
+	 */
+	private class SchedulerTransmitter implements Transmitter {
+		
+		private volatile Receiver receiver = null;
+		
+		@Override
+		public void setReceiver(Receiver receiver) {
+			this.receiver = receiver;
+		}
+		
+		@Override
+		public Receiver getReceiver() {
+			return receiver;
+		}
+		
+		@Override
+		public void close() {
+			transmitters.remove(this);
+		}
+		
+		/**
+		 * Sends a message to the connected receiver, if any.
+		 * 
+		 * @param msg  the message
+		 */
+		private void send(MidiMessage msg) {
+			Receiver rec = receiver;
+			if (rec != null)
+				rec.send(msg, -1);
+		}
+	}
+	
+	/**
+	 * Device information of the event scheduler.
+	 */
+	private static class SchedulerInfo extends MidiDevice.Info {
+		
+		/**
+		 * Creates the device information.
+		 */
+		private SchedulerInfo() {
+			super("Midica Event Scheduler", "Midica", "Low-jitter event scheduler", "1.0");
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import javax.sound.midi.Sequence;
+
+/**
+ * This interface can be implemented by classes that want to use a sequence
+ * while it is still being created by the {@link SequenceCreator}.
+ * 
+ * A time window is **finalized** as soon as no channel can add any more events before
+ * the end of that window.
+ * 
+ * It's implemented by the {@link ProgressivePlayer}.
+ * 
+ * @author Jan Trukenmüller
+ */
+public interface IWindowListener {
+	
+	/**
+	 * Is called if a new time window of the sequence is finalized.
+	 * The events of this window will not change any more.
+	 * 
+	 * This is called in the parsing thread.
+	 * 
+	 * @param seq       the sequence that is being created
+	 * @param fromTick  first tick of the window (inclusive)
+	 * @param toTick    last tick of the window (exclusive)
+	 */
+	public void windowFinalized( Sequence seq, long fromTick, long toTick );
+	
+	/**
+	 * Is called after the sequence has been created completely.
+	 * 
+	 * This is called in the parsing thread.
+	 * 
+	 * @param seq  the created sequence
+	 */
+	public void sequenceFinished( Sequence seq );
+	
+}
@@ -7,6 +7,7 @@
 
 package org.midica.midi;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
@@ -16,6 +17,8 @@ import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.midica.config.Laf;
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
 import org.midica.file.CharsetUtils;
 import org.midica.ui.player.PlayerView;
 
@@ -124,6 +127,58 @@ public class KaraokeAnalyzer {
 		karaokeInfo.put("lyrics", lyrics);
 	}
 	
+	/**
+	 * Writes the analysis results to the analysis cache.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the results cannot be written.
+	 */
+	public static void writeToCache(CacheWriter out) throws IOException {
+		HashMap<String, Object> info = new HashMap<>(karaokeInfo);
+		info.remove("lyrics");
+		out.writeValue(info);
+		out.writeString(midiFileCharset);
+		out.writeString(karaokeMode);
+		out.writeLong(karLineTick);
+		out.writeBoolean(karLineEnded);
+		out.writeValue(textTrackCounter);
+		out.writeValue(lyricsTrackCounter);
+		out.writeInt(lyricsTrack);
+		out.writeBoolean(useLyrics);
+		out.writeValue(lyricsEventTicks);
+		out.writeValue(lyrics);
+		out.writeValue(lyricsFlat);
+	}
+	
+	/**
+	 * Restores the analysis results from the analysis cache.
+	 * 
+	 * This replaces {@link #init(int, String, TreeSet)}, the analysis and {@link #postprocess()}.
+	 * 
+	 * @param in                   cache reader
+	 * @param resolution           The sequence's resolution in ticks per quarter note.
+	 * @param charset              The charset that has been chosen in the file chooser.
+	 * @param analyzerMarkerTicks  Marker ticks from the {@link SequenceAnalyzer}.
+	 * @throws IOException if the results cannot be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void readFromCache(CacheReader in, int resolution, String charset, TreeSet<Long> analyzerMarkerTicks) throws IOException {
+		init(resolution, charset, analyzerMarkerTicks);
+		karaokeInfo        = (HashMap<String, Object>) in.readValue();
+		midiFileCharset    = in.readString();
+		karaokeMode        = in.readString();
+		karLineTick        = in.readLong();
+		karLineEnded       = in.readBoolean();
+		textTrackCounter   = (TreeMap<Integer, Integer>) in.readValue();
+		lyricsTrackCounter = (TreeMap<Integer, Integer>) in.readValue();
+		lyricsTrack        = in.readInt();
+		useLyrics          = in.readBoolean();
+		lyricsEventTicks   = (TreeSet<Long>) in.readValue();
+		lyrics             = (TreeMap<Long, TreeMap<Long, String>>) in.readValue();
+		lyricsFlat         = (TreeMap<Long, String>) in.readValue();
+		karaokeInfo.put("lyrics", lyrics);
+	}
+	
 	/**
 	 * Resets the character set detected in the sequence.
 	 * Called from the SequenceAnalyzer between several parsing runs of the same sequence.
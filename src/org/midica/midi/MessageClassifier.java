@@ -38,12 +38,54 @@ public class MessageClassifier {
 	
 	private static final int INVALID_BYTE = 0xF7;
 	
+	/** category ID flag for meta messages, to be combined with the type */
+	private static final long META_CATEGORY = 1L << 48;
+	
+	/** two-digit hex strings of all byte values */
+	private static final String[] HEX_BYTES = new String[256];
+	
+	/** status byte ranges of channel messages ("80-8F", "90-9F", ...) by command nibble */
+	private static final String[] STATUS_RANGES = new String[16];
+	
+	static {
+		for (int i = 0; i < HEX_BYTES.length; i++)
+			HEX_BYTES[i] = String.format("%02X", i);
+		for (int i = 0; i < STATUS_RANGES.length; i++)
+			STATUS_RANGES[i] = String.format("%1X0-%1XF", i, i);
+	}
+	
+	/**
+	 * Summaries of channel messages (without pitch bend) that have been created since
+	 * the last call of {@link #resetDescriptions()}.
+	 * 
+	 * The key contains length, command, percussion flag and data bytes.
+	 */
+	private static final HashMap<Integer, String> summaryByCategory = new HashMap<>();
+	
+	/** vendor names by vendor number, looked up since the last call of {@link #resetDescriptions()} */
+	private static final HashMap<String, String> vendorNames = new HashMap<>();
+	
+	/** universal SysEx texts by real time flag and Sub-IDs, created since the last call of {@link #resetDescriptions()} */
+	private static final HashMap<Integer, String[]> universalSysexTexts = new HashMap<>();
+	
 	/**
 	 * Private constructor because this class is only used statically.
 	 */
 	private MessageClassifier() {
 	}
 	
+	/**
+	 * Forgets all summaries and names that have been created so far.
+	 * 
+	 * This must be called before analyzing a new sequence so that the descriptions
+	 * match the current language, note system and so on.
+	 */
+	public static final void resetDescriptions() {
+		summaryByCategory.clear();
+		vendorNames.clear();
+		universalSysexTexts.clear();
+	}
+	
 	/**
 	 * Returns a long and short description for the given message or message category.
 	 * 
@@ -422,14 +464,12 @@ public class MessageClassifier {
 	 * @param trackNum      Track number (beginning with 0).
 	 * @param msgNum        Number of the message inside the track.
 	 * @param messages      List of messages where the processed message will be added.
-	 * @param msgTreeModel  Tree model where the created leaf note will be added.
-	 * @throws ReflectiveOperationException if the message cannot be added to the tree model.
+	 * @param msgTreeBuilder  Builder of the tree model where the created leaf note will be added.
 	 */
 	public static final void processShortMessage(ShortMessage msg, long tick, int trackNum, int msgNum,
-		ArrayList<SingleMessage> messages, MidicaTreeModel msgTreeModel) throws ReflectiveOperationException {
+		ArrayList<SingleMessage> messages, MidicaTreeModel.Builder msgTreeBuilder) {
 		
 		// prepare data structures
-		ArrayList<String[]>      path            = new ArrayList<>();
 		HashMap<Integer, Object> details         = new HashMap<>();
 		HashMap<Integer, Object> distinctDetails = new HashMap<>();
 		int    msgLength = msg.getLength();
@@ -439,30 +479,143 @@ public class MessageClassifier {
 		int    data1     = msg.getData1();
 		int    data2     = msg.getData2();
 		
+		// message type
+		int     statusInt   = msg.getStatus();
+		boolean isSystemMsg = 0xF0 == (statusInt & 0xF0);
+		boolean isChModeMsg = ! isSystemMsg && 0xB0 == cmd && data1 >= 0x78 && data1 <= 0x7F;
+		
+		// message category (everything that has an influence on the tree path)
+		long    category     = (long) (isSystemMsg ? statusInt : cmd) << 40;
+		boolean isRpnOrNrpn  = false;
+		boolean isDataChange = false;
+		byte    paramMsb     = 0;
+		byte    paramLsb     = 0;
+		byte    paramType    = 0;
+		if (isChModeMsg) {
+			details.put( IMessageType.OPT_CONTROLLER, (byte) data1 );
+			category |= (long) data1 << 32;
+		}
+		else if (0xB0 == cmd) { // control change
+			
+			// There must be at least one data byte after the status byte.
+			// Otherwise: unknown controller.
+			if (msgLength > 1) {
+				details.put( IMessageType.OPT_CONTROLLER, (byte) data1 );
+			}
+			else {
+				// invalid data --> ctrlTxt: unknown
+				data1 = -1;
+			}
+			category |= (long) (data1 & 0xFF) << 32;
+			
+			if (data1 >= 0x62 && data1 <= 0x65) {
+				// RPN or NRPN
+				isRpnOrNrpn        = true;
+				String paramNumStr = HEX_BYTES[ data2 ];
+				if (data1 >= 0x64) {
+					distinctDetails.put( IMessageType.OPT_RPN, paramNumStr );
+				}
+				else {
+					distinctDetails.put( IMessageType.OPT_NRPN, paramNumStr );
+				}
+				category |= (long) data2 << 24;
+			}
+			else if ( 0x06 == data1       // data entry MSB
+			       || 0x26 == data1       // data entry LSB
+			       || 0x60 == data1       // data button increment
+			       || 0x61 == data1 ) {   // data button decrement
+				isDataChange = true;
+				
+				// get MSB, LSB and type (RPN/NRPN)
+				Byte[] paramMsbLsb = SequenceAnalyzer.getChannelParamMsbLsbType( (byte) channel, tick );
+				paramMsb  = paramMsbLsb[ 0 ];
+				paramLsb  = paramMsbLsb[ 1 ];
+				paramType = paramMsbLsb[ 2 ];
+				category |= (paramMsb & 0xFF) << 16 | (paramLsb & 0xFF) << 8 | (paramType & 0xFF);
+			}
+		}
+		
+		// count the tree path, creating it only once per category
+		MessageTreeNode leaf = (MessageTreeNode) msgTreeBuilder.count(category);
+		if (null == leaf) {
+			String[][] levels = createShortMessagePath(statusInt, cmd, data1, data2, isSystemMsg, isChModeMsg,
+				isRpnOrNrpn, isDataChange, paramMsb, paramLsb, paramType);
+			leaf = (MessageTreeNode) msgTreeBuilder.register(category, levels);
+		}
+		
+		// get general details
+		if (isSystemMsg) {
+			details.put( IMessageType.OPT_STATUS_BYTE, HEX_BYTES[statusInt] );
+		}
+		else {
+			// status byte contains command and channel
+			details.put( IMessageType.OPT_STATUS_BYTE, STATUS_RANGES[cmd >> 4] );
+			distinctDetails.put( IMessageType.OPT_CHANNEL, channel );
+		}
+		details.put( IMessageType.OPT_LENGTH,  msgLength );
+		details.put( IMessageType.OPT_TICK,    tick      );
+		details.put( IMessageType.OPT_MSG_NUM, msgNum    );
+		distinctDetails.put( IMessageType.OPT_TRACK, trackNum );
+		
+		// add message to the data structures
+		SingleMessage singleMessage = new SingleMessage();
+		messages.add(singleMessage);
+		
+		// add details to the leaf node and the message details
+		for (Entry<Integer, Object> detailEntry : details.entrySet()) {
+			leaf.setOption(          detailEntry.getKey(), detailEntry.getValue() );
+			singleMessage.setOption( detailEntry.getKey(), detailEntry.getValue() );
+		}
+		for (Entry<Integer, Object> detailEntry : distinctDetails.entrySet()) {
+			leaf.setDistinctOption(  detailEntry.getKey(), (Comparable<?>) detailEntry.getValue() );
+			singleMessage.setOption( detailEntry.getKey(), detailEntry.getValue() );
+		}
+		singleMessage.setOption( IMessageType.OPT_STATUS_BYTE, HEX_BYTES[statusInt] );
+		singleMessage.setOption( IMessageType.OPT_LEAF_NODE, leaf );
+		singleMessage.setOption( IMessageType.OPT_MESSAGE, message );
+		String summary = getChannelMsgSummary(singleMessage, statusInt, msgLength, channel, data1, data2);
+		if (summary.length() > 0)
+			singleMessage.setOption( IMessageType.OPT_SUMMARY, summary );
+	}
+	
+	/**
+	 * Creates the message tree path of a short message.
+	 * 
+	 * @param statusInt     status byte
+	 * @param cmd           command (first 4 bits of the status byte)
+	 * @param data1         first data byte or **-1**, if it's a control change without data
+	 * @param data2         second data byte
+	 * @param isSystemMsg   **true** for system common and system realtime messages
+	 * @param isChModeMsg   **true** for channel mode messages
+	 * @param isRpnOrNrpn   **true**, if an (N)RPN MSB or LSB is set
+	 * @param isDataChange  **true** for data entry/increment/decrement
+	 * @param msb           (N)RPN MSB of the data change
+	 * @param lsb           (N)RPN LSB of the data change
+	 * @param type          **1** for RPN, **0** for NRPN, **-1** for none
+	 * @return the node options (id, name, number) for each level.
+	 */
+	private static final String[][] createShortMessagePath(int statusInt, int cmd, int data1, int data2,
+		boolean isSystemMsg, boolean isChModeMsg, boolean isRpnOrNrpn, boolean isDataChange,
+		byte msb, byte lsb, byte type) {
+		
+		ArrayList<String[]> path = new ArrayList<>();
+		
 		// level 1 node
-		int     statusInt     = msg.getStatus();
-		byte    statusByte    = (byte) statusInt;
-		byte    statusBitmask = (byte) 0b1111_1000;
-		boolean isSystemMsg   = false;
-		boolean isChModeMsg   = false;
-		if (((byte) 0b1111_1000) == (statusByte & statusBitmask)) {
+		if (isSystemMsg && (statusInt & 0b1111_1000) == 0b1111_1000) {
 			
 			// system realtime: 1111_1XXX
-			isSystemMsg      = true;
 			String[] msgLvl1 = { MSG_LVL_1_SORT_SYS_RT, Dict.get(Dict.MSG1_SYSTEM_REALTIME), null };
 			path.add( msgLvl1 );
 		}
-		else if (((byte) 0b1111_0000) == (statusByte & statusBitmask)) {
+		else if (isSystemMsg) {
 			
 			// system common: 1111_0XXX
-			isSystemMsg      = true;
 			String[] msgLvl1 = { MSG_LVL_1_SORT_SYS_COM, Dict.get(Dict.MSG1_SYSTEM_COMMON), null };
 			path.add( msgLvl1 );
 		}
-		else if (0xB0 == cmd && data1 >= 0x78 && data1 <= 0x7F) {
+		else if (isChModeMsg) {
 			
 			// channel mode
-			isChModeMsg      = true;
 			String[] msgLvl1 = { MSG_LVL_1_SORT_CH_MODE, Dict.get(Dict.MSG1_CH_MODE), null };
 			path.add( msgLvl1 );
 		}
@@ -474,8 +627,8 @@ public class MessageClassifier {
 		
 		// level 2 nodes for system common & system realtime
 		if (isSystemMsg) {
-			String   statusID   = String.format( "%02X", statusByte );
-			String   statusStr  = (statusByte & 0xFF) + "";
+			String   statusID   = HEX_BYTES[ statusInt ];
+			String   statusStr  = statusInt + "";
 			String   statusText = getLvl2SystemMsgTxtByStatusByte( statusInt );
 			String[] msgLvl2    = { statusID, statusText, statusStr };
 			path.add( msgLvl2 );
@@ -483,17 +636,16 @@ public class MessageClassifier {
 		
 		// level 2 for channel mode messages
 		else if (isChModeMsg) {
-			String   commandID   = String.format( "%02X", data1 );
+			String   commandID   = HEX_BYTES[ data1 ];
 			String   commandStr  = data1 + "";
 			String   commandText = getLvl2ModeMsgTxtByData1(data1);
 			String[] msgLvl2     = { commandID, commandText, commandStr };
 			path.add( msgLvl2 );
-			details.put( IMessageType.OPT_CONTROLLER, (byte) data1 );
 		}
 		
 		// level 2 and 3 nodes for channel voice messages
 		else {
-			String   commandID   = String.format( "%02X", cmd );
+			String   commandID   = HEX_BYTES[ cmd ];
 			String   commandStr  = cmd + "";
 			String   commandText = getLvl2VoiceMsgTxtByCommand( cmd );
 			String[] msgLvl2     = { commandID, commandText, commandStr };
@@ -502,38 +654,11 @@ public class MessageClassifier {
 			// level 3 and 4 nodes (controllers)
 			if (0xB0 == cmd) { // control change
 				
-				// There must be at least one data byte after the status byte.
-				// Otherwise: unknown controller.
-				if (msgLength > 1) {
-					details.put( IMessageType.OPT_CONTROLLER, (byte) data1 );
-				}
-				else {
-					// invalid data --> ctrlTxt: unknown
-					data1 = -1;
-				}
-				
 				// level 3
-				byte    data1Byte    = (byte) data1;
-				byte    ctrlBitmask  = (byte) 0b1101_1111; // 3rd bit: MSB or LSB
-				boolean isRpnOrNrpn  = false;
-				boolean isDataChange = false;
-				if (data1 >= 0x62 && data1 <= 0x65) {
-					// RPN or NRPN
-					isRpnOrNrpn        = true;
-					ctrlBitmask        = (byte) 0b1111_1110; // last bit: MSB or LSB
-					String paramNumStr = String.format( "%02X", data2 );
-					if (data1 >= 0x64) {
-						distinctDetails.put( IMessageType.OPT_RPN, paramNumStr );
-					}
-					else {
-						distinctDetails.put( IMessageType.OPT_NRPN, paramNumStr );
-					}
-				}
-				else if ( 0x06 == data1       // data entry MSB
-				       || 0x26 == data1       // data entry LSB
-				       || 0x60 == data1       // data button increment
-				       || 0x61 == data1 ) {   // data button decrement
-					isDataChange = true;
+				byte data1Byte   = (byte) data1;
+				byte ctrlBitmask = (byte) 0b1101_1111; // 3rd bit: MSB or LSB
+				if (isRpnOrNrpn) {
+					ctrlBitmask = (byte) 0b1111_1110; // last bit: MSB or LSB
 				}
 				byte     ctrlPart = (byte) ( data1Byte & ctrlBitmask ); // same like the MSB
 				String   ctrlID   = String.format( "%02X", ctrlPart );
@@ -549,7 +674,7 @@ public class MessageClassifier {
 				
 				// level 4 (MSB or LSB)
 				if (ctrlTxt[1] != null) {
-					String   data1ID   = String.format("%02X", data1);
+					String   data1ID   = HEX_BYTES[ data1 ];
 					String   msbLsbStr = data1 + "";
 					String[] msgLvl4   = { data1ID, ctrlTxt[1], msbLsbStr };
 					path.add( msgLvl4 );
@@ -558,9 +683,9 @@ public class MessageClassifier {
 				// level 5 for (N)RPN (only MSB or LSB number)
 				if (isRpnOrNrpn) {
 					String [] msgLvl5 = {
-						String.format("%02X", data2),        // ID
-						"0x" + String.format("%02X", data2), // text
-						data2 + ""                           // number
+						HEX_BYTES[ data2 ],        // ID
+						"0x" + HEX_BYTES[ data2 ], // text
+						data2 + ""                 // number
 					};
 					path.add( msgLvl5 );
 				}
@@ -568,12 +693,6 @@ public class MessageClassifier {
 				// level 4 and 5 data entry/increment/decrement for RPN or NRPN
 				if (isDataChange) {
 					
-					// get MSB, LSB and type (RPN/NRPN)
-					Byte[] paramMsbLsb = SequenceAnalyzer.getChannelParamMsbLsbType( (byte) channel, tick );
-					byte msb  = paramMsbLsb[ 0 ];
-					byte lsb  = paramMsbLsb[ 1 ];
-					byte type = paramMsbLsb[ 2 ];
-					
 					// Put a new level 4 node (param name) between controller
 					// name and MSB/LSB. So the old level 4 becomes level 5.
 					String[] paramFields = getLvl4RpnNrpnDataTxt( msb, lsb, type );
@@ -586,44 +705,36 @@ public class MessageClassifier {
 			}
 		}
 		
-		// get general details
-		if (isSystemMsg) {
-			details.put( IMessageType.OPT_STATUS_BYTE, String.format("%02X", statusByte) );
-		}
-		else {
-			// status byte contains command and channel
-			byte cmdByte     = (byte) ( cmd & 0b1111_0000 );
-			String cmdHex    = String.format( "%01X", cmdByte );
-			cmdHex           = cmdHex.substring( 0, 1 );
-			String statusStr = cmdHex + "0-" + cmdHex + "F";
-			details.put( IMessageType.OPT_STATUS_BYTE, statusStr );
-			distinctDetails.put( IMessageType.OPT_CHANNEL, channel );
-		}
-		details.put( IMessageType.OPT_LENGTH,  msgLength );
-		details.put( IMessageType.OPT_TICK,    tick      );
-		details.put( IMessageType.OPT_MSG_NUM, msgNum    );
-		distinctDetails.put( IMessageType.OPT_TRACK, trackNum );
-		
-		// add message to the data structures
-		MessageTreeNode leaf          = (MessageTreeNode) msgTreeModel.add(path, null);
-		SingleMessage   singleMessage = new SingleMessage();
-		messages.add(singleMessage);
-		
-		// add details to the leaf node and the message details
-		for (Entry<Integer, Object> detailEntry : details.entrySet()) {
-			leaf.setOption(          detailEntry.getKey(), detailEntry.getValue() );
-			singleMessage.setOption( detailEntry.getKey(), detailEntry.getValue() );
-		}
-		for (Entry<Integer, Object> detailEntry : distinctDetails.entrySet()) {
-			leaf.setDistinctOption(  detailEntry.getKey(), (Comparable<?>) detailEntry.getValue() );
-			singleMessage.setOption( detailEntry.getKey(), detailEntry.getValue() );
-		}
-		singleMessage.setOption( IMessageType.OPT_STATUS_BYTE, String.format("%02X", statusByte) );
-		singleMessage.setOption( IMessageType.OPT_LEAF_NODE, leaf );
-		singleMessage.setOption( IMessageType.OPT_MESSAGE, message );
-		String[] desc = getDescription(singleMessage);
-		if (desc[1].length() > 0)
-			singleMessage.setOption( IMessageType.OPT_SUMMARY, desc[1] );
+		return path.toArray(new String[0][]);
+	}
+	
+	/**
+	 * Returns the summary of a channel message.
+	 * 
+	 * The summary of a message category is created only once by {@link #getDescription(IMessageType)}
+	 * and then reused for all further messages of the same category. The summaries of pitch bend
+	 * messages and system messages are not reused because they depend on more than the message itself.
+	 * 
+	 * @param message    the message with all options needed by {@link #getDescription(IMessageType)}
+	 * @param statusInt  status byte
+	 * @param msgLength  message length
+	 * @param channel    MIDI channel
+	 * @param data1      first data byte
+	 * @param data2      second data byte
+	 * @return the summary or an empty string, if there is no summary.
+	 */
+	private static final String getChannelMsgSummary(SingleMessage message, int statusInt, int msgLength, int channel, int data1, int data2) {
+		int cmd = statusInt & 0xF0;
+		if (0xF0 == cmd || 0xE0 == cmd)
+			return getDescription(message)[1];
+		
+		int    key     = msgLength << 24 | cmd << 16 | (9 == channel ? 1 : 0) << 15 | (data1 & 0x7F) << 8 | data2;
+		String summary = summaryByCategory.get(key);
+		if (null == summary) {
+			summary = getDescription(message)[1];
+			summaryByCategory.put(key, summary);
+		}
+		return summary;
 	}
 	
 	/**
@@ -638,17 +749,15 @@ public class MessageClassifier {
 	 * @param trackNum         Track number (beginning with 0).
 	 * @param msgNum           Number of the message inside the track.
 	 * @param messages         List of messages where the processed message will be added.
-	 * @param msgTreeModel     Tree model where the created leaf note will be added.
+	 * @param msgTreeBuilder   Builder of the tree model where the created leaf note will be added.
 	 * @param chosenCharset    Charset that has been chosen with the file chooser.
 	 * @param midiFileCharset  The last charset from a charset switch inside of a lyrics message.
-	 * @throws ReflectiveOperationException if the message cannot be added to the tree model.
 	 */
 	public static final void processMetaMessage(MetaMessage msg, long tick, int trackNum, int msgNum,
-		ArrayList<SingleMessage> messages, MidicaTreeModel msgTreeModel,
-		String chosenCharset, String midiFileCharset) throws ReflectiveOperationException {
+		ArrayList<SingleMessage> messages, MidicaTreeModel.Builder msgTreeBuilder,
+		String chosenCharset, String midiFileCharset) {
 		
 		// prepare data structures for the message tree
-		ArrayList<String[]>      path            = new ArrayList<>();
 		HashMap<Integer, Object> details         = new HashMap<>();
 		HashMap<Integer, Object> distinctDetails = new HashMap<>();
 		int    type      = msg.getType();
@@ -665,19 +774,28 @@ public class MessageClassifier {
 			distinctDetails.put(IMessageType.OPT_TEMPO_BPM, bpm);
 		}
 		
-		// level 1 node
-		String[] msgLvl1 = { MSG_LVL_1_SORT_META, Dict.get(Dict.MSG1_META), null };
-		path.add( msgLvl1 );
-		
-		// level 2 node
-		String   typeID  = String.format( "%02X", type );
-		String   typeTxt = getLvl2MetaText( type );
-		String   typeStr = type + "";
-		String[] msgLvl2 = { typeID, typeTxt, typeStr };
-		path.add( msgLvl2 );
+		// count the tree path, creating it only once per type
+		long            category = META_CATEGORY | type;
+		boolean         isSeqSpe = MidiListener.META_SEQUENCER_SPECIFIC == type;
+		MessageTreeNode leaf     = isSeqSpe ? null : (MessageTreeNode) msgTreeBuilder.count(category);
+		ArrayList<String[]> path = null;
+		if (null == leaf) {
+			path = new ArrayList<>();
+			
+			// level 1 node
+			String[] msgLvl1 = { MSG_LVL_1_SORT_META, Dict.get(Dict.MSG1_META), null };
+			path.add( msgLvl1 );
+			
+			// level 2 node
+			String   typeID  = HEX_BYTES[ type ];
+			String   typeTxt = getLvl2MetaText( type );
+			String   typeStr = type + "";
+			String[] msgLvl2 = { typeID, typeTxt, typeStr };
+			path.add( msgLvl2 );
+		}
 		
 		// level 3 node - vendor for sequencer specific messages
-		if (MidiListener.META_SEQUENCER_SPECIFIC == type) {
+		if (isSeqSpe) {
 			String vendorID  = "FF"; // sort invalid vendor IDs to the end
 			String vendorHex = "-";
 			String vendorStr = "-";
@@ -725,8 +843,11 @@ public class MessageClassifier {
 		distinctDetails.put( IMessageType.OPT_TRACK, trackNum );
 		
 		// add message to the data structures
-		MessageTreeNode leaf          = (MessageTreeNode) msgTreeModel.add(path, null);
-		SingleMessage   singleMessage = new SingleMessage();
+		if (isSeqSpe)
+			leaf = (MessageTreeNode) msgTreeBuilder.add(path);
+		else if (null == leaf)
+			leaf = (MessageTreeNode) msgTreeBuilder.register(category, path.toArray(new String[0][]));
+		SingleMessage singleMessage = new SingleMessage();
 		messages.add(singleMessage);
 		
 		// add details to the leaf node and the message details
@@ -757,11 +878,10 @@ public class MessageClassifier {
 	 * @param trackNum      Track number (beginning with 0).
 	 * @param msgNum        Number of the message inside the track.
 	 * @param messages      List of messages where the processed message will be added.
-	 * @param msgTreeModel  Tree model where the created leaf note will be added.
-	 * @throws ReflectiveOperationException if the message cannot be added to the tree model.
+	 * @param msgTreeBuilder  Builder of the tree model where the created leaf note will be added.
 	 */
 	public static final void processSysexMessage(SysexMessage msg, long tick, int trackNum, int msgNum,
-		ArrayList<SingleMessage> messages, MidicaTreeModel msgTreeModel) throws ReflectiveOperationException {
+		ArrayList<SingleMessage> messages, MidicaTreeModel.Builder msgTreeBuilder) {
 		
 		// prepare data structures
 		ArrayList<String[]>      path            = new ArrayList<>();
@@ -960,7 +1080,7 @@ public class MessageClassifier {
 		distinctDetails.put( IMessageType.OPT_TRACK, trackNum  );
 		
 		// add message to the data structures
-		MessageTreeNode leaf          = (MessageTreeNode) msgTreeModel.add(path, null);
+		MessageTreeNode leaf          = (MessageTreeNode) msgTreeBuilder.add(path);
 		SingleMessage   singleMessage = new SingleMessage();
 		messages.add(singleMessage);
 		
@@ -1484,12 +1604,33 @@ public class MessageClassifier {
 	 * 
 	 * The 4th element is only available for MIDI-CI messages.
 	 * 
+	 * The texts are created only once per combination of the parameters.
+	 * 
 	 * @param isRealTime  **true** for Real Time messages, **false** for Non Real Time messages.
 	 * @param sub1        **Sub-ID 1** (4th byte of the message)
 	 * @param sub2        **Sub-ID 2** (5th byte of the message)
 	 * @return level 4, 5 and 6 text and Sub-ID 2, as described above.
 	 */
 	private static final String[] getLvl456UniversalSysexTxt(boolean isRealTime, int sub1, int sub2) {
+		int      key   = (isRealTime ? 1 : 0) << 16 | sub1 << 8 | sub2;
+		String[] texts = universalSysexTexts.get(key);
+		if (null == texts) {
+			texts = createLvl456UniversalSysexTxt(isRealTime, sub1, sub2);
+			universalSysexTexts.put(key, texts);
+		}
+		return texts;
+	}
+	
+	/**
+	 * Creates the level 4, 5 and 6 texts of universal SysEx messages,
+	 * as described in {@link #getLvl456UniversalSysexTxt(boolean, int, int)}.
+	 * 
+	 * @param isRealTime  **true** for Real Time messages, **false** for Non Real Time messages.
+	 * @param sub1        **Sub-ID 1** (4th byte of the message)
+	 * @param sub2        **Sub-ID 2** (5th byte of the message)
+	 * @return level 4, 5 and 6 text and Sub-ID 2.
+	 */
+	private static final String[] createLvl456UniversalSysexTxt(boolean isRealTime, int sub1, int sub2) {
 		
 		// init fallback
 		boolean hasLvl5 = false;
@@ -1793,10 +1934,28 @@ public class MessageClassifier {
 	 * - a hex number consisting of 6 digits (3-byte-ID beginning with 00)
 	 * - the string "-" for a corrupted message without a valid vendor ID
 	 * 
+	 * The name is looked up only once per vendor number.
+	 * 
 	 * @param vendorNum  The vendor number as described above.
 	 * @return the vendor name.
 	 */
 	private static final String getVendorName(String vendorNum) {
+		String name = vendorNames.get(vendorNum);
+		if (null == name) {
+			name = findVendorName(vendorNum);
+			vendorNames.put(vendorNum, name);
+		}
+		return name;
+	}
+	
+	/**
+	 * Looks up the vendor name for the given vendor number,
+	 * as described in {@link #getVendorName(String)}.
+	 * 
+	 * @param vendorNum  The vendor number.
+	 * @return the vendor name.
+	 */
+	private static final String findVendorName(String vendorNum) {
 		
 		// invalid (vendor number not found, message too short)
 		if ("-".equals(vendorNum)) {
@@ -8,15 +8,20 @@
 package org.midica.midi;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
 import java.util.TreeMap;
 
+import javax.sound.midi.Instrument;
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MidiChannel;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.MidiSystem;
 import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Patch;
 import javax.sound.midi.Receiver;
 import javax.sound.midi.Sequence;
 import javax.sound.midi.Sequencer;
@@ -27,7 +32,9 @@ import javax.sound.midi.SysexMessage;
 import javax.sound.midi.Transmitter;
 import javax.swing.table.AbstractTableModel;
 
+import org.midica.config.Config;
 import org.midica.config.Dict;
+import org.midica.file.PhaseStats;
 import org.midica.file.read.SoundfontParser;
 import org.midica.ui.info.InstrumentElement;
 import org.midica.ui.player.PlayerController;
@@ -43,6 +50,14 @@ import org.midica.ui.player.PlayerController;
  * in order to create all devices, connect them with each other and pass the sequene to the
  * sequencer.
  * 
+ * The synthesizer (or the receiver of a hardware synthesizer) and its loaded instruments
+ * form a device session that survives a reparse. Before a reparse only the sequencer is
+ * destroyed with destroySequencer(). The next setupDevices() call reuses the synthesizer
+ * and only resets its channels. The synthesizer is only set up again, if another soundfont
+ * has been selected in the meantime, or after destroyDevices().
+ * 
+ * A progressive playback (see {@link ProgressivePlayer}) uses the same device session.
+ * 
  * The other methods of this class are mostly used by the player.
  * 
  * @author Jan Trukenmüller
@@ -59,14 +74,30 @@ public final class MidiDevices {
 	public static final int  DEFAULT_TEMPO_MPQ            = 60000000; // microseconds per quarter note
 	public static final int  NUMBER_OF_CHANNELS           =       16;
 	
+	/** controller -- value; sent to each channel when a synthesizer is reused */
+	private static final int[][] DEFAULT_CONTROLLERS = {
+		{ 120,  0 }, // all sound off
+		{ 121,  0 }, // reset all controllers
+		{   0,  0 }, // bank select MSB
+		{  32,  0 }, // bank select LSB
+		{  10, 64 }, // pan: center
+		{  91, 40 }, // reverb
+		{  93,  0 }, // chorus
+	};
+	
 	private static PlayerController playerController = null;
 	private static float       tempoFactor           = 1;
 	private static byte        masterVolumeMsb       = DEFAULT_MASTER_VOL_MSB;
 	private static byte        masterVolumeLsb       = DEFAULT_MASTER_VOL_LSB;
 	private static Sequence    seq;
 	private static Sequencer   sequencer;
+	private static UiTimelineClock uiClock;       // refreshes the player UI during playback
+	private static volatile boolean isRefreshSuspended = false; // analysis results are being rebuilt
 	private static Synthesizer synthesizer;
 	private static Receiver    receiver;
+	private static Receiver    synthReceiver;     // receiver of the software synthesizer
+	private static Soundbank   loadedSoundfont;   // selected soundfont when the synthesizer was set up
+	private static long        previewTick       = 0;  // where the progressive playback of the sequence stopped
 	// number of bars to skip on forward/rewind
 	private static int         skipQuarters      = 4;  //  4 quarter notes = 1 bar
 	private static int         skipFastQuarters  = 16; // 16 quarter notes = 4 bars
@@ -89,6 +120,19 @@ public final class MidiDevices {
 	/**   channel  --  program * 2^14 + bankMSB * 2^7 + bankLSB  --  instrument name */
 	private static TreeMap<Byte, TreeMap<Integer, String>> instruments = null;
 	
+	/**
+	 * Patch keys (see {@link #getPatchKey(boolean, int, int)}) of the selected soundfont's
+	 * instruments that have been loaded into the synthesizer.
+	 * **null**, if all instruments are loaded.
+	 */
+	private static HashSet<Integer> loadedPatches = null;
+	
+	/** patch key -- instruments of the selected soundfont (only needed for selective loading) */
+	private static HashMap<Integer, ArrayList<Instrument>> soundfontPatches = null;
+	
+	/** plays the soundcheck auditions */
+	private static final SoundcheckScheduler soundcheck = new SoundcheckScheduler();
+	
 	// ring buffer for note history
 	private static ArrayList<AbstractTableModel> noteHistoryObservers = null;
 	
@@ -106,7 +150,18 @@ public final class MidiDevices {
 	 * @param sequence    The sequence to be set.
 	 */
 	public static void setSequence( Sequence sequence ) {
-		seq = sequence;
+		seq         = sequence;
+		previewTick = 0;
+	}
+	
+	/**
+	 * Remembers the position where the progressive playback of the current sequence
+	 * has been stopped, so that the player starts there.
+	 * 
+	 * @param tick  tick position, or **-1** if no progressive playback has been active
+	 */
+	public static void setPreviewTick( long tick ) {
+		previewTick = Math.max( 0, tick );
 	}
 	
 	/**
@@ -147,8 +202,17 @@ public final class MidiDevices {
 		// initialize sequencer and get transmitter
 		Transmitter trans = setupSequencer();
 		
-		// initialize synthesizer and get receiver
-		Receiver rec = setupSynthesizer();
+		// initialize synthesizer and get receiver - or reuse the open device session
+		Receiver rec;
+		if ( isSessionOpen() ) {
+			rec = ( null == receiver ) ? synthReceiver : receiver;
+			resetChannels();
+			if ( loadedPatches != null )
+				loadUsedInstruments( false );
+		}
+		else {
+			rec = setupSynthesizer( false );
+		}
 		
 		// connect sequencer with synthesizer
 		trans.setReceiver( rec );
@@ -191,7 +255,7 @@ public final class MidiDevices {
 		// initialize sequencer
 		if ( null == seq )
 			throw new SequenceNotSetException();
-		sequencer = MidiSystem.getSequencer( false );
+		sequencer = createSequencer();
 		
 		// initialize listeners
 		MidiListener listener = new MidiListener( playerController );
@@ -200,17 +264,179 @@ public final class MidiDevices {
 		sequencer.open();
 		sequencer.setSequence( seq );
 		
+		// take over the position of the progressive playback
+		long tick = ProgressivePlayer.stop();
+		if ( tick > 0 )
+			previewTick = tick;
+		if ( previewTick > 0 )
+			sequencer.setTickPosition( previewTick );
+		previewTick = 0;
+		
+		startUiClock();
+		
 		return sequencer.getTransmitter();
 	}
 	
+	/**
+	 * Creates the sequencer that is configured with the config key **sequencer**.
+	 * 
+	 * @return the sequencer (not yet opened).
+	 * @throws MidiUnavailableException if the sequencer of the JDK is not available.
+	 */
+	static Sequencer createSequencer() throws MidiUnavailableException {
+		if ( Config.SEQUENCER_SCHEDULER.equals(Config.get(Config.SEQUENCER)) )
+			return new EventScheduler();
+		return MidiSystem.getSequencer( false );
+	}
+	
+	/**
+	 * Opens the device session for a progressive playback, or reuses the open session.
+	 * 
+	 * If only the used instruments are loaded, a newly opened session doesn't contain
+	 * any instrument of the selected soundfont yet, because the sequence has not yet been
+	 * analyzed. Then the progressive playback loads them with
+	 * {@link #loadPreviewInstrument(int, int, int)} while the sequence is created.
+	 * 
+	 * Problems with the selected soundfont are not shown here, because the player is not
+	 * open. Instead the session is closed again so that the problem is shown by the next
+	 * {@link #setupDevices(PlayerController)}.
+	 * 
+	 * @return the receiver of the session, or **null** if the session is used by the player.
+	 * @throws MidiUnavailableException if a device is not reachable or the soundfont cannot be used.
+	 */
+	static Receiver openPreviewSession() throws MidiUnavailableException {
+		if ( null != sequencer )
+			return null;
+		if ( isSessionOpen() )
+			resetChannels();
+		else
+			setupSynthesizer( true );
+		
+		// instruments that are used without a program change
+		loadInstrument( false, 0, 0 );
+		loadInstrument( true, 0, 0 );
+		
+		return ( null == receiver ) ? synthReceiver : receiver;
+	}
+	
+	/**
+	 * Loads the instruments that are needed for a program change of the progressive
+	 * playback, if only the used instruments are loaded.
+	 * 
+	 * @param channel  MIDI channel
+	 * @param bank     bank number (bankMSB * 2^7 + bankLSB)
+	 * @param program  program number
+	 */
+	static void loadPreviewInstrument( int channel, int bank, int program ) {
+		loadInstrument( 9 == channel, bank, program );
+	}
+	
+	/**
+	 * Starts a clock that follows the UI timeline of the current analysis results.
+	 * Stops the old clock, if any, and ends a suspension of the UI refresh.
+	 */
+	private static void startUiClock() {
+		if ( null != uiClock )
+			uiClock.die();
+		UiTimeline timeline = SequenceAnalyzer.getUiTimeline();
+		if ( null == timeline )
+			timeline = new UiTimeline.Builder().build();
+		uiClock = new UiTimelineClock( sequencer, timeline );
+		uiClock.seek( sequencer.getTickPosition() );
+		uiClock.start();
+		isRefreshSuspended = false;
+	}
+	
+	/**
+	 * Suspends the refresh of channel activity, note history, instruments and lyrics
+	 * while the sequencer keeps playing.
+	 * 
+	 * Must be called before a file is parsed in the background during playback,
+	 * because the parser rebuilds the analysis results that are needed for the refresh.
+	 * The suspension ends with {@link #swapSequence()}, {@link #keepSequence(SequenceAnalyzer.Snapshot)}
+	 * or when the sequencer is set up again.
+	 */
+	public static void suspendRefresh() {
+		isRefreshSuspended = true;
+	}
+	
+	/**
+	 * Replaces the sequence of the sequencer by the sequence of the last successful
+	 * parsing, without closing any device.
+	 * 
+	 * The playback continues at the same position. If the resolution has changed, the
+	 * position is converted. Notes that sound at the swap point are stopped, but the
+	 * old sequence keeps playing until the new one is ready.
+	 * 
+	 * Instruments that are used by the new sequence are loaded before the swap.
+	 * 
+	 * @throws InvalidMidiDataException if the sequence contains invalid data.
+	 */
+	public static void swapSequence() throws InvalidMidiDataException {
+		if ( null == sequencer || null == seq )
+			return;
+		
+		// load new instruments before interrupting the playback
+		if ( isSessionOpen() && loadedPatches != null )
+			loadUsedInstruments( false );
+		
+		// convert the position
+		long     tick   = sequencer.getTickPosition();
+		Sequence oldSeq = sequencer.getSequence();
+		if ( null != oldSeq && oldSeq.getResolution() != seq.getResolution() )
+			tick = tick * seq.getResolution() / oldSeq.getResolution();
+		tick = Math.min( tick, seq.getTickLength() );
+		
+		// swap
+		boolean isRunning = sequencer.isRunning();
+		if ( isRunning )
+			sequencer.stop();
+		sequencer.setSequence( seq );
+		sequencer.setTickPosition( tick );
+		if ( isRunning )
+			sequencer.start();
+		
+		// refresh the player UI according to the new analysis results
+		startUiClock();
+		refreshAll();
+		rememberVolume();
+	}
+	
+	/**
+	 * Takes over the sequence that is still played by the sequencer after a failed
+	 * parsing in the background.
+	 * 
+	 * The analysis results of the played sequence are restored from the given snapshot
+	 * and the refresh is resumed. If that's not possible, the refresh stays suspended
+	 * because the analysis results don't belong to the sequence any more.
+	 * 
+	 * @param snapshot  analysis results of the played sequence, taken before the parsing, or **null**
+	 */
+	public static void keepSequence( SequenceAnalyzer.Snapshot snapshot ) {
+		if ( null == sequencer )
+			return;
+		seq = sequencer.getSequence();
+		
+		if ( null == snapshot || ! SequenceAnalyzer.restoreSnapshot(snapshot) )
+			return;
+		startUiClock();
+		refreshAll();
+	}
+	
 	/**
 	 * Initializes a software or hardware synthesizer.
 	 * If a soundfont file has been selected, loads this file into the synthesizer.
 	 * 
+	 * @param isPreview  **true** if the synthesizer is set up for a progressive playback
 	 * @return    A receiver object, connected to the hardware or software synthesizer.
-	 * @throws MidiUnavailableException    if a device is not reachable.
+	 * @throws MidiUnavailableException    if a device is not reachable, or if the soundfont
+	 *                                     cannot be used for a progressive playback.
 	 */
-	private static Receiver setupSynthesizer() throws MidiUnavailableException {
+	private static Receiver setupSynthesizer( boolean isPreview ) throws MidiUnavailableException {
+		
+		// close the devices of an outdated session
+		destroySynthesizer();
+		loadedSoundfont = selectedSoundfont;
 		
 		// get synthesizer
 		synthesizer = MidiSystem.getSynthesizer();
@@ -228,7 +454,10 @@ public final class MidiDevices {
 				
 				// soundfont supported?
 				if ( synthesizer.isSoundbankSupported(selectedSoundfont) ) {
-					isCustomSoundfontLoaded = synthesizer.loadAllInstruments( selectedSoundfont );
+					if ( Config.SF2_LOADING_USED.equals(Config.get(Config.SF2_LOADING)) )
+						isCustomSoundfontLoaded = loadUsedInstruments( isPreview );
+					else
+						isCustomSoundfontLoaded = synthesizer.loadAllInstruments( selectedSoundfont );
 					
 					// load instruments from custom soundfont
 					if (isCustomSoundfontLoaded)
@@ -236,11 +465,11 @@ public final class MidiDevices {
 					
 					// soundbank not loaded
 					else
-						playerController.showErrorMessage( Dict.get(Dict.ERROR_SOUNDFONT_LOADING_FAILED) );
+						showSoundfontError( Dict.ERROR_SOUNDFONT_LOADING_FAILED, isPreview );
 				}
 				else {
 					// soundfont not supported
-					playerController.showErrorMessage( Dict.get(Dict.ERROR_SOUNDFONT_NOT_SUPPORTED) );
+					showSoundfontError( Dict.ERROR_SOUNDFONT_NOT_SUPPORTED, isPreview );
 				}
 			}
 			
@@ -248,7 +477,7 @@ public final class MidiDevices {
 			if ( ! isCustomSoundfontLoaded )
 				initInstrumentsIfNotYetDone( isSoftware );
 			
-			rec = synthesizer.getReceiver();
+			rec = synthReceiver = synthesizer.getReceiver();
 		}
 		else {
 			// hardware
@@ -259,6 +488,216 @@ public final class MidiDevices {
 		return rec;
 	}
 	
+	/**
+	 * Shows a problem with the selected soundfont in the player.
+	 * 
+	 * For a progressive playback the device session is closed instead,
+	 * so that the problem is shown when the player is set up.
+	 * 
+	 * @param key        Dictionary key of the error message.
+	 * @param isPreview  **true** if the synthesizer is set up for a progressive playback
+	 * @throws MidiUnavailableException for a progressive playback.
+	 */
+	private static void showSoundfontError( String key, boolean isPreview ) throws MidiUnavailableException {
+		if ( isPreview ) {
+			destroySynthesizer();
+			throw new MidiUnavailableException( Dict.get(key) );
+		}
+		playerController.showErrorMessage( Dict.get(key) );
+	}
+	
+	/**
+	 * Loads only the instruments of the selected soundfont that are used by the
+	 * current sequence, according to the instrument history of the {@link SequenceAnalyzer}.
+	 * 
+	 * Instruments that have already been loaded are not loaded again. So this can also
+	 * be called after a reparse, for a reused synthesizer.
+	 * 
+	 * For each used instrument the synthesizer's fallback instruments (program 0 and the
+	 * same program in bank 0) are loaded as well, so that missing instruments sound the
+	 * same as after loading all instruments.
+	 * 
+	 * Falls back to loading all instruments, if the sequence has not been analyzed.
+	 * 
+	 * For a progressive playback no instrument is loaded, because the sequence is still
+	 * being created and the analysis results belong to the last sequence.
+	 * 
+	 * @param isPreview  **true** if the synthesizer is set up for a progressive playback
+	 * @return **true** if all instruments have been loaded successfully, otherwise **false**.
+	 */
+	private static boolean loadUsedInstruments( boolean isPreview ) {
+		TreeMap<Byte, TreeMap<Long, Byte[]>> instrumentHistory = SequenceAnalyzer.getInstrumentHistory();
+		if ( isPreview )
+			instrumentHistory = new TreeMap<Byte, TreeMap<Long, Byte[]>>();
+		if ( null == instrumentHistory ) {
+			loadedPatches = null;
+			return synthesizer.loadAllInstruments( selectedSoundfont );
+		}
+		
+		// index the soundfont's instruments
+		if ( null == soundfontPatches ) {
+			soundfontPatches = new HashMap<>();
+			loadedPatches    = new HashSet<>();
+			for ( Instrument instr : selectedSoundfont.getInstruments() ) {
+				Patch patch = instr.getPatch();
+				for ( int isDrum = 0; isDrum < 2; isDrum++ ) {
+					if ( ! isChannelSupported(instr, 1 == isDrum ? 9 : 0) )
+						continue;
+					int key = getPatchKey( 1 == isDrum, patch.getBank(), patch.getProgram() );
+					ArrayList<Instrument> patchInstruments = soundfontPatches.get( key );
+					if ( null == patchInstruments ) {
+						patchInstruments = new ArrayList<>();
+						soundfontPatches.put( key, patchInstruments );
+					}
+					patchInstruments.add( instr );
+				}
+			}
+		}
+		
+		// load the used instruments
+		boolean success = true;
+		for ( Entry<Byte, TreeMap<Long, Byte[]>> channelEntry : instrumentHistory.entrySet() ) {
+			boolean isDrum = 9 == channelEntry.getKey();
+			for ( Byte[] config : channelEntry.getValue().values() ) {
+				int bank = ( config[0] << 7 ) | config[1];
+				success &= loadInstrument( isDrum, bank, config[2] );
+			}
+		}
+		
+		return success;
+	}
+	
+	/**
+	 * Loads the instruments of the selected soundfont that are needed to play the given
+	 * program, if not yet done.
+	 * 
+	 * That includes the synthesizer's fallback instruments (see {@link #loadUsedInstruments(boolean)}).
+	 * 
+	 * @param isDrum   **true** for percussion channels, otherwise **false**
+	 * @param bank     bank number (bankMSB * 2^7 + bankLSB)
+	 * @param program  program number
+	 * @return **false**, if an instrument could not be loaded, otherwise **true**.
+	 */
+	private static boolean loadInstrument( boolean isDrum, int bank, int program ) {
+		if ( null == loadedPatches || null == synthesizer )
+			return true;
+		
+		boolean success = loadPatch( isDrum, bank, program );
+		if ( bank != 0 )
+			success &= loadPatch( isDrum, 0, program );
+		success &= loadPatch( isDrum, 0, 0 );
+		
+		return success;
+	}
+	
+	/**
+	 * Loads all instruments of the selected soundfont matching the given patch, if not yet done.
+	 * 
+	 * @param isDrum   **true** for percussion instruments, otherwise **false**
+	 * @param bank     bank number
+	 * @param program  program number
+	 * @return **false**, if an instrument could not be loaded, otherwise **true**.
+	 */
+	private static boolean loadPatch( boolean isDrum, int bank, int program ) {
+		int key = getPatchKey( isDrum, bank, program );
+		if ( ! loadedPatches.add(key) )
+			return true;
+		
+		ArrayList<Instrument> patchInstruments = soundfontPatches.get( key );
+		if ( null == patchInstruments )
+			return true; // not available in the soundfont
+		
+		boolean success = true;
+		for ( Instrument instr : patchInstruments )
+			success &= synthesizer.loadInstrument( instr );
+		
+		return success;
+	}
+	
+	/**
+	 * Returns a key identifying a patch in a percussion or chromatic channel.
+	 * 
+	 * @param isDrum   **true** for percussion instruments, otherwise **false**
+	 * @param bank     bank number
+	 * @param program  program number
+	 * @return the key.
+	 */
+	private static int getPatchKey( boolean isDrum, int bank, int program ) {
+		return ( isDrum ? 1 << 21 : 0 ) | ( bank << 7 ) | program;
+	}
+	
+	/**
+	 * Indicates if the given soundfont instrument can be used in the given channel.
+	 * 
+	 * Uses the same (implementation specific) method as the {@link SoundfontParser}.
+	 * If that method is not available, all channels are assumed to be supported.
+	 * 
+	 * @param instr    soundfont instrument
+	 * @param channel  MIDI channel
+	 * @return **true** if the channel is supported, otherwise **false**.
+	 */
+	private static boolean isChannelSupported( Instrument instr, int channel ) {
+		try {
+			Method getChannels = instr.getClass().getMethod( "getChannels" );
+			boolean[] channels = (boolean[]) getChannels.invoke( instr, (Object[]) null );
+			return channel < channels.length && channels[ channel ];
+		}
+		catch ( Exception e ) {
+			return true;
+		}
+	}
+	
+	/**
+	 * Indicates if the synthesizer of the last setup can be reused.
+	 * 
+	 * That's the case if it is still open and no other soundfont has been selected since then.
+	 * 
+	 * @return **true** if the synthesizer or hardware receiver can be reused, otherwise **false**.
+	 */
+	private static boolean isSessionOpen() {
+		if ( loadedSoundfont != selectedSoundfont )
+			return false;
+		if ( receiver != null )
+			return true;
+		return synthesizer != null && synthesizer.isOpen() && synthReceiver != null;
+	}
+	
+	/**
+	 * Resets all channels of a reused synthesizer, so that it behaves like a newly opened one.
+	 * 
+	 * Stops all sounds, resets the controllers and selects the first program of bank 0.
+	 * Mute, solo and volume are applied later by {@link #setupDevices(PlayerController)}.
+	 */
+	private static void resetChannels() {
+		soundcheck.cancelAll();
+		try {
+			for ( int channel = 0; channel < NUMBER_OF_CHANNELS; channel++ ) {
+				for ( int[] control : DEFAULT_CONTROLLERS ) {
+					ShortMessage msg = new ShortMessage();
+					msg.setMessage( ShortMessage.CONTROL_CHANGE, channel, control[0], control[1] );
+					sendToSession( msg );
+				}
+				ShortMessage msg = new ShortMessage();
+				msg.setMessage( ShortMessage.PROGRAM_CHANGE, channel, 0, 0 );
+				sendToSession( msg );
+			}
+		}
+		catch ( InvalidMidiDataException e ) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Sends a message to the synthesizer of the current device session.
+	 * 
+	 * @param msg  MIDI message.
+	 */
+	private static void sendToSession( MidiMessage msg ) {
+		Receiver rec = ( null == receiver ) ? synthReceiver : receiver;
+		if ( rec != null )
+			rec.send( msg, -1 );
+	}
+	
 	/**
 	 * Initializes the instruments of the right soundfont, if not yet done.
 	 * 
@@ -359,6 +798,8 @@ public final class MidiDevices {
 	 * @param channel    Channel number from 0 to 15.
 	 */
 	public static void refreshChannelActivity( byte channel ) {
+		if ( isRefreshSuspended )
+			return;
 		boolean active = SequenceAnalyzer.getChannelActivity( channel, getTickPosition() );
 		playerController.setChannelActivity( channel, active );
 	}
@@ -369,6 +810,8 @@ public final class MidiDevices {
 	 * changes the UI accordingly.
 	 */
 	public static void refreshLyrics() {
+		if ( isRefreshSuspended )
+			return;
 		String lyrics = KaraokeAnalyzer.getLyricsForPlayer( getTickPosition() );
 		playerController.setLyrics(lyrics);
 	}
@@ -377,28 +820,62 @@ public final class MidiDevices {
 	 * Closes and destroys all MIDI devices.
 	 */
 	public static void destroyDevices() {
-		
-		// destroy sequencer
+		destroySequencer();
+		destroySynthesizer();
+	}
+	
+	/**
+	 * Closes and destroys the sequencer but keeps the synthesizer and its loaded
+	 * instruments open for the next call of {@link #setupDevices(PlayerController)}.
+	 * 
+	 * This is used before reparsing a file.
+	 */
+	public static void destroySequencer() {
+		if ( null != uiClock )
+			uiClock.die();
+		uiClock = null;
 		if ( null != sequencer ) {
 			if ( sequencer.isRunning() )
 				sequencer.stop();
 			if ( sequencer.isOpen() )
 				sequencer.close();
+			
+			// timing report, only with --stats
+			if ( sequencer instanceof EventScheduler && PhaseStats.isEnabled() )
+				System.err.println( ((EventScheduler) sequencer).getTimingReport() );
 		}
 		sequencer = null;
 		
+		// silence notes that the sequencer may have left on
+		if ( isSessionOpen() )
+			resetChannels();
+	}
+	
+	/**
+	 * Closes and destroys the synthesizer or hardware receiver and forgets the
+	 * instruments belonging to it.
+	 */
+	private static void destroySynthesizer() {
+		
+		// forget running soundchecks
+		soundcheck.cancelAll();
+		
 		// destroy software synthesizer
 		if ( null != synthesizer ) {
 			if ( synthesizer.isOpen() )
 				synthesizer.close();
 		}
-		synthesizer = null;
+		synthesizer   = null;
+		synthReceiver = null;
 		
 		// destroy receiver of hardware synthesizer
 		receiver = null;
 		
 		// reset instruments
-		instruments = null;
+		instruments      = null;
+		loadedSoundfont  = null;
+		loadedPatches    = null;
+		soundfontPatches = null;
 	}
 	
 	/**
@@ -520,8 +997,9 @@ public final class MidiDevices {
 	 * @return    Current time as **hh:mm:ss**.
 	 */
 	public static String getTimePosition() {
-		if ( null != sequencer ) {
-			long microseconds = sequencer.getMicrosecondPosition();
+		TempoMap tempoMap = SequenceAnalyzer.getTempoMap();
+		if ( null != sequencer && null != tempoMap ) {
+			long microseconds = tempoMap.tickToMicros( sequencer.getTickPosition() );
 			return microsecondsToTimeString( microseconds );
 		}
 		else
@@ -541,14 +1019,28 @@ public final class MidiDevices {
 			return 0;
 	}
 	
+	/**
+	 * Returns the length of the current MIDI stream in microseconds.
+	 * 
+	 * @return    length of the current MIDI stream, or **0** if not available.
+	 */
+	public static long getMicrosecondLength() {
+		TempoMap tempoMap = SequenceAnalyzer.getTempoMap();
+		if ( null != sequencer && null != tempoMap )
+			return tempoMap.tickToMicros( sequencer.getTickLength() );
+		else
+			return 0;
+	}
+	
 	/**
 	 * Returns the length of the current MIDI stream in the time format **hh:mm:ss**.
 	 * 
 	 * @return    length of the current MIDI stream.
 	 */
 	public static String getTimeLength() {
-		if ( null != sequencer ) {
-			long microseconds = sequencer.getMicrosecondLength();
+		TempoMap tempoMap = SequenceAnalyzer.getTempoMap();
+		if ( null != sequencer && null != tempoMap ) {
+			long microseconds = tempoMap.tickToMicros( sequencer.getTickLength() );
 			return microsecondsToTimeString( microseconds );
 		}
 		else
@@ -563,7 +1055,7 @@ public final class MidiDevices {
 	 */
 	public static String microsecondsToTimeString( long microseconds ) {
 		// get number of full seconds ignoring the rest of an opened second
-		int rest    = (int) microseconds / 1000000; // full seconds
+		int rest    = (int) ( microseconds / 1000000 ); // full seconds
 		int seconds = rest % 60;
 		rest        = rest / 60; // full minutes
 		int minutes = rest % 60;
@@ -572,6 +1064,74 @@ public final class MidiDevices {
 		return String.format( "%02d:%02d:%02d", hours, minutes, seconds );
 	}
 	
+	/**
+	 * Transforms the given microseconds into a time string in the format **hh:mm:ss.mmm**.
+	 * 
+	 * @param microseconds    number of microseconds to be transformed.
+	 * @return                time string in the format **hh:mm:ss.mmm**.
+	 */
+	public static String microsecondsToPreciseTimeString( long microseconds ) {
+		long millis = microseconds / 1000;
+		return microsecondsToTimeString( microseconds ) + String.format( ".%03d", millis % 1000 );
+	}
+	
+	/**
+	 * Transforms a time string into microseconds.
+	 * 
+	 * Accepted formats are **hh:mm:ss**, **mm:ss** and **ss**, each optionally
+	 * followed by milliseconds (**.mmm**).
+	 * So the results of {@link #microsecondsToTimeString(long)} and
+	 * {@link #microsecondsToPreciseTimeString(long)} can be transformed back.
+	 * 
+	 * @param time    time string
+	 * @return        number of microseconds.
+	 * @throws NumberFormatException if the string is not a valid time.
+	 */
+	public static long timeStringToMicroseconds( String time ) {
+		String[] parts = time.trim().split( ":", -1 );
+		if ( parts.length > 3 )
+			throw new NumberFormatException( time );
+		
+		// milliseconds
+		String last   = parts[ parts.length - 1 ];
+		long   millis = 0;
+		int    dot    = last.indexOf( '.' );
+		if ( dot >= 0 ) {
+			String fraction = last.substring( dot + 1 );
+			if ( fraction.isEmpty() || fraction.length() > 3 || ! fraction.matches("\\d+") )
+				throw new NumberFormatException( time );
+			millis = Long.parseLong( ( fraction + "00" ).substring(0, 3) );
+			parts[ parts.length - 1 ] = last.substring( 0, dot );
+		}
+		
+		// hours, minutes, seconds
+		long seconds = 0;
+		for ( int i = 0; i < parts.length; i++ ) {
+			if ( ! parts[i].matches("\\d+") )
+				throw new NumberFormatException( time );
+			long value = Long.parseLong( parts[i] );
+			if ( i > 0 && value >= 60 )
+				throw new NumberFormatException( time );
+			seconds = seconds * 60 + value;
+		}
+		
+		return ( seconds * 1000 + millis ) * 1000;
+	}
+	
+	/**
+	 * Sets the position of the current MIDI stream to the given time.
+	 * 
+	 * This is called if a time is entered in the jump field of the player.
+	 * A time after the end of the stream sets the position to the end.
+	 * 
+	 * @param microseconds    Time position to be set.
+	 */
+	public static void setTimePosition( long microseconds ) {
+		TempoMap tempoMap = SequenceAnalyzer.getTempoMap();
+		if ( null != tempoMap )
+			setTickPosition( Math.min(tempoMap.microsToTick(microseconds), getTickLength()) );
+	}
+	
 	/**
 	 * Sets the position of the current MIDI stream to the given value in ticks.
 	 * 
@@ -582,6 +1142,18 @@ public final class MidiDevices {
 	public static void setTickPosition( long pos ) {
 		if ( null != sequencer )
 			sequencer.setTickPosition( pos );
+		if ( null != uiClock )
+			uiClock.seek( pos );
+		
+		refreshAll();
+		rememberVolume();
+	}
+	
+	/**
+	 * Refreshes channel activity, note history, instruments and lyrics according
+	 * to the current position.
+	 */
+	private static void refreshAll() {
 		
 		// reload channel activity
 		for ( byte channel = 0; channel < NUMBER_OF_CHANNELS; channel++ )
@@ -597,8 +1169,6 @@ public final class MidiDevices {
 		
 		// refresh the lyrics
 		refreshLyrics();
-		
-		rememberVolume();
 	}
 	
 	/**
@@ -865,6 +1435,8 @@ public final class MidiDevices {
 	 * @param channel  Channel number from 0 to 15.
 	 */
 	public static void refreshNoteHistory( byte channel ) {
+		if ( isRefreshSuspended )
+			return;
 		noteHistoryObservers.get( channel ).fireTableDataChanged();
 	}
 	
@@ -875,6 +1447,8 @@ public final class MidiDevices {
 	 * @param channel  Channel number from 0 to 15.
 	 */
 	public static void refreshInstrument( byte channel ) {
+		if ( isRefreshSuspended )
+			return;
 		
 		// query information
 		long   tick           = getTickPosition();
@@ -984,53 +1558,34 @@ public final class MidiDevices {
 	}
 	
 	/**
-	 * Plays one note in the given channel.
+	 * Plays a note or chord in the given channel.
 	 * This method is called from the soundcheck module.
-	 * After playing the note, the old instrument number (program number) and channel
-	 * volume are restored.
 	 * 
-	 * @param channel     Channel number from 0 to 15.
-	 * @param instr       Instrument specification (program number, bank MSB, bank LSB)
-	 * @param note        Note or percussion instrument number.
-	 * @param volume      Channel volume for the note to be played.
-	 * @param velocity    Velocity (note volume) for the note to be played.
-	 * @param duration    Note length in milliseconds.
-	 * @param keep        **true** to keep the settings after playing the note, **false**
-	 *                    to restore the channel's state.
-	 */
-	public static void doSoundcheck( int channel, int[] instr, int note, byte volume, int velocity, int duration, boolean keep ) {
+	 * If more than one instrument is given, the note or chord is played with each instrument,
+	 * one after the other. After playing, the old instrument number (program number) and
+	 * channel volume are restored, unless the settings shall be kept.
+	 * 
+	 * The method returns immediately. The rest is done by the {@link SoundcheckScheduler}.
+	 * 
+	 * @param channel      Channel number from 0 to 15.
+	 * @param instruments  Instrument specifications (program number, bank MSB, bank LSB)
+	 * @param notes        Note or percussion instrument numbers to be played together.
+	 * @param volume       Channel volume for the notes to be played.
+	 * @param velocity     Velocity (note volume) for the notes to be played.
+	 * @param duration     Note length per instrument in milliseconds.
+	 * @param keep         **true** to keep the settings after playing the notes, **false**
+	 *                     to restore the channel's state.
+	 */
+	public static void doSoundcheck( int channel, int[][] instruments, int[] notes, byte volume, int velocity, int duration, boolean keep ) {
 		if ( null == synthesizer )
 			return;
 		
-		// unpack instrument parts
-		int program = instr[ 0 ];
-		int bankMSB = instr[ 1 ];
-		int bankLSB = instr[ 2 ];
+		// load the instruments, if only the used ones have been loaded
+		for ( int[] instr : instruments )
+			loadInstrument( 9 == channel, ( instr[1] << 7 ) | instr[2], instr[0] );
 		
-		// set bank instrument and volume
 		MidiChannel midiChannel = synthesizer.getChannels()[ channel ];
-		midiChannel.controlChange( 0x00, bankMSB );
-		midiChannel.controlChange( 0x20, bankLSB );
-		midiChannel.programChange( program );
-		sendChangeChannelVolumeMsg(channel, volume, volume);
-		
-		// note on
-		midiChannel.noteOn( note, velocity );
-		
-		// wait
-		try {
-			Thread.sleep( duration );
-		}
-		catch ( InterruptedException e ) {
-		}
-		
-		// note off
-		midiChannel.noteOff( note );
-		
-		// keep or restore bank, instrument and volume
-		if (keep)
-			return;
-		restoreChannelAfterSoundcheck(channel);
+		soundcheck.audition( midiChannel, channel, instruments, notes, volume, velocity, duration, keep );
 	}
 	
 	/**
@@ -1041,9 +1596,24 @@ public final class MidiDevices {
 	 * checkbox is unchecked) or after a soundcheck when the keep checkbox
 	 * is un-checked later.
 	 * 
+	 * If a soundcheck is still playing in the channel, the channel is restored
+	 * when it's finished.
+	 * 
 	 * @param channel Channel number.
 	 */
 	public static void restoreChannelAfterSoundcheck(int channel) {
+		soundcheck.release(channel);
+	}
+	
+	/**
+	 * Restores the given channel's bank, instrument and volume according to the
+	 * current tick position.
+	 * 
+	 * @param channel Channel number.
+	 */
+	static void restoreChannel(int channel) {
+		if ( null == synthesizer )
+			return;
 		
 		// restore bank
 		MidiChannel midiChannel = synthesizer.getChannels()[ channel ];
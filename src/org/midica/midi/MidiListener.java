@@ -18,9 +18,8 @@ import org.midica.ui.player.PlayerController;
  * class is provided to the sequencer. If a meta event occurs in the MIDI sequence, this
  * listener is triggered.
  * 
- * This is especially important for self-made meta events that are used to inform us
- * about note-on or note-off events. If those events occur, the widgets in the player are
- * updated accordingly.
+ * It only reacts to the end of the sequence. The other widgets in the player are
+ * updated by a {@link UiTimelineClock}.
  * 
  * @author Jan Trukenmüller
  */
@@ -46,13 +45,6 @@ public class MidiListener implements MetaEventListener {
 	public static final int META_KEY_SIGNATURE      =  89;
 	public static final int META_SEQUENCER_SPECIFIC = 127;
 	
-	// marker bitmasks
-	public static final byte MARKER_BITMASK_LYRICS     = (byte) 0b1000_0000;
-	public static final byte MARKER_BITMASK_ACTIVITY   = (byte) 0b0100_0000;
-	public static final byte MARKER_BITMASK_HISTORY    = (byte) 0b0010_0000;
-	public static final byte MARKER_BITMASK_INSTRUMENT = (byte) 0b0001_0000;
-	public static final byte MARKER_BITMASK_CHANNEL    = (byte) 0b0000_1111;
-	
 	/**
 	 * Creates a new meta event listener object.
 	 * 
@@ -70,8 +62,7 @@ public class MidiListener implements MetaEventListener {
 	@Override
 	public void meta( MetaMessage msg ) {
 		
-		int    type = msg.getType();
-		byte[] data = msg.getData();
+		int type = msg.getType();
 		
 		if ( META_END_OF_SEQUENCE == type ) {
 			try {
@@ -82,24 +73,6 @@ public class MidiListener implements MetaEventListener {
 			}
 		}
 		
-		else if ( META_MARKER == type ) {
-			for ( byte bitmaskedChannel : data ) {
-				byte    channel            = (byte) ( bitmaskedChannel & MARKER_BITMASK_CHANNEL    );
-				boolean isLyricsChange     =   0 != ( bitmaskedChannel & MARKER_BITMASK_LYRICS     );
-				boolean isActivityChange   =   0 != ( bitmaskedChannel & MARKER_BITMASK_ACTIVITY   );
-				boolean isHistoryChange    =   0 != ( bitmaskedChannel & MARKER_BITMASK_HISTORY    );
-				boolean isInstrumentChange =   0 != ( bitmaskedChannel & MARKER_BITMASK_INSTRUMENT );
-				if (isActivityChange)
-					MidiDevices.refreshChannelActivity( channel );
-				if (isHistoryChange)
-					MidiDevices.refreshNoteHistory( channel );
-				if (isInstrumentChange)
-					MidiDevices.refreshInstrument( channel );
-				if (isLyricsChange)
-					MidiDevices.refreshLyrics();
-			}
-		}
-		
 		else {
 		}
 	}
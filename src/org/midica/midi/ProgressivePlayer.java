@@ -0,0 +1,336 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+/**
+ * Plays a MidicaPL sequence while it is still being compiled.
+ * 
+ * The player registers itself as the {@link IWindowListener} of the {@link SequenceCreator}.
+ * Each finalized time window is copied into a separate stream sequence that is played
+ * by an own sequencer of the configured type. The messages are sent to the synthesizer
+ * or hardware receiver of the device session of {@link MidiDevices}, so no additional
+ * synthesizer is opened. If only the used instruments of the soundfont are loaded, each
+ * program change loads the needed instruments before it's copied into the stream.
+ * 
+ * Playback starts as soon as enough ticks are available.
+ * If the playback comes too close to the last finalized tick, it's paused until the parser
+ * has produced enough new events.
+ * 
+ * The preview is stopped when the parsing is finished. The player takes over the tick
+ * position where it has been stopped.
+ * 
+ * How fast the windows are finalized depends on the source file: the watermark is
+ * one tick before the lowest tickstamp of all channels. Unused channels keep it at
+ * the tick of the last global command (which synchronizes all channels).
+ * 
+ * @author Jan Trukenmüller
+ */
+public class ProgressivePlayer implements IWindowListener {
+	
+	/** Number of quarter notes that must be available before the playback starts or resumes. */
+	public static final int LEAD_QUARTERS = 8;
+	
+	/** Number of quarter notes before the watermark that cause a pause. */
+	public static final int GUARD_QUARTERS = 1;
+	
+	/** Interval in milliseconds to check the distance between playback and watermark. */
+	private static final int CHECK_INTERVAL = 20;
+	
+	private static ProgressivePlayer current = null;
+	
+	private Sequencer   sequencer   = null;
+	private Sequence    stream      = null;
+	private int[]       cursors     = null;
+	private int[]       banks       = new int[MidiDevices.NUMBER_OF_CHANNELS];
+	private Timer       timer       = null;
+	private long        watermark   = 0;
+	private long        leadTicks   = 0;
+	private long        guardTicks  = 0;
+	private boolean     isStarted   = false;
+	private boolean     isFinished  = false;
+	private boolean     isClosed    = false;
+	private int         underruns   = 0;
+	
+	/**
+	 * Creates the player and opens the sequencer.
+	 * 
+	 * @param receiver  receiver of the device session
+	 * @throws MidiUnavailableException if the sequencer cannot be opened.
+	 */
+	private ProgressivePlayer(Receiver receiver) throws MidiUnavailableException {
+		sequencer = MidiDevices.createSequencer();
+		sequencer.open();
+		sequencer.getTransmitter().setReceiver(receiver);
+	}
+	
+	/**
+	 * Starts a new progressive playback for the next sequence to be created.
+	 * A running progressive playback is stopped before.
+	 * 
+	 * Nothing is played if the device session is used by the player.
+	 * 
+	 * Must be called before the parsing starts.
+	 * 
+	 * @throws MidiUnavailableException if a device cannot be opened.
+	 */
+	public static synchronized void start() throws MidiUnavailableException {
+		stop();
+		Receiver receiver = MidiDevices.openPreviewSession();
+		if (null == receiver)
+			return;
+		current = new ProgressivePlayer(receiver);
+		current.timer = new Timer("progressive-player", true);
+		current.timer.schedule(new TimerTask() {
+			private final ProgressivePlayer player = current;
+			@Override
+			public void run() {
+				player.checkBuffer();
+			}
+		}, CHECK_INTERVAL, CHECK_INTERVAL);
+		SequenceCreator.setWindowListener(current);
+	}
+	
+	/**
+	 * Stops the progressive playback, if running, and closes its sequencer.
+	 * The device session stays open.
+	 * 
+	 * @return the last tick position, or **-1** if no progressive playback was active.
+	 */
+	public static synchronized long stop() {
+		if (null == current)
+			return -1;
+		
+		// unregister first so that the parser does not wait for us
+		SequenceCreator.setWindowListener(null);
+		
+		long tick = current.close();
+		current   = null;
+		
+		return tick;
+	}
+	
+	/**
+	 * Determins if a progressive playback is active.
+	 * 
+	 * @return **true** if active, otherwise **false**.
+	 */
+	public static synchronized boolean isActive() {
+		return current != null;
+	}
+	
+	/**
+	 * Returns the number of pauses caused by the parser being too slow.
+	 * 
+	 * @return number of underruns, or **0** if no progressive playback is active.
+	 */
+	public static synchronized int getUnderruns() {
+		if (null == current)
+			return 0;
+		synchronized (current) {
+			return current.underruns;
+		}
+	}
+	
+	@Override
+	public synchronized void windowFinalized(Sequence seq, long fromTick, long toTick) {
+		if (isClosed)
+			return;
+		try {
+			initStream(seq);
+			copyUntil(seq, toTick);
+			moveEndOfStream(toTick);
+			watermark = toTick;
+			streamExtended();
+		}
+		catch (InvalidMidiDataException e) {
+			e.printStackTrace();
+		}
+		checkBuffer();
+	}
+	
+	@Override
+	public synchronized void sequenceFinished(Sequence seq) {
+		if (isClosed)
+			return;
+		try {
+			initStream(seq);
+			copyUntil(seq, Long.MAX_VALUE);
+			streamExtended();
+		}
+		catch (InvalidMidiDataException e) {
+			e.printStackTrace();
+		}
+		isFinished = true;
+		checkBuffer();
+	}
+	
+	/**
+	 * Creates the stream sequence and passes it to the sequencer, if not yet done.
+	 * 
+	 * @param seq  the sequence that is being created
+	 * @throws InvalidMidiDataException if the stream cannot be set.
+	 */
+	private void initStream(Sequence seq) throws InvalidMidiDataException {
+		if (stream != null)
+			return;
+		
+		stream = new Sequence(Sequence.PPQ, seq.getResolution());
+		int numTracks = seq.getTracks().length;
+		for (int i = 0; i < numTracks; i++) {
+			stream.createTrack();
+		}
+		cursors    = new int[numTracks];
+		leadTicks  = (long) LEAD_QUARTERS  * seq.getResolution();
+		guardTicks = (long) GUARD_QUARTERS * seq.getResolution();
+		sequencer.setSequence(stream);
+	}
+	
+	/**
+	 * Copies all not yet copied events before the given tick from the created sequence
+	 * into the stream.
+	 * 
+	 * The events are only appended to the stream tracks, so the sequencer never
+	 * sees an event inserted before its current position.
+	 * 
+	 * The instruments needed by program changes are loaded before.
+	 * 
+	 * @param seq    the sequence that is being created
+	 * @param limit  first tick that must not be copied
+	 */
+	private void copyUntil(Sequence seq, long limit) {
+		Track[] sourceTracks = seq.getTracks();
+		Track[] streamTracks = stream.getTracks();
+		for (int t = 0; t < sourceTracks.length && t < streamTracks.length; t++) {
+			Track source = sourceTracks[t];
+			int   i      = cursors[t];
+			while (i < source.size()) {
+				MidiEvent   event = source.get(i);
+				MidiMessage msg   = event.getMessage();
+				long        tick  = event.getTick();
+				if (tick >= limit)
+					break;
+				
+				// end of track is always the last event - it's managed by the stream track itself
+				if (msg instanceof MetaMessage && MidiListener.META_END_OF_SEQUENCE == ((MetaMessage) msg).getType())
+					break;
+				
+				if (msg instanceof ShortMessage)
+					prepareInstrument((ShortMessage) msg);
+				streamTracks[t].add(new MidiEvent(msg, tick));
+				i++;
+			}
+			cursors[t] = i;
+		}
+	}
+	
+	/**
+	 * Moves the end of the stream tracks forward to the given tick.
+	 * 
+	 * Otherwise a rest before the watermark would be seen as the end of the
+	 * sequence, and the sequencer would finish the playback there.
+	 * 
+	 * @param tick  the new end tick
+	 * @throws InvalidMidiDataException if the end of track message cannot be created.
+	 */
+	private void moveEndOfStream(long tick) throws InvalidMidiDataException {
+		for (Track track : stream.getTracks()) {
+			MetaMessage endOfTrack = new MetaMessage(MidiListener.META_END_OF_SEQUENCE, new byte[0], 0);
+			track.add(new MidiEvent(endOfTrack, tick));
+		}
+	}
+	
+	/**
+	 * Remembers bank selections and loads the instruments needed by program changes.
+	 * 
+	 * @param msg  message to be copied into the stream
+	 */
+	private void prepareInstrument(ShortMessage msg) {
+		int channel = msg.getChannel();
+		if (ShortMessage.CONTROL_CHANGE == msg.getCommand()) {
+			if (0x00 == msg.getData1())
+				banks[channel] = (msg.getData2() << 7) | (banks[channel] & 0x7F);
+			else if (0x20 == msg.getData1())
+				banks[channel] = (banks[channel] & ~0x7F) | msg.getData2();
+		}
+		else if (ShortMessage.PROGRAM_CHANGE == msg.getCommand()) {
+			MidiDevices.loadPreviewInstrument(channel, banks[channel], msg.getData1());
+		}
+	}
+	
+	/**
+	 * Informs the sequencer about the events that have been copied into the stream,
+	 * if it doesn't see them by itself.
+	 */
+	private void streamExtended() {
+		if (sequencer instanceof EventScheduler)
+			((EventScheduler) sequencer).sequenceExtended();
+	}
+	
+	/**
+	 * Starts, pauses or resumes the sequencer according to the distance between
+	 * the playback position and the watermark.
+	 */
+	private synchronized void checkBuffer() {
+		if (isClosed || null == stream)
+			return;
+		
+		long position = sequencer.getTickPosition();
+		if (sequencer.isRunning()) {
+			
+			// parser too slow?
+			if (! isFinished && watermark - position < guardTicks) {
+				sequencer.stop();
+				underruns++;
+			}
+		}
+		else {
+			
+			// end of the sequence reached?
+			if (isFinished && isStarted && position >= stream.getTickLength())
+				return;
+			
+			// enough ticks available?
+			if (isFinished || watermark - position >= leadTicks) {
+				sequencer.start();
+				isStarted = true;
+			}
+		}
+	}
+	
+	/**
+	 * Stops the playback and closes the sequencer.
+	 * 
+	 * @return the last tick position.
+	 */
+	private synchronized long close() {
+		isClosed = true;
+		if (timer != null)
+			timer.cancel();
+		
+		long tick = sequencer.getTickPosition();
+		if (sequencer.isRunning())
+			sequencer.stop();
+		sequencer.close();
+		
+		return tick;
+	}
+}
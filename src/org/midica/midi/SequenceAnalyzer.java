@@ -7,6 +7,9 @@
 
 package org.midica.midi;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.HashMap;
@@ -15,13 +18,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.Iterator;
-import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
-import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MetaMessage;
 import javax.sound.midi.MidiEvent;
 import javax.sound.midi.MidiMessage;
@@ -31,17 +31,24 @@ import javax.sound.midi.SysexMessage;
 import javax.sound.midi.Track;
 
 import org.midica.config.Dict;
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
 import org.midica.file.CharsetUtils;
+import org.midica.file.PhaseStats;
+import org.midica.file.PhaseStats.Phase;
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
 import org.midica.file.read.ParseException;
 import org.midica.ui.model.SingleMessage;
 import org.midica.ui.model.MessageTreeNode;
 import org.midica.ui.model.MidicaTreeModel;
+import org.midica.ui.model.MidicaTreeNode;
 
 /**
  * This class analyzes a MIDI sequence and collects information from it.
  * This information can be displayed later by the {@link org.midica.ui.info.InfoView}
  * 
- * It also adds marker events to the sequence at each tick where the
+ * It also builds a {@link UiTimeline} containing each tick where the
  * channel activity changes for at least one channel.
  * 
  * @author Jan Trukenmüller
@@ -53,8 +60,15 @@ public class SequenceAnalyzer {
 	
 	private static final long DEFAULT_CHANNEL_CONFIG_TICK = -100;
 	
+	/** sequence info entries that are not written to the analysis cache as they are */
+	private static final String[] INFO_KEYS_NOT_CACHED = {
+		"banks_total", "banks_per_channel", "msg_tree_model", "messages", "tempo_map",
+	};
+	
 	private static Sequence  sequence      = null;
 	private static String    chosenCharset = null;
+	private static TempoMap.Builder tempoBuilder = null;
+	private static MidicaTreeModel.Builder msgTreeBuilder = null;
 	
 	private static HashMap<String, Object> sequenceInfo = null;
 	
@@ -70,11 +84,14 @@ public class SequenceAnalyzer {
 	/**                    channel  --   tick    --    note -- velocity */
 	private static TreeMap<Byte, TreeMap<Long, TreeMap<Byte, Byte>>> noteHistory = null;
 	
+	/** note history in primitive arrays, for the player (index: channel) */
+	private static ChannelNoteHistory[] channelNoteHistories = null;
+	
 	/**                    channel  --   tick -- number of keys pressed at this time */
 	private static TreeMap<Byte, TreeMap<Long, Integer>> activityByChannel = null;
 	
-	/**                    tick     --   channel */
-	private static TreeMap<Long, TreeSet<Byte>> markers = null;
+	/** UI changes to be followed during playback */
+	private static UiTimeline uiTimeline = null;
 	
 	/**                    tick */
 	private static TreeSet<Long> markerTicks = null;
@@ -91,6 +108,24 @@ public class SequenceAnalyzer {
 	 */
 	private static TreeMap<Byte, TreeMap<Long, Byte[]>> instrumentHistory = null;
 	
+	/**
+	 * Number of note-on events, used to build the bank/instrument/note trees.
+	 * 
+	 * - channel
+	 * - bank: (MSB*128+LSB) -- only allocated for used channels and banks
+	 * - program*128 + note
+	 */
+	private static int[][][] noteCounts = null;
+	
+	/**
+	 * First channel (plus 1) that played a program with a bank, used to name
+	 * the program in the total tree.
+	 * 
+	 * - bank: (MSB*128+LSB) -- only allocated for used banks
+	 * - program: 0 means unused
+	 */
+	private static byte[][] firstChannelByProgram = null;
+	
 	/**                    channel   --  tick -- comment   */
 	private static TreeMap<Byte, TreeMap<Long, String>> commentHistory = null;
 	
@@ -148,13 +183,14 @@ public class SequenceAnalyzer {
 	 * parsing failed.
 	 */
 	public static void reset() {
-		sequenceInfo = null;
-		noteHistory  = null;
+		sequenceInfo         = null;
+		noteHistory          = null;
+		channelNoteHistories = null;
 	}
 	
 	/**
 	 * Analyzes the given MIDI sequence and collects information about it.
-	 * Adds marker events for channel activity changes.
+	 * Builds the UI timeline for channel activity changes.
 	 * 
 	 * @param seq      The MIDI sequence to be analyzed.
 	 * @param charset  The charset that has been chosen in the file chooser.
@@ -170,12 +206,17 @@ public class SequenceAnalyzer {
 			KaraokeAnalyzer.init(sequence.getResolution(), charset, markerTicks);
 			
 			// fill data structures
+			Phase phase = PhaseStats.begin("analyze.parse");
 			parse();
+			phase.end(messages.size());
 		}
 		catch (Exception e) {
 			if (e instanceof ParseException) {
 				throw (ParseException) e;
 			}
+			else if (e instanceof TaskCancelledException) {
+				throw new ParseException(e.getMessage());
+			}
 			else {
 				e.printStackTrace();
 				throw new ParseException(e.getMessage());
@@ -183,7 +224,184 @@ public class SequenceAnalyzer {
 		}
 		
 		// add statistic information to the data structures
+		Phase phase = PhaseStats.begin("analyze.postprocess");
 		postprocess();
+		phase.end(uiTimeline.size());
+	}
+	
+	/**
+	 * Writes the results of the last analysis to the analysis cache.
+	 * 
+	 * Must be called directly after {@link #analyze(Sequence, String)}.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the results cannot be written.
+	 */
+	public static void writeToCache(CacheWriter out) throws IOException {
+		
+		// trees (before the messages, because the messages refer to the leaf nodes)
+		((MidicaTreeNode) banksAndInstrTotal.getRoot()).writeToCache(out);
+		((MidicaTreeNode) banksAndInstrPerChannel.getRoot()).writeToCache(out);
+		((MidicaTreeNode) msgTreeModel.getRoot()).writeToCache(out);
+		
+		// messages
+		out.writeInt(messages.size());
+		for (SingleMessage message : messages) {
+			message.writeToCache(out);
+		}
+		
+		// sequence info
+		HashMap<String, Object> info = new HashMap<>(sequenceInfo);
+		for (String key : INFO_KEYS_NOT_CACHED) {
+			info.remove(key);
+		}
+		out.writeValue(info);
+		
+		// histories
+		out.writeValue(noteOnOffByChannel);
+		out.writeValue(noteHistory);
+		out.writeValue(activityByChannel);
+		out.writeValue(markerTicks);
+		out.writeValue(instrumentHistory);
+		out.writeValue(noteCounts);
+		out.writeValue(firstChannelByProgram);
+		out.writeValue(commentHistory);
+		out.writeValue(channelParamConfig);
+		out.writeValue(channelParamHistory);
+		out.writeValue(controllerHistory);
+		out.writeValue(rpnHistory);
+		uiTimeline.writeToCache(out);
+		
+		KaraokeAnalyzer.writeToCache(out);
+	}
+	
+	/**
+	 * Restores the results of an analysis from the analysis cache, instead of
+	 * calling {@link #analyze(Sequence, String)}.
+	 * 
+	 * If this fails, the analyzer is in an undefined state, so that
+	 * {@link #analyze(Sequence, String)} must be called.
+	 * 
+	 * @param in       cache reader
+	 * @param seq      The MIDI sequence that has been analyzed.
+	 * @param charset  The charset that has been chosen in the file chooser.
+	 * @throws IOException if the results cannot be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void readFromCache(CacheReader in, Sequence seq, String charset) throws IOException {
+		sequence       = seq;
+		chosenCharset  = charset;
+		tempoBuilder   = null;
+		msgTreeBuilder = null;
+		MessageClassifier.resetDescriptions();
+		
+		// trees
+		banksAndInstrTotal      = new MidicaTreeModel(Dict.get(Dict.TOTAL));
+		banksAndInstrPerChannel = new MidicaTreeModel(Dict.get(Dict.PER_CHANNEL));
+		msgTreeModel            = new MidicaTreeModel(new MessageTreeNode(Dict.get(Dict.TAB_MESSAGES)));
+		((MidicaTreeNode) banksAndInstrTotal.getRoot()).readFromCache(in);
+		((MidicaTreeNode) banksAndInstrPerChannel.getRoot()).readFromCache(in);
+		((MidicaTreeNode) msgTreeModel.getRoot()).readFromCache(in);
+		
+		// messages
+		int msgCount = in.readInt();
+		messages     = new ArrayList<>(Math.max(0, msgCount));
+		for (int i = 0; i < msgCount; i++) {
+			messages.add(SingleMessage.readFromCache(in));
+		}
+		
+		// sequence info
+		sequenceInfo = (HashMap<String, Object>) in.readValue();
+		sequenceInfo.put( "banks_total",       banksAndInstrTotal          );
+		sequenceInfo.put( "banks_per_channel", banksAndInstrPerChannel     );
+		sequenceInfo.put( "msg_tree_model",    msgTreeModel                );
+		sequenceInfo.put( "messages",          messages                    );
+		sequenceInfo.put( "tempo_map",         TempoMap.fromSequence(seq)  );
+		
+		// histories
+		noteOnOffByChannel    = (TreeMap<Byte, TreeMap<Byte, TreeMap<Long, Boolean>>>)    in.readValue();
+		noteHistory           = (TreeMap<Byte, TreeMap<Long, TreeMap<Byte, Byte>>>)       in.readValue();
+		activityByChannel     = (TreeMap<Byte, TreeMap<Long, Integer>>)                   in.readValue();
+		markerTicks           = (TreeSet<Long>)                                           in.readValue();
+		instrumentHistory     = (TreeMap<Byte, TreeMap<Long, Byte[]>>)                    in.readValue();
+		noteCounts            = (int[][][])                                               in.readValue();
+		firstChannelByProgram = (byte[][])                                                in.readValue();
+		commentHistory        = (TreeMap<Byte, TreeMap<Long, String>>)                    in.readValue();
+		channelParamConfig    = (TreeMap<Byte, Byte[]>)                                   in.readValue();
+		channelParamHistory   = (TreeMap<Byte, TreeMap<Long, Byte[]>>)                    in.readValue();
+		controllerHistory     = (TreeMap<Byte, TreeMap<Byte, TreeMap<Long, Byte>>>)       in.readValue();
+		rpnHistory            = (TreeMap<Byte, TreeMap<Integer, TreeMap<Long, Integer>>>) in.readValue();
+		uiTimeline            = UiTimeline.readFromCache(in);
+		channelNoteHistories  = new ChannelNoteHistory[16];
+		for (byte channel = 0; channel < 16; channel++) {
+			channelNoteHistories[channel] = ChannelNoteHistory.create(noteHistory.get(channel));
+		}
+		
+		KaraokeAnalyzer.readFromCache(in, seq.getResolution(), charset, markerTicks);
+	}
+	
+	/**
+	 * Keeps the results of the last analysis in memory, in the format of the analysis cache.
+	 * 
+	 * This is used before a file is parsed in the background while the player keeps
+	 * playing the old sequence. If the parsing fails, the results of the old sequence
+	 * can be restored with {@link #restoreSnapshot(Snapshot)}.
+	 * 
+	 * @return the snapshot, or **null** if no analysis results are available.
+	 */
+	public static Snapshot takeSnapshot() {
+		if (null == sequenceInfo || null == messages || null == uiTimeline)
+			return null;
+		try {
+			ByteArrayOutputStream payload = new ByteArrayOutputStream();
+			CacheWriter           writer  = new CacheWriter(payload);
+			writeToCache(writer);
+			writer.flush();
+			return new Snapshot(payload.toByteArray(), sequence, chosenCharset);
+		}
+		catch (IOException | RuntimeException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Restores the analysis results from the given snapshot.
+	 * 
+	 * @param snapshot  the snapshot, created by {@link #takeSnapshot()}
+	 * @return **true** if the results have been restored, otherwise **false**.
+	 */
+	public static boolean restoreSnapshot(Snapshot snapshot) {
+		try {
+			readFromCache(new CacheReader(ByteBuffer.wrap(snapshot.payload)), snapshot.sequence, snapshot.charset);
+			return true;
+		}
+		catch (IOException | RuntimeException e) {
+			reset();
+			return false;
+		}
+	}
+	
+	/**
+	 * Analysis results of a sequence, kept in memory by {@link #takeSnapshot()}.
+	 */
+	public static class Snapshot {
+		
+		private final byte[]   payload;
+		private final Sequence sequence;
+		private final String   charset;
+		
+		/**
+		 * Creates a snapshot.
+		 * 
+		 * @param payload   the serialized analysis results
+		 * @param sequence  the analyzed sequence
+		 * @param charset   the charset that has been chosen in the file chooser
+		 */
+		private Snapshot(byte[] payload, Sequence sequence, String charset) {
+			this.payload  = payload;
+			this.sequence = sequence;
+			this.charset  = charset;
+		}
 	}
 	
 	/**
@@ -202,6 +420,26 @@ public class SequenceAnalyzer {
 		return sequenceInfo;
 	}
 	
+	/**
+	 * Returns the tempo map of the analyzed sequence.
+	 * 
+	 * @return the tempo map, or **null** if no sequence has been analyzed successfully.
+	 */
+	public static TempoMap getTempoMap() {
+		if (null == sequenceInfo)
+			return null;
+		return (TempoMap) sequenceInfo.get("tempo_map");
+	}
+	
+	/**
+	 * Returns the timeline of the UI changes during playback.
+	 * 
+	 * @return the timeline, or **null** if no sequence has been analyzed successfully.
+	 */
+	public static UiTimeline getUiTimeline() {
+		return uiTimeline;
+	}
+	
 	/**
 	 * Returns the instrument history.
 	 * 
@@ -267,10 +505,8 @@ public class SequenceAnalyzer {
 	/**
 	 * Initializes the internal data structures so that they are ready to
 	 * be filled with sequence information during the parsing process.
-	 * @throws ReflectiveOperationException if the root node of the message
-	 *         tree cannot be created.
 	 */
-	private static void init() throws ReflectiveOperationException {
+	private static void init() {
 		
 		// initialize data structures for the sequence info
 		sequenceInfo   = new HashMap<>();
@@ -283,15 +519,15 @@ public class SequenceAnalyzer {
 		sequenceInfo.put( "ticks", sequence.getTickLength() );
 		banksAndInstrTotal      = new MidicaTreeModel(Dict.get(Dict.TOTAL));
 		banksAndInstrPerChannel = new MidicaTreeModel(Dict.get(Dict.PER_CHANNEL));
-		msgTreeModel            = new MidicaTreeModel(Dict.get(Dict.TAB_MESSAGES), MessageTreeNode.class);
+		msgTreeModel            = new MidicaTreeModel(new MessageTreeNode(Dict.get(Dict.TAB_MESSAGES)));
+		msgTreeBuilder          = new MidicaTreeModel.Builder(msgTreeModel);
+		MessageClassifier.resetDescriptions();
 		messages                = new ArrayList<>();
 		sequenceInfo.put( "banks_total",         banksAndInstrTotal      );
 		sequenceInfo.put( "banks_per_channel",   banksAndInstrPerChannel );
 		sequenceInfo.put( "msg_tree_model",      msgTreeModel            );
 		sequenceInfo.put( "messages",            messages                );
-		long   microseconds = sequence.getMicrosecondLength();
-		String time         = MidiDevices.microsecondsToTimeString(microseconds);
-		sequenceInfo.put("time_length", time);
+		tempoBuilder = new TempoMap.Builder();
 		channelParamConfig = new TreeMap<>();
 		for (byte channel = 0; channel < 16; channel++) {
 			// default (N)RPN config: MSB=LSB=127 (no parameter set), -1: neither RPN nor NRPN is active
@@ -320,7 +556,7 @@ public class SequenceAnalyzer {
 		activityByChannel  = new TreeMap<>();
 		noteOnOffByChannel = new TreeMap<>();
 		markerTicks        = new TreeSet<>();
-		markers            = new TreeMap<>();
+		uiTimeline         = null;
 		
 		// init data structures for the note history
 		noteHistory = new TreeMap<>();
@@ -337,6 +573,8 @@ public class SequenceAnalyzer {
 			Byte[] conf0 = {0, 0, 0}; // default values: bankMSB=0, bankLSB=0, program=0
 			channelHistory.put(DEFAULT_CHANNEL_CONFIG_TICK, conf0); // this must be configured before the sequence starts
 		}
+		noteCounts            = new int[16][][];
+		firstChannelByProgram = new byte[128 * 128][];
 		commentHistory = new TreeMap<>();
 		for (byte channel = 0; channel < 16; channel++) {
 			TreeMap<Long, String> channelCommentHistory = new TreeMap<>();
@@ -347,9 +585,8 @@ public class SequenceAnalyzer {
 	/**
 	 * Parses the MIDI sequence track by track and event by event and
 	 * collects information.
-	 * @throws ReflectiveOperationException if a tree node cannot be created.
 	 */
-	private static void parse() throws ReflectiveOperationException {
+	private static void parse() {
 		
 		// Analyze for channel activity, note history, banks, instruments, controllers and (N)RPN,
 		// and channel names (instrument names).
@@ -359,6 +596,7 @@ public class SequenceAnalyzer {
 		int trackNum = 0;
 		for (Track t : SequenceCreator.getSequence().getTracks()) {
 			for (int i=0; i < t.size(); i++) {
+				TaskProgress.check();
 				MidiEvent   event = t.get(i);
 				long        tick  = event.getTick();
 				MidiMessage msg   = event.getMessage();
@@ -380,6 +618,7 @@ public class SequenceAnalyzer {
 		for (Track t : sequence.getTracks()) {
 			int msgNum = 0;
 			for (int i=0; i < t.size(); i++) {
+				TaskProgress.check();
 				MidiEvent   event = t.get(i);
 				long        tick  = event.getTick();
 				MidiMessage msg   = event.getMessage();
@@ -390,15 +629,15 @@ public class SequenceAnalyzer {
 				else if (msg instanceof ShortMessage) {
 					MessageClassifier.processShortMessage(
 						(ShortMessage) msg, tick, trackNum, msgNum,
-						messages,     // add details and leaf node to messages
-						msgTreeModel  // add leaf node
+						messages,       // add details and leaf node to messages
+						msgTreeBuilder  // add leaf node
 					);
 				}
 				else if (msg instanceof SysexMessage) {
 					MessageClassifier.processSysexMessage(
 						(SysexMessage) msg, tick, trackNum, msgNum,
-						messages,     // add details and leaf node to messages
-						msgTreeModel  // add leaf node
+						messages,       // add details and leaf node to messages
+						msgTreeBuilder  // add leaf node
 					);
 				}
 				else {
@@ -417,6 +656,7 @@ public class SequenceAnalyzer {
 		trackNum = 0;
 		for (Track t : sequence.getTracks()) {
 			for (int i=0; i < t.size(); i++) {
+				TaskProgress.check();
 				MidiEvent   event = t.get(i);
 				long        tick  = event.getTick();
 				MidiMessage msg   = event.getMessage();
@@ -457,10 +697,8 @@ public class SequenceAnalyzer {
 	 * 
 	 * @param msg   Short message
 	 * @param tick  Tickstamp
-	 * @throws ReflectiveOperationException if the note-on event cannot be
-	 *         added to one of the tree models.
 	 */
-	private static void processShortMessageByChannel(ShortMessage msg, long tick) throws ReflectiveOperationException {
+	private static void processShortMessageByChannel(ShortMessage msg, long tick) {
 		int  cmd     = msg.getCommand();
 		byte channel = (byte) msg.getChannel();
 		
@@ -630,10 +868,8 @@ public class SequenceAnalyzer {
 	 * @param tick      Tickstamp
 	 * @param trackNum  Track number (beginning with 0).
 	 * @param msgNum    Number of the message inside the track.
-	 * @throws ReflectiveOperationException if the message cannot be added to
-	 *         the tree model.
 	 */
-	private static void processMetaMessage(MetaMessage msg, long tick, int trackNum, int msgNum) throws ReflectiveOperationException {
+	private static void processMetaMessage(MetaMessage msg, long tick, int trackNum, int msgNum) {
 		
 		// prepare data structures for the message tree
 		int    type    = msg.getType();
@@ -647,6 +883,7 @@ public class SequenceAnalyzer {
 			tempoMpq.put(tick, mpq);
 			TreeMap<Long, Integer> tempoBpm = (TreeMap<Long, Integer>) sequenceInfo.get("tempo_bpm");
 			tempoBpm.put(tick, bpm);
+			tempoBuilder.add(msg, tick);
 		}
 		
 		// TEXT
@@ -670,7 +907,7 @@ public class SequenceAnalyzer {
 		MessageClassifier.processMetaMessage(
 			(MetaMessage) msg, tick, trackNum, msgNum,
 			messages,                        // add details and leaf node to messages
-			msgTreeModel,                    // add leaf node
+			msgTreeBuilder,                  // add leaf node
 			chosenCharset,                   // charset from the file chooser
 			KaraokeAnalyzer.getFileCharset() // charset from last charset switch in a meta message
 		);
@@ -710,17 +947,15 @@ public class SequenceAnalyzer {
 	 * 
 	 * - tracks note events for the note history
 	 * - tracks the channel activity
-	 * - prepares markers
-	 * - builds up the tree model for the bank/instrument/note trees
+	 * - prepares the UI timeline
+	 * - counts the note for the bank/instrument/note trees
 	 * 
 	 * @param tick      The tickstamp when this event occurred.
 	 * @param channel   The MIDI channel number.
 	 * @param note      The note number.
 	 * @param velocity  The note's velocity.
-	 * @throws ReflectiveOperationException if the note cannot be added to
-	 *         one of the tree models.
 	 */
-	private static void addNoteOn(long tick, byte channel, byte note, byte velocity) throws ReflectiveOperationException {
+	private static void addNoteOn(long tick, byte channel, byte note, byte velocity) {
 		
 		// note on/off tracking
 		TreeMap<Byte, TreeMap<Long, Boolean>> noteTickOnOff = noteOnOffByChannel.get(channel);
@@ -774,48 +1009,27 @@ public class SequenceAnalyzer {
 		markerTicks.add(tick);
 		
 		
-		// bank/instrument/note info for the tree
-		String channelTxt = Dict.get(Dict.CHANNEL) + " " + channel;
-		String channelID  = String.format("%02X", channel);
-		Entry<Long, Byte[]> instrEntry = instrumentHistory.get(channel).floorEntry(tick);
-		Byte[] config     = instrEntry.getValue();
-		int    bankNum    = (config[0] << 7) | config[1]; // bankMSB * 2^7 + bankLSB
-		String bankSyntax = config[0] + ""; // MSB as a string
-		if (config[1] > 0) {  // MSB/LSB
-			bankSyntax    = bankSyntax + Dict.getSyntax(Dict.SYNTAX_PROG_BANK_SEP) + config[1];
-		}
-		String bankTxt    = Dict.get(Dict.BANK)             + " "  + bankNum   + ", "
-		                  + Dict.get(Dict.TOOLTIP_BANK_MSB) + ": " + config[0] + ", "
-				          + Dict.get(Dict.TOOLTIP_BANK_LSB) + ": " + config[1];
-		String bankID     = String.format("%02X%02X", config[0], config[1]);
-		String programStr = config[2] + "";
-		String programID  = String.format("%02X", config[2]);
-		String instrTxt   = 9 == channel ? Dict.getDrumkit(config[2]) : Dict.getInstrument(config[2]);
-		String noteStr    = note + "";
-		String noteTxt    = 9 == channel ? Dict.getPercussionLongId(note) : Dict.getNote(note);
-		String noteID     = String.format("%02X", note);
-		if (9 == channel) {
-			noteID = "Z" + noteID; // give percussion notes have a different (higher) ID
+		// count the note for the bank/instrument/note trees
+		Byte[]  config = instrumentHistory.get(channel).floorEntry(tick).getValue();
+		int     bank   = (config[0] << 7) | config[1]; // bankMSB * 2^7 + bankLSB
+		int[][] banks  = noteCounts[channel];
+		if (null == banks) {
+			banks               = new int[128 * 128][];
+			noteCounts[channel] = banks;
 		}
-		
-		// per channel           id         name        number
-		String[] channelOpts = { channelID, channelTxt, null       };
-		String[] bankOpts    = { bankID,    bankTxt,    bankSyntax };
-		String[] programOpts = { programID, instrTxt,   programStr };
-		String[] noteOpts    = { noteID,    noteTxt,    noteStr    };
-		ArrayList<String[]> perChannel = new ArrayList<>();
-		perChannel.add( channelOpts );
-		perChannel.add( bankOpts    );
-		perChannel.add( programOpts );
-		perChannel.add( noteOpts    );
-		banksAndInstrPerChannel.add(perChannel, null);
-		
-		// total
-		ArrayList<String[]> total = new ArrayList<>();
-		total.add( bankOpts    );
-		total.add( programOpts );
-		total.add( noteOpts    );
-		banksAndInstrTotal.add(total, null);
+		int[] counts = banks[bank];
+		if (null == counts) {
+			counts      = new int[128 * 128];
+			banks[bank] = counts;
+		}
+		counts[(config[2] << 7) | note]++;
+		byte[] firstChannels = firstChannelByProgram[bank];
+		if (null == firstChannels) {
+			firstChannels               = new byte[128];
+			firstChannelByProgram[bank] = firstChannels;
+		}
+		if (0 == firstChannels[config[2]])
+			firstChannels[config[2]] = (byte) (channel + 1);
 	}
 	
 	/**
@@ -823,7 +1037,7 @@ public class SequenceAnalyzer {
 	 * 
 	 * - tracks note events for the note history
 	 * - tracks the channel activity
-	 * - prepares markers
+	 * - prepares the UI timeline
 	 * 
 	 * @param tick     The tickstamp when this event occurred.
 	 * @param channel  The MIDI channel number.
@@ -880,15 +1094,28 @@ public class SequenceAnalyzer {
 	
 	/**
 	 * Adds last information to the info data structure about the MIDI sequence.
-	 * Adds marker events to the sequence.
-	 * 
-	 * @throws ParseException if the marker events cannot be added to the MIDI sequence.
+	 * Builds the UI timeline.
 	 */
-	private static void postprocess() throws ParseException {
+	private static void postprocess() {
 		
 		// sort messages for the message table
 		Collections.sort(messages);
 		
+		// message tree with the counted messages
+		msgTreeBuilder.build();
+		msgTreeBuilder = null;
+		
+		// bank/instrument/note trees
+		fillInstrumentTrees();
+		
+		// tempo map and time length
+		TempoMap tempoMap = tempoBuilder.build(sequence);
+		tempoBuilder      = null;
+		sequenceInfo.put("tempo_map", tempoMap);
+		long   microseconds = tempoMap.tickToMicros(sequence.getTickLength());
+		String time         = MidiDevices.microsecondsToTimeString(microseconds);
+		sequenceInfo.put("time_length", time);
+		
 		// average, min and max tempo
 		TreeMap<Long, Integer> tempoMpq = (TreeMap<Long, Integer>) sequenceInfo.get("tempo_mpq");
 		TreeMap<Long, Integer> tempoBpm = (TreeMap<Long, Integer>) sequenceInfo.get("tempo_bpm");
@@ -967,52 +1194,36 @@ public class SequenceAnalyzer {
 			}
 		}
 		
-		// Decide which channel to use for the channel part of the lyrics marker bytes.
-		Set<Byte> activeChannels = activityByChannel.keySet();
-		byte      lyricsChannel  = -1; // channel part for the lyrics marker events
-		if (KaraokeAnalyzer.getLyrics().size() > 0) {
-			Iterator<Byte> it = activeChannels.iterator();
-			if (it.hasNext()) {
-				// use one of the active channels for the lyrics
-				lyricsChannel = it.next();
-			}
-			else {
-				// No channel activity at all, only lyrics.
-				// Use channel 0 for lyrics.
-				lyricsChannel = 0;
-				activityByChannel.put(lyricsChannel, new TreeMap<>());
-			}
+		// note history for the player
+		channelNoteHistories = new ChannelNoteHistory[16];
+		for (byte channel = 0; channel < 16; channel++) {
+			channelNoteHistories[channel] = ChannelNoteHistory.create(noteHistory.get(channel));
 		}
 		
-		// markers
+		// UI timeline
+		UiTimeline.Builder timelineBuilder = new UiTimeline.Builder();
+		Set<Byte>          activeChannels  = activityByChannel.keySet();
+		Set<Long>          lyricsTicks     = KaraokeAnalyzer.getLyricsEventTicks();
 		for (long tick : markerTicks) {
 			
-			// initiate structures for that tick
-			TreeSet<Byte> channelsAtTick = new TreeSet<>();
-			boolean       mustAddMarker  = false;
+			// is there a lyrics event at the current tick?
+			if (lyricsTicks.contains(tick)) {
+				timelineBuilder.addLyricsChange(tick);
+			}
 			
-			// walk through all channels that have any activity IN ANY TICK (or lyrics)
+			// walk through all channels that have any activity IN ANY TICK
 			for (byte channel : activeChannels) {
-				
-				boolean lyricsChanged     = false;
-				boolean activityChanged   = false;
-				boolean historyChanged    = false;
-				boolean instrumentChanged = false;
-				
-				// is there a lyrics event at the current tick?
-				if (lyricsChannel == channel && KaraokeAnalyzer.getLyricsEventTicks().contains(tick)) {
-					lyricsChanged = true;
-				}
+				int flags = 0;
 				
 				// is there an instrument change at the current tick?
 				Byte[] instrChange = instrumentHistory.get(channel).get(tick);
 				if (instrChange != null) {
-					instrumentChanged = true;
+					flags |= UiTimeline.INSTRUMENT;
 				}
 				
 				// is there any channel activity at the current tick?
 				if (activityByChannel.get(channel).containsKey(tick)) {
-					activityChanged = true;
+					flags |= UiTimeline.ACTIVITY;
 					
 					// is at least one of the channel events a NOTE-ON?
 					TreeMap<Byte, TreeMap<Long, Boolean>>    noteTickOnOff    = noteOnOffByChannel.get(channel);
@@ -1027,43 +1238,148 @@ public class SequenceAnalyzer {
 							continue;
 						}
 						if (onOff) {
-							historyChanged = true;
+							flags |= UiTimeline.HISTORY;
 							break;
 						}
 					}
 				}
 				
-				// apply bitmasks to the channel byte
-				if (lyricsChanged)
-					channel |= MidiListener.MARKER_BITMASK_LYRICS;
-				if (activityChanged)
-					channel |= MidiListener.MARKER_BITMASK_ACTIVITY;
-				if (historyChanged)
-					channel |= MidiListener.MARKER_BITMASK_HISTORY;
-				if (instrumentChanged)
-					channel |= MidiListener.MARKER_BITMASK_INSTRUMENT;
-				
-				// add the channel to the marker
-				if (lyricsChanged || activityChanged || historyChanged || instrumentChanged) {
-					channelsAtTick.add(channel);
-					mustAddMarker = true;
+				if (flags != 0) {
+					timelineBuilder.addChannelChanges(tick, channel, flags);
 				}
 			}
-			
-			// add the marker
-			if (mustAddMarker) {
-				markers.put(tick, channelsAtTick);
-			}
-		}
-		try {
-			SequenceCreator.addMarkers(markers);
-		}
-		catch (InvalidMidiDataException e) {
-			throw new ParseException(Dict.get(Dict.ERROR_ANALYZE_POSTPROCESS) + e.getMessage());
 		}
+		uiTimeline = timelineBuilder.build();
 		
 		// postprocess the lyrics for karaoke
+		Phase phase = PhaseStats.begin("karaoke.postprocess");
 		KaraokeAnalyzer.postprocess();
+		phase.end(0);
+	}
+	
+	/**
+	 * Builds up the bank/instrument/note trees from the counted note-on events.
+	 * 
+	 * Each path is added only once, together with the number of notes.
+	 * So the node texts are only created for existing nodes.
+	 */
+	private static void fillInstrumentTrees() {
+		
+		// total counts: bank -- program*256 + note (percussion: note+128)
+		int[][] totalCounts = new int[128 * 128][];
+		
+		// per channel
+		for (byte channel = 0; channel < 16; channel++) {
+			int[][] banks = noteCounts[channel];
+			if (null == banks)
+				continue;
+			String[] channelOpts = { String.format("%02X", channel), Dict.get(Dict.CHANNEL) + " " + channel, null };
+			int      keyOffset   = 9 == channel ? 128 : 0;
+			for (int bank = 0; bank < banks.length; bank++) {
+				int[] counts = banks[bank];
+				if (null == counts)
+					continue;
+				if (null == totalCounts[bank])
+					totalCounts[bank] = new int[128 * 256];
+				String[] bankOpts = createBankOpts(bank);
+				for (int program = 0; program < 128; program++) {
+					String[] programOpts = null;
+					for (int note = 0; note < 128; note++) {
+						int count = counts[(program << 7) | note];
+						if (0 == count)
+							continue;
+						if (null == programOpts)
+							programOpts = createProgramOpts(channel, program);
+						ArrayList<String[]> perChannel = new ArrayList<>();
+						perChannel.add( channelOpts                   );
+						perChannel.add( bankOpts                      );
+						perChannel.add( programOpts                   );
+						perChannel.add( createNoteOpts(channel, note) );
+						banksAndInstrPerChannel.add(perChannel, null, count);
+						totalCounts[bank][(program << 8) | keyOffset | note] += count;
+					}
+				}
+			}
+		}
+		
+		// total
+		for (int bank = 0; bank < totalCounts.length; bank++) {
+			int[] counts = totalCounts[bank];
+			if (null == counts)
+				continue;
+			String[] bankOpts = createBankOpts(bank);
+			for (int program = 0; program < 128; program++) {
+				String[] programOpts = null;
+				for (int key = 0; key < 256; key++) {
+					int count = counts[(program << 8) | key];
+					if (0 == count)
+						continue;
+					if (null == programOpts) {
+						byte firstChannel = (byte) (firstChannelByProgram[bank][program] - 1);
+						programOpts = createProgramOpts(firstChannel, program);
+					}
+					byte noteChannel = key < 128 ? (byte) 0 : (byte) 9;
+					ArrayList<String[]> total = new ArrayList<>();
+					total.add( bankOpts                                );
+					total.add( programOpts                             );
+					total.add( createNoteOpts(noteChannel, key & 0x7F) );
+					banksAndInstrTotal.add(total, null, count);
+				}
+			}
+		}
+		
+		noteCounts            = null;
+		firstChannelByProgram = null;
+	}
+	
+	/**
+	 * Creates the options (id, name, number) of a bank node for the bank/instrument/note trees.
+	 * 
+	 * @param bank  bankMSB * 2^7 + bankLSB
+	 * @return the node options.
+	 */
+	private static String[] createBankOpts(int bank) {
+		int    msb    = bank >> 7;
+		int    lsb    = bank & 0x7F;
+		String syntax = msb + ""; // MSB as a string
+		if (lsb > 0) {  // MSB/LSB
+			syntax = syntax + Dict.getSyntax(Dict.SYNTAX_PROG_BANK_SEP) + lsb;
+		}
+		String text = Dict.get(Dict.BANK)             + " "  + bank + ", "
+		            + Dict.get(Dict.TOOLTIP_BANK_MSB) + ": " + msb  + ", "
+		            + Dict.get(Dict.TOOLTIP_BANK_LSB) + ": " + lsb;
+		String[] opts = { String.format("%02X%02X", msb, lsb), text, syntax };
+		return opts;
+	}
+	
+	/**
+	 * Creates the options (id, name, number) of a program node for the bank/instrument/note trees.
+	 * 
+	 * @param channel  MIDI channel (drumkit names for channel 9)
+	 * @param program  program number
+	 * @return the node options.
+	 */
+	private static String[] createProgramOpts(byte channel, int program) {
+		String   text = 9 == channel ? Dict.getDrumkit(program) : Dict.getInstrument(program);
+		String[] opts = { String.format("%02X", program), text, program + "" };
+		return opts;
+	}
+	
+	/**
+	 * Creates the options (id, name, number) of a note node for the bank/instrument/note trees.
+	 * 
+	 * @param channel  MIDI channel (percussion instruments for channel 9)
+	 * @param note     note number
+	 * @return the node options.
+	 */
+	private static String[] createNoteOpts(byte channel, int note) {
+		String text = 9 == channel ? Dict.getPercussionLongId(note) : Dict.getNote(note);
+		String id   = String.format("%02X", note);
+		if (9 == channel) {
+			id = "Z" + id; // give percussion notes have a different (higher) ID
+		}
+		String[] opts = { id, text, note + "" };
+		return opts;
 	}
 	
 	/**
@@ -1099,108 +1415,18 @@ public class SequenceAnalyzer {
 	}
 	
 	/**
-	 * Calculates the note history for the given channel at the given tick.
+	 * Returns the note history of the given channel in primitive arrays.
 	 * 
-	 * The returned history consists of past and future notes, ordered by the tickstamp
-	 * of their occurrence. Each entry contains the following parts:
-	 * 
-	 * - **index 0**: note number
-	 * - **index 1**: velocity
-	 * - **index 2**: tickstamp
-	 * - **index 3**: past/future marker (**0** = presence or past, **1** = future)
+	 * The player uses a cursor to get the past and future notes at the current tick.
+	 * See {@link ChannelNoteHistory}.
 	 * 
 	 * @param channel  MIDI channel
-	 * @param tick     tickstamp of the sequence
-	 * @return   the note history
+	 * @return the note history, or an empty history if no sequence has been analyzed successfully.
 	 */
-	public static ArrayList<Long[]> getNoteHistory(byte channel, long tick) {
-		
-		ArrayList<Long[]> result = new ArrayList<>();
-		if (null == noteHistory) {
-			return result;
-		}
-		TreeMap<Long, TreeMap<Byte, Byte>> channelHistory = noteHistory.get(channel);
-		
-		// get past notes
-		long lastTick = tick;
-		int i = 0;
-		PAST:
-		while (i < NOTE_HISTORY_BUFFER_SIZE_PAST) {
-			
-			// get all notes from the last tick
-			Entry<Long, TreeMap<Byte, Byte>> notesAtTickEntry = channelHistory.floorEntry(lastTick);
-			if (null == notesAtTickEntry) {
-				break PAST;
-			}
-			lastTick = notesAtTickEntry.getKey();
-			NavigableMap<Byte, Byte> notesAtTick = notesAtTickEntry.getValue().descendingMap(); // reverse order
-			
-			// each note at lastTick
-			Set<Entry<Byte, Byte>> noteEntrySet = notesAtTick.entrySet();
-			for (Entry<Byte, Byte> noteEntry : noteEntrySet) {
-				byte note     = noteEntry.getKey();
-				byte velocity = noteEntry.getValue();
-				
-				Long[] row = {
-					(long) note,     // note number
-					(long) velocity, // 0 - 127
-					lastTick,        // tick
-					0L,              // 0 = past; 1 = future
-				};
-				result.add(row);
-				
-				i++;
-				if (i >= NOTE_HISTORY_BUFFER_SIZE_PAST) {
-					break PAST;
-				}
-			}
-			
-			// go further into the past
-			lastTick--;
-		}
-		
-		// reverse the order of the past notes
-		Collections.reverse(result);
-		
-		// get future notes
-		long nextTick = tick + 1;
-		i = 0;
-		FUTURE:
-		while (i < NOTE_HISTORY_BUFFER_SIZE_FUTURE) {
-			
-			// get all notes from the next tick
-			Entry<Long, TreeMap<Byte, Byte>> notesAtTickEntry = channelHistory.ceilingEntry(nextTick);
-			if (null == notesAtTickEntry) {
-				break FUTURE;
-			}
-			nextTick = notesAtTickEntry.getKey();
-			TreeMap<Byte, Byte> notesAtTick = notesAtTickEntry.getValue();
-			
-			// each note at nextTick
-			Set<Entry<Byte, Byte>> noteEntrySet = notesAtTick.entrySet();
-			for (Entry<Byte, Byte> noteEntry : noteEntrySet) {
-				byte note     = noteEntry.getKey();
-				byte velocity = noteEntry.getValue();
-				
-				Long[] row = {
-					(long) note,     // note number
-					(long) velocity, // 0 - 127
-					nextTick,        // tick
-					1L,              // 0 = past; 1 = future
-				};
-				result.add(row);
-				
-				i++;
-				if (i >= NOTE_HISTORY_BUFFER_SIZE_FUTURE) {
-					break FUTURE;
-				}
-			}
-			
-			// go further into the future
-			nextTick++;
-		}
-		
-		return result;
+	public static ChannelNoteHistory getChannelNoteHistory(byte channel) {
+		if (null == channelNoteHistories)
+			return ChannelNoteHistory.EMPTY;
+		return channelNoteHistories[channel];
 	}
 	
 	/**
@@ -7,10 +7,7 @@
 
 package org.midica.midi;
 
-import java.util.Map.Entry;
 import java.util.HashMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 import javax.sound.midi.InvalidMidiDataException;
 import javax.sound.midi.MetaMessage;
@@ -48,6 +45,10 @@ public class SequenceCreator {
 	/**                    channel   --     note  -- event      */
 	private static HashMap<Integer, HashMap<Integer, MidiEvent>> lastNoteOffEvent = null;
 	
+	// progressive consumers of the sequence
+	private static IWindowListener windowListener = null;
+	private static long            watermark      = 0;
+	
 	/**
 	 * This class is only used statically so a public constructor is not needed.
 	 */
@@ -95,11 +96,79 @@ public class SequenceCreator {
 			tracks[i] = seq.createTrack();
 			lastNoteOffEvent.put(i, new HashMap<Integer, MidiEvent>());
 		}
-		fileType = "mid";
+		fileType  = "mid";
+		watermark = 0;
 		
 		return;
 	}
 	
+	/**
+	 * Uses an already created sequence instead of creating a new one.
+	 * This is called by the {@link MidicaPLParser} if the sequence is taken
+	 * from the compile cache.
+	 * 
+	 * @param sequence       the complete sequence
+	 * @param chosenCharset  Charset to be used for text-based messages.
+	 */
+	public static void restore(Sequence sequence, String chosenCharset) {
+		resolution       = sequence.getResolution();
+		charset          = chosenCharset;
+		seq              = sequence;
+		tracks           = sequence.getTracks();
+		lastNoteOffEvent = new HashMap<>();
+		for (int i = 0; i < tracks.length; i++) {
+			lastNoteOffEvent.put(i, new HashMap<Integer, MidiEvent>());
+		}
+		fileType  = "midica";
+		watermark = 0;
+	}
+	
+	/**
+	 * Sets or removes the listener that is informed about finalized time windows.
+	 * 
+	 * @param listener  the listener or **null** to remove the listener
+	 */
+	public static synchronized void setWindowListener(IWindowListener listener) {
+		windowListener = listener;
+	}
+	
+	/**
+	 * Determins if a window listener is registered.
+	 * 
+	 * This can be used by parsers to avoid calculating the watermark if nobody needs it.
+	 * 
+	 * @return **true** if a listener is registered, otherwise **false**.
+	 */
+	public static boolean hasWindowListener() {
+		return windowListener != null;
+	}
+	
+	/**
+	 * Publishes the watermark tick. That means: the parser guarantees that no more events
+	 * will be added before this tick.
+	 * 
+	 * If the watermark has moved forward, the window listener is informed.
+	 * 
+	 * @param tick  the new watermark
+	 */
+	public static synchronized void publishWatermark(long tick) {
+		if (null == windowListener || tick <= watermark)
+			return;
+		
+		windowListener.windowFinalized(seq, watermark, tick);
+		watermark = tick;
+	}
+	
+	/**
+	 * Informs the window listener that the sequence is complete.
+	 */
+	public static synchronized void publishEnd() {
+		if (null == windowListener)
+			return;
+		
+		windowListener.sequenceFinished(seq);
+	}
+	
 	/**
 	 * Returns the MIDI sequence.
 	 * 
@@ -190,6 +259,30 @@ public class SequenceCreator {
 		addMessageNoteOFF( channel, note, endTick );
 	}
 	
+	/**
+	 * Adds the note-ON and note-OFF messages for several notes at once.
+	 * 
+	 * The tickstamps of each note are shifted by the offset of the note's channel.
+	 * This is used to replay recorded function or pattern calls.
+	 * 
+	 * @param count        Number of notes to be added.
+	 * @param channels     Channel number of each note.
+	 * @param notes        Note number of each note.
+	 * @param startTicks   Relative tickstamp of each note-ON event.
+	 * @param endTicks     Relative tickstamp of each note-OFF event.
+	 * @param velocities   Velocity of each key stroke.
+	 * @param offsets      Tick offset by channel.
+	 * @throws InvalidMidiDataException if invalid MIDI data is used to create a MIDI message.
+	 */
+	public static void addMessageKeystrokes(int count, int[] channels, int[] notes, long[] startTicks,
+			long[] endTicks, int[] velocities, long[] offsets) throws InvalidMidiDataException {
+		for (int i = 0; i < count; i++) {
+			int  channel = channels[i];
+			long offset  = offsets[channel];
+			addMessageKeystroke(channel, notes[i], startTicks[i] + offset, endTicks[i] + offset, velocities[i]);
+		}
+	}
+	
 	/**
 	 * Adds a note-ON event.
 	 * 
@@ -500,44 +593,4 @@ public class SequenceCreator {
 	public static int getResolution() {
 		return resolution;
 	}
-	
-	/**
-	 * Adds meta events of the type **marker** to the sequence. These events
-	 * show that the activity state of some channels change at this point.
-	 * 
-	 * This is called by the {@link SequenceAnalyzer} after all other analyzing
-	 * is done.
-	 * 
-	 * The markers are always added to track 0.
-	 * 
-	 * @param markers  First dimension: **tick**; Second dimension: **bitmasked channels**
-	 *                 that change their activity (and/or other properties) at this tick.
-	 * @throws InvalidMidiDataException if one of the marker messages cannot be created.
-	 */
-	public static void addMarkers( TreeMap<Long, TreeSet<Byte>> markers ) throws InvalidMidiDataException {
-		
-		for ( Entry<Long, TreeSet<Byte>> eventData : markers.entrySet() ) {
-			
-			// get general parameters for the event to be created
-			long          tick              = eventData.getKey();
-			TreeSet<Byte> bitmaskedChannels = eventData.getValue();
-			int           length            = bitmaskedChannels.size();
-			
-			// message part (all channels in the current tick's marker)
-			byte[] content = new byte[ length ];
-			int i = 0;
-			for ( Object channelObj : bitmaskedChannels.toArray() ) {
-				byte bitmaskedChannel = (byte) channelObj;
-				byte channel          = (byte) (bitmaskedChannel & MidiListener.MARKER_BITMASK_CHANNEL);
-				content[ i ]          = bitmaskedChannel;
-				i++;
-			}
-			
-			// create and add the event
-			MetaMessage metaMsg = new MetaMessage();
-			metaMsg.setMessage( MidiListener.META_MARKER, content, length );
-			MidiEvent event = new MidiEvent( metaMsg, tick );
-			tracks[ 0 ].add( event );
-		}
-	}
 }
@@ -0,0 +1,276 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import javax.sound.midi.MidiChannel;
+
+/**
+ * Plays the soundcheck auditions.
+ * 
+ * An audition plays a note or chord with one or more instruments, one instrument after
+ * the other, each for the configured duration.
+ * 
+ * The first key strokes are played directly by the calling thread. All later note-OFFs
+ * and instrument changes are executed by one scheduler thread, using a per-channel
+ * timer queue. Nothing is allocated per note or per instrument step.
+ * 
+ * Overlappings are handled per channel: a new audition in a channel with a running
+ * audition stops the running notes and replaces the rest of the running audition.
+ * In this case the channel is not restored in between.
+ * 
+ * Bank, program and volume are only sent if they differ from the last values that
+ * have been sent for the channel. The remembered values are only used while the channel
+ * is occupied by auditions, because afterwards the sequencer may change the channel.
+ * 
+ * @author Jan Trukenmüller
+ */
+public final class SoundcheckScheduler implements Runnable {
+	
+	private static final int NUM_CHANNELS = 16;
+	private static final int UNKNOWN      = -1;
+	
+	private final Object lock   = new Object();
+	private       Thread thread = null;
+	
+	// running auditions
+	private final MidiChannel[] midiChannels = new MidiChannel[ NUM_CHANNELS ];
+	private final boolean[]     active       = new boolean[ NUM_CHANNELS ];
+	private final boolean[]     sounding     = new boolean[ NUM_CHANNELS ];
+	private final boolean[]     keep         = new boolean[ NUM_CHANNELS ];
+	private final int[][]       instruments  = new int[ NUM_CHANNELS ][ 3 ]; // program, bank MSB, bank LSB
+	private final int[]         instrCount   = new int[ NUM_CHANNELS ];
+	private final int[][]       notes        = new int[ NUM_CHANNELS ][ 4 ];
+	private final int[]         noteCount    = new int[ NUM_CHANNELS ];
+	private final int[]         volume       = new int[ NUM_CHANNELS ];
+	private final int[]         velocity     = new int[ NUM_CHANNELS ];
+	private final long[]        duration     = new long[ NUM_CHANNELS ]; // nanoseconds
+	private final int[]         step         = new int[ NUM_CHANNELS ]; // index of the current instrument
+	private final long[]        nextTime     = new long[ NUM_CHANNELS ]; // nano time of the next step
+	
+	// last values sent to the channels
+	private final int[] sentBankMsb = new int[ NUM_CHANNELS ];
+	private final int[] sentBankLsb = new int[ NUM_CHANNELS ];
+	private final int[] sentProgram = new int[ NUM_CHANNELS ];
+	private final int[] sentVolume  = new int[ NUM_CHANNELS ];
+	
+	/**
+	 * Creates the scheduler. The scheduler thread is started with the first audition.
+	 */
+	SoundcheckScheduler() {
+		for (int channel = 0; channel < NUM_CHANNELS; channel++)
+			forget(channel);
+	}
+	
+	/**
+	 * Starts an audition in the given channel.
+	 * 
+	 * Returns immediately after the first key strokes.
+	 * 
+	 * @param midiChannel  the synthesizer channel
+	 * @param channel      channel number
+	 * @param instrs       instruments to be played one after the other (program, bank MSB, bank LSB)
+	 * @param keys         note or percussion numbers to be played together
+	 * @param vol          channel volume
+	 * @param vel          velocity
+	 * @param millis       duration per instrument in milliseconds
+	 * @param mustKeep     **true**, if the channel settings shall be kept after the audition
+	 */
+	void audition(MidiChannel midiChannel, int channel, int[][] instrs, int[] keys, int vol, int vel, int millis, boolean mustKeep) {
+		if (0 == instrs.length || 0 == keys.length)
+			return;
+		
+		synchronized (lock) {
+			
+			// replace a running audition or start a new one
+			if (active[channel] && midiChannels[channel] == midiChannel)
+				stopNotes(channel);
+			else
+				forget(channel);
+			
+			// copy the audition data
+			if (instruments[channel].length < instrs.length * 3)
+				instruments[channel] = new int[ instrs.length * 3 ];
+			for (int i = 0; i < instrs.length; i++)
+				System.arraycopy(instrs[i], 0, instruments[channel], i * 3, 3);
+			if (notes[channel].length < keys.length)
+				notes[channel] = new int[ keys.length ];
+			System.arraycopy(keys, 0, notes[channel], 0, keys.length);
+			
+			midiChannels[channel] = midiChannel;
+			instrCount[channel]   = instrs.length;
+			noteCount[channel]    = keys.length;
+			volume[channel]       = vol;
+			velocity[channel]     = vel;
+			duration[channel]     = millis * 1_000_000L;
+			keep[channel]         = mustKeep;
+			step[channel]         = 0;
+			active[channel]       = true;
+			
+			startStep(channel, System.nanoTime());
+			
+			// wake up the scheduler
+			if (null == thread) {
+				thread = new Thread(this, "Midica soundcheck");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			lock.notifyAll();
+		}
+	}
+	
+	/**
+	 * Releases the given channel so that it's restored after the soundcheck.
+	 * 
+	 * If an audition is running in the channel, the channel is restored at the end of
+	 * the audition. Otherwise it's restored immediately.
+	 * 
+	 * @param channel  channel number
+	 */
+	void release(int channel) {
+		synchronized (lock) {
+			if (active[channel])
+				keep[channel] = false;
+			else
+				MidiDevices.restoreChannel(channel);
+		}
+	}
+	
+	/**
+	 * Forgets all running auditions without sending anything.
+	 * 
+	 * Used if the synthesizer is closed or all its channels are reset.
+	 */
+	void cancelAll() {
+		synchronized (lock) {
+			for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+				active[channel]       = false;
+				sounding[channel]     = false;
+				midiChannels[channel] = null;
+				forget(channel);
+			}
+		}
+	}
+	
+	/**
+	 * Executes the scheduled steps of all channels.
+	 */
+	@Override
+	public void run() {
+		synchronized (lock) {
+			while (true) {
+				
+				// execute due steps
+				long now       = System.nanoTime();
+				long waitNanos = Long.MAX_VALUE;
+				for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+					if (active[channel] && nextTime[channel] - now <= 0)
+						nextStep(channel);
+					if (active[channel])
+						waitNanos = Math.min(waitNanos, nextTime[channel] - now);
+				}
+				
+				// wait for the next step or a new audition
+				try {
+					if (Long.MAX_VALUE == waitNanos)
+						lock.wait();
+					else if (waitNanos > 0)
+						lock.wait((waitNanos + 999_999) / 1_000_000);
+				}
+				catch (InterruptedException e) {
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Stops the notes of the current step and starts the next step, or finishes
+	 * the audition, if there are no more instruments.
+	 * 
+	 * @param channel  channel number
+	 */
+	private void nextStep(int channel) {
+		stopNotes(channel);
+		step[channel]++;
+		
+		// next instrument
+		if (step[channel] < instrCount[channel]) {
+			startStep(channel, nextTime[channel]);
+			return;
+		}
+		
+		// finished
+		active[channel] = false;
+		if ( ! keep[channel] )
+			MidiDevices.restoreChannel(channel);
+		forget(channel);
+	}
+	
+	/**
+	 * Sets the instrument and volume of the current step, if they differ from the
+	 * last sent values, and plays the notes.
+	 * 
+	 * @param channel    channel number
+	 * @param startTime  nano time of the step start
+	 */
+	private void startStep(int channel, long startTime) {
+		MidiChannel midiChannel = midiChannels[channel];
+		int         offset      = step[channel] * 3;
+		int         program     = instruments[channel][ offset     ];
+		int         bankMsb     = instruments[channel][ offset + 1 ];
+		int         bankLsb     = instruments[channel][ offset + 2 ];
+		
+		// a bank change needs a program change in order to take effect
+		if (bankMsb != sentBankMsb[channel] || bankLsb != sentBankLsb[channel]) {
+			midiChannel.controlChange( 0x00, bankMsb );
+			midiChannel.controlChange( 0x20, bankLsb );
+			sentBankMsb[channel] = bankMsb;
+			sentBankLsb[channel] = bankLsb;
+			sentProgram[channel] = UNKNOWN;
+		}
+		if (program != sentProgram[channel]) {
+			midiChannel.programChange( program );
+			sentProgram[channel] = program;
+		}
+		if (volume[channel] != sentVolume[channel]) {
+			midiChannel.controlChange( 0x07, volume[channel] );
+			midiChannel.controlChange( 0x27, volume[channel] );
+			sentVolume[channel] = volume[channel];
+		}
+		
+		// note on
+		for (int i = 0; i < noteCount[channel]; i++)
+			midiChannel.noteOn( notes[channel][i], velocity[channel] );
+		sounding[channel] = true;
+		nextTime[channel] = startTime + duration[channel];
+	}
+	
+	/**
+	 * Stops the notes of the current step, if they are still sounding.
+	 * 
+	 * @param channel  channel number
+	 */
+	private void stopNotes(int channel) {
+		if ( ! sounding[channel] )
+			return;
+		for (int i = 0; i < noteCount[channel]; i++)
+			midiChannels[channel].noteOff( notes[channel][i] );
+		sounding[channel] = false;
+	}
+	
+	/**
+	 * Forgets the values that have been sent to the given channel.
+	 * 
+	 * @param channel  channel number
+	 */
+	private void forget(int channel) {
+		sentBankMsb[channel] = UNKNOWN;
+		sentBankLsb[channel] = UNKNOWN;
+		sentProgram[channel] = UNKNOWN;
+		sentVolume[channel]  = UNKNOWN;
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+/**
+ * Immutable index for converting ticks into microseconds and back.
+ * 
+ * The map consists of segments with a constant tempo. For each segment the start tick,
+ * the start time in microseconds (summed up over all former segments) and the tempo
+ * in microseconds per quarter note are stored in parallel arrays.
+ * Conversions in both directions use a binary search over these arrays.
+ * 
+ * For sequences with an SMPTE based division type, the tempo is irrelevant and the
+ * conversion is a simple multiplication.
+ * 
+ * A tempo map is built once by the {@link SequenceAnalyzer} and can be fetched with
+ * {@link SequenceAnalyzer#getTempoMap()}. So the conversion doesn't need a running sequencer.
+ * 
+ * @author Jan Trukenmüller
+ */
+public final class TempoMap {
+	
+	/** Tempo in microseconds per quarter note that is valid before the first tempo change. */
+	public static final int DEFAULT_MPQ = Tempo.bpmToMpq(MidiDevices.DEFAULT_TEMPO_BPM);
+	
+	private final long[] segTicks;
+	private final long[] segMicros;
+	private final int[]  segMpq;
+	private final int    resolution;
+	private final double ticksPerSecond;
+	
+	/**
+	 * Creates a tempo map.
+	 * 
+	 * @param tempoChanges  tick -- tempo in microseconds per quarter note
+	 * @param resolution    resolution of the sequence
+	 * @param divisionType  division type of the sequence
+	 */
+	private TempoMap(TreeMap<Long, Integer> tempoChanges, int resolution, float divisionType) {
+		this.resolution     = resolution;
+		this.ticksPerSecond = Sequence.PPQ == divisionType ? 0 : (double) divisionType * resolution;
+		
+		// the default tempo is valid until the first change
+		TreeMap<Long, Integer> changes = new TreeMap<>(tempoChanges);
+		if (! changes.containsKey(0L))
+			changes.put(0L, DEFAULT_MPQ);
+		
+		segTicks  = new long[changes.size()];
+		segMicros = new long[changes.size()];
+		segMpq    = new int[changes.size()];
+		int i = 0;
+		for (Entry<Long, Integer> entry : changes.entrySet()) {
+			segTicks[i] = entry.getKey();
+			segMpq[i]   = entry.getValue();
+			if (i > 0)
+				segMicros[i] = segMicros[i - 1] + (segTicks[i] - segTicks[i - 1]) * segMpq[i - 1] / resolution;
+			i++;
+		}
+	}
+	
+	/**
+	 * Creates a tempo map by reading all tempo changes of the given sequence.
+	 * 
+	 * This is only needed if the sequence has not been analyzed.
+	 * Otherwise {@link SequenceAnalyzer#getTempoMap()} should be used.
+	 * 
+	 * @param seq  the sequence
+	 * @return the tempo map.
+	 */
+	public static TempoMap fromSequence(Sequence seq) {
+		Builder builder = new Builder();
+		for (Track track : seq.getTracks()) {
+			for (int i = 0; i < track.size(); i++) {
+				MidiMessage msg = track.get(i).getMessage();
+				if (msg instanceof MetaMessage)
+					builder.add((MetaMessage) msg, track.get(i).getTick());
+			}
+		}
+		return builder.build(seq);
+	}
+	
+	/**
+	 * Converts a tick into microseconds.
+	 * 
+	 * @param tick  the tick
+	 * @return the time in microseconds.
+	 */
+	public long tickToMicros(long tick) {
+		if (ticksPerSecond > 0)
+			return (long) (tick * 1_000_000 / ticksPerSecond);
+		int i = findSegmentByTick(tick);
+		return segMicros[i] + (tick - segTicks[i]) * segMpq[i] / resolution;
+	}
+	
+	/**
+	 * Converts microseconds into a tick.
+	 * 
+	 * @param micros  the time in microseconds
+	 * @return the tick.
+	 */
+	public long microsToTick(long micros) {
+		if (ticksPerSecond > 0)
+			return (long) (micros * ticksPerSecond / 1_000_000);
+		int i = Arrays.binarySearch(segMicros, micros);
+		if (i < 0)
+			i = Math.max(0, -i - 2);
+		else
+			i = lastSegmentStartingAt(i, segMicros);
+		return segTicks[i] + (micros - segMicros[i]) * resolution / segMpq[i];
+	}
+	
+	/**
+	 * Returns the tempo that is valid at the given tick.
+	 * 
+	 * @param tick  the tick
+	 * @return the tempo in microseconds per quarter note.
+	 */
+	public int getMpq(long tick) {
+		return segMpq[findSegmentByTick(tick)];
+	}
+	
+	/**
+	 * Returns the number of segments with a constant tempo.
+	 * 
+	 * @return number of segments.
+	 */
+	public int getSegmentCount() {
+		return segTicks.length;
+	}
+	
+	/**
+	 * Returns the index of the segment containing the given tick.
+	 * 
+	 * @param tick  the tick
+	 * @return the segment index.
+	 */
+	private int findSegmentByTick(long tick) {
+		int i = Arrays.binarySearch(segTicks, tick);
+		if (i < 0)
+			return Math.max(0, -i - 2);
+		return i;
+	}
+	
+	/**
+	 * Returns the last segment with the same start value as the given segment.
+	 * 
+	 * Several segments can start at the same microsecond if they are very short.
+	 * 
+	 * @param i       index found by the binary search
+	 * @param starts  start values of the segments
+	 * @return the last segment index with the same start value.
+	 */
+	private static int lastSegmentStartingAt(int i, long[] starts) {
+		while (i + 1 < starts.length && starts[i + 1] == starts[i])
+			i++;
+		return i;
+	}
+	
+	/**
+	 * Collects tempo changes and creates a {@link TempoMap}.
+	 */
+	public static class Builder {
+		
+		private final TreeMap<Long, Integer> tempoChanges = new TreeMap<>();
+		
+		/**
+		 * Adds a tempo change.
+		 * 
+		 * @param tick  tick of the tempo change
+		 * @param mpq   new tempo in microseconds per quarter note
+		 */
+		public void add(long tick, int mpq) {
+			if (mpq > 0)
+				tempoChanges.put(tick, mpq);
+		}
+		
+		/**
+		 * Adds a tempo change, if the given meta message is a tempo change message.
+		 * 
+		 * @param msg   meta message
+		 * @param tick  tick of the message
+		 */
+		public void add(MetaMessage msg, long tick) {
+			if (MidiListener.META_SET_TEMPO != msg.getType())
+				return;
+			byte[] data = msg.getData();
+			if (data.length < 3)
+				return;
+			add(tick, ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF));
+		}
+		
+		/**
+		 * Creates the tempo map.
+		 * 
+		 * @param seq  the sequence containing the tempo changes
+		 * @return the tempo map.
+		 */
+		public TempoMap build(Sequence seq) {
+			return new TempoMap(tempoChanges, seq.getResolution(), seq.getDivisionType());
+		}
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
+
+/**
+ * Tick-indexed timeline of the changes that must be shown in the player UI.
+ * 
+ * It's created by the {@link SequenceAnalyzer} and followed by a {@link UiTimelineClock}
+ * during playback. So the MIDI sequence itself contains only musical data.
+ * 
+ * Each entry consists of a tick and a bitmask of the changes at this tick.
+ * The bitmask contains 3 bits per channel (see {@link #ACTIVITY}, {@link #HISTORY}
+ * and {@link #INSTRUMENT}), shifted by **3 * channel**, and one global bit for
+ * lyrics changes (see {@link #LYRICS}).
+ * 
+ * @author Jan Trukenmüller
+ */
+public class UiTimeline {
+	
+	/** The channel activity has changed. */
+	public static final int ACTIVITY   = 0b001;
+	
+	/** At least one note-on event has occurred, so the note history has changed. */
+	public static final int HISTORY    = 0b010;
+	
+	/** Bank, instrument or channel comment have changed. */
+	public static final int INSTRUMENT = 0b100;
+	
+	/** The lyrics have changed (channel independent). */
+	public static final long LYRICS    = 1L << 48;
+	
+	private static final int BITS_PER_CHANNEL = 3;
+	private static final int CHANNEL_MASK     = 0b111;
+	
+	private final long[] ticks;
+	private final long[] changes;
+	
+	/**
+	 * Creates a timeline from the given arrays.
+	 * 
+	 * @param ticks    the ticks, in ascending order
+	 * @param changes  the change bitmask for each tick
+	 */
+	private UiTimeline(long[] ticks, long[] changes) {
+		this.ticks   = ticks;
+		this.changes = changes;
+	}
+	
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return the number of entries.
+	 */
+	public int size() {
+		return ticks.length;
+	}
+	
+	/**
+	 * Returns the tick of the given entry.
+	 * 
+	 * @param index  entry index
+	 * @return the tick.
+	 */
+	public long getTick(int index) {
+		return ticks[index];
+	}
+	
+	/**
+	 * Returns the change bitmask of the given entry.
+	 * 
+	 * Use {@link #getChannelChanges(long, int)} and {@link #LYRICS}
+	 * to evaluate the bitmask.
+	 * 
+	 * @param index  entry index
+	 * @return the bitmask.
+	 */
+	public long getChanges(int index) {
+		return changes[index];
+	}
+	
+	/**
+	 * Returns the changes of one channel from a change bitmask.
+	 * 
+	 * @param changes  change bitmask of one or more entries
+	 * @param channel  channel number (0-15)
+	 * @return a combination of {@link #ACTIVITY}, {@link #HISTORY} and {@link #INSTRUMENT}.
+	 */
+	public static int getChannelChanges(long changes, int channel) {
+		return (int) (changes >>> (channel * BITS_PER_CHANNEL)) & CHANNEL_MASK;
+	}
+	
+	/**
+	 * Returns the index of the first entry after the given tick.
+	 * 
+	 * @param tick  the tick
+	 * @return the index of the first entry with a higher tick, or {@link #size()}
+	 *         if there is no such entry.
+	 */
+	public int indexAfter(long tick) {
+		int index = Arrays.binarySearch(ticks, tick);
+		if (index < 0)
+			return -index - 1;
+		return index + 1;
+	}
+	
+	/**
+	 * Writes the timeline to the analysis cache.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the timeline cannot be written.
+	 */
+	public void writeToCache(CacheWriter out) throws IOException {
+		out.writeValue(ticks);
+		out.writeValue(changes);
+	}
+	
+	/**
+	 * Reads a timeline from the analysis cache.
+	 * 
+	 * @param in  cache reader
+	 * @return the timeline.
+	 * @throws IOException if the timeline cannot be read.
+	 */
+	public static UiTimeline readFromCache(CacheReader in) throws IOException {
+		long[] ticks   = (long[]) in.readValue();
+		long[] changes = (long[]) in.readValue();
+		if (ticks.length != changes.length)
+			throw new IOException("invalid timeline");
+		return new UiTimeline(ticks, changes);
+	}
+	
+	/**
+	 * Collects the changes of a timeline. The changes must be added in ascending
+	 * tick order.
+	 */
+	public static class Builder {
+		
+		private long[] ticks   = new long[64];
+		private long[] changes = new long[64];
+		private int    size    = 0;
+		
+		/**
+		 * Adds changes of one channel.
+		 * 
+		 * @param tick     the tick
+		 * @param channel  channel number (0-15)
+		 * @param flags    a combination of {@link #ACTIVITY}, {@link #HISTORY} and {@link #INSTRUMENT}
+		 */
+		public void addChannelChanges(long tick, int channel, int flags) {
+			add(tick, ((long) flags) << (channel * BITS_PER_CHANNEL));
+		}
+		
+		/**
+		 * Adds a lyrics change.
+		 * 
+		 * @param tick  the tick
+		 */
+		public void addLyricsChange(long tick) {
+			add(tick, LYRICS);
+		}
+		
+		/**
+		 * Adds the given changes.
+		 * 
+		 * @param tick  the tick
+		 * @param bits  the change bits
+		 * @throws IllegalArgumentException if the tick is lower than the last added tick.
+		 */
+		private void add(long tick, long bits) {
+			if (size > 0 && ticks[size - 1] == tick) {
+				changes[size - 1] |= bits;
+				return;
+			}
+			if (size > 0 && ticks[size - 1] > tick)
+				throw new IllegalArgumentException("tick " + tick + " added after " + ticks[size - 1]);
+			if (size == ticks.length) {
+				ticks   = Arrays.copyOf(ticks,   size * 2);
+				changes = Arrays.copyOf(changes, size * 2);
+			}
+			ticks[size]   = tick;
+			changes[size] = bits;
+			size++;
+		}
+		
+		/**
+		 * Creates the timeline.
+		 * 
+		 * @return the timeline.
+		 */
+		public UiTimeline build() {
+			return new UiTimeline(Arrays.copyOf(ticks, size), Arrays.copyOf(changes, size));
+		}
+	}
+}
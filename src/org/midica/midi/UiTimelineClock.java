@@ -0,0 +1,126 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import javax.sound.midi.Sequencer;
+
+/**
+ * Follows the tick position of a sequencer and refreshes the player UI according
+ * to a {@link UiTimeline}.
+ * 
+ * The clock runs in its own thread and polls the sequencer position every
+ * {@link #POLL_MILLIS} milliseconds while the sequencer is running.
+ * All entries that have been reached since the last poll are combined, so that
+ * each channel is refreshed only once per poll.
+ * 
+ * After the position has been changed manually, {@link #seek(long)} must be called.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class UiTimelineClock implements Runnable {
+	
+	/** Waiting time in milliseconds between two polls. */
+	public static final int POLL_MILLIS = 10;
+	
+	private final Sequencer  sequencer;
+	private final UiTimeline timeline;
+	private final Object     lock      = new Object();
+	private       int        nextIndex = 0;
+	
+	private volatile boolean isAlive = true;
+	
+	/**
+	 * Creates a clock. The clock must be started with {@link #start()}.
+	 * 
+	 * @param sequencer  the sequencer to follow
+	 * @param timeline   the timeline of the sequence
+	 */
+	public UiTimelineClock(Sequencer sequencer, UiTimeline timeline) {
+		this.sequencer = sequencer;
+		this.timeline  = timeline;
+	}
+	
+	/**
+	 * Starts the clock thread.
+	 */
+	public void start() {
+		Thread thread = new Thread(this, "Midica UI timeline");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Makes the clock thread stop running.
+	 */
+	public void die() {
+		isAlive = false;
+	}
+	
+	/**
+	 * Continues with the first entry after the given tick.
+	 * 
+	 * Must be called after the position has been changed manually. The changes
+	 * up to the given tick are not refreshed by the clock.
+	 * 
+	 * @param tick  the new position
+	 */
+	public void seek(long tick) {
+		synchronized (lock) {
+			nextIndex = timeline.indexAfter(tick);
+		}
+	}
+	
+	/**
+	 * Polls the sequencer position until {@link #die()} is called.
+	 */
+	@Override
+	public void run() {
+		while (isAlive) {
+			if (sequencer.isRunning())
+				follow(sequencer.getTickPosition());
+			try {
+				Thread.sleep(POLL_MILLIS);
+			}
+			catch (InterruptedException e) {
+			}
+		}
+	}
+	
+	/**
+	 * Refreshes everything that has changed between the last poll and the given tick.
+	 * 
+	 * @param tick  the current tick position
+	 */
+	private void follow(long tick) {
+		
+		// combine all changes that have been reached
+		long changes = 0;
+		synchronized (lock) {
+			int size = timeline.size();
+			while (nextIndex < size && timeline.getTick(nextIndex) <= tick) {
+				changes |= timeline.getChanges(nextIndex);
+				nextIndex++;
+			}
+		}
+		if (0 == changes || ! isAlive)
+			return;
+		
+		// refresh
+		for (byte channel = 0; channel < MidiDevices.NUMBER_OF_CHANNELS; channel++) {
+			int channelChanges = UiTimeline.getChannelChanges(changes, channel);
+			if (0 != (channelChanges & UiTimeline.ACTIVITY))
+				MidiDevices.refreshChannelActivity( channel );
+			if (0 != (channelChanges & UiTimeline.HISTORY))
+				MidiDevices.refreshNoteHistory( channel );
+			if (0 != (channelChanges & UiTimeline.INSTRUMENT))
+				MidiDevices.refreshInstrument( channel );
+		}
+		if (0 != (changes & UiTimeline.LYRICS))
+			MidiDevices.refreshLyrics();
+	}
+}
@@ -17,6 +17,8 @@ import java.awt.event.WindowListener;
 import java.io.File;
 import java.util.concurrent.ExecutionException;
 
+import javax.sound.midi.MidiUnavailableException;
+
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
@@ -43,6 +45,7 @@ import org.midica.file.write.Exporter;
 import org.midica.file.write.MidiExporter;
 import org.midica.file.write.MidicaPLExporter;
 import org.midica.midi.MidiDevices;
+import org.midica.midi.ProgressivePlayer;
 import org.midica.ui.file.ExportResult;
 import org.midica.ui.file.ExportResultView;
 import org.midica.ui.file.FileExtensionFilter;
@@ -51,6 +54,7 @@ import org.midica.ui.info.InfoView;
 import org.midica.ui.model.ComboboxStringOption;
 import org.midica.ui.model.ConfigComboboxModel;
 import org.midica.ui.player.PlayerView;
+import org.midica.worker.ExportWorker;
 import org.midica.worker.ParsingWorker;
 import org.midica.worker.WaitView;
 
@@ -410,10 +414,23 @@ public class UiController implements ActionListener, WindowListener, ItemListene
 		// close file selector
 		selector.setVisible(false);
 		
+		// play a MidicaPL file already while it's parsed, if configured
+		if (FileSelector.FILE_TYPE_MPL.equals(type) && "true".equals(Config.get(Config.PROGRESSIVE_PLAYBACK))) {
+			try {
+				ProgressivePlayer.start();
+			}
+			catch (MidiUnavailableException e) {
+				e.printStackTrace();
+			}
+		}
+		else {
+			ProgressivePlayer.stop();
+		}
+		
 		// start file parsing in the background and show the wait window
 		ParsingWorker worker = new ParsingWorker(waitView, parser, file);
 		worker.execute();
-		waitView.init(waitMsg);
+		waitView.init(waitMsg, FileSelector.FILE_TYPE_SOUNDFONT.equals(type) ? null : worker.getTaskProgress());
 		
 		// wait until the file is parsed and than evaluate the parsing result
 		try {
@@ -428,6 +445,9 @@ public class UiController implements ActionListener, WindowListener, ItemListene
 				throw new ParseException(workerException.getMessage());
 			}
 			
+			// stop the progressive playback - the player will start where it stopped
+			MidiDevices.setPreviewTick(ProgressivePlayer.stop());
+			
 			// show the filename of the successfully parsed file
 			displayFilename(type, file.getName());
 			if (FileSelector.FILE_TYPE_SOUNDFONT.equals(type)) {
@@ -459,6 +479,7 @@ public class UiController implements ActionListener, WindowListener, ItemListene
 			selector.rememberDirectory();
 		}
 		catch (ParseException ex) {
+			ProgressivePlayer.stop();
 			showErrorMessage(ex.getFullMessage());
 			ex.printStackTrace();
 		}
@@ -504,8 +525,27 @@ public class UiController implements ActionListener, WindowListener, ItemListene
 			return;
 		}
 		exportSelector.setVisible(false);
+		
+		// start the export in the background and show the wait window
+		WaitView     waitView = new WaitView(view);
+		ExportWorker worker   = new ExportWorker(waitView, exporter, file);
+		worker.execute();
+		waitView.init(Dict.get(Dict.WAIT_EXPORT), worker.getTaskProgress());
+		
+		// wait until the file is exported and than evaluate the result
 		try {
-			ExportResult result = exporter.export(file);
+			ExportResult result;
+			try {
+				ExportException exportException = (ExportException) worker.get();
+				if (exportException != null) {
+					throw exportException;
+				}
+				result = worker.getResult();
+			}
+			catch (InterruptedException | ExecutionException workerException) {
+				workerException.printStackTrace();
+				throw new ExportException(workerException.getMessage());
+			}
 			if (result.isSuccessful() && ! Cli.isCliMode) {
 				showExportResult(result);
 				
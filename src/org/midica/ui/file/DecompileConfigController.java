@@ -9,6 +9,7 @@ package org.midica.ui.file;
 
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.GraphicsEnvironment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
@@ -20,6 +21,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.ComboBoxModel;
 import javax.swing.DefaultComboBoxModel;
@@ -36,8 +38,12 @@ import org.midica.config.Config;
 import org.midica.config.Dict;
 import org.midica.config.Laf;
 import org.midica.config.NamedInteger;
+import org.midica.file.TaskCancelledException;
 import org.midica.file.write.MidicaPLExporter;
+import org.midica.ui.ErrorMsgView;
 import org.midica.ui.widget.DecompileConfigIcon;
+import org.midica.worker.AutoTuneWorker;
+import org.midica.worker.WaitView;
 
 /**
  * Controller for the decompile config window.
@@ -80,8 +86,14 @@ public class DecompileConfigController implements WindowListener, DocumentListen
 	public static HashMap<String, String> getSessionConfig() {
 		
 		// create session config, if not yet done
-		if (null == sessionConfig)
-			new DecompileConfigView(null, null);
+		if (null == sessionConfig) {
+			
+			// no window possible - take the config without widgets
+			if (GraphicsEnvironment.isHeadless())
+				initHeadlessSessionConfig();
+			else
+				new DecompileConfigView(null, null);
+		}
 		
 		return sessionConfig;
 	}
@@ -143,16 +155,7 @@ public class DecompileConfigController implements WindowListener, DocumentListen
 			}
 			
 			// extra ticks
-			String extraTicksStr = (String) sessionConfig.get(Config.DC_EXTRA_GLOBALS_STR);
-			extraGlobalTicks     = new TreeSet<>();
-			for (String tickStr : extraTicksStr.split(",")) {
-				try {
-					long tick = Long.parseLong(tickStr);
-					extraGlobalTicks.add(tick);
-				}
-				catch(Exception e) {
-				}
-			}
+			initExtraGlobalTicks();
 		}
 		else {
 			for (String id : sessionConfig.keySet()) {
@@ -163,6 +166,37 @@ public class DecompileConfigController implements WindowListener, DocumentListen
 		}
 	}
 	
+	/**
+	 * Initializes the session config directly from {@link Config}, without any widgets.
+	 * 
+	 * This is used if no window can be created, e.g. for a benchmark or export on
+	 * a machine without a display.
+	 */
+	private static void initHeadlessSessionConfig() {
+		configClasses = new HashMap<>();
+		sessionConfig = new HashMap<>();
+		for (String id : Config.getDefaultDecompileConfig().keySet()) {
+			sessionConfig.put(id, getSavedConfigValue(id));
+		}
+		initExtraGlobalTicks();
+	}
+	
+	/**
+	 * Parses the extra global ticks from the session config.
+	 */
+	private static void initExtraGlobalTicks() {
+		String extraTicksStr = (String) sessionConfig.get(Config.DC_EXTRA_GLOBALS_STR);
+		extraGlobalTicks     = new TreeSet<>();
+		for (String tickStr : extraTicksStr.split(",")) {
+			try {
+				long tick = Long.parseLong(tickStr);
+				extraGlobalTicks.add(tick);
+			}
+			catch(Exception e) {
+			}
+		}
+	}
+	
 	/**
 	 * Initializes data structures for one decompile config element.
 	 * 
@@ -385,6 +419,47 @@ public class DecompileConfigController implements WindowListener, DocumentListen
 			extraGlobalTicks = new TreeSet<Long>();
 		}
 		
+		// search the best settings for the loaded sequence
+		else if (widget == view.btnAutoTune) {
+			if ( ! applyConfig() )
+				return;
+			
+			// search in the background and show the wait window
+			WaitView       waitView = new WaitView(view);
+			AutoTuneWorker worker   = new AutoTuneWorker(waitView, new HashMap<>(sessionConfig));
+			worker.execute();
+			waitView.init(Dict.get(Dict.WAIT_AUTO_TUNE), worker.getTaskProgress());
+			
+			// evaluate the result
+			Exception exception;
+			try {
+				exception = worker.get();
+			}
+			catch (InterruptedException | ExecutionException ex) {
+				exception = ex;
+			}
+			if (exception != null) {
+				
+				// cancelled by the user - keep the current settings
+				if (exception instanceof TaskCancelledException && worker.getTaskProgress().isCancelled())
+					return;
+				
+				exception.printStackTrace();
+				String       message  = null == exception.getMessage() ? exception.toString() : exception.getMessage();
+				ErrorMsgView errorMsg = new ErrorMsgView(view);
+				errorMsg.init(message);
+				return;
+			}
+			
+			// apply the result
+			HashMap<String, String> bestConfig = worker.getBestConfig();
+			for (String id : bestConfig.keySet()) {
+				sessionConfig.put(id, bestConfig.get(id));
+				setWidget(configWidgets.get(id), bestConfig.get(id));
+			}
+			applyConfig();
+		}
+		
 		// save settings
 		else if (widget == view.btnSave) {
 			for (String id : sessionConfig.keySet()) {
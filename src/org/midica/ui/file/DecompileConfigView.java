@@ -92,6 +92,7 @@ public class DecompileConfigView extends JDialog {
 	MidicaButton btnRestoreDefaults; // use hard-coded default
 	MidicaButton btnRestore;         // use config from file
 	MidicaButton btnSave;            // copy session config to config file
+	MidicaButton btnAutoTune;        // search the best config for the loaded sequence
 	
 	/**
 	 * Creates the window for the decompile configuration.
@@ -135,6 +136,7 @@ public class DecompileConfigView extends JDialog {
 		btnRestoreDefaults        = new MidicaButton(Dict.get(Dict.DC_RESTORE_DEFAULTS));
 		btnRestore                = new MidicaButton(Dict.get(Dict.DC_RESTORE));
 		btnSave                   = new MidicaButton(Dict.get(Dict.DC_SAVE));
+		btnAutoTune               = new MidicaButton(Dict.get(Dict.DC_AUTO_TUNE));
 		cbxLengthStrategy.setModel(DecompileConfigController.getComboboxModel(Config.DC_LENGTH_STRATEGY));
 		cbxMaxTargetTicksOn.setModel(DecompileConfigController.getComboboxModel(Config.DC_MAX_TARGET_TICKS_ON));
 		cbxOrphanedSyllables.setModel(DecompileConfigController.getComboboxModel(Config.DC_ORPHANED_SYLLABLES));
@@ -754,6 +756,11 @@ public class DecompileConfigView extends JDialog {
 		btnSave.addActionListener(controller);
 		area.add(btnSave, constraints);
 		
+		// auto-tune button
+		constraints.gridx++;
+		btnAutoTune.addActionListener(controller);
+		area.add(btnAutoTune, constraints);
+		
 		return area;
 	}
 	
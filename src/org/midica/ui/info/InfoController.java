@@ -1164,8 +1164,10 @@ public class InfoController implements WindowListener, ActionListener, TreeSelec
 	
 	/**
 	 * Updates the labels for visible and total messages.
+	 * 
+	 * Must not be called before the message table is created.
 	 */
-	private void updateVisibleTotalLabels() {
+	public void updateVisibleTotalLabels() {
 		
 		// get labels
 		HashMap<String, JComponent> widgets = view.getMsgFilterWidgets();
@@ -1354,7 +1356,8 @@ public class InfoController implements WindowListener, ActionListener, TreeSelec
 	 */
 	@Override
 	public void windowOpened( WindowEvent e ) {
-		updateVisibleTotalLabels();
+		if (getMsgFilterWidgetsIfReady() != null)
+			updateVisibleTotalLabels();
 	}
 	
 	/**
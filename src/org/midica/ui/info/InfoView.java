@@ -129,6 +129,7 @@ public class InfoView extends JDialog {
 	private static final int COL_WIDTH_SF_RES_FORMAT     = 260;
 	private static final int COL_WIDTH_SF_RES_CLASS      = 130;
 	private static final int COL_WIDTH_MSG_TICK          =  80;
+	private static final int COL_WIDTH_MSG_TIME          =  90;
 	private static final int COL_WIDTH_MSG_STATUS        =  45;
 	private static final int COL_WIDTH_MSG_TRACK         =  30;
 	private static final int COL_WIDTH_MSG_CHANNEL       =  30;
@@ -209,6 +210,7 @@ public class InfoView extends JDialog {
 	private JTabbedPane           contentSoundfont   = null;
 	private JTabbedPane           contentMidi        = null;
 	private JSplitPane            contentKeybindings = null;
+	private LazyTabs              lazyTabs           = null;
 	
 	// widgets
 	private MidicaTree                  bankTotalTree          = null;
@@ -226,7 +228,7 @@ public class InfoView extends JDialog {
 	private MidicaTable                 msgTable               = null;
 	private HashMap<String, JComponent> filterWidgets          = null;
 	private JTextField                  addKeyBindingFld       = null;
-	private ArrayList<MidicaButton>     expandCollapseButtons  = null;
+	private HashMap<String, MidicaButton> expandCollapseButtons = null;
 	
 	private HashMap<String, JComponent> tableStringFilterIcons = null;
 	
@@ -255,10 +257,10 @@ public class InfoView extends JDialog {
 		int sfResourceWidth = COL_WIDTH_SF_RES_INDEX  + COL_WIDTH_SF_RES_TYPE
 		                    + COL_WIDTH_SF_RES_NAME   + COL_WIDTH_SF_RES_FRAMES
 		                    + COL_WIDTH_SF_RES_FORMAT + COL_WIDTH_SF_RES_CLASS;
-		int msgTableWidth   = COL_WIDTH_MSG_TICK   + COL_WIDTH_MSG_STATUS
-		                    + COL_WIDTH_MSG_TRACK  + COL_WIDTH_MSG_CHANNEL
-		                    + COL_WIDTH_MSG_LENGTH + COL_WIDTH_MSG_SUMMARY
-		                    + COL_WIDTH_MSG_TYPE;
+		int msgTableWidth   = COL_WIDTH_MSG_TICK   + COL_WIDTH_MSG_TIME
+		                    + COL_WIDTH_MSG_STATUS + COL_WIDTH_MSG_TRACK
+		                    + COL_WIDTH_MSG_CHANNEL + COL_WIDTH_MSG_LENGTH
+		                    + COL_WIDTH_MSG_SUMMARY + COL_WIDTH_MSG_TYPE;
 		noteTableDim       = new Dimension( noteWidth,       TABLE_HEIGHT          );
 		percTableDim       = new Dimension( percWidth,       TABLE_HEIGHT          );
 		syntaxTableDim     = new Dimension( syntaxWidth,     TABLE_HEIGHT          );
@@ -274,7 +276,8 @@ public class InfoView extends JDialog {
 		msgDetailsDim     = new Dimension( MSG_DETAILS_PREF_WIDTH,     MSG_DETAILS_PREF_HEIGHT     );
 		collapseExpandDim = new Dimension( COLLAPSE_EXPAND_WIDTH,      COLLAPSE_EXPAND_HEIGHT      );
 		
-		expandCollapseButtons = new ArrayList<>();
+		expandCollapseButtons = new HashMap<>();
+		filterWidgets         = new HashMap<>();
 		
 		// create content
 		init();
@@ -286,7 +289,11 @@ public class InfoView extends JDialog {
 	}
 	
 	/**
-	 * Initializes the content of all the tabs inside the info view.
+	 * Initializes the tabs inside the info view.
+	 * 
+	 * The content of each (sub) tab is created when the tab is selected
+	 * for the first time. Heavy models are prepared in the background.
+	 * Until then, a placeholder is shown.
 	 */
 	private void init() {
 		
@@ -298,13 +305,53 @@ public class InfoView extends JDialog {
 		this.controller = new InfoController(this);
 		addWindowListener(this.controller);
 		
+		// load tab contents on demand
+		lazyTabs = new LazyTabs(new Runnable() {
+			@Override
+			public void run() {
+				tabLoaded();
+			}
+		});
+		
 		// add tabs
 		tableStringFilterIcons = new HashMap<>();
 		content.addTab( Dict.get(Dict.TAB_CONFIG),        createConfigArea()       );
 		content.addTab( Dict.get(Dict.TAB_SOUNDFONT),     createSoundfontArea()    );
 		content.addTab( Dict.get(Dict.TAB_MIDI_SEQUENCE), createMidiSequenceArea() );
-		content.addTab( Dict.get(Dict.TAB_KEYBINDINGS),   createKeyBindingArea()   );
-		content.addTab( Dict.get(Dict.TAB_ABOUT),         createAboutArea()        );
+		lazyTabs.addTab( content, Dict.get(Dict.TAB_KEYBINDINGS), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createKeyBindingArea();
+			}
+		});
+		lazyTabs.addTab( content, Dict.get(Dict.TAB_ABOUT), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createAboutArea();
+			}
+		});
+		lazyTabs.loadSelected(content);
+	}
+	
+	/**
+	 * Called after the content of a tab has been loaded.
+	 * 
+	 * Adds the key bindings for the new widgets and enlarges the window,
+	 * if the new content needs more space.
+	 */
+	private void tabLoaded() {
+		if (null == infoView || infoView != this)
+			return;
+		addKeyBindings();
+		
+		Dimension preferred = getPreferredSize();
+		Dimension size      = getSize();
+		if (preferred.width > size.width || preferred.height > size.height) {
+			setSize(
+				Math.max( preferred.width,  size.width  ),
+				Math.max( preferred.height, size.height )
+			);
+		}
 	}
 	
 	/**
@@ -323,11 +370,36 @@ public class InfoView extends JDialog {
 		contentConfig = new JTabbedPane(JTabbedPane.TOP);
 		
 		// add tabs
-		contentConfig.addTab( Dict.get(Dict.TAB_NOTE_DETAILS),       createNoteArea()       );
-		contentConfig.addTab( Dict.get(Dict.TAB_PERCUSSION_DETAILS), createPercussionArea() );
-		contentConfig.addTab( Dict.get(Dict.SYNTAX),                 createSyntaxArea()     );
-		contentConfig.addTab( Dict.get(Dict.INSTRUMENT_IDS),         createInstrumentArea() );
-		contentConfig.addTab( Dict.get(Dict.DRUMKIT_IDS),            createDrumkitArea()    );
+		lazyTabs.addTab( contentConfig, Dict.get(Dict.TAB_NOTE_DETAILS), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createNoteArea();
+			}
+		});
+		lazyTabs.addTab( contentConfig, Dict.get(Dict.TAB_PERCUSSION_DETAILS), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createPercussionArea();
+			}
+		});
+		lazyTabs.addTab( contentConfig, Dict.get(Dict.SYNTAX), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createSyntaxArea();
+			}
+		});
+		lazyTabs.addTab( contentConfig, Dict.get(Dict.INSTRUMENT_IDS), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createInstrumentArea();
+			}
+		});
+		lazyTabs.addTab( contentConfig, Dict.get(Dict.DRUMKIT_IDS), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createDrumkitArea();
+			}
+		});
 		
 		return contentConfig;
 	}
@@ -347,9 +419,32 @@ public class InfoView extends JDialog {
 		contentSoundfont = new JTabbedPane(JTabbedPane.TOP);
 		
 		// add tabs
-		contentSoundfont.addTab( Dict.get(Dict.TAB_SOUNDFONT_INFO),        createSoundfontInfoArea()       );
-		contentSoundfont.addTab( Dict.get(Dict.TAB_SOUNDFONT_INSTRUMENTS), createSoundfontInstrumentArea() );
-		contentSoundfont.addTab( Dict.get(Dict.TAB_SOUNDFONT_RESOURCES),   createSoundfontResourceArea()   );
+		lazyTabs.addTab( contentSoundfont, Dict.get(Dict.TAB_SOUNDFONT_INFO), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createSoundfontInfoArea();
+			}
+		});
+		lazyTabs.addTab( contentSoundfont, Dict.get(Dict.TAB_SOUNDFONT_INSTRUMENTS), new LazyTabs.Content<SoundfontInstrumentsTableModel>() {
+			@Override
+			protected SoundfontInstrumentsTableModel prepare() {
+				return new SoundfontInstrumentsTableModel();
+			}
+			@Override
+			protected Container create(SoundfontInstrumentsTableModel model) {
+				return createSoundfontInstrumentArea(model);
+			}
+		});
+		lazyTabs.addTab( contentSoundfont, Dict.get(Dict.TAB_SOUNDFONT_RESOURCES), new LazyTabs.Content<SoundfontResourceTableModel>() {
+			@Override
+			protected SoundfontResourceTableModel prepare() {
+				return new SoundfontResourceTableModel();
+			}
+			@Override
+			protected Container create(SoundfontResourceTableModel model) {
+				return createSoundfontResourceArea(model);
+			}
+		});
 		
 		return contentSoundfont;
 	}
@@ -369,10 +464,39 @@ public class InfoView extends JDialog {
 		contentMidi = new JTabbedPane(JTabbedPane.TOP);
 		
 		// add tabs
-		contentMidi.addTab( Dict.get(Dict.TAB_MIDI_SEQUENCE_INFO), createMidiSequenceInfoArea() );
-		contentMidi.addTab( Dict.get(Dict.TAB_MIDI_KARAOKE),       createKaraokeArea()          );
-		contentMidi.addTab( Dict.get(Dict.TAB_BANK_INSTR_NOTE),    createBankInstrNoteArea()    );
-		contentMidi.addTab( Dict.get(Dict.TAB_MESSAGES),           createMsgArea()              );
+		lazyTabs.addTab( contentMidi, Dict.get(Dict.TAB_MIDI_SEQUENCE_INFO), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createMidiSequenceInfoArea();
+			}
+		});
+		lazyTabs.addTab( contentMidi, Dict.get(Dict.TAB_MIDI_KARAOKE), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createKaraokeArea();
+			}
+		});
+		lazyTabs.addTab( contentMidi, Dict.get(Dict.TAB_BANK_INSTR_NOTE), new LazyTabs.Content<Void>() {
+			@Override
+			protected Container create(Void prepared) {
+				return createBankInstrNoteArea();
+			}
+		});
+		lazyTabs.addTab( contentMidi, Dict.get(Dict.TAB_MESSAGES), new LazyTabs.Content<MessageTableModel>() {
+			@Override
+			protected MessageTableModel prepare() {
+				HashMap<String, Object>  sequenceInfo = SequenceAnalyzer.getSequenceInfo();
+				@SuppressWarnings("unchecked")
+				ArrayList<SingleMessage> messages     = (ArrayList<SingleMessage>) sequenceInfo.get("messages");
+				return new MessageTableModel( messages );
+			}
+			@Override
+			protected Container create(MessageTableModel model) {
+				Container area = createMsgArea(model);
+				controller.updateVisibleTotalLabels();
+				return area;
+			}
+		});
 		
 		return contentMidi;
 	}
@@ -1606,7 +1730,6 @@ public class InfoView extends JDialog {
 		MidicaTreeModel model;
 		if (contentObj != null && contentObj instanceof MidicaTreeModel) {
 			model = (MidicaTreeModel) contentObj;
-			model.postprocess();
 		}
 		else {
 			model = new MidicaTreeModel(Dict.get(Dict.TOTAL));
@@ -1885,7 +2008,7 @@ public class InfoView extends JDialog {
 		btnCollapse.setActionCommand(InfoController.CMD_COLLAPSE);
 		btnCollapse.addActionListener(controller);
 		area.add(btnCollapse, constraints);
-		expandCollapseButtons.add(btnCollapse);
+		expandCollapseButtons.put(btnName + InfoController.CMD_COLLAPSE, btnCollapse);
 		
 		// spacer
 		constraints.gridx++;
@@ -1902,7 +2025,7 @@ public class InfoView extends JDialog {
 		btnExpand.setActionCommand(InfoController.CMD_EXPAND);
 		btnExpand.addActionListener(controller);
 		area.add(btnExpand, constraints);
-		expandCollapseButtons.add(btnExpand);
+		expandCollapseButtons.put(btnName + InfoController.CMD_EXPAND, btnExpand);
 		
 		return area;
 	}
@@ -1911,9 +2034,10 @@ public class InfoView extends JDialog {
 	 * Creates the MIDI message area for the message tree, details area and
 	 * message table.
 	 * 
+	 * @param tableModel  the prepared model for the message table
 	 * @return the created area.
 	 */
-	private Container createMsgArea() {
+	private Container createMsgArea(MessageTableModel tableModel) {
 		
 		// total content
 		MidicaSplitPane area = new MidicaSplitPane(JSplitPane.VERTICAL_SPLIT);
@@ -1929,7 +2053,7 @@ public class InfoView extends JDialog {
 		area.add(topArea);
 		
 		// list
-		area.add(createMsgTableArea());
+		area.add(createMsgTableArea(tableModel));
 		
 		return area;
 	}
@@ -1964,15 +2088,9 @@ public class InfoView extends JDialog {
 		MidicaTreeModel model    = null;
 		if (modelObj != null && modelObj instanceof MidicaTreeModel) {
 			model = (MidicaTreeModel) modelObj;
-			model.postprocess();
 		}
 		else {
-			try {
-				model = new MidicaTreeModel(Dict.get(Dict.TAB_MESSAGES), MessageTreeNode.class);
-			}
-			catch (ReflectiveOperationException e) {
-				e.printStackTrace();
-			}
+			model = new MidicaTreeModel(new MessageTreeNode(Dict.get(Dict.TAB_MESSAGES)));
 		}
 		controller.setTreeModel(model, InfoController.NAME_TREE_MESSAGES);
 		
@@ -2061,9 +2179,10 @@ public class InfoView extends JDialog {
 	/**
 	 * Creates the MIDI message table area.
 	 * 
+	 * @param model  the prepared model for the message table
 	 * @return the created area.
 	 */
-	private Container createMsgTableArea() {
+	private Container createMsgTableArea(MessageTableModel model) {
 		// content
 		JPanel area = new JPanel();
 		
@@ -2106,18 +2225,18 @@ public class InfoView extends JDialog {
 		constraints.weightx     = 1;
 		constraints.weighty     = 1;
 		constraints.fill        = GridBagConstraints.BOTH;
-		MessageTableModel model = new MessageTableModel(messages);
 		msgTable                = new MessageTable(model);
 		msgTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 		msgTable.getSelectionModel().addListSelectionListener(controller);
 		msgTable.addFocusListener(controller);
 		msgTable.getColumnModel().getColumn( 0 ).setPreferredWidth( COL_WIDTH_MSG_TICK    );
-		msgTable.getColumnModel().getColumn( 1 ).setPreferredWidth( COL_WIDTH_MSG_STATUS  );
-		msgTable.getColumnModel().getColumn( 2 ).setPreferredWidth( COL_WIDTH_MSG_TRACK   );
-		msgTable.getColumnModel().getColumn( 3 ).setPreferredWidth( COL_WIDTH_MSG_CHANNEL );
-		msgTable.getColumnModel().getColumn( 4 ).setPreferredWidth( COL_WIDTH_MSG_LENGTH  );
-		msgTable.getColumnModel().getColumn( 5 ).setPreferredWidth( COL_WIDTH_MSG_SUMMARY );
-		msgTable.getColumnModel().getColumn( 6 ).setPreferredWidth( COL_WIDTH_MSG_TYPE    );
+		msgTable.getColumnModel().getColumn( 1 ).setPreferredWidth( COL_WIDTH_MSG_TIME    );
+		msgTable.getColumnModel().getColumn( 2 ).setPreferredWidth( COL_WIDTH_MSG_STATUS  );
+		msgTable.getColumnModel().getColumn( 3 ).setPreferredWidth( COL_WIDTH_MSG_TRACK   );
+		msgTable.getColumnModel().getColumn( 4 ).setPreferredWidth( COL_WIDTH_MSG_CHANNEL );
+		msgTable.getColumnModel().getColumn( 5 ).setPreferredWidth( COL_WIDTH_MSG_LENGTH  );
+		msgTable.getColumnModel().getColumn( 6 ).setPreferredWidth( COL_WIDTH_MSG_SUMMARY );
+		msgTable.getColumnModel().getColumn( 7 ).setPreferredWidth( COL_WIDTH_MSG_TYPE    );
 		MessageTableCellRenderer renderer = new MessageTableCellRenderer(model);
 		msgTable.setDefaultRenderer(Object.class, renderer);
 		MidicaTableHeader header = (MidicaTableHeader) msgTable.getTableHeader();
@@ -2147,9 +2266,6 @@ public class InfoView extends JDialog {
 		// content
 		JPanel area = new JPanel();
 		
-		// prepare filter widget storing
-		filterWidgets = new HashMap<String, JComponent>();
-		
 		// layout
 		GridBagLayout layout = new GridBagLayout();
 		area.setLayout(layout);
@@ -2473,9 +2589,10 @@ public class InfoView extends JDialog {
 	/**
 	 * Creates the area for instruments and drumkits of the currently loaded soundfont.
 	 * 
+	 * @param model  the prepared table model
 	 * @return the created soundfont instruments area.
 	 */
-	private Container createSoundfontInstrumentArea() {
+	private Container createSoundfontInstrumentArea(SoundfontInstrumentsTableModel model) {
 		// content
 		JPanel area = new JPanel();
 		
@@ -2504,7 +2621,7 @@ public class InfoView extends JDialog {
 		constraints.weighty = 1;
 		constraints.gridy++;
 		MidicaTable table = new MidicaTable();
-		table.setModel(new SoundfontInstrumentsTableModel());
+		table.setModel(model);
 		table.setDefaultRenderer(Object.class, new SoundfontInstrumentTableCellRenderer());
 		JScrollPane scroll = new JScrollPane(table);
 		scroll.setPreferredSize(sfInstrTableDim);
@@ -2524,9 +2641,10 @@ public class InfoView extends JDialog {
 	/**
 	 * Creates the area for resources of the currently loaded soundfont.
 	 * 
+	 * @param model  the prepared table model
 	 * @return the created soundfont resource area.
 	 */
-	private Container createSoundfontResourceArea() {
+	private Container createSoundfontResourceArea(SoundfontResourceTableModel model) {
 		// content
 		JPanel area = new JPanel();
 		
@@ -2554,7 +2672,7 @@ public class InfoView extends JDialog {
 		constraints.weighty = 1;
 		constraints.gridy++;
 		MidicaTable table = new MidicaTable();
-		table.setModel(new SoundfontResourceTableModel());
+		table.setModel(model);
 		table.setDefaultRenderer(Object.class, new SoundfontResourceTableCellRenderer());
 		JScrollPane scroll = new JScrollPane(table);
 		scroll.setPreferredSize(sfResourceTableDim);
@@ -3396,18 +3514,28 @@ public class InfoView extends JDialog {
 		keyBindingManager.addBindingsForTabLevel3( tableStringFilterIcons.get(Dict.KEY_INFO_SF_INSTR_FILTER), Dict.KEY_INFO_SF_INSTR_FILTER );
 		keyBindingManager.addBindingsForTabLevel3( tableStringFilterIcons.get(Dict.KEY_INFO_SF_RES_FILTER),   Dict.KEY_INFO_SF_RES_FILTER   );
 		
+		// expand/collapse buttons (if the according tab has already been loaded)
+		MidicaButton totalMin   = expandCollapseButtons.get( InfoController.NAME_TREE_BANKS_TOTAL       + InfoController.CMD_COLLAPSE );
+		MidicaButton totalPl    = expandCollapseButtons.get( InfoController.NAME_TREE_BANKS_TOTAL       + InfoController.CMD_EXPAND   );
+		MidicaButton channelMin = expandCollapseButtons.get( InfoController.NAME_TREE_BANKS_PER_CHANNEL + InfoController.CMD_COLLAPSE );
+		MidicaButton channelPl  = expandCollapseButtons.get( InfoController.NAME_TREE_BANKS_PER_CHANNEL + InfoController.CMD_EXPAND   );
+		MidicaButton msgMin     = expandCollapseButtons.get( InfoController.NAME_TREE_MESSAGES          + InfoController.CMD_COLLAPSE );
+		MidicaButton msgPl      = expandCollapseButtons.get( InfoController.NAME_TREE_MESSAGES          + InfoController.CMD_EXPAND   );
+		MidicaButton keyMin     = expandCollapseButtons.get( InfoController.NAME_TREE_KEYBINDINGS       + InfoController.CMD_COLLAPSE );
+		MidicaButton keyPl      = expandCollapseButtons.get( InfoController.NAME_TREE_KEYBINDINGS       + InfoController.CMD_EXPAND   );
+		
 		// level-3: midi / banks
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(0), Dict.KEY_INFO_MIDI_BANKS_TOT_MIN  );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(1), Dict.KEY_INFO_MIDI_BANKS_TOT_PL   );
+		keyBindingManager.addBindingsForTabLevel3( totalMin,                     Dict.KEY_INFO_MIDI_BANKS_TOT_MIN  );
+		keyBindingManager.addBindingsForTabLevel3( totalPl,                      Dict.KEY_INFO_MIDI_BANKS_TOT_PL   );
 		keyBindingManager.addBindingsForTabLevel3( bankTotalTree,                Dict.KEY_INFO_MIDI_BANKS_TOT_TREE );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(2), Dict.KEY_INFO_MIDI_BANKS_CH_MIN   );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(3), Dict.KEY_INFO_MIDI_BANKS_CH_PL    );
+		keyBindingManager.addBindingsForTabLevel3( channelMin,                   Dict.KEY_INFO_MIDI_BANKS_CH_MIN   );
+		keyBindingManager.addBindingsForTabLevel3( channelPl,                    Dict.KEY_INFO_MIDI_BANKS_CH_PL    );
 		keyBindingManager.addBindingsForTabLevel3( bankChannelTree,              Dict.KEY_INFO_MIDI_BANKS_CH_TREE  );
 		
 		// level-3: midi / messages
 		keyBindingManager.addBindingsForTabLevel3( filterWidgets.get(FILTER_ICON),                 Dict.KEY_INFO_MIDI_MSG_FILTER     );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(4),                   Dict.KEY_INFO_MIDI_MSG_MIN        );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(5),                   Dict.KEY_INFO_MIDI_MSG_PL         );
+		keyBindingManager.addBindingsForTabLevel3( msgMin,                                         Dict.KEY_INFO_MIDI_MSG_MIN        );
+		keyBindingManager.addBindingsForTabLevel3( msgPl,                                          Dict.KEY_INFO_MIDI_MSG_PL         );
 		keyBindingManager.addBindingsForTabLevel3( msgTree,                                        Dict.KEY_INFO_MIDI_MSG_TREE       );
 		keyBindingManager.addBindingsForTabLevel3( msgTable,                                       Dict.KEY_INFO_MIDI_MSG_TABLE      );
 		keyBindingManager.addBindingsForTabLevel3( filterWidgets.get(FILTER_CBX_CHAN_INDEP),       Dict.KEY_INFO_MIDI_MSG_CH_INDEP   );
@@ -3439,8 +3567,8 @@ public class InfoView extends JDialog {
 		
 		// level-3 (keybindings)
 		keyBindingManager.addBindingsForTabLevel3( keyBindingTree,               Dict.KEY_INFO_KEY_TREE           );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(7), Dict.KEY_INFO_KEY_PL             );
-		keyBindingManager.addBindingsForTabLevel3( expandCollapseButtons.get(6), Dict.KEY_INFO_KEY_MIN            );
+		keyBindingManager.addBindingsForTabLevel3( keyPl,                        Dict.KEY_INFO_KEY_PL             );
+		keyBindingManager.addBindingsForTabLevel3( keyMin,                       Dict.KEY_INFO_KEY_MIN            );
 		keyBindingManager.addBindingsForTabLevel3( addKeyBindingFld,             Dict.KEY_INFO_KEY_FLD            );
 		keyBindingManager.addBindingsForTabLevel3( keybindingTreeFilter,         Dict.KEY_INFO_KEY_FILTER         );
 		keyBindingManager.addBindingsForTabLevel3( keybindingAddBtn,             Dict.KEY_INFO_KEY_ADD_BTN        );
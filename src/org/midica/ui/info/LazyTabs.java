@@ -0,0 +1,233 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.ui.info;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Container;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTabbedPane;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import org.midica.config.Dict;
+
+/**
+ * Manages tabs whose content is created when the tab is selected for the first time.
+ * 
+ * Each lazy tab is added to its tabbed pane with a placeholder.
+ * When the tab is selected for the first time, the content is loaded in two steps:
+ * 
+ * - {@link Content#prepare()} runs on a background thread and can build up heavy
+ *   models (e.g. table models) that are not yet connected to any widget.
+ * - {@link Content#create(Object)} runs on the event dispatch thread, creates the
+ *   widgets using the prepared models and replaces the placeholder.
+ * 
+ * If a selected tab contains a nested tabbed pane, the selected tab of the nested
+ * pane is loaded as well.
+ * 
+ * If loading fails, the placeholder shows the error and the tab stays pending,
+ * so that it's loaded again when it's selected the next time.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class LazyTabs implements ChangeListener {
+	
+	/** one background thread for all info windows */
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Midica info view");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	
+	/** placeholder -- content to be loaded (removed after loading has been started) */
+	private final HashMap<JPanel, Content<?>> pending = new HashMap<>();
+	
+	/** executed on the event dispatch thread after each loaded tab (may be **null**) */
+	private final Runnable onLoaded;
+	
+	/**
+	 * Content of a lazy tab.
+	 * 
+	 * @param <T>  type of the prepared models
+	 */
+	public static abstract class Content<T> {
+		
+		/**
+		 * Prepares everything that can be prepared without widgets.
+		 * Runs on a background thread.
+		 * 
+		 * The default implementation prepares nothing.
+		 * 
+		 * @return the prepared models, or **null**.
+		 */
+		protected T prepare() {
+			return null;
+		}
+		
+		/**
+		 * Creates the tab content. Runs on the event dispatch thread.
+		 * 
+		 * @param prepared  the result of {@link #prepare()}
+		 * @return the created content.
+		 */
+		protected abstract Container create(T prepared);
+		
+		/**
+		 * Prepares the models in the background, creates the content on the
+		 * event dispatch thread and replaces the placeholder.
+		 * 
+		 * @param tabs         the lazy tabs
+		 * @param placeholder  the placeholder to be filled
+		 */
+		private void load(final LazyTabs tabs, final JPanel placeholder) {
+			final Content<T> content = this;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					T                prepared  = null;
+					RuntimeException exception = null;
+					try {
+						prepared = prepare();
+					}
+					catch (RuntimeException e) {
+						exception = e;
+					}
+					final T                prepResult = prepared;
+					final RuntimeException prepError  = exception;
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							if (prepError != null) {
+								tabs.fail(placeholder, content, prepError);
+								return;
+							}
+							try {
+								tabs.replace(placeholder, create(prepResult));
+							}
+							catch (RuntimeException e) {
+								tabs.fail(placeholder, content, e);
+							}
+						}
+					});
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Creates a new manager for lazy tabs.
+	 * 
+	 * @param onLoaded  executed on the event dispatch thread after each loaded tab (may be **null**)
+	 */
+	public LazyTabs(Runnable onLoaded) {
+		this.onLoaded = onLoaded;
+	}
+	
+	/**
+	 * Adds a lazy tab to the given tabbed pane.
+	 * 
+	 * @param pane     the tabbed pane
+	 * @param title    tab title
+	 * @param content  content to be loaded when the tab is selected for the first time
+	 */
+	public void addTab(JTabbedPane pane, String title, Content<?> content) {
+		JPanel placeholder = new JPanel(new BorderLayout());
+		showMessage(placeholder, Dict.get(Dict.TAB_LOADING));
+		pending.put(placeholder, content);
+		pane.addTab(title, placeholder);
+		
+		// listen only once to each pane
+		pane.removeChangeListener(this);
+		pane.addChangeListener(this);
+	}
+	
+	/**
+	 * Loads the currently selected tab of the given pane and its nested panes,
+	 * if not yet done.
+	 * 
+	 * @param pane  the tabbed pane
+	 */
+	public void loadSelected(JTabbedPane pane) {
+		Component selected = pane.getSelectedComponent();
+		if (selected instanceof JTabbedPane) {
+			loadSelected((JTabbedPane) selected);
+			return;
+		}
+		Content<?> content = pending.remove(selected);
+		if (content != null) {
+			showMessage((JPanel) selected, Dict.get(Dict.TAB_LOADING));
+			content.load(this, (JPanel) selected);
+		}
+	}
+	
+	/**
+	 * Loads the newly selected tab, if not yet done.
+	 * 
+	 * @param e  the tab selection event
+	 */
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		loadSelected((JTabbedPane) e.getSource());
+	}
+	
+	/**
+	 * Shows the error of a failed loading in the placeholder and keeps the
+	 * content pending, so that it's loaded again on the next selection.
+	 * 
+	 * Runs on the event dispatch thread.
+	 * 
+	 * @param placeholder  the placeholder
+	 * @param content      the content that could not be loaded
+	 * @param e            the exception thrown while loading
+	 */
+	private void fail(JPanel placeholder, Content<?> content, RuntimeException e) {
+		e.printStackTrace();
+		showMessage(placeholder, String.format(Dict.get(Dict.TAB_LOADING_FAILED), e));
+		pending.put(placeholder, content);
+	}
+	
+	/**
+	 * Shows a message in a placeholder.
+	 * 
+	 * @param placeholder  the placeholder
+	 * @param message      the message to be shown
+	 */
+	private static void showMessage(JPanel placeholder, String message) {
+		placeholder.removeAll();
+		placeholder.add(new JLabel(message, SwingConstants.CENTER), BorderLayout.CENTER);
+		placeholder.revalidate();
+		placeholder.repaint();
+	}
+	
+	/**
+	 * Replaces the content of a placeholder by the loaded content.
+	 * 
+	 * @param placeholder  the placeholder
+	 * @param content      the loaded content
+	 */
+	private void replace(JPanel placeholder, Container content) {
+		placeholder.removeAll();
+		placeholder.add(content, BorderLayout.CENTER);
+		placeholder.revalidate();
+		placeholder.repaint();
+		if (onLoaded != null)
+			onLoaded.run();
+	}
+}
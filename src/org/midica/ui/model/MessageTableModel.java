@@ -10,6 +10,9 @@ package org.midica.ui.model;
 import java.util.ArrayList;
 
 import org.midica.config.Dict;
+import org.midica.midi.MidiDevices;
+import org.midica.midi.SequenceAnalyzer;
+import org.midica.midi.TempoMap;
 import org.midica.ui.tablesorter.OptionalNumber;
 
 /**
@@ -29,6 +32,7 @@ public class MessageTableModel extends MidicaTableModel {
 	private static final long serialVersionUID = 1L;
 	
 	private ArrayList<SingleMessage> messages = null;
+	private TempoMap                 tempoMap = null;
     
 	/**
 	 * Creates a new instance of the message table data model.
@@ -50,31 +54,37 @@ public class MessageTableModel extends MidicaTableModel {
 		}
 		msgCount = messages.size();
 		
+		// tempo map for the time column
+		tempoMap = SequenceAnalyzer.getTempoMap();
+		
 		// table header
-		columnNames = new String[ 7 ];
+		columnNames = new String[ 8 ];
 		columnNames[ 0 ] = Dict.get( Dict.INFO_COL_MSG_TICK        );
-		columnNames[ 1 ] = Dict.get( Dict.INFO_COL_MSG_STATUS_BYTE );
-		columnNames[ 2 ] = Dict.get( Dict.INFO_COL_MSG_TRACK       );
-		columnNames[ 3 ] = Dict.get( Dict.INFO_COL_MSG_CHANNEL     );
-		columnNames[ 4 ] = Dict.get( Dict.INFO_COL_MSG_LENGTH      );
-		columnNames[ 5 ] = Dict.get( Dict.INFO_COL_MSG_SUMMARY     );
-		columnNames[ 6 ] = Dict.get( Dict.INFO_COL_MSG_TYPE        );
+		columnNames[ 1 ] = Dict.get( Dict.INFO_COL_MSG_TIME        );
+		columnNames[ 2 ] = Dict.get( Dict.INFO_COL_MSG_STATUS_BYTE );
+		columnNames[ 3 ] = Dict.get( Dict.INFO_COL_MSG_TRACK       );
+		columnNames[ 4 ] = Dict.get( Dict.INFO_COL_MSG_CHANNEL     );
+		columnNames[ 5 ] = Dict.get( Dict.INFO_COL_MSG_LENGTH      );
+		columnNames[ 6 ] = Dict.get( Dict.INFO_COL_MSG_SUMMARY     );
+		columnNames[ 7 ] = Dict.get( Dict.INFO_COL_MSG_TYPE        );
 		
 		// tooltips for the table header
-		setHeaderToolTip( 1, Dict.get(Dict.INFO_COL_MSG_TT_STATUS)  );
-		setHeaderToolTip( 2, Dict.get(Dict.INFO_COL_MSG_TT_TRACK)   );
-		setHeaderToolTip( 3, Dict.get(Dict.INFO_COL_MSG_TT_CHANNEL) );
-		setHeaderToolTip( 4, Dict.get(Dict.INFO_COL_MSG_TT_LENGTH)  );
+		setHeaderToolTip( 1, Dict.get(Dict.INFO_COL_MSG_TT_TIME)    );
+		setHeaderToolTip( 2, Dict.get(Dict.INFO_COL_MSG_TT_STATUS)  );
+		setHeaderToolTip( 3, Dict.get(Dict.INFO_COL_MSG_TT_TRACK)   );
+		setHeaderToolTip( 4, Dict.get(Dict.INFO_COL_MSG_TT_CHANNEL) );
+		setHeaderToolTip( 5, Dict.get(Dict.INFO_COL_MSG_TT_LENGTH)  );
 		
 		// column classes, used for sorting
-		columnClasses = new Class[ 7 ];
+		columnClasses = new Class[ 8 ];
 		columnClasses[ 0 ] = Long.class;
 		columnClasses[ 1 ] = String.class;
-		columnClasses[ 2 ] = Integer.class;
-		columnClasses[ 3 ] = OptionalNumber.class;
-		columnClasses[ 4 ] = Integer.class;
-		columnClasses[ 5 ] = String.class;
+		columnClasses[ 2 ] = String.class;
+		columnClasses[ 3 ] = Integer.class;
+		columnClasses[ 4 ] = OptionalNumber.class;
+		columnClasses[ 5 ] = Integer.class;
 		columnClasses[ 6 ] = String.class;
+		columnClasses[ 7 ] = String.class;
 	}
 	
 	/**
@@ -113,18 +123,26 @@ public class MessageTableModel extends MidicaTableModel {
 			return singleMessage.getOption( IMessageType.OPT_TICK );
 		}
 		
-		// status byte
+		// time
 		else if ( 1 == colIndex ) {
+			if ( null == tempoMap )
+				return "";
+			long tick = (long) singleMessage.getOption( IMessageType.OPT_TICK );
+			return MidiDevices.microsecondsToPreciseTimeString( tempoMap.tickToMicros(tick) );
+		}
+		
+		// status byte
+		else if ( 2 == colIndex ) {
 			return "0x" + singleMessage.getOption( IMessageType.OPT_STATUS_BYTE );
 		}
 		
 		// track
-		else if ( 2 == colIndex ) {
+		else if ( 3 == colIndex ) {
 			return singleMessage.getOption( IMessageType.OPT_TRACK );
 		}
 		
 		// channel
-		else if ( 3 == colIndex ) {
+		else if ( 4 == colIndex ) {
 			Object channelObj = singleMessage.getOption( IMessageType.OPT_CHANNEL );
 			if ( null == channelObj ) {
 				channelObj = "-";
@@ -135,17 +153,17 @@ public class MessageTableModel extends MidicaTableModel {
 		}
 		
 		// length
-		else if ( 4 == colIndex ) {
+		else if ( 5 == colIndex ) {
 			return singleMessage.getOption( IMessageType.OPT_LENGTH );
 		}
 		
 		// summary
-		else if ( 5 == colIndex ) {
+		else if ( 6 == colIndex ) {
 			return singleMessage.getOption( IMessageType.OPT_SUMMARY );
 		}
 		
 		// type
-		else if ( 6 == colIndex ) {
+		else if ( 7 == colIndex ) {
 			return singleMessage.getType();
 		}
 		
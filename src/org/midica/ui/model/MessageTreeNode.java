@@ -7,9 +7,13 @@
 
 package org.midica.ui.model;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.TreeSet;
 
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
+
 /**
  * This class represents a node for a {@link org.midica.ui.widget.MidicaTree} containing
  * MIDI message types.
@@ -59,15 +63,53 @@ public class MessageTreeNode extends MidicaTreeNode implements IMessageType {
 	/**
 	 * Creates a new node with an empty name.
 	 * 
-	 * This constructor is used indirectly from the {@link MidicaTreeModel}
-	 * and from {@link MidicaTreeNode} by calling newInstance() on the class
-	 * object. So the node name or number must be set later with
+	 * This constructor is used by {@link #createChild()}.
+	 * So the node name or number must be set later with
 	 * {@link #setName(String)} or {@link #setNumber(String)}.
 	 */
 	public MessageTreeNode() {
 		super();
 	}
 	
+	/**
+	 * Creates a new empty message tree node.
+	 * 
+	 * @return the new node.
+	 */
+	@Override
+	protected MidicaTreeNode createChild() {
+		return new MessageTreeNode();
+	}
+	
+	/**
+	 * Writes the node options to the analysis cache.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the options cannot be written.
+	 */
+	@Override
+	protected void writeOptionsToCache(CacheWriter out) throws IOException {
+		out.writeValue(options);
+		out.writeValue(minOptions);
+		out.writeValue(maxOptions);
+		out.writeValue(distinctOptions);
+	}
+	
+	/**
+	 * Reads the node options from the analysis cache.
+	 * 
+	 * @param in  cache reader
+	 * @throws IOException if the options cannot be read.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void readOptionsFromCache(CacheReader in) throws IOException {
+		options         = (HashMap<Integer, Object>)                 in.readValue();
+		minOptions      = (HashMap<Integer, Comparable<?>>)          in.readValue();
+		maxOptions      = (HashMap<Integer, Comparable<?>>)          in.readValue();
+		distinctOptions = (HashMap<Integer, TreeSet<Comparable<?>>>) in.readValue();
+	}
+	
 	/**
 	 * Sets custom node options.
 	 * 
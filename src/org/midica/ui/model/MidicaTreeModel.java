@@ -8,7 +8,9 @@
 package org.midica.ui.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.TreeSet;
 
 import javax.swing.tree.DefaultTreeModel;
@@ -27,10 +29,14 @@ import org.midica.ui.widget.MidicaTree;
  * - Call the constructor with the text to be displayed by the root node.
  * - For each leaf: call {@link #add(ArrayList, String)} providing one string array
  *   per node on the way to the leaf.
- * - After adding each leaf: call {@link #postprocess()}.
+ *   Alternatively: add counted paths with a {@link Builder}.
  * - Create the tree.
  * - Call {@link #setTree(MidicaTree)}.
  * 
+ * The nodes are connected with their children lazily, when they are expanded
+ * or accessed otherwise. So a huge tree doesn't need to be connected completely
+ * before it's displayed.
+ * 
  * @author Jan Trukenmüller
  */
 public class MidicaTreeModel extends DefaultTreeModel {
@@ -47,24 +53,20 @@ public class MidicaTreeModel extends DefaultTreeModel {
 	 * @param name   Name of the root node.
 	 */
 	public MidicaTreeModel( String name ) {
-		super( new MidicaTreeNode(name) );
-		rootNode = (MidicaTreeNode) getRoot();
-		rootNode.initChildren();
+		this( new MidicaTreeNode(name) );
 	}
 	
 	/**
-	 * Creates a new tree model and initializes it with a new empty root node.
+	 * Creates a new tree model with the given empty root node.
 	 * The root node can be a derived class of {@link MidicaTreeNode}.
+	 * All other nodes are created by the root node and its descendants,
+	 * using {@link MidicaTreeNode#createChild()}. So they have the same type.
 	 * 
-	 * @param name       Name of the root node.
-	 * @param nodeClass  Class of the nodes.
-	 * @throws IllegalAccessException if the node class or its nullary constructor is not accessible.
-	 * @throws InstantiationException if the root node creation fails.
+	 * @param root  Root node.
 	 */
-	public MidicaTreeModel( String name, Class<?> nodeClass ) throws InstantiationException, IllegalAccessException {
-		super( (MidicaTreeNode) nodeClass.newInstance() );
-		rootNode = (MidicaTreeNode) getRoot();
-		rootNode.setName( name );
+	public MidicaTreeModel( MidicaTreeNode root ) {
+		super( root );
+		rootNode = root;
 		rootNode.initChildren();
 	}
 	
@@ -103,11 +105,25 @@ public class MidicaTreeModel extends DefaultTreeModel {
 	 *     - sort key (optional) -- if missing, **id** is used instead
 	 * @param ttAttachment  added to the leaf node's tool tip text, if not **null**
 	 * @return the leaf node of the added path.
-	 * @throws ReflectiveOperationException if the new child node cannot be created.
 	 */
-	public MidicaTreeNode add(ArrayList<String[]> params, String ttAttachment) throws ReflectiveOperationException {
-		rootNode.increment();
-		return add(rootNode, params, ttAttachment, true);
+	public MidicaTreeNode add(ArrayList<String[]> params, String ttAttachment) {
+		return add(params, ttAttachment, 1);
+	}
+	
+	/**
+	 * Adds a new path to the tree, like {@link #add(ArrayList, String)}, but
+	 * increments all nodes on the way to the leaf by the given amount.
+	 * 
+	 * That's the same as adding the path **amount** times.
+	 * 
+	 * @param params        Two-dimensional list, like in {@link #add(ArrayList, String)}.
+	 * @param ttAttachment  added to the leaf node's tool tip text, if not **null**
+	 * @param amount        number of leaves to be counted
+	 * @return the leaf node of the added path.
+	 */
+	public MidicaTreeNode add(ArrayList<String[]> params, String ttAttachment, int amount) {
+		rootNode.increment(amount);
+		return add(rootNode, params, ttAttachment, amount);
 	}
 	
 	/**
@@ -126,10 +142,9 @@ public class MidicaTreeModel extends DefaultTreeModel {
 	 *     - number
 	 *     - sort key (optional) -- if missing, **id** is used instead
 	 * @return the leaf node of the added path.
-	 * @throws ReflectiveOperationException
 	 */
-	public MidicaTreeNode addWithoutIncrementing(ArrayList<String[]> params) throws ReflectiveOperationException {
-		return add(rootNode, params, null, false);
+	public MidicaTreeNode addWithoutIncrementing(ArrayList<String[]> params) {
+		return add(rootNode, params, null, 0);
 	}
 	
 	/**
@@ -145,12 +160,11 @@ public class MidicaTreeModel extends DefaultTreeModel {
 	 *     - number
 	 *     - sort key (optional) -- if missing, **id** is used instead
 	 * 
-	 * @param ttAttachment   added to the leaf node's tool tip text, if not **null**
-	 * @param mustIncrement  **true** if the affected nodes should be incremented, otherwise **false**.
+	 * @param ttAttachment  added to the leaf node's tool tip text, if not **null**
+	 * @param amount        number by which the affected nodes are incremented (**0** for no incrementation)
 	 * @return the leaf node of the added/incremented path.
-	 * @throws ReflectiveOperationException if the new child node cannot be created.
 	 */
-	private MidicaTreeNode add(MidicaTreeNode parent, ArrayList<String[]> params, String ttAttachment, boolean mustIncrement) throws ReflectiveOperationException {
+	private MidicaTreeNode add(MidicaTreeNode parent, ArrayList<String[]> params, String ttAttachment, int amount) {
 		
 		// get options of the first node to be added/incremented
 		boolean isLeaf  = 1 == params.size();
@@ -164,7 +178,7 @@ public class MidicaTreeModel extends DefaultTreeModel {
 		
 		// add/increment the first node
 		MidicaTreeNode affectedChild;
-		affectedChild = parent.addAndOrIncrement(id, name, number, isLeaf, sortKey, ttAttachment, mustIncrement);
+		affectedChild = parent.addAndOrIncrement(id, name, number, isLeaf, sortKey, ttAttachment, amount);
 		
 		// recursion or return
 		if (isLeaf) {
@@ -173,17 +187,10 @@ public class MidicaTreeModel extends DefaultTreeModel {
 		else {
 			// recursion: add/increment the other nodes
 			params.remove(0);
-			return add(affectedChild, params, ttAttachment, mustIncrement);
+			return add(affectedChild, params, ttAttachment, amount);
 		}
 	}
 	
-	/**
-	 * Connects all nodes with each other recursively.
-	 */
-	public void postprocess() {
-		rootNode.addChildren();
-	}
-	
 	/**
 	 * Expands or collapses (selected) nodes of the tree.
 	 * If no nodes are selected, all nodes are expanded or collapsed.
@@ -308,4 +315,102 @@ public class MidicaTreeModel extends DefaultTreeModel {
 			}
 		}
 	}
+	
+	/**
+	 * Adds counted paths to a {@link MidicaTreeModel} in one pass.
+	 * 
+	 * Each path is registered once under a category ID, together with the node
+	 * options of each level. Then the nodes of the path are created without being
+	 * incremented, so that the leaf node can already be used (e.g. to store options).
+	 * After that, only the category is counted.
+	 * 
+	 * {@link #build()} increments all registered paths by their counts.
+	 */
+	public static class Builder {
+		
+		private final MidicaTreeModel            model;
+		private final HashMap<Long, CountedPath> paths = new HashMap<>();
+		
+		/**
+		 * Creates a builder for the given model.
+		 * 
+		 * @param model  the tree model to be filled
+		 */
+		public Builder(MidicaTreeModel model) {
+			this.model = model;
+		}
+		
+		/**
+		 * Counts the path of the given category, if it's registered.
+		 * 
+		 * @param category  category ID
+		 * @return the leaf node of the path, or **null** if the category is not yet registered.
+		 */
+		public MidicaTreeNode count(long category) {
+			CountedPath path = paths.get(category);
+			if (null == path)
+				return null;
+			path.count++;
+			return path.leaf;
+		}
+		
+		/**
+		 * Registers and counts the path of a new category.
+		 * 
+		 * @param category  category ID
+		 * @param levels    node options (id, name, number and optionally the sort key) for each level
+		 * @return the leaf node of the path.
+		 */
+		public MidicaTreeNode register(long category, String[][] levels) {
+			MidicaTreeNode leaf = model.addWithoutIncrementing(new ArrayList<>(Arrays.asList(levels)));
+			CountedPath    path = new CountedPath(levels, leaf);
+			path.count = 1;
+			paths.put(category, path);
+			return leaf;
+		}
+		
+		/**
+		 * Adds a path that doesn't belong to a category.
+		 * The path is incremented immediately.
+		 * 
+		 * @param params  node options for each level, like in {@link MidicaTreeModel#add(ArrayList, String)}
+		 * @return the leaf node of the path.
+		 */
+		public MidicaTreeNode add(ArrayList<String[]> params) {
+			return model.add(params, null);
+		}
+		
+		/**
+		 * Increments all registered paths by the number of times they have been counted
+		 * since the last call of this method.
+		 */
+		public void build() {
+			for (CountedPath path : paths.values()) {
+				if (path.count > 0)
+					model.add(new ArrayList<>(Arrays.asList(path.levels)), null, path.count);
+				path.count = 0;
+			}
+		}
+	}
+	
+	/**
+	 * A path registered by a {@link Builder}.
+	 */
+	private static class CountedPath {
+		
+		private final String[][]     levels;
+		private final MidicaTreeNode leaf;
+		private       int            count = 0;
+		
+		/**
+		 * Creates a counted path.
+		 * 
+		 * @param levels  node options for each level
+		 * @param leaf    leaf node of the path
+		 */
+		private CountedPath(String[][] levels, MidicaTreeNode leaf) {
+			this.levels = levels;
+			this.leaf   = leaf;
+		}
+	}
 }
@@ -7,10 +7,17 @@
 
 package org.midica.ui.model;
 
+import java.io.IOException;
+import java.util.Enumeration;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.Vector;
 
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
 
 /**
  * This class represents a node for a {@link org.midica.ui.widget.MidicaTree}.
@@ -27,8 +34,14 @@ import javax.swing.tree.DefaultMutableTreeNode;
  * - For each child:
  *   - Call {@link #addAndOrIncrement(String, String, String, boolean, String, String, boolean)}
  *   - Call {@link #increment()}
- * - After all children are added, connect them with each other in the right
- *   order by calling {@link #addChildren()}. This works recursively.
+ * 
+ * New child nodes are created by {@link #createChild()}, so derived classes only
+ * need to override this method in order to build a tree of their own node type.
+ * 
+ * The sorted children are connected with the node lazily, when the children are
+ * accessed for the first time (e.g. when the node is expanded in the tree).
+ * So nodes that are never expanded don't need any child structures of the
+ * {@link DefaultMutableTreeNode}.
  * 
  * @author Jan Trukenmüller
  */
@@ -51,6 +64,9 @@ public class MidicaTreeNode extends DefaultMutableTreeNode {
 	/** stores the child nodes in a sorted form */
 	private TreeMap<String, MidicaTreeNode> sortedChildren = null;
 	
+	/** number of sorted children that are connected with the node */
+	private int connectedChildren = 0;
+	
 	/** additions to the tool tip */
 	private String toolTipAttachment = null;
 	
@@ -77,15 +93,26 @@ public class MidicaTreeNode extends DefaultMutableTreeNode {
 	/**
 	 * Creates a new node with an empty name.
 	 * 
-	 * This constructor is used indirectly from the {@link MidicaTreeModel}
-	 * and from this class ({@link MidicaTreeNode}) by calling newInstance()
-	 * on the class object. So the node name or number must be set later with
+	 * This constructor is used by {@link #createChild()}.
+	 * So the node name or number must be set later with
 	 * {@link #setName(String)} or {@link #setNumber(String)}.
 	 */
 	public MidicaTreeNode() {
 		super("");
 	}
 	
+	/**
+	 * Creates a new empty child node.
+	 * 
+	 * Derived classes override this method in order to create
+	 * children of their own type.
+	 * 
+	 * @return the new node.
+	 */
+	protected MidicaTreeNode createChild() {
+		return new MidicaTreeNode();
+	}
+	
 	/**
 	 * Increments the count by 1.
 	 * This is called if a descendant of this node is added to the tree.
@@ -94,6 +121,16 @@ public class MidicaTreeNode extends DefaultMutableTreeNode {
 		count++;
 	}
 	
+	/**
+	 * Increments the count by the given amount.
+	 * This is called if several descendants of this node are added at once.
+	 * 
+	 * @param amount  number of added descendants
+	 */
+	public void increment(int amount) {
+		count += amount;
+	}
+	
 	/**
 	 * Sets the number representation of the node.
 	 * 
@@ -169,35 +206,49 @@ public class MidicaTreeNode extends DefaultMutableTreeNode {
 	 * @param ttAttachment   added to the leaf node's tool tip text, if not **null**
 	 * @param mustIncrement  **true** if the affected nodes should be incremented, otherwise **false**.
 	 * @return created or incremented child.
-	 * @throws ReflectiveOperationException if the new child node cannot be created.
 	 */
 	public MidicaTreeNode addAndOrIncrement(String id, String name, String number, boolean isLeaf,
-			String sortKey, String ttAttachment, boolean mustIncrement) throws ReflectiveOperationException {
+			String sortKey, String ttAttachment, boolean mustIncrement) {
+		return addAndOrIncrement(id, name, number, isLeaf, sortKey, ttAttachment, mustIncrement ? 1 : 0);
+	}
+	
+	/**
+	 * Creates the specified child, if not yet done, and increments it by the given amount.
+	 * 
+	 * Works like {@link #addAndOrIncrement(String, String, String, boolean, String, String, boolean)}
+	 * but can add several leaves at once.
+	 * 
+	 * @param id            Child identifier string -- unique for the children of this node.
+	 * @param name          Child name.
+	 * @param number        MIDI number representation of the child.
+	 * @param isLeaf        Specifies if the child is a leaf or a branch.
+	 * @param sortKey       String used for sorting (if **null**, the **id** is used for sorting instead).
+	 * @param ttAttachment  added to the leaf node's tool tip text, if not **null**
+	 * @param amount        number of leaves to be added (**0** for no incrementation)
+	 * @return created or incremented child.
+	 */
+	public MidicaTreeNode addAndOrIncrement(String id, String name, String number, boolean isLeaf,
+			String sortKey, String ttAttachment, int amount) {
 		
 		if (null == sortKey)
 			sortKey = id;
 		
 		// create child, if not yet done
-		if ( ! sortedChildren.containsKey(sortKey) ) {
-			MidicaTreeNode child;
-			try {
-				child = getClass().newInstance();
-				child.setNumber(number);
-				child.setName(name);
-				child.setId(id);
-				sortedChildren.put(sortKey, child);
-				if ( ! isLeaf )
-					child.initChildren();
-			}
-			catch (ReflectiveOperationException e) {
-				throw e;
-			}
+		MidicaTreeNode child = sortedChildren.get(sortKey);
+		if (null == child) {
+			child = createChild();
+			child.setNumber(number);
+			child.setName(name);
+			child.setId(id);
+			child.setParent(this);
+			sortedChildren.put(sortKey, child);
+			if ( ! isLeaf )
+				child.initChildren();
 		}
 		
 		// increment child
-		MidicaTreeNode child = sortedChildren.get(sortKey);
-		if (mustIncrement)
-			child.increment();
+		if (amount > 0)
+			child.increment(amount);
 		
 		// tool tip attachment
 		if (isLeaf && ttAttachment != null) {
@@ -220,20 +271,129 @@ public class MidicaTreeNode extends DefaultMutableTreeNode {
 	}
 	
 	/**
-	 * Adds all children recursively.
+	 * Writes this node and all its descendants to the analysis cache.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the node cannot be written.
 	 */
-	public void addChildren() {
+	public void writeToCache(CacheWriter out) throws IOException {
+		out.registerNode(this);
+		out.writeString(name);
+		out.writeString(number);
+		out.writeString(id);
+		out.writeString(toolTipAttachment);
+		out.writeInt(count);
+		writeOptionsToCache(out);
 		
-		if (null == sortedChildren)
+		// children
+		if (null == sortedChildren) {
+			out.writeInt(-1);
 			return;
-		
+		}
+		out.writeInt(sortedChildren.size());
 		for (Entry<String, MidicaTreeNode> childEntry : sortedChildren.entrySet()) {
-			MidicaTreeNode child = childEntry.getValue();
-			child.addChildren();
-			add( child );
+			out.writeString(childEntry.getKey());
+			childEntry.getValue().writeToCache(out);
+		}
+	}
+	
+	/**
+	 * Reads the content and all descendants of this node from the analysis cache.
+	 * 
+	 * The node must have been created newly.
+	 * 
+	 * @param in  cache reader
+	 * @throws IOException if the node cannot be read.
+	 */
+	public void readFromCache(CacheReader in) throws IOException {
+		in.registerNode(this);
+		name              = in.readString();
+		number            = in.readString();
+		id                = in.readString();
+		toolTipAttachment = in.readString();
+		count             = in.readInt();
+		readOptionsFromCache(in);
+		
+		// children
+		int childCount = in.readInt();
+		if (childCount < 0) {
+			sortedChildren = null;
+			return;
+		}
+		initChildren();
+		for (int i = 0; i < childCount; i++) {
+			String         sortKey = in.readString();
+			MidicaTreeNode child   = createChild();
+			child.setParent(this);
+			child.readFromCache(in);
+			sortedChildren.put(sortKey, child);
 		}
 	}
 	
+	/**
+	 * Writes further content of derived node types to the analysis cache.
+	 * 
+	 * The default implementation writes nothing.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the content cannot be written.
+	 */
+	protected void writeOptionsToCache(CacheWriter out) throws IOException {
+	}
+	
+	/**
+	 * Reads the content written by {@link #writeOptionsToCache(CacheWriter)}.
+	 * 
+	 * The default implementation reads nothing.
+	 * 
+	 * @param in  cache reader
+	 * @throws IOException if the content cannot be read.
+	 */
+	protected void readOptionsFromCache(CacheReader in) throws IOException {
+	}
+	
+	/**
+	 * Connects the sorted children with the node, if not yet done.
+	 * 
+	 * If children have been added after the last connection,
+	 * all children are connected again, in the right order.
+	 */
+	private void connectChildren() {
+		if (null == sortedChildren || connectedChildren == sortedChildren.size())
+			return;
+		
+		if (null == children)
+			children = new Vector<>(sortedChildren.size());
+		else
+			children.clear();
+		children.addAll(sortedChildren.values());
+		connectedChildren = sortedChildren.size();
+	}
+	
+	@Override
+	public int getChildCount() {
+		connectChildren();
+		return super.getChildCount();
+	}
+	
+	@Override
+	public TreeNode getChildAt(int index) {
+		connectChildren();
+		return super.getChildAt(index);
+	}
+	
+	@Override
+	public int getIndex(TreeNode child) {
+		connectChildren();
+		return super.getIndex(child);
+	}
+	
+	@Override
+	public Enumeration<TreeNode> children() {
+		connectChildren();
+		return super.children();
+	}
+	
 	/**
 	 * Returns the same string that's also displayed as the node.
 	 * 
@@ -7,6 +7,7 @@
 
 package org.midica.ui.model;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -14,6 +15,8 @@ import java.util.List;
 
 import javax.swing.tree.TreeNode;
 
+import org.midica.file.CacheReader;
+import org.midica.file.CacheWriter;
 import org.midica.midi.SequenceAnalyzer;
 
 /**
@@ -241,6 +244,32 @@ public class SingleMessage implements IMessageType, Comparable<SingleMessage> {
 		return text.toString();
 	}
 	
+	/**
+	 * Writes the message to the analysis cache.
+	 * 
+	 * The leaf node must have been written before.
+	 * 
+	 * @param out  cache writer
+	 * @throws IOException if the message cannot be written.
+	 */
+	public void writeToCache(CacheWriter out) throws IOException {
+		out.writeValue(options);
+	}
+	
+	/**
+	 * Reads a message from the analysis cache.
+	 * 
+	 * @param in  cache reader
+	 * @return the message.
+	 * @throws IOException if the message cannot be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public static SingleMessage readFromCache(CacheReader in) throws IOException {
+		SingleMessage message = new SingleMessage();
+		message.options = (HashMap<Integer, Object>) in.readValue();
+		return message;
+	}
+	
 	/**
 	 * Used in unit tests.
 	 */
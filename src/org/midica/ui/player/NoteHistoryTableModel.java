@@ -7,9 +7,8 @@
 
 package org.midica.ui.player;
 
-import java.util.ArrayList;
-
 import org.midica.config.Dict;
+import org.midica.midi.ChannelNoteHistory;
 import org.midica.midi.MidiDevices;
 import org.midica.midi.SequenceAnalyzer;
 import org.midica.ui.model.MidicaTableModel;
@@ -20,6 +19,9 @@ import org.midica.ui.model.MidicaTableModel;
  * 
  * Each row represents a played note.
  * 
+ * The rows are a window of the channel's {@link ChannelNoteHistory} around a cursor.
+ * So refreshing the model during playback doesn't allocate any row data.
+ * 
  * @author Jan Trukenmüller
  */
 public class NoteHistoryTableModel extends MidicaTableModel {
@@ -28,8 +30,16 @@ public class NoteHistoryTableModel extends MidicaTableModel {
 	
 	private byte channel;
 	
-	/** note number -- velocity -- tick -- 0=past,1=future */
-	private ArrayList<Long[]> tableData = null;
+	private ChannelNoteHistory history = ChannelNoteHistory.EMPTY;
+	
+	/** index of the first future note */
+	private int cursor = 0;
+	
+	/** index of the first row */
+	private int windowStart = 0;
+	
+	/** index after the last row */
+	private int windowEnd = 0;
 	
 	/**
 	 * Creates a new instance of a note history table data model.
@@ -41,9 +51,6 @@ public class NoteHistoryTableModel extends MidicaTableModel {
 	public NoteHistoryTableModel( byte channel ) {
 		this.channel = channel;
 		
-		// avoid null pointer exceptions
-		tableData = new ArrayList<Long[]>();
-		
 		// table header
 		columnNames = new String[ 4 ];
 		columnNames[ 0 ] = Dict.get( Dict.COLUMN_NUMBER   );
@@ -94,17 +101,14 @@ public class NoteHistoryTableModel extends MidicaTableModel {
 	
 	/**
 	 * Returns the number of rows in the table.
-	 * That is the same as the number of entries in the note history ring buffer
-	 * of the model's channel.
+	 * That is the same as the number of notes in the current window of the
+	 * model's channel.
 	 * 
 	 * @return    Number of rows.
 	 */
 	@Override
 	public int getRowCount() {
-		if ( null == tableData )
-			return 0;
-		
-		return tableData.size();
+		return windowEnd - windowStart;
 	}
 	
 	/**
@@ -116,31 +120,32 @@ public class NoteHistoryTableModel extends MidicaTableModel {
 	 */
 	@Override
 	public Object getValueAt( int rowIndex, int colIndex ) {
-		Long[] row = tableData.get( rowIndex );
+		int index = windowStart + rowIndex;
 		
 		switch (colIndex) {
 			case 0:
-				return row[ 0 ];
+				return (int) history.getNote( index );
 			case 1:
 				String name;
-				long   number = row[ 0 ];
+				int    number = history.getNote( index );
 				if ( 9 == channel )
 					// percussion channel
-					name = Dict.getPercussionLongId( (int) number );
+					name = Dict.getPercussionLongId( number );
 				else
-					name = Dict.getNote( (int) number );
+					name = Dict.getNote( number );
 				return name;
 			case 2:
-				return row[ 1 ];
+				return (int) history.getVelocity( index );
 			case 3:
-				return row[ 2 ];
+				return history.getTick( index );
 			default:
 				return null;
 		}
 	}
 	
 	/**
-	 * Refreshes the model's data with the note history obtained by the {@link SequenceAnalyzer}.
+	 * Moves the window of the note history obtained by the {@link SequenceAnalyzer}
+	 * to the current tick.
 	 * 
 	 * Then: calls the overridden method to inform the parent class about the data change.
 	 * 
@@ -149,7 +154,10 @@ public class NoteHistoryTableModel extends MidicaTableModel {
 	@Override
 	public void fireTableDataChanged() {
 		// refresh table data
-		tableData = SequenceAnalyzer.getNoteHistory( channel, MidiDevices.getTickPosition() );
+		history     = SequenceAnalyzer.getChannelNoteHistory( channel );
+		cursor      = history.moveCursor( cursor, MidiDevices.getTickPosition() );
+		windowStart = history.getWindowStart( cursor );
+		windowEnd   = history.getWindowEnd( cursor );
 		super.fireTableDataChanged();
 	}
 	
@@ -162,12 +170,7 @@ public class NoteHistoryTableModel extends MidicaTableModel {
 	 * @return **true**, if it's a future note. Otherwise: **false**.
 	 */
 	public boolean isFuture( int rowIndex ) {
-		
-		long futureFlag = tableData.get( rowIndex )[ 3 ];
-		if ( 1L == futureFlag )
-			return true;
-		
-		return false;
+		return windowStart + rowIndex >= cursor;
 	}
 	
 	/**
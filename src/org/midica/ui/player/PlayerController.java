@@ -17,6 +17,8 @@ import java.awt.event.MouseWheelListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
 
 import javax.sound.midi.InvalidMidiDataException;
@@ -33,14 +35,17 @@ import javax.swing.text.Document;
 import org.midica.Midica;
 import org.midica.config.Dict;
 import org.midica.config.Laf;
+import org.midica.file.read.MidicaPLParser;
 import org.midica.file.read.ParseException;
 import org.midica.file.read.SequenceParser;
 import org.midica.midi.MidiDevices;
+import org.midica.midi.SequenceAnalyzer;
 import org.midica.ui.ErrorMsgView;
 import org.midica.ui.info.InfoView;
 import org.midica.ui.player.soundcheck.SoundcheckView;
 import org.midica.ui.widget.MidicaSlider;
 import org.midica.worker.DeviceWorker;
+import org.midica.worker.HotSwapWorker;
 import org.midica.worker.ParsingWorker;
 import org.midica.worker.WaitView;
 
@@ -60,6 +65,13 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 	private RefresherThread refresher   = null;
 	private SequenceParser  parser      = null;
 	private File            currentFile = null;
+	private SourceWatcher   watcher     = null;
+	
+	/** **true** while a changed source file is parsed in the background */
+	private boolean isSwapping = false;
+	
+	/** detection time of a change that has happened during the last hot swap, or **-1** */
+	private long pendingChange = -1;
 	
 	/**
 	 * Creates a new listener object for the player and a {@link RefresherThread},
@@ -104,12 +116,17 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 			view.setMemory(pos);
 		}
 		
-		// button pushed for jumping to the memorized tickstamp
+		// button pushed for jumping to the memorized tickstamp or time
 		else if (PlayerView.CMD_JUMP.equals(cmd)) {
 			String memory = view.getMemory();
 			try {
-				long pos = Long.parseLong(memory);
-				MidiDevices.setTickPosition(pos);
+				if (memory.contains(":")) {
+					MidiDevices.setTimePosition(MidiDevices.timeStringToMicroseconds(memory));
+				}
+				else {
+					long pos = Long.parseLong(memory);
+					MidiDevices.setTickPosition(pos);
+				}
 				view.setTextFieldColor(PlayerView.NAME_JUMP, Laf.COLOR_NORMAL);
 			}
 			catch(NumberFormatException ex) {
@@ -222,6 +239,7 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 	 * 
 	 * - closes the soundcheck window
 	 * - stops the {@link RefresherThread} to refresh the progress slider
+	 * - stops the {@link SourceWatcher}, if any
 	 * - stops and destroys the MIDI devices
 	 * 
 	 * @param e    Window activation event.
@@ -231,6 +249,7 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 		try {
 			SoundcheckView.close();
 			refresher.die();
+			stopWatching();
 			MidiDevices.stop();
 			MidiDevices.destroyDevices();
 			Midica.uiController.updateAfterPlayerClosed();
@@ -389,6 +408,14 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 			view.toggleLyrics();
 		}
 		
+		// watch the source files
+		else if ( name.equals(PlayerView.NAME_WATCH) ) {
+			if ( isChecked )
+				startWatching();
+			else
+				stopWatching();
+		}
+		
 		// mute a channel
 		else if ( name.startsWith(PlayerView.NAME_MUTE) ) {
 			name        = name.replaceFirst( PlayerView.NAME_MUTE, "" );
@@ -595,7 +622,8 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 	 * 
 	 * The following text fields are handled by this method:
 	 * 
-	 * - The jump field (must be between 0 and the total number of ticks).
+	 * - The jump field (must be a tick between 0 and the total number of ticks,
+	 *   or a time with at least one colon, not after the end of the sequence).
 	 * - The master volume field (must be between 0 and 127)
 	 * - The tempo field (must be a float greater or equal than 0)
 	 * - The transpose field (must be between -30 and 30)
@@ -611,10 +639,18 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 			
 			// jump field changed
 			if ( PlayerView.NAME_JUMP.equals(name) ) {
-				long max   = MidiDevices.getTickLength();
-				int  ticks = Integer.parseInt( text );
-				if ( ticks < 0 || ticks > max )
-					throw new NumberFormatException();
+				if ( text.contains(":") ) {
+					long max          = MidiDevices.getMicrosecondLength();
+					long microseconds = MidiDevices.timeStringToMicroseconds( text );
+					if ( microseconds > max )
+						throw new NumberFormatException();
+				}
+				else {
+					long max   = MidiDevices.getTickLength();
+					int  ticks = Integer.parseInt( text );
+					if ( ticks < 0 || ticks > max )
+						throw new NumberFormatException();
+				}
 			}
 			
 			// master volume field changed
@@ -743,12 +779,20 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 	
 	/**
 	 * Re-parses the last successfully parsed file again.
-	 * Then sets up the MIDI devices again and connects them with the new MIDI stream.
+	 * Then sets up the sequencer again and connects it with the new MIDI stream.
+	 * The synthesizer and its loaded soundfont are reused.
 	 * Re-builds the progress slider because the MIDI stream length could have changed.
 	 * 
 	 * Shows an error message if the parsing fails.
 	 */
 	private void reparse() {
+		
+		// don't interfere with a hot swap - swap again instead
+		if ( isSwapping ) {
+			pendingChange = System.nanoTime();
+			return;
+		}
+		
 		try {
 			long     currentTicks = MidiDevices.getTickPosition();
 			boolean  isPlaying    = MidiDevices.isPlaying();
@@ -756,9 +800,9 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 			
 			// start file parsing in the background and show the wait window
 			ParsingWorker worker = new ParsingWorker( waitView, parser, currentFile );
-			MidiDevices.destroyDevices();
+			MidiDevices.destroySequencer();
 			worker.execute();
-			waitView.init( Dict.get(Dict.WAIT_REPARSE) );
+			waitView.init( Dict.get(Dict.WAIT_REPARSE), worker.getTaskProgress() );
 			
 			// wait until the file is parsed and than evaluate the parsing result
 			try {
@@ -796,6 +840,135 @@ public class PlayerController implements ActionListener, WindowListener, ChangeL
 		// The sequence length could have changed.
 		// So the key binding to set the progress slider to the end of the sequence must be recalculated.
 		view.addKeyBindingsToSetProgressSliderToEnd();
+		
+		// the included files could have changed
+		updateWatchedFiles();
+	}
+	
+	/**
+	 * Starts to watch the current file and all included files.
+	 * After a file has been saved, {@link #sourceChanged(long)} is called.
+	 */
+	private void startWatching() {
+		if ( null != watcher )
+			return;
+		try {
+			watcher = new SourceWatcher( this );
+			updateWatchedFiles();
+			watcher.start();
+			view.setWatchStatus( "", null );
+		}
+		catch ( IOException e ) {
+			stopWatching();
+			view.uncheckWatch();
+			view.setWatchStatus( Dict.get(Dict.WATCH_UNAVAILABLE), e.getMessage() );
+		}
+	}
+	
+	/**
+	 * Stops to watch the source files.
+	 */
+	private void stopWatching() {
+		if ( null == watcher )
+			return;
+		watcher.die();
+		watcher       = null;
+		pendingChange = -1;
+	}
+	
+	/**
+	 * Passes the current file and the files included by the last successfully
+	 * parsed MidicaPL file to the {@link SourceWatcher}, if watching.
+	 * 
+	 * If the file could not be parsed, the included files are not known.
+	 * Then the last known included files stay watched as well.
+	 */
+	private void updateWatchedFiles() {
+		if ( null == watcher )
+			return;
+		ArrayList<File> files = new ArrayList<>();
+		files.add( currentFile );
+		if ( parser instanceof MidicaPLParser ) {
+			for ( String path : MidicaPLParser.getIncludedPaths() )
+				files.add( new File(path) );
+		}
+		try {
+			watcher.setFiles( files );
+		}
+		catch ( IOException e ) {
+			view.setWatchStatus( Dict.get(Dict.WATCH_UNAVAILABLE), e.getMessage() );
+		}
+	}
+	
+	/**
+	 * Is called by the {@link SourceWatcher} in the event dispatch thread after
+	 * a watched file has been saved.
+	 * 
+	 * Parses the file again in the background while the old sequence keeps playing.
+	 * If a hot swap is already running, it's repeated afterwards.
+	 * 
+	 * @param detected  Time of the change detection, in nanoseconds, according to {@link System#nanoTime()}.
+	 */
+	public void sourceChanged( long detected ) {
+		if ( null == watcher )
+			return;
+		if ( isSwapping ) {
+			if ( pendingChange < 0 )
+				pendingChange = detected;
+			return;
+		}
+		
+		isSwapping = true;
+		MidiDevices.suspendRefresh();
+		view.setWatchStatus( Dict.get(Dict.WATCH_COMPILING), null );
+		new HotSwapWorker( this, parser, currentFile, detected ).execute();
+	}
+	
+	/**
+	 * Is called by the {@link HotSwapWorker} in the event dispatch thread after parsing.
+	 * 
+	 * On success, swaps the new sequence into the sequencer at the current position and
+	 * shows the latency between the change detection and the swap.
+	 * 
+	 * Otherwise the old sequence keeps playing with its analysis results restored
+	 * from the snapshot, and the error is shown in the watch status tooltip.
+	 * 
+	 * @param parseException  the parsing error, or **null** on success
+	 * @param snapshot        analysis results of the old sequence, or **null**
+	 * @param detected        Time of the change detection, in nanoseconds, according to {@link System#nanoTime()}.
+	 */
+	public void hotSwapFinished( ParseException parseException, SequenceAnalyzer.Snapshot snapshot, long detected ) {
+		isSwapping = false;
+		view.updateParseStatusIcon();
+		
+		if ( null == parseException ) {
+			try {
+				MidiDevices.swapSequence();
+				long latency = ( System.nanoTime() - detected ) / 1000000;
+				view.setWatchStatus( String.format(Dict.get(Dict.WATCH_SWAPPED), latency), null );
+			}
+			catch ( InvalidMidiDataException e ) {
+				MidiDevices.keepSequence( snapshot );
+				view.setWatchStatus( Dict.get(Dict.WATCH_FAILED), e.getMessage() );
+			}
+			
+			// the sequence length could have changed
+			view.setTickAndTimeLength( MidiDevices.getTickLength(), MidiDevices.getTimeLength() );
+			view.initProgressSlider();
+			view.addKeyBindingsToSetProgressSliderToEnd();
+			updateWatchedFiles();
+		}
+		else {
+			MidiDevices.keepSequence( snapshot );
+			view.setWatchStatus( Dict.get(Dict.WATCH_FAILED), parseException.getFullMessage() );
+		}
+		
+		// another change during parsing?
+		if ( pendingChange >= 0 ) {
+			long pending  = pendingChange;
+			pendingChange = -1;
+			sourceChanged( pending );
+		}
 	}
 	
 	/**
@@ -100,6 +100,7 @@ public class PlayerView extends JDialog {
 	// Constants for text fields
 	public static final String NAME_JUMP        = "name_jump";
 	public static final String NAME_SHOW_LYRICS = "name_show_lyrics";
+	public static final String NAME_WATCH       = "name_watch";
 	public static final String NAME_MASTER_VOL  = "name_master_volume";
 	public static final String NAME_TEMPO       = "name_tempo";
 	public static final String NAME_TRANSPOSE   = "name_transpose";
@@ -150,8 +151,10 @@ public class PlayerView extends JDialog {
 	
 	// UI
 	private JCheckBox cbxLyrics      = null;
+	private JCheckBox cbxWatch       = null;
 	private JLabel    lblLyrics      = null;
 	private JLabel    lblParseStatus = null;
+	private JLabel    lblWatchStatus = null;
 	
 	private MidicaSlider progressSlider     = null;
 	private MidicaSlider masterVolumeSlider = null;
@@ -316,6 +319,7 @@ public class PlayerView extends JDialog {
 		fldJump.getDocument().putProperty( "name", NAME_JUMP );
 		fldJump.getDocument().addDocumentListener( controller );
 		fldJump.addActionListener( controller );
+		fldJump.setToolTipText( Dict.get(Dict.TIP_JUMP) );
 		setTextFieldColor( fldJump.getName(), Laf.COLOR_NORMAL );
 		Dimension minField = new Dimension( 70, 26 );
 		fldJump.setPreferredSize( minField );
@@ -340,6 +344,14 @@ public class PlayerView extends JDialog {
 		cbxLyrics.addItemListener( controller );
 		area.add( cbxLyrics, constraints );
 		
+		// watch checkbox
+		constraints.gridx++;
+		cbxWatch = new JCheckBox( Dict.get(Dict.WATCH_SOURCE) );
+		cbxWatch.setName( NAME_WATCH );
+		cbxWatch.setToolTipText( Dict.get(Dict.TIP_WATCH_SOURCE) );
+		cbxWatch.addItemListener( controller );
+		area.add( cbxWatch, constraints );
+		
 		// spacer
 		constraints.gridx++;
 		JLabel spacer3 = new JLabel("   ");
@@ -351,6 +363,11 @@ public class PlayerView extends JDialog {
 		area.add(lblParseStatus, constraints);
 		updateParseStatusIcon();
 		
+		// watch status (edit-to-sound latency)
+		constraints.gridx++;
+		lblWatchStatus = new JLabel();
+		area.add(lblWatchStatus, constraints);
+		
 		// spacer
 		constraints.gridx++;
 		constraints.weightx = 1;
@@ -389,6 +406,24 @@ public class PlayerView extends JDialog {
 		lblParseStatus.setIcon(statusIcon);
 	}
 	
+	/**
+	 * Sets the text and tooltip of the watch status label.
+	 * 
+	 * @param text     the status text, e.g. the latency of the last hot swap
+	 * @param toolTip  the tooltip, or **null** for no tooltip
+	 */
+	public void setWatchStatus(String text, String toolTip) {
+		lblWatchStatus.setText(text);
+		lblWatchStatus.setToolTipText(toolTip);
+	}
+	
+	/**
+	 * Unchecks the watch checkbox, e.g. because the files cannot be watched.
+	 */
+	public void uncheckWatch() {
+		cbxWatch.setSelected(false);
+	}
+	
 	/**
 	 * Creates the top right area containing the current and total ticks and time.
 	 * 
@@ -0,0 +1,156 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.ui.player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * The thread defined by this class watches the source files of the sequence that is
+ * currently played, and informs the {@link PlayerController} if one of them has been saved.
+ * 
+ * The parent directories of the files are watched, because many editors save a file by
+ * replacing it. Events arriving within {@link #DEBOUNCE_TIME} milliseconds after each
+ * other are combined, because saving a file may cause several events.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class SourceWatcher extends Thread {
+	
+	/** Waiting time in milli seconds for further events after a change. */
+	public static final int DEBOUNCE_TIME = 50;
+	
+	private PlayerController        controller = null;
+	private WatchService            service    = null;
+	private HashSet<Path>           files      = new HashSet<>();
+	private HashMap<Path, WatchKey> dirKeys    = new HashMap<>();
+	private volatile boolean        isAlive    = true;
+	
+	/**
+	 * Creates the watcher thread. The thread must be started with {@link #start()}.
+	 * 
+	 * @param controller  Event listener object for the player window.
+	 * @throws IOException if the file system cannot be watched.
+	 */
+	public SourceWatcher( PlayerController controller ) throws IOException {
+		super( "Midica source watcher" );
+		setDaemon( true );
+		this.controller = controller;
+		this.service    = FileSystems.getDefault().newWatchService();
+	}
+	
+	/**
+	 * Sets the files to be watched.
+	 * 
+	 * Directories that are no longer needed stay registered. Their events are ignored.
+	 * 
+	 * @param newFiles  the files to be watched
+	 * @throws IOException if a directory cannot be watched.
+	 */
+	public synchronized void setFiles( Collection<File> newFiles ) throws IOException {
+		files.clear();
+		for ( File file : newFiles ) {
+			Path path = file.toPath().toAbsolutePath().normalize();
+			files.add( path );
+			Path dir = path.getParent();
+			if ( dirKeys.containsKey(dir) )
+				continue;
+			WatchKey key = dir.register( service,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY
+			);
+			dirKeys.put( dir, key );
+		}
+	}
+	
+	/**
+	 * Waits for changes of the watched files until {@link #die()} is called.
+	 * 
+	 * After a change the controller is called in the event dispatch thread, together
+	 * with the time when the change has been detected.
+	 */
+	@Override
+	public void run() {
+		while (isAlive) {
+			try {
+				WatchKey   key      = service.take();
+				final long detected = System.nanoTime();
+				boolean    changed  = collect( key );
+				
+				// wait for more events of the same save operation
+				while ( null != (key = service.poll(DEBOUNCE_TIME, TimeUnit.MILLISECONDS)) ) {
+					changed |= collect( key );
+				}
+				
+				if ( ! changed || ! isAlive )
+					continue;
+				SwingUtilities.invokeLater( new Runnable() {
+					@Override
+					public void run() {
+						controller.sourceChanged( detected );
+					}
+				});
+			}
+			catch ( InterruptedException | ClosedWatchServiceException e ) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Evaluates and resets a signalled watch key.
+	 * 
+	 * @param key  the watch key
+	 * @return **true** if at least one of the watched files has changed, otherwise **false**.
+	 */
+	private synchronized boolean collect( WatchKey key ) {
+		boolean changed = false;
+		Path    dir     = (Path) key.watchable();
+		for ( WatchEvent<?> event : key.pollEvents() ) {
+			
+			// events may be lost on overflow, so any watched file may have changed
+			if ( StandardWatchEventKinds.OVERFLOW == event.kind() ) {
+				for ( Path file : files ) {
+					if ( dir.equals(file.getParent()) )
+						changed = true;
+				}
+			}
+			else if ( files.contains(dir.resolve((Path) event.context())) ) {
+				changed = true;
+			}
+		}
+		key.reset();
+		
+		return changed;
+	}
+	
+	/**
+	 * Makes the {@link #run()} method stop running and releases the watch service.
+	 */
+	public void die() {
+		isAlive = false;
+		try {
+			service.close();
+		}
+		catch ( IOException e ) {
+		}
+	}
+}
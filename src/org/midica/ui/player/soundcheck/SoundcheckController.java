@@ -224,6 +224,73 @@ public class SoundcheckController implements ActionListener, ListSelectionListen
 		return result;
 	}
 	
+	/**
+	 * Returns all selected instruments of the instrument table, in table order.
+	 * 
+	 * Each element has the same format as the return value of {@link #getInstrument()}.
+	 * Selected categories are ignored.
+	 * 
+	 * If no selected instrument is found in the table, the last selected instrument
+	 * of the channel is used, if available.
+	 * 
+	 * @return program number, bank MSB and bank LSB of the selected instruments.
+	 */
+	private int[][] getInstruments() {
+		ArrayList<HashMap<String, String>> instruments = instrumentModel.getInstruments();
+		ArrayList<int[]> result = new ArrayList<>();
+		for (int row : view.getSelectedInstrumentRows()) {
+			HashMap<String, String> instr = instruments.get(row);
+			if (instr.containsKey("program")) {
+				result.add(new int[] {
+					Integer.parseInt( instr.get("program")  ),
+					Integer.parseInt( instr.get("bank_msb") ),
+					Integer.parseInt( instr.get("bank_lsb") ),
+				});
+			}
+		}
+		
+		// fallback: last selected instrument
+		if (result.isEmpty()) {
+			int[] instr = getInstrument();
+			if (instr[ 0 ] >= 0)
+				result.add(instr);
+		}
+		
+		return result.toArray(new int[ result.size() ][]);
+	}
+	
+	/**
+	 * Returns all selected notes (or percussion instruments) of the note/percussion table.
+	 * 
+	 * If no selected note is found in the table, the last selected note of the channel
+	 * is used, if available.
+	 * 
+	 * @return the selected note or percussion numbers.
+	 */
+	private int[] getNotes() {
+		ArrayList<Integer> list  = noteModel.getList();
+		ArrayList<Integer> notes = new ArrayList<>();
+		if (list != null) {
+			for (int row : view.getSelectedNoteRows()) {
+				Integer num = list.get(row);
+				if (num != null)
+					notes.add(num);
+			}
+		}
+		
+		// fallback: last selected note
+		if (notes.isEmpty()) {
+			int note = getNote();
+			if (note >= 0)
+				notes.add(note);
+		}
+		
+		int[] result = new int[ notes.size() ];
+		for (int i = 0; i < result.length; i++)
+			result[i] = notes.get(i);
+		return result;
+	}
+	
 	/**
 	 * Returns the currently selected note (or percussion instrument) from
 	 * the note/percussion table.
@@ -263,26 +330,19 @@ public class SoundcheckController implements ActionListener, ListSelectionListen
 			checkVolOrVelField("velocity"); // throws NumberFormatException
 			
 			int     channel  = view.getChannel();
-			int     note     = getNote();
+			int[]   notes    = getNotes();
 			byte    volume   = view.getVolume();
 			int     velocity = view.getVelocity();
 			int     duration = view.getDurationFromField(); // throws NumberFormatException
-			int[]   instr    = getInstrument();
-			int     instrNum = instr[ 0 ];
+			int[][] instrs   = getInstruments();
 			boolean mustKeep = view.mustKeepSettings();
 			
-			// category selected or no note selected?
-			if (instrNum < 0 || note < 0)
+			// only categories selected or no note selected?
+			if (0 == instrs.length || 0 == notes.length)
 				return;
 			
-			// play the note
-			Thread playThread = new Thread() {
-				@Override
-				public void run() {
-					MidiDevices.doSoundcheck(channel, instr, note, volume, velocity, duration, mustKeep);
-				}
-			};
-			playThread.start();
+			// play the notes - returns immediately
+			MidiDevices.doSoundcheck(channel, instrs, notes, volume, velocity, duration, mustKeep);
 		}
 		catch(NumberFormatException e) {
 		}
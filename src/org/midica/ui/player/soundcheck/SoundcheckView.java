@@ -181,7 +181,7 @@ public class SoundcheckView extends JDialog {
 		tblInstrument.getColumnModel().getColumn( 1 ).setPreferredWidth( WIDTH_COL_BANK        );
 		tblInstrument.getColumnModel().getColumn( 2 ).setPreferredWidth( WIDTH_COL_NAME_SF     );
 		tblInstrument.getColumnModel().getColumn( 3 ).setPreferredWidth( WIDTH_COL_NAME_SYNTAX );
-		tblInstrument.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		tblInstrument.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 		tblInstrument.getSelectionModel().addListSelectionListener(controller);
 		JScrollPane scrollInstr = new JScrollPane(tblInstrument);
 		scrollInstr.setPreferredSize(dimTblInstr);
@@ -201,7 +201,7 @@ public class SoundcheckView extends JDialog {
 		tblNote.getColumnModel().getColumn( 0 ).setPreferredWidth( WIDTH_COL_NOTE_NUM   );
 		tblNote.getColumnModel().getColumn( 1 ).setPreferredWidth( WIDTH_COL_NOTE_SHORT );
 		tblNote.getColumnModel().getColumn( 2 ).setPreferredWidth( WIDTH_COL_NOTE_LONG  );
-		tblNote.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		tblNote.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 		tblNote.getSelectionModel().addListSelectionListener(controller);
 		JScrollPane scrollNote = new JScrollPane(tblNote);
 		scrollNote.setPreferredSize(dimTblNote);
@@ -509,6 +509,15 @@ public class SoundcheckView extends JDialog {
 		return tblInstrument.convertRowIndexToModel(row);
 	}
 	
+	/**
+	 * Determines all selected rows of the instrument table (model indices).
+	 * 
+	 * @return selected rows in view order, or an empty array if no row is selected.
+	 */
+	public int[] getSelectedInstrumentRows() {
+		return getSelectedModelRows(tblInstrument);
+	}
+	
 	/**
 	 * Selects the given row of the instruments table, if possible.
 	 * 
@@ -544,6 +553,28 @@ public class SoundcheckView extends JDialog {
 		return tblNote.convertRowIndexToModel(row);
 	}
 	
+	/**
+	 * Determines all selected rows of the note table (model indices).
+	 * 
+	 * @return selected rows in view order, or an empty array if no row is selected.
+	 */
+	public int[] getSelectedNoteRows() {
+		return getSelectedModelRows(tblNote);
+	}
+	
+	/**
+	 * Determines the selected rows of the given table and converts them to model indices.
+	 * 
+	 * @param table  instrument or note table
+	 * @return selected model rows.
+	 */
+	private static int[] getSelectedModelRows(MidicaTable table) {
+		int[] rows = table.getSelectedRows();
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = table.convertRowIndexToModel(rows[i]);
+		return rows;
+	}
+	
 	/**
 	 * Selects the given row of the notes table, if possible.
 	 * 
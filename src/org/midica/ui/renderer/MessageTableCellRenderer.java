@@ -54,7 +54,7 @@ public class MessageTableCellRenderer extends MidicaTableCellRenderer {
 			cell.setForeground( null );
 		}
 		
-		if ( col != 6 )
+		if ( col != 7 )
 			return cell;
 		
 		// set the tooltip for the type column
@@ -0,0 +1,76 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.worker;
+
+import java.util.HashMap;
+
+import org.midica.file.TaskProgress;
+import org.midica.file.write.DecompileAutoTuner;
+
+/**
+ * This class is used to search the best decompile configuration in the background
+ * while a {@link WaitView} is shown.
+ * 
+ * The search may be time consuming because the loaded sequence is decompiled
+ * with many different configurations.
+ * 
+ * After the work is finished, {@link MidicaWorker#done()} is called and
+ * closes the waiting dialog.
+ * 
+ * The search is a {@link TaskProgress} task, so it can be cancelled.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class AutoTuneWorker extends MidicaWorker {
+	
+	private HashMap<String, String> baseConfig = null;
+	private HashMap<String, String> bestConfig = null;
+	
+	/**
+	 * Creates a worker that searches the best decompile configuration in the background
+	 * while a waiting dialog is shown.
+	 * 
+	 * @param view        The waiting dialog.
+	 * @param baseConfig  The decompile configuration to start with.
+	 */
+	public AutoTuneWorker( WaitView view, HashMap<String, String> baseConfig ) {
+		super( view );
+		this.baseConfig = baseConfig;
+	}
+	
+	/**
+	 * Searches the best configuration in the background.
+	 * This method is executed after calling {@link #execute()}.
+	 * 
+	 * @return any caught exception or **null** if no exception is caught.
+	 */
+	@Override
+	protected Exception doInBackground() {
+		getTaskProgress().attach();
+		try {
+			bestConfig = DecompileAutoTuner.tune( baseConfig );
+		}
+		catch ( Exception e ) {
+			return e;
+		}
+		finally {
+			getTaskProgress().detach();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the best found configuration.
+	 * 
+	 * @return the best configuration or **null** if the search has failed.
+	 */
+	public HashMap<String, String> getBestConfig() {
+		return bestConfig;
+	}
+}
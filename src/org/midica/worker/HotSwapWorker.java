@@ -0,0 +1,106 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.worker;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.SwingWorker;
+
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
+import org.midica.file.read.IParser;
+import org.midica.file.read.ParseException;
+import org.midica.midi.SequenceAnalyzer;
+import org.midica.ui.player.PlayerController;
+
+/**
+ * This class is used to parse a file in the background while the player
+ * keeps playing the old sequence.
+ * 
+ * In contrast to the {@link ParsingWorker} no {@link WaitView} is shown.
+ * Before parsing, a snapshot of the analysis results of the played sequence is
+ * taken, so that they can be restored if the parsing fails.
+ * 
+ * After the parsing work is finished, {@link #done()} passes the result to
+ * the {@link PlayerController} in the event dispatch thread, so that the
+ * new sequence can be swapped in.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class HotSwapWorker extends SwingWorker<ParseException, Void> {
+	
+	private PlayerController controller = null;
+	private IParser          parser     = null;
+	private File             file       = null;
+	private long             detected   = 0;
+	
+	private SequenceAnalyzer.Snapshot snapshot = null;
+	private TaskProgress              progress = new TaskProgress();
+	
+	/**
+	 * Creates a worker that parses a file in the background.
+	 * 
+	 * @param controller  The player controller to be informed about the result.
+	 * @param parser      The parser do be executed in the background.
+	 * @param file        The file to be parsed.
+	 * @param detected    Time of the change detection, in nanoseconds, according to {@link System#nanoTime()}.
+	 */
+	public HotSwapWorker( PlayerController controller, IParser parser, File file, long detected ) {
+		this.controller = controller;
+		this.parser     = parser;
+		this.file       = file;
+		this.detected   = detected;
+	}
+	
+	/**
+	 * Parses the file in the background.
+	 * This method is executed after calling {@link #execute()}.
+	 * 
+	 * @return the parse exception or **null** if no exception is caught.
+	 */
+	@Override
+	protected ParseException doInBackground() {
+		ParseException parseException = null;
+		snapshot = SequenceAnalyzer.takeSnapshot();
+		progress.attach();
+		try {
+			parser.parse( file );
+		}
+		catch (ParseException e) {
+			parseException = e;
+		}
+		catch (TaskCancelledException e) {
+			parseException = new ParseException( e.getMessage() );
+		}
+		catch (RuntimeException e) {
+			parseException = new ParseException( e.toString() );
+		}
+		finally {
+			progress.detach();
+		}
+		
+		return parseException;
+	}
+	
+	/**
+	 * Passes the parsing result to the player controller.
+	 * This method is executed in the event dispatch thread after the parsing is finished.
+	 */
+	@Override
+	protected void done() {
+		ParseException parseException;
+		try {
+			parseException = get();
+		}
+		catch ( InterruptedException | ExecutionException e ) {
+			parseException = new ParseException( e.getMessage() );
+		}
+		controller.hotSwapFinished( parseException, snapshot, detected );
+	}
+}
@@ -9,6 +9,8 @@ package org.midica.worker;
 
 import javax.swing.SwingWorker;
 
+import org.midica.file.TaskProgress;
+
 /**
  * This class is the base class for workers that perform time-consuming
  * actions in the background while a {@link WaitView} is shown.
@@ -21,11 +23,16 @@ import javax.swing.SwingWorker;
  * After the background work is finished, {@link #done()} is called and closes
  * the waiting dialog.
  * 
+ * Each worker has its own {@link TaskProgress}. Cancellable workers bind it to the
+ * background thread, so that the waiting dialog can show the progress and cancel
+ * this work without influencing other tasks.
+ * 
  * @author Jan Trukenmüller
  */
 public abstract class MidicaWorker extends SwingWorker<Exception, Void> {
 	
-	private WaitView view = null;
+	private WaitView     view     = null;
+	private TaskProgress progress = new TaskProgress();
 	
 	/**
 	 * Creates a worker for time-consuming background work while
@@ -37,6 +44,15 @@ public abstract class MidicaWorker extends SwingWorker<Exception, Void> {
 		this.view = view;
 	}
 	
+	/**
+	 * Returns the progress and cancellation of the background work.
+	 * 
+	 * @return the task progress.
+	 */
+	public TaskProgress getTaskProgress() {
+		return progress;
+	}
+	
 	/**
 	 * Does the background work.
 	 * 
@@ -9,6 +9,8 @@ package org.midica.worker;
 
 import java.io.File;
 
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
 import org.midica.file.read.IParser;
 import org.midica.file.read.ParseException;
 
@@ -24,6 +26,8 @@ import org.midica.file.read.ParseException;
  * After the parsing work is finished, {@link MidicaWorker#done()} is called and
  * closes the waiting dialog.
  * 
+ * The parsing is a {@link TaskProgress} task, so it can be cancelled.
+ * 
  * @author Jan Trukenmüller
  */
 public class ParsingWorker extends MidicaWorker {
@@ -55,12 +59,19 @@ public class ParsingWorker extends MidicaWorker {
 	protected ParseException doInBackground() {
 		// parse
 		ParseException parseException = null;
+		getTaskProgress().attach();
 		try {
 			parser.parse( file );
 		}
 		catch (ParseException e) {
 			parseException = e;
 		}
+		catch (TaskCancelledException e) {
+			parseException = new ParseException( e.getMessage() );
+		}
+		finally {
+			getTaskProgress().detach();
+		}
 		
 		return parseException;
 	}
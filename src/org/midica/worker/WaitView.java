@@ -12,13 +12,18 @@ import java.awt.Dimension;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Window;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 
 import javax.swing.JDialog;
 import javax.swing.JLabel;
+import javax.swing.Timer;
 
 import org.midica.config.Cli;
 import org.midica.config.Dict;
 import org.midica.config.Laf;
+import org.midica.file.TaskProgress;
+import org.midica.ui.widget.MidicaButton;
 
 
 /**
@@ -26,6 +31,9 @@ import org.midica.config.Laf;
  * The window cannot be closed by the user. It's closed after the
  * time-consuming process is finished by calling {@link #close()};
  * 
+ * For cancellable processes the window shows the progress published via
+ * the {@link TaskProgress} of the process and a cancel button.
+ * 
  * @author Jan Trukenmüller
  */
 public class WaitView extends JDialog {
@@ -35,7 +43,15 @@ public class WaitView extends JDialog {
 	public static final int MIN_WIDTH  = 250;
 	public static final int MIN_HEIGHT = 150;
 	
-	private Container content = null;
+	/** Size of the window, if the progress is shown. */
+	public static final int PROGRESS_WIDTH  = 400;
+	public static final int PROGRESS_HEIGHT = 200;
+	
+	/** Waiting time in milli seconds between the refreshes of the progress. */
+	public static final int PROGRESS_REFRESH_TIME = 100;
+	
+	private Container content       = null;
+	private Timer     progressTimer = null;
 	
 	/**
 	 * Creates a new 'please wait' window.
@@ -60,6 +76,19 @@ public class WaitView extends JDialog {
 	 * @param msg    Message to be displayed.
 	 */
 	public void init(String msg) {
+		init(msg, null);
+	}
+	
+	/**
+	 * Initializes the window, writes the message and shows the window.
+	 * 
+	 * If the process is cancellable, the window also shows the progress
+	 * and a button to cancel the process via {@link TaskProgress#cancel()}.
+	 * 
+	 * @param msg       Message to be displayed.
+	 * @param progress  Progress of the process, if progress and cancel button shall be shown, otherwise **null**.
+	 */
+	public void init(String msg, final TaskProgress progress) {
 		// content
 		content = getContentPane();
 		
@@ -84,6 +113,36 @@ public class WaitView extends JDialog {
 			return;
 		}
 		
+		if (progress != null) {
+			setPreferredSize(new Dimension(PROGRESS_WIDTH, PROGRESS_HEIGHT));
+			
+			// progress
+			constraints.gridy++;
+			final JLabel lblProgress = new JLabel(" ");
+			content.add(lblProgress, constraints);
+			progressTimer = new Timer(PROGRESS_REFRESH_TIME, new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					String description = progress.getDescription();
+					lblProgress.setText("".equals(description) ? " " : description);
+				}
+			});
+			progressTimer.start();
+			
+			// cancel button
+			constraints.gridy++;
+			constraints.fill = GridBagConstraints.NONE;
+			final MidicaButton btnCancel = new MidicaButton(Dict.get(Dict.WAIT_CANCEL));
+			btnCancel.addActionListener(new ActionListener() {
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					progress.cancel();
+					btnCancel.setEnabled(false);
+				}
+			});
+			content.add(btnCancel, constraints);
+		}
+		
 		// show the window
 		pack();
 		setModal(true);
@@ -94,6 +153,8 @@ public class WaitView extends JDialog {
 	 * Closes the window.
 	 */
 	public void close() {
+		if (progressTimer != null)
+			progressTimer.stop();
 		setVisible(false);
 		dispose();
 	}
@@ -0,0 +1,343 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+import org.midica.config.Cli;
+import org.midica.config.Config;
+import org.midica.config.Dict;
+import org.midica.file.read.MidiParser;
+import org.midica.file.read.MidicaPLParser;
+import org.midica.file.write.MidicaPLExporter;
+import org.midica.midi.SequenceAnalyzer;
+import org.midica.midi.SequenceCreator;
+import org.midica.ui.model.ComboboxStringOption;
+import org.midica.ui.model.ConfigComboboxModel;
+
+/**
+ * Micro benchmark for the hot paths of parsing, analyzing and decompiling.
+ * 
+ * This is not a unit test. It's started manually (or by a CI job) like this:
+ * 
+ *     java -cp bin org.midica.benchmark.Benchmark [options]
+ * 
+ * Options:
+ * 
+ * - `--stages=mpl,mid,analyze,decompile` - stages to be measured
+ * - `--sizes=1,2,4,8` - size factors of the synthetic corpus
+ * - `--channels=8` - number of channels in the synthetic files
+ * - `--warmup=3` - warmup iterations per stage and size
+ * - `--iterations=5` - measured iterations per stage and size
+ * - `--seed=1` - random seed for the {@link CorpusGenerator}
+ * - `--csv=FILE` - append the results to a CSV file
+ * 
+ * Stages:
+ * 
+ * - **mpl** - {@link MidicaPLParser#parse(File)}, including the sequence analysis
+ * - **mid** - {@link MidiParser#parse(File)}, including the sequence analysis
+ * - **analyze** - {@link SequenceAnalyzer#analyze(Sequence, String)} alone
+ * - **decompile** - {@link MidicaPLExporter#export(File)}
+ * 
+ * For each stage and size the average and minimum time per operation, the throughput
+ * and the allocated bytes per operation are reported. The allocation is measured with
+ * the thread allocation counter of the JVM, if supported.
+ * 
+ * The benchmark runs without any GUI. Only the needed static components are initialized.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class Benchmark {
+	
+	private static final String STAGE_MPL       = "mpl";
+	private static final String STAGE_MID       = "mid";
+	private static final String STAGE_ANALYZE   = "analyze";
+	private static final String STAGE_DECOMPILE = "decompile";
+	
+	private static final int BARS_PER_SIZE  = 16;
+	private static final int NOTES_PER_SIZE = 1000;
+	
+	private static String[] stages     = { STAGE_MPL, STAGE_MID, STAGE_ANALYZE, STAGE_DECOMPILE };
+	private static int[]    sizes      = { 1, 2, 4, 8 };
+	private static int      channels   = 8;
+	private static int      warmup     = 3;
+	private static int      iterations = 5;
+	private static long     seed       = 1;
+	private static String   csvPath    = null;
+	
+	private static File     tmpDir     = null;
+	private static Sequence origSeq    = null;
+	
+	private static ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	
+	/**
+	 * One operation to be measured.
+	 */
+	private interface Operation {
+		
+		/**
+		 * Prepares the next execution. This is not measured.
+		 * 
+		 * @throws Exception on errors.
+		 */
+		void setUp() throws Exception;
+		
+		/**
+		 * Executes the measured operation.
+		 * 
+		 * @throws Exception on errors.
+		 */
+		void run() throws Exception;
+	}
+	
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args  command line arguments
+	 * @throws Exception on errors.
+	 */
+	public static void main(String[] args) throws Exception {
+		parseArguments(args);
+		init();
+		
+		PrintWriter csv = null;
+		if (csvPath != null) {
+			File    csvFile  = new File(csvPath);
+			boolean isNew    = ! csvFile.exists();
+			csv = new PrintWriter(new OutputStreamWriter(new FileOutputStream(csvFile, true), "UTF-8"));
+			if (isNew)
+				csv.println("timestamp,stage,size,events,avg_ms,min_ms,ops_per_sec,bytes_per_op");
+		}
+		
+		System.out.println(String.format("%-10s %5s %9s %10s %10s %10s %14s",
+			"stage", "size", "events", "avg ms", "min ms", "ops/s", "bytes/op"));
+		long timestamp = System.currentTimeMillis() / 1000;
+		for (int size : sizes) {
+			File mplFile = new File(tmpDir, "bench-" + size + ".midica");
+			File midFile = new File(tmpDir, "bench-" + size + ".mid");
+			CorpusGenerator.writeMidicaPL(mplFile, channels, size * BARS_PER_SIZE, seed);
+			CorpusGenerator.writeMidi(midFile, channels, size * NOTES_PER_SIZE, seed);
+			
+			for (String stage : stages) {
+				Operation op = createOperation(stage, mplFile, midFile);
+				if (null == op) {
+					System.err.println("unknown stage: " + stage);
+					continue;
+				}
+				
+				// warmup
+				for (int i = 0; i < warmup; i++) {
+					op.setUp();
+					op.run();
+				}
+				
+				// measure
+				long totalNanos = 0;
+				long minNanos   = Long.MAX_VALUE;
+				long totalBytes = 0;
+				for (int i = 0; i < iterations; i++) {
+					op.setUp();
+					long bytesBefore = getAllocatedBytes();
+					long start       = System.nanoTime();
+					op.run();
+					long nanos       = System.nanoTime() - start;
+					long bytesAfter  = getAllocatedBytes();
+					totalNanos += nanos;
+					totalBytes += bytesAfter - bytesBefore;
+					minNanos    = Math.min(minNanos, nanos);
+				}
+				
+				double avgMs      = totalNanos / 1_000_000.0 / iterations;
+				double minMs      = minNanos / 1_000_000.0;
+				double opsPerSec  = 1000.0 / avgMs;
+				long   bytesPerOp = bytesSupported() ? totalBytes / iterations : -1;
+				int    events     = countEvents(SequenceCreator.getSequence());
+				
+				System.out.println(String.format("%-10s %5d %9d %10.2f %10.2f %10.2f %14d",
+					stage, size, events, avgMs, minMs, opsPerSec, bytesPerOp));
+				if (csv != null) {
+					csv.println(timestamp + "," + stage + "," + size + "," + events + ","
+						+ String.format("%.3f,%.3f,%.3f", avgMs, minMs, opsPerSec) + "," + bytesPerOp);
+				}
+			}
+			mplFile.delete();
+			midFile.delete();
+		}
+		
+		if (csv != null)
+			csv.close();
+		new File(tmpDir, "decompiled.midica").delete();
+		tmpDir.delete();
+		System.exit(0);
+	}
+	
+	/**
+	 * Creates the operation for the given stage.
+	 * 
+	 * @param stage    stage name
+	 * @param mplFile  MidicaPL file of the current size
+	 * @param midFile  MIDI file of the current size
+	 * @return the operation or **null** if the stage is unknown.
+	 * @throws Exception on errors.
+	 */
+	private static Operation createOperation(String stage, final File mplFile, final File midFile) throws Exception {
+		
+		if (STAGE_MPL.equals(stage)) {
+			return new Operation() {
+				public void setUp() {
+				}
+				public void run() throws Exception {
+					new MidicaPLParser(true).parse(mplFile);
+				}
+			};
+		}
+		if (STAGE_MID.equals(stage)) {
+			return new Operation() {
+				public void setUp() {
+				}
+				public void run() throws Exception {
+					new MidiParser().parse(midFile);
+				}
+			};
+		}
+		if (STAGE_ANALYZE.equals(stage)) {
+			origSeq = MidiSystem.getSequence(midFile);
+			return new Operation() {
+				public void setUp() throws Exception {
+					new MidiParser().parse(midFile);
+				}
+				public void run() throws Exception {
+					SequenceAnalyzer.analyze(origSeq, Config.DEFAULT_CHARSET_MID);
+				}
+			};
+		}
+		if (STAGE_DECOMPILE.equals(stage)) {
+			final File target = new File(tmpDir, "decompiled.midica");
+			new MidiParser().parse(midFile);
+			return new Operation() {
+				public void setUp() {
+				}
+				public void run() throws Exception {
+					new MidicaPLExporter().export(target);
+				}
+			};
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Initializes the static components needed for parsing and exporting,
+	 * without creating any GUI.
+	 * 
+	 * @throws IOException if the temporary directory cannot be created.
+	 */
+	private static void init() throws IOException {
+		Cli.parseArguments(new String[] { "--cli", "--ignore-local-config", "--keep-alive" });
+		Config.init();
+		Dict.init();
+		
+		// charset models (normally created by the file chooser)
+		initCharsetModel(Config.CHARSET_MPL,        Config.DEFAULT_CHARSET_MPL);
+		initCharsetModel(Config.CHARSET_MID,        Config.DEFAULT_CHARSET_MID);
+		initCharsetModel(Config.CHARSET_EXPORT_MPL, Config.DEFAULT_CHARSET_EXPORT_MPL);
+		initCharsetModel(Config.CHARSET_EXPORT_MID, Config.DEFAULT_CHARSET_EXPORT_MID);
+		
+		tmpDir = Files.createTempDirectory("midica-benchmark").toFile();
+	}
+	
+	/**
+	 * Creates a charset combobox model with only one option.
+	 * 
+	 * @param configKey  config key of the model
+	 * @param charset    the charset
+	 */
+	private static void initCharsetModel(String configKey, String charset) {
+		ArrayList<ComboboxStringOption> options = new ArrayList<>();
+		options.add(new ComboboxStringOption(charset, charset));
+		ConfigComboboxModel.initModel(options, configKey);
+	}
+	
+	/**
+	 * Parses the command line arguments.
+	 * 
+	 * @param args  command line arguments
+	 */
+	private static void parseArguments(String[] args) {
+		LinkedHashMap<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+			options.put(parts[0], parts.length > 1 ? parts[1] : "");
+		}
+		if (options.containsKey("stages"))
+			stages = options.get("stages").split(",");
+		if (options.containsKey("sizes"))
+			sizes = Arrays.stream(options.get("sizes").split(",")).mapToInt(Integer::parseInt).toArray();
+		if (options.containsKey("channels"))
+			channels = Integer.parseInt(options.get("channels"));
+		if (options.containsKey("warmup"))
+			warmup = Integer.parseInt(options.get("warmup"));
+		if (options.containsKey("iterations"))
+			iterations = Math.max(1, Integer.parseInt(options.get("iterations")));
+		if (options.containsKey("seed"))
+			seed = Long.parseLong(options.get("seed"));
+		if (options.containsKey("csv"))
+			csvPath = options.get("csv");
+	}
+	
+	/**
+	 * Counts the events of all tracks in the given sequence.
+	 * 
+	 * @param seq  the sequence
+	 * @return number of events.
+	 */
+	private static int countEvents(Sequence seq) {
+		if (null == seq)
+			return 0;
+		int count = 0;
+		for (Track track : seq.getTracks()) {
+			count += track.size();
+		}
+		return count;
+	}
+	
+	/**
+	 * Determins if the JVM supports measuring the allocated bytes per thread.
+	 * 
+	 * @return **true** if supported, otherwise **false**.
+	 */
+	private static boolean bytesSupported() {
+		return threadBean instanceof com.sun.management.ThreadMXBean
+			&& ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+	}
+	
+	/**
+	 * Returns the number of bytes allocated by the current thread so far.
+	 * 
+	 * @return allocated bytes or **0** if not supported.
+	 */
+	private static long getAllocatedBytes() {
+		if ( ! bytesSupported() )
+			return 0;
+		return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+/**
+ * Creates a deterministic synthetic corpus for the {@link Benchmark}.
+ * 
+ * The same size and seed always produce the same files, so that the results of
+ * different commits can be compared.
+ * 
+ * Two kinds of files are created:
+ * 
+ * - **MidicaPL** source files with N channels, using functions, nested blocks,
+ *   patterns, chords and variables.
+ * - **MIDI** files with N channels and a configurable number of notes per channel,
+ *   including controller, pitch bend and tempo messages.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class CorpusGenerator {
+	
+	private static final String[] NOTES   = { "c", "d", "e", "f", "g", "a", "b" };
+	private static final String[] LENGTHS = { "/4", "/8", "/8.", "/16", "/2", "/4t" };
+	
+	private static final int RESOLUTION = 480;
+	
+	/**
+	 * Creates the source code of a MidicaPL file.
+	 * 
+	 * Each channel gets its own function, containing nested blocks, pattern calls and
+	 * chords. The main part calls these functions **bars** times.
+	 * 
+	 * @param channels  number of channels (1-15, the percussion channel is skipped)
+	 * @param bars      number of times that each channel function is called
+	 * @param seed      random seed
+	 * @return the source code.
+	 */
+	public static String createMidicaPL(int channels, int bars, long seed) {
+		Random        random = new Random(seed);
+		StringBuilder src    = new StringBuilder();
+		int[]         chList = getChannels(channels);
+		
+		src.append("// synthetic benchmark file: channels=" + channels + ", bars=" + bars + ", seed=" + seed + "\n\n");
+		
+		// instruments
+		src.append("INSTRUMENTS\n");
+		for (int channel : chList) {
+			src.append("\t" + channel + "  " + (channel * 7 % 128) + "  Channel " + channel + "\n");
+		}
+		src.append("END\n\n");
+		
+		// globals
+		src.append("*  tempo  " + (90 + random.nextInt(60)) + "\n");
+		src.append("*  time   4/4\n");
+		src.append("*  key    c/maj\n\n");
+		
+		// chords and variables
+		src.append("CHORD  bmk_maj  c, e, g\n");
+		src.append("CHORD  bmk_min  a-, c, e\n");
+		src.append("VAR    $bmk_len = /8\n\n");
+		
+		// patterns
+		src.append("PATTERN bmk_arpeggio\n");
+		src.append("\t0    $bmk_len\n");
+		src.append("\t1    /16  v=90\n");
+		src.append("\t2    /16\n");
+		src.append("\t0,2  /4   d=80%\n");
+		src.append("END\n\n");
+		src.append("PATTERN bmk_strum\n");
+		src.append("\t0,1,2  /8  m\n");
+		src.append("\t-      /8\n");
+		src.append("\t1      /4  q=2\n");
+		src.append("END\n\n");
+		
+		// one function per channel
+		for (int channel : chList) {
+			src.append("FUNCTION bmk_ch" + channel + "\n");
+			src.append("\t" + channel + "  " + randomNote(random) + "  " + randomLength(random) + "  v=" + (60 + random.nextInt(60)) + "\n");
+			src.append("\t{ q=2\n");
+			src.append("\t\t" + channel + "  " + randomNote(random) + "  /8\n");
+			src.append("\t\t{ m, q=" + (2 + random.nextInt(2)) + "\n");
+			src.append("\t\t\t" + channel + "  " + randomNote(random) + "  /16\n");
+			src.append("\t\t\t" + channel + "  " + randomNote(random) + "  /16  d=50%\n");
+			src.append("\t\t}\n");
+			src.append("\t\t" + channel + "  " + randomNote(random) + "  " + randomLength(random) + "\n");
+			src.append("\t}\n");
+			src.append("\t" + channel + "  bmk_maj  bmk_arpeggio\n");
+			src.append("\t" + channel + "  bmk_min  bmk_strum  q=2\n");
+			src.append("\t" + channel + "  -  /4\n");
+			src.append("END\n\n");
+		}
+		
+		// drums
+		src.append("FUNCTION bmk_drums\n");
+		src.append("\tp  bd1,hhc  /8\n");
+		src.append("\tp  hhc      /8\n");
+		src.append("\tp  sd1,hhc  /8\n");
+		src.append("\tp  hhc      /8\n");
+		src.append("END\n\n");
+		
+		// main part
+		for (int bar = 0; bar < bars; bar++) {
+			for (int channel : chList) {
+				src.append("CALL bmk_ch" + channel + "\n");
+			}
+			src.append("CALL bmk_drums  q=" + (1 + random.nextInt(4)) + "\n");
+		}
+		
+		return src.toString();
+	}
+	
+	/**
+	 * Writes a MidicaPL file created by {@link #createMidicaPL(int, int, long)}.
+	 * 
+	 * @param file      the file to be written
+	 * @param channels  number of channels
+	 * @param bars      number of times that each channel function is called
+	 * @param seed      random seed
+	 * @throws IOException if the file cannot be written.
+	 */
+	public static void writeMidicaPL(File file, int channels, int bars, long seed) throws IOException {
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8")) {
+			writer.write(createMidicaPL(channels, bars, seed));
+		}
+	}
+	
+	/**
+	 * Creates a dense MIDI sequence.
+	 * 
+	 * @param channels          number of channels (1-16)
+	 * @param notesPerChannel   number of notes in each channel
+	 * @param seed              random seed
+	 * @return the sequence.
+	 * @throws InvalidMidiDataException if a message cannot be created.
+	 */
+	public static Sequence createMidiSequence(int channels, int notesPerChannel, long seed) throws InvalidMidiDataException {
+		Random   random   = new Random(seed);
+		Sequence sequence = new Sequence(Sequence.PPQ, RESOLUTION);
+		
+		// tempo track
+		Track tempoTrack = sequence.createTrack();
+		long  maxTick    = (long) notesPerChannel * RESOLUTION / 2;
+		for (long tick = 0; tick < maxTick; tick += RESOLUTION * 16) {
+			int    mpq  = 60000000 / (80 + random.nextInt(80));
+			byte[] data = { (byte) (mpq >> 16), (byte) (mpq >> 8), (byte) mpq };
+			tempoTrack.add(new MidiEvent(new MetaMessage(0x51, data, 3), tick));
+		}
+		
+		// one track per channel
+		for (int channel = 0; channel < channels && channel < 16; channel++) {
+			Track track = sequence.createTrack();
+			track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, channel, random.nextInt(128), 0), 0));
+			long tick = 0;
+			for (int i = 0; i < notesPerChannel; i++) {
+				int  note     = 36 + random.nextInt(60);
+				int  velocity = 30 + random.nextInt(97);
+				long length   = RESOLUTION / 4 * (1 + random.nextInt(4));
+				track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON,  channel, note, velocity), tick));
+				track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, channel, note, 0),        tick + length));
+				
+				// sometimes a chord note
+				if (random.nextInt(4) == 0) {
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON,  channel, note + 4, velocity), tick));
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, channel, note + 4, 0),        tick + length));
+				}
+				
+				// controllers and pitch bend
+				if (i % 16 == 0) {
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.CONTROL_CHANGE, channel, 0x0B, random.nextInt(128)), tick));
+				}
+				if (i % 32 == 0) {
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.PITCH_BEND, channel, 0, random.nextInt(128)), tick));
+				}
+				tick += RESOLUTION / 2;
+			}
+		}
+		
+		return sequence;
+	}
+	
+	/**
+	 * Writes a MIDI file created by {@link #createMidiSequence(int, int, long)}.
+	 * 
+	 * @param file             the file to be written
+	 * @param channels         number of channels
+	 * @param notesPerChannel  number of notes in each channel
+	 * @param seed             random seed
+	 * @throws IOException if the file cannot be written.
+	 * @throws InvalidMidiDataException if a message cannot be created.
+	 */
+	public static void writeMidi(File file, int channels, int notesPerChannel, long seed) throws IOException, InvalidMidiDataException {
+		MidiSystem.write(createMidiSequence(channels, notesPerChannel, seed), 1, file);
+	}
+	
+	/**
+	 * Returns the melodic channels to be used.
+	 * 
+	 * @param count  number of channels
+	 * @return the channel numbers, without the percussion channel.
+	 */
+	private static int[] getChannels(int count) {
+		count = Math.max(1, Math.min(15, count));
+		int[] channels = new int[count];
+		int   channel  = 0;
+		for (int i = 0; i < count; i++) {
+			if (9 == channel)
+				channel++;
+			channels[i] = channel++;
+		}
+		return channels;
+	}
+	
+	/**
+	 * Returns a random note name with an optional octave modifier.
+	 * 
+	 * @param random  random generator
+	 * @return the note name.
+	 */
+	private static String randomNote(Random random) {
+		String note   = NOTES[random.nextInt(NOTES.length)];
+		int    octave = random.nextInt(3) - 1;
+		if (octave > 0)
+			return note + "+";
+		if (octave < 0)
+			return note + "-";
+		return note;
+	}
+	
+	/**
+	 * Returns a random note length.
+	 * 
+	 * @param random  random generator
+	 * @return the note length.
+	 */
+	private static String randomLength(Random random) {
+		return LENGTHS[random.nextInt(LENGTHS.length)];
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.midica.TestUtil;
+
+/**
+ * This is the test class for {@link TaskProgress}.
+ * 
+ * @author Jan Trukenmüller
+ */
+class TaskProgressTest {
+	
+	/**
+	 * Initializes midica in test mode.
+	 * 
+	 * @throws InterruptedException       on interruptions while waiting for the event dispatching thread.
+	 * @throws InvocationTargetException  on exceptions.
+	 */
+	@BeforeAll
+	static void setUpBeforeClass() throws InvocationTargetException, InterruptedException {
+		TestUtil.initMidica();
+	}
+	
+	/**
+	 * Tests that cancelling or finishing one task doesn't influence another task
+	 * running in another thread at the same time.
+	 * 
+	 * @throws InterruptedException if the other thread is interrupted.
+	 */
+	@Test
+	void testIndependentTasks() throws InterruptedException {
+		TaskProgress task  = new TaskProgress();
+		TaskProgress other = new TaskProgress();
+		
+		// outside of a task
+		assertNull( TaskProgress.current() );
+		TaskProgress.check();
+		TaskProgress.setPhase("ignored");
+		
+		task.attach();
+		try {
+			assertSame( task, TaskProgress.current() );
+			TaskProgress.setPhase("task.phase");
+			TaskProgress.setLine(12);
+			
+			// the other task finishes in the meantime
+			assertNull( runInOtherThread(other, () -> TaskProgress.setPhase("other.phase")) );
+			TaskProgress.check();
+			assertTrue( task.getDescription().startsWith("task.phase, ") );
+			assertTrue( other.getDescription().startsWith("other.phase, ") );
+			
+			// cancel the other task
+			other.cancel();
+			TaskProgress.check();
+			assertTrue( runInOtherThread(other, () -> TaskProgress.check()) instanceof TaskCancelledException );
+			
+			// cancel this task
+			TaskProgress third = new TaskProgress();
+			task.cancel();
+			assertThrows( TaskCancelledException.class, () -> TaskProgress.check() );
+			assertNull( runInOtherThread(third, () -> TaskProgress.check()) );
+		}
+		finally {
+			task.detach();
+		}
+		
+		// not bound any more
+		assertNull( TaskProgress.current() );
+		TaskProgress.check();
+	}
+	
+	/**
+	 * Executes the given action in a new thread, as a part of the given task.
+	 * 
+	 * @param task    the task to be bound to the thread
+	 * @param action  the action
+	 * @return the exception thrown by the action, or **null** if nothing was thrown.
+	 * @throws InterruptedException if the thread is interrupted.
+	 */
+	private static RuntimeException runInOtherThread(TaskProgress task, Runnable action) throws InterruptedException {
+		AtomicReference<RuntimeException> exception = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			task.attach();
+			try {
+				action.run();
+			}
+			catch (RuntimeException e) {
+				exception.set(e);
+			}
+			finally {
+				task.detach();
+			}
+		});
+		thread.start();
+		thread.join();
+		return exception.get();
+	}
+}
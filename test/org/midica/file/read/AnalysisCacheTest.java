@@ -0,0 +1,153 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.midica.TestUtil;
+import org.midica.config.Cli;
+import org.midica.config.Config;
+import org.midica.file.CacheWriter;
+import org.midica.midi.KaraokeAnalyzer;
+import org.midica.midi.SequenceAnalyzer;
+import org.midica.ui.model.ComboboxStringOption;
+import org.midica.ui.model.ConfigComboboxModel;
+import org.midica.ui.model.SingleMessage;
+
+/**
+ * This is the test class for {@link AnalysisCache}.
+ * 
+ * The test uses its own temporary home directory, so that the cache files
+ * of the user are not touched.
+ * 
+ * @author Jan Trukenmüller
+ */
+class AnalysisCacheTest {
+	
+	private static final MidiParser parser = new MidiParser();
+	
+	private File    tmpDir;
+	private String  userHome;
+	private boolean useLocalConfig;
+	
+	/**
+	 * Initializes midica in test mode.
+	 * 
+	 * @throws InterruptedException       on interruptions while waiting for the event dispatching thread.
+	 * @throws InvocationTargetException  on exceptions.
+	 */
+	@BeforeAll
+	static void setUpBeforeClass() throws InvocationTargetException, InterruptedException {
+		TestUtil.initMidica();
+	}
+	
+	/**
+	 * Creates a temporary home directory and enables the cache.
+	 * 
+	 * @throws IOException if the directory cannot be created.
+	 */
+	@BeforeEach
+	void setUp() throws IOException {
+		tmpDir         = Files.createTempDirectory("midica-test").toFile();
+		userHome       = System.getProperty("user.home");
+		useLocalConfig = Cli.useLocalConfig;
+		System.setProperty("user.home", tmpDir.getPath());
+		Cli.useLocalConfig = true;
+	}
+	
+	/**
+	 * Restores the home directory and deletes the temporary files.
+	 */
+	@AfterEach
+	void tearDown() {
+		System.setProperty("user.home", userHome);
+		Cli.useLocalConfig = useLocalConfig;
+		File cacheDir = new File(tmpDir, ".midica.cache");
+		File[] files  = cacheDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		cacheDir.delete();
+		tmpDir.delete();
+	}
+	
+	/**
+	 * Compares the restored analysis results with the results of a fresh analysis,
+	 * for each MIDI test file.
+	 * 
+	 * @throws IOException if something went wrong.
+	 * @throws InvalidMidiDataException if something went wrong.
+	 * @throws ParseException if something went wrong.
+	 */
+	@Test
+	void testRoundTrip() throws IOException, InvalidMidiDataException, ParseException {
+		File[] files = new File(TestUtil.getTestfileDirectory() + "midi").listFiles();
+		Arrays.sort(files);
+		assertTrue( files.length > 0 );
+		for (File file : files) {
+			String charset = ((ComboboxStringOption) ConfigComboboxModel.getModel(Config.CHARSET_MID).getSelectedItem()).getIdentifier();
+			
+			// fresh analysis (cache miss, stores the results)
+			parser.parse(file);
+			byte[] fresh         = serialize();
+			int    freshMessages = getMessages().size();
+			String freshLyrics   = KaraokeAnalyzer.getLyricsFlat().toString();
+			
+			// restore the results
+			SequenceAnalyzer.reset();
+			Sequence seq = MidiSystem.getSequence(file);
+			assertTrue( AnalysisCache.forFile(file, charset).restore(seq), file.getName() );
+			
+			assertArrayEquals( fresh, serialize(), file.getName() );
+			assertEquals( freshMessages, getMessages().size(), file.getName() );
+			assertEquals( freshLyrics, KaraokeAnalyzer.getLyricsFlat().toString(), file.getName() );
+		}
+	}
+	
+	/**
+	 * Serializes the current analysis results.
+	 * 
+	 * @return the serialized results.
+	 * @throws IOException if something went wrong.
+	 */
+	private static byte[] serialize() throws IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CacheWriter           writer = new CacheWriter(stream);
+		SequenceAnalyzer.writeToCache(writer);
+		writer.flush();
+		return stream.toByteArray();
+	}
+	
+	/**
+	 * Returns the analyzed messages.
+	 * 
+	 * @return the messages.
+	 */
+	@SuppressWarnings("unchecked")
+	private static ArrayList<SingleMessage> getMessages() {
+		return (ArrayList<SingleMessage>) SequenceAnalyzer.getSequenceInfo().get("messages");
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.midica.TestUtil;
+import org.midica.config.Cli;
+import org.midica.config.Config;
+import org.midica.midi.SequenceCreator;
+import org.midica.ui.model.ComboboxStringOption;
+import org.midica.ui.model.ConfigComboboxModel;
+
+/**
+ * This is the test class for {@link CompileCache}.
+ * 
+ * Each test uses its own temporary home directory, so that the cache files
+ * of the user are not touched.
+ * 
+ * @author Jan Trukenmüller
+ */
+class CompileCacheTest {
+	
+	private File    tmpDir;
+	private File    cacheDir;
+	private String  userHome;
+	private boolean useLocalConfig;
+	
+	/**
+	 * Initializes midica in test mode.
+	 * 
+	 * @throws InterruptedException       on interruptions while waiting for the event dispatching thread.
+	 * @throws InvocationTargetException  on exceptions.
+	 */
+	@BeforeAll
+	static void setUpBeforeClass() throws InvocationTargetException, InterruptedException {
+		TestUtil.initMidica();
+	}
+	
+	/**
+	 * Creates a temporary home directory and enables the cache.
+	 * 
+	 * @throws IOException if the directory cannot be created.
+	 */
+	@BeforeEach
+	void setUp() throws IOException {
+		tmpDir         = Files.createTempDirectory("midica-test").toFile();
+		cacheDir       = new File(tmpDir, ".midica.cache");
+		userHome       = System.getProperty("user.home");
+		useLocalConfig = Cli.useLocalConfig;
+		System.setProperty("user.home", tmpDir.getPath());
+		Cli.useLocalConfig = true;
+	}
+	
+	/**
+	 * Restores the home directory and deletes the temporary files.
+	 */
+	@AfterEach
+	void tearDown() {
+		System.setProperty("user.home", userHome);
+		Cli.useLocalConfig = useLocalConfig;
+		delete(tmpDir);
+	}
+	
+	/**
+	 * Tests that a changed INCLUDE file invalidates the cached sequence.
+	 * 
+	 * @throws IOException if something went wrong.
+	 * @throws ParseException if something went wrong.
+	 */
+	@Test
+	void testChangedInclude() throws IOException, ParseException {
+		File main = new File(tmpDir, "main.midica");
+		File inc  = new File(tmpDir, "inc.midica");
+		write(main, "INSTRUMENTS\n\t0 0 Piano\nEND\nINCLUDE inc.midica\n");
+		write(inc, "0 c /4\n");
+		
+		// first parsing run: compile and store
+		new MidicaPLParser(true).parse(main);
+		assertEquals( "[60]", getNoteOns().toString() );
+		assertNotNull( CompileCache.forFile(main, getCharset()).restore() );
+		
+		// unchanged: restored
+		new MidicaPLParser(true).parse(main);
+		assertEquals( "[60]", getNoteOns().toString() );
+		
+		// changed include: outdated
+		write(inc, "0 d /4\n");
+		assertNull( CompileCache.forFile(main, getCharset()).restore() );
+		new MidicaPLParser(true).parse(main);
+		assertEquals( "[62]", getNoteOns().toString() );
+		
+		// changed root file: different key
+		write(main, "INSTRUMENTS\n\t0 0 Piano\nEND\nINCLUDE inc.midica\n0 e /4\n");
+		assertNull( CompileCache.forFile(main, getCharset()).restore() );
+		new MidicaPLParser(true).parse(main);
+		assertEquals( "[62, 64]", getNoteOns().toString() );
+	}
+	
+	/**
+	 * Tests that a changed modification time of the soundfont invalidates the cached sequence.
+	 * 
+	 * @throws IOException if something went wrong.
+	 * @throws InvalidMidiDataException if something went wrong.
+	 */
+	@Test
+	void testChangedSoundfont() throws IOException, InvalidMidiDataException {
+		File main      = new File(tmpDir, "main.midica");
+		File soundfont = new File(tmpDir, "test.sf2");
+		write(main, "0 c /4\n");
+		write(soundfont, "not really a soundfont");
+		
+		CompileCache.forFile(main, getCharset()).store(createSequence(), new ArrayList<String>(), soundfont);
+		assertNotNull( CompileCache.forFile(main, getCharset()).restore() );
+		assertEquals( soundfont.getCanonicalPath(), getRestoredCache(main).getSoundfontPath() );
+		
+		// touched soundfont: outdated, but not invalid
+		assertTrue( soundfont.setLastModified(soundfont.lastModified() + 10000) );
+		assertNull( CompileCache.forFile(main, getCharset()).restore() );
+		assertEquals( 1, getCacheFiles().length );
+	}
+	
+	/**
+	 * Tests that corrupt or truncated cache files are ignored and deleted.
+	 * 
+	 * @throws IOException if something went wrong.
+	 * @throws InvalidMidiDataException if something went wrong.
+	 */
+	@Test
+	void testInvalidCacheFile() throws IOException, InvalidMidiDataException {
+		File main = new File(tmpDir, "main.midica");
+		write(main, "0 c /4\n");
+		
+		// corrupt payload
+		CompileCache.forFile(main, getCharset()).store(createSequence(), new ArrayList<String>(), null);
+		assertEquals( 1, getCacheFiles().length );
+		try (RandomAccessFile raf = new RandomAccessFile(getCacheFiles()[0], "rw")) {
+			raf.seek(raf.length() - 1);
+			int b = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(b ^ 0xFF);
+		}
+		assertNull( CompileCache.forFile(main, getCharset()).restore() );
+		assertEquals( 0, getCacheFiles().length );
+		
+		// truncated file
+		CompileCache.forFile(main, getCharset()).store(createSequence(), new ArrayList<String>(), null);
+		assertNotNull( CompileCache.forFile(main, getCharset()).restore() );
+		try (RandomAccessFile raf = new RandomAccessFile(getCacheFiles()[0], "rw")) {
+			raf.setLength(raf.length() - 10);
+		}
+		assertNull( CompileCache.forFile(main, getCharset()).restore() );
+		assertEquals( 0, getCacheFiles().length );
+		
+		// truncated header
+		CompileCache.forFile(main, getCharset()).store(createSequence(), new ArrayList<String>(), null);
+		try (RandomAccessFile raf = new RandomAccessFile(getCacheFiles()[0], "rw")) {
+			raf.setLength(10);
+		}
+		assertNull( CompileCache.forFile(main, getCharset()).restore() );
+		assertEquals( 0, getCacheFiles().length );
+	}
+	
+	/**
+	 * Returns the charset that is chosen for MidicaPL files.
+	 * 
+	 * @return the charset.
+	 */
+	private static String getCharset() {
+		return ((ComboboxStringOption) ConfigComboboxModel.getModel(Config.CHARSET_MPL).getSelectedItem()).getIdentifier();
+	}
+	
+	/**
+	 * Returns a cache entry for the given file, after restoring it successfully.
+	 * 
+	 * @param file  the source file
+	 * @return the cache entry.
+	 */
+	private static CompileCache getRestoredCache(File file) {
+		CompileCache cache = CompileCache.forFile(file, getCharset());
+		assertNotNull( cache.restore() );
+		return cache;
+	}
+	
+	/**
+	 * Returns the files in the compile cache directory.
+	 * 
+	 * @return the cache files.
+	 */
+	private File[] getCacheFiles() {
+		File[] files = cacheDir.listFiles();
+		if (null == files)
+			return new File[0];
+		ArrayList<File> result = new ArrayList<>();
+		for (File file : files) {
+			if (file.getName().endsWith(".compiled"))
+				result.add(file);
+		}
+		return result.toArray(new File[0]);
+	}
+	
+	/**
+	 * Returns the note numbers of all NOTE-ON messages of the last created sequence.
+	 * 
+	 * @return the note numbers.
+	 */
+	private static ArrayList<Integer> getNoteOns() {
+		ArrayList<Integer> notes = new ArrayList<>();
+		for (Track track : SequenceCreator.getSequence().getTracks()) {
+			for (int i = 0; i < track.size(); i++) {
+				if (! (track.get(i).getMessage() instanceof ShortMessage))
+					continue;
+				ShortMessage msg = (ShortMessage) track.get(i).getMessage();
+				if (ShortMessage.NOTE_ON == msg.getCommand() && msg.getData2() > 0)
+					notes.add(msg.getData1());
+			}
+		}
+		return notes;
+	}
+	
+	/**
+	 * Creates a small sequence to be cached.
+	 * 
+	 * @return the sequence.
+	 * @throws InvalidMidiDataException if something went wrong.
+	 */
+	private static Sequence createSequence() throws InvalidMidiDataException {
+		Sequence seq   = new Sequence(Sequence.PPQ, 480);
+		Track    track = seq.createTrack();
+		track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, 0, 60, 64), 0));
+		track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, 0, 60, 0), 480));
+		return seq;
+	}
+	
+	/**
+	 * Writes a text file.
+	 * 
+	 * @param file     the file
+	 * @param content  the content
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static void write(File file, String content) throws IOException {
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Deletes a file or a directory recursively.
+	 * 
+	 * @param file  the file or directory
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -15,8 +15,10 @@ import java.util.ArrayList;
 import java.util.Deque;
 
 import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
 import javax.sound.midi.MidiMessage;
 import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
 import javax.swing.JComboBox;
 
 import org.junit.jupiter.api.BeforeAll;
@@ -28,6 +30,7 @@ import org.midica.file.CharsetUtils;
 import org.midica.file.read.MidicaPLParser;
 import org.midica.file.read.ParseException;
 import org.midica.file.read.StackTraceElement;
+import org.midica.midi.IWindowListener;
 import org.midica.midi.KaraokeAnalyzer;
 import org.midica.midi.SequenceAnalyzer;
 import org.midica.midi.SequenceCreator;
@@ -275,6 +278,21 @@ class MidicaPLParserTest extends MidicaPLParser {
 		assertEquals(  101,  instruments.get(0).getVelocity() );
 		assertEquals(  0.8f, instruments.get(0).getDurationRatio() );
 		
+		parse(getWorkingFile("inherited-shift-and-tuplets"));
+		assertEquals( 1360, instruments.get(0).getCurrentTicks() );
+		assertEquals( 1200, instruments.get(1).getCurrentTicks() );
+		messages = getMessagesByStatus("90");
+		assertEquals( 4, messages.size() );
+		assertEquals( "0/0/90/d / 64",   messages.get(0).toString() ); // function with shift and { t
+		assertEquals( "160/0/90/d / 64", messages.get(1).toString() ); // pattern call inside of { t
+		assertEquals( "400/0/90/e / 64", messages.get(2).toString() );
+		assertEquals( "880/0/90/d / 64", messages.get(3).toString() ); // outside of { t
+		messages = getMessagesByStatus("91");
+		assertEquals( 3, messages.size() );
+		assertEquals( "0/1/91/c / 64",   messages.get(0).toString() ); // pattern call inside of { t
+		assertEquals( "240/1/91/d / 64", messages.get(1).toString() );
+		assertEquals( "720/1/91/c / 64", messages.get(2).toString() ); // outside of { t
+		
 		parse(getWorkingFile("drum-only-with-global"));
 		assertEquals( 960, instruments.get(9).getCurrentTicks() );
 		
@@ -415,6 +433,14 @@ class MidicaPLParserTest extends MidicaPLParser {
 			getLyrics()
 		);
 		
+		parse(getWorkingFile("condition-fallback"));
+		assertEquals(
+			"STRUCT: 1 4 5 6 9\n"
+			+ "IN: 1 3 4 6 7 10 11\n"
+			+ "UNDEF: 2 3 5 7\n",
+			getLyrics()
+		);
+		
 		parse(getWorkingFile("legato-correction"));
 		// channel 0:
 		messages = getNoteOnOffMessagesByChannel(0);
@@ -805,6 +831,73 @@ class MidicaPLParserTest extends MidicaPLParser {
 		}
 	}
 	
+	/**
+	 * Tests that replaying the event templates of function and pattern calls
+	 * leads to the same sequence as executing the calls.
+	 * 
+	 * @throws ParseException if something went wrong.
+	 */
+	@Test
+	void testCallTemplates() throws ParseException {
+		
+		// replayed
+		parse(getWorkingFile("call-templates"));
+		ArrayList<String> replayed = getSequenceEvents();
+		int               replays  = templateReplays;
+		
+		// executed
+		useTemplates = false;
+		try {
+			parse(getWorkingFile("call-templates"));
+		}
+		finally {
+			useTemplates = true;
+		}
+		assertEquals( replayed, getSequenceEvents() );
+		assertEquals( 0, templateReplays );
+		
+		// replayed: melody (s=2), arpeggio, var_melody (after the VAR change), legato (before the overlap)
+		assertEquals( 4, replays );
+	}
+	
+	/**
+	 * Tests that the time windows published for progressive playback stay unchanged
+	 * until the end of the parsing, even if legato overlappings are corrected.
+	 * 
+	 * @throws ParseException if something went wrong.
+	 */
+	@Test
+	void testProgressiveWindows() throws ParseException {
+		ArrayList<Long>              windowEnds   = new ArrayList<>();
+		ArrayList<ArrayList<String>> windowEvents = new ArrayList<>();
+		SequenceCreator.setWindowListener(new IWindowListener() {
+			@Override
+			public void windowFinalized(Sequence seq, long fromTick, long toTick) {
+				windowEnds.add(toTick);
+				windowEvents.add(getWindowEvents(toTick));
+			}
+			@Override
+			public void sequenceFinished(Sequence seq) {
+			}
+		});
+		try {
+			parse(getWorkingFile("progressive-legato"));
+		}
+		finally {
+			SequenceCreator.setWindowListener(null);
+		}
+		
+		assertTrue( windowEnds.size() > 1 );
+		for (int i = 0; i < windowEnds.size(); i++) {
+			long toTick = windowEnds.get(i);
+			assertEquals( windowEvents.get(i), getWindowEvents(toTick), "window end: " + toTick );
+		}
+		
+		// the corrected note-off of the first note is not before the first window end
+		assertEquals( 479, (long) windowEnds.get(0) );
+		assertTrue( getSequenceEvents().contains("2/479/803C00") );
+	}
+	
 	/**
 	 * Tests for parsing full source files that are expected to throw a parsing exception.
 	 * 
@@ -1330,6 +1423,30 @@ class MidicaPLParserTest extends MidicaPLParser {
 		assertEquals( "{ if $x in 1;2;;5", e.getLineContent() );
 		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_COND_EMPTY_ELEM_IN_IN_LIST)) );
 		
+		e = assertThrows( ParseException.class, () -> parse(getFailingFile("cond-var-too-many-operators")) );
+		assertEquals( 10, e.getLineNumber() );
+		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_TOO_MANY_OPERATORS_IN_COND) + "5 == 5==5") );
+		
+		e = assertThrows( ParseException.class, () -> parse(getFailingFile("cond-var-undef-not-at-start")) );
+		assertEquals( 10, e.getLineNumber() );
+		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_COND_UNDEF_IN_CENTER) + "5!5") );
+		
+		e = assertThrows( ParseException.class, () -> parse(getFailingFile("cond-var-undefined")) );
+		assertEquals( 9, e.getLineNumber() );
+		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_VAR_NOT_DEFINED) + "$y") );
+		
+		e = assertThrows( ParseException.class, () -> parse(getFailingFile("cond-var-undefined-in-elsif")) );
+		assertEquals( 12, e.getLineNumber() );
+		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_VAR_NOT_DEFINED) + "$y") );
+		
+		e = assertThrows( ParseException.class, () -> parse(getFailingFile("call-if-var-too-many-operators")) );
+		assertEquals( 8, e.getLineNumber() );
+		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_TOO_MANY_OPERATORS_IN_COND) + "5==5==5") );
+		
+		e = assertThrows( ParseException.class, () -> parse(getFailingFile("call-if-var-undefined")) );
+		assertEquals( 7, e.getLineNumber() );
+		assertTrue( e.getMessage().startsWith(Dict.get(Dict.ERROR_VAR_NOT_DEFINED) + "$y") );
+		
 		e = assertThrows( ParseException.class, () -> parse(getFailingFile("opt-without-value-velocity")) );
 		assertEquals( 3, e.getLineNumber() );
 		assertEquals( "0  c  /4  v", e.getLineContent() );
@@ -1973,6 +2090,57 @@ class MidicaPLParserTest extends MidicaPLParser {
 		return messages;
 	}
 	
+	/**
+	 * Returns all events of the created sequence, including track number, tick and message bytes.
+	 * 
+	 * @return the events.
+	 */
+	private static ArrayList<String> getSequenceEvents() {
+		return getSequenceEvents(Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns all events of the created sequence before the given tick,
+	 * including track number, tick and message bytes.
+	 * 
+	 * @param limit  first tick that is not included
+	 * @return the events.
+	 */
+	private static ArrayList<String> getSequenceEvents(long limit) {
+		ArrayList<String> events = new ArrayList<>();
+		Track[] tracks = SequenceCreator.getSequence().getTracks();
+		for (int t = 0; t < tracks.length; t++) {
+			for (int i = 0; i < tracks[t].size(); i++) {
+				MidiEvent   event = tracks[t].get(i);
+				MidiMessage msg   = event.getMessage();
+				if (event.getTick() >= limit)
+					continue;
+				StringBuilder str = new StringBuilder(t + "/" + event.getTick() + "/");
+				for (int j = 0; j < msg.getLength(); j++) {
+					str.append(String.format("%02X", msg.getMessage()[j]));
+				}
+				events.add(str.toString());
+			}
+		}
+		
+		return events;
+	}
+	
+	/**
+	 * Returns the events of the created sequence before the given tick, without the
+	 * end of track events. They are moved by each new event and are not copied by
+	 * progressive consumers.
+	 * 
+	 * @param limit  first tick that is not included
+	 * @return the events.
+	 */
+	private static ArrayList<String> getWindowEvents(long limit) {
+		ArrayList<String> events = getSequenceEvents(limit);
+		events.removeIf(event -> event.endsWith("/FF2F00"));
+		
+		return events;
+	}
+	
 	/**
 	 * Returns the full lyrics of the sequence.
 	 * 
@@ -0,0 +1,134 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.read;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import javax.sound.midi.Instrument;
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Soundbank;
+import javax.sound.midi.SoundbankResource;
+import javax.sound.sampled.AudioInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.midica.TestUtil;
+
+/**
+ * This is the test class for {@link org.midica.file.read.SoundfontScanner}.
+ * 
+ * The scanned metadata are compared with the data delivered by the Java Sound
+ * soundbank implementation.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class SoundfontScannerTest {
+	
+	/**
+	 * Compares general information, presets, layers and samples.
+	 * 
+	 * @throws IOException               if the soundfont cannot be read.
+	 * @throws InvalidMidiDataException  if the soundfont cannot be loaded.
+	 */
+	@Test
+	void testScan() throws IOException, InvalidMidiDataException {
+		File              file = getSoundfontFile();
+		SoundfontMetadata meta = SoundfontScanner.scan(file);
+		Soundbank         sb   = MidiSystem.getSoundbank(file);
+		
+		// general information
+		assertEquals( sb.getName(),        meta.name        );
+		assertEquals( sb.getVersion(),     meta.version     );
+		assertEquals( sb.getVendor(),      meta.vendor      );
+		assertEquals( sb.getDescription(), meta.description );
+		
+		// presets
+		Instrument[] instruments = sb.getInstruments();
+		assertEquals( instruments.length, meta.presetNames.length );
+		HashMap<String, Instrument> instrumentsByName = new HashMap<>();
+		for (Instrument instr : instruments)
+			instrumentsByName.put(instr.getName(), instr);
+		for (int i = 0; i < meta.presetNames.length; i++) {
+			Instrument instr = instrumentsByName.get(meta.presetNames[i]);
+			assertNotNull(instr);
+			int bank = 128 == meta.presetBanks[i] ? 0 : meta.presetBanks[i] << 7;
+			assertEquals( instr.getPatch().getProgram(), meta.presetPrograms[i] );
+			assertEquals( instr.getPatch().getBank(),    bank                   );
+			assertNotNull( meta.presetKeys[i] );
+		}
+		
+		// layers first, then samples
+		SoundbankResource[] resources = sb.getResources();
+		assertEquals( resources.length, meta.layerNames.length + meta.sampleNames.length );
+		for (int i = 0; i < meta.layerNames.length; i++)
+			assertEquals( resources[i].getName(), meta.layerNames[i] );
+		for (int i = 0; i < meta.sampleNames.length; i++) {
+			SoundbankResource resource = resources[meta.layerNames.length + i];
+			assertEquals( resource.getName(), meta.sampleNames[i] );
+			try (AudioInputStream stream = (AudioInputStream) resource.getData()) {
+				assertEquals( stream.getFrameLength(),                    meta.sampleLengths[i] );
+				assertEquals( stream.getFormat().getSampleRate(), (float) meta.sampleRates[i]   );
+			}
+		}
+	}
+	
+	/**
+	 * Tests writing and reading the metadata to and from the index format.
+	 * 
+	 * @throws IOException if the soundfont cannot be read.
+	 */
+	@Test
+	void testIndexFormat() throws IOException {
+		SoundfontMetadata meta = SoundfontScanner.scan(getSoundfontFile());
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		meta.write(new DataOutputStream(bytes));
+		SoundfontMetadata copy = SoundfontMetadata.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		
+		assertEquals(      meta.name,           copy.name           );
+		assertEquals(      meta.targetEngine,   copy.targetEngine   );
+		assertArrayEquals( meta.presetNames,    copy.presetNames    );
+		assertArrayEquals( meta.presetPrograms, copy.presetPrograms );
+		assertArrayEquals( meta.presetBanks,    copy.presetBanks    );
+		for (int i = 0; i < meta.presetKeys.length; i++)
+			assertArrayEquals( meta.presetKeys[i], copy.presetKeys[i] );
+		assertArrayEquals( meta.layerNames,     copy.layerNames     );
+		assertArrayEquals( meta.sampleNames,    copy.sampleNames    );
+		assertArrayEquals( meta.sampleLengths,  copy.sampleLengths  );
+		assertArrayEquals( meta.sampleRates,    copy.sampleRates    );
+	}
+	
+	/**
+	 * Tests that files which are no soundfonts are rejected.
+	 */
+	@Test
+	void testNoSoundfont() {
+		File file = new File(TestUtil.getTestfileDirectory() + "working" + File.separator + "chords.midica");
+		assertThrows(IOException.class, () -> SoundfontScanner.scan(file));
+	}
+	
+	/**
+	 * Returns the soundfont test file.
+	 * 
+	 * @return the soundfont file.
+	 */
+	private static File getSoundfontFile() {
+		return new File(TestUtil.getTestfileDirectory() + "working" + File.separator + "java-emergency-soundfont.sf2");
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.file.write;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.midica.TestUtil;
+import org.midica.file.TaskCancelledException;
+import org.midica.file.TaskProgress;
+import org.midica.file.read.MidicaPLParser;
+import org.midica.file.read.ParseException;
+import org.midica.ui.file.DecompileConfigController;
+
+/**
+ * This is the test class for {@link DecompileAutoTuner}.
+ * 
+ * @author Jan Trukenmüller
+ */
+class DecompileAutoTunerTest {
+	
+	/**
+	 * Initializes midica in test mode.
+	 * 
+	 * @throws InterruptedException       on interruptions while waiting for the event dispatching thread.
+	 * @throws InvocationTargetException  on exceptions.
+	 */
+	@BeforeAll
+	static void setUpBeforeClass() throws InvocationTargetException, InterruptedException {
+		TestUtil.initMidica();
+	}
+	
+	/**
+	 * Tests that the base configuration is only replaced by a configuration
+	 * with a better score.
+	 * 
+	 * @throws ParseException if something went wrong.
+	 */
+	@Test
+	void testBaseConfigIsKept() throws ParseException {
+		for (String name : new String[] {"chords", "legato-correction", "tremolo"}) {
+			parse(name);
+			
+			// session configuration
+			HashMap<String, String> base   = new HashMap<>(DecompileConfigController.getSessionConfig());
+			DecompileAutoTuner      tuner  = new DecompileAutoTuner(base, Decompiler.MIDICA);
+			HashMap<String, String> result = tuner.tune();
+			assertBaseConfigIsKept(tuner, base, result, name);
+			
+			// the best configuration cannot be replaced by an equal one
+			HashMap<String, String> best       = new HashMap<>(result);
+			DecompileAutoTuner      bestTuner  = new DecompileAutoTuner(best, Decompiler.MIDICA);
+			HashMap<String, String> bestResult = bestTuner.tune();
+			assertBaseConfigIsKept(bestTuner, best, bestResult, name);
+			assertFalse( bestTuner.getScore(bestResult) < tuner.getScore(result), name );
+		}
+	}
+	
+	/**
+	 * Tests that a cancelled search is not finished and that cancelled evaluations
+	 * are not scored.
+	 * 
+	 * @throws ParseException if something went wrong.
+	 */
+	@Test
+	void testCancellation() throws ParseException {
+		parse("chords");
+		HashMap<String, String> base     = new HashMap<>(DecompileConfigController.getSessionConfig());
+		DecompileAutoTuner      tuner    = new DecompileAutoTuner(base, Decompiler.MIDICA);
+		TaskProgress            progress = new TaskProgress();
+		progress.cancel();
+		progress.attach();
+		try {
+			assertThrows( TaskCancelledException.class, () -> tuner.tune() );
+		}
+		finally {
+			progress.detach();
+		}
+		assertTrue( Double.isNaN(tuner.getScore(base)) );
+		
+		// not cancelled
+		DecompileAutoTuner other = new DecompileAutoTuner(base, Decompiler.MIDICA);
+		other.tune();
+		assertFalse( Double.isNaN(other.getScore(base)) );
+	}
+	
+	/**
+	 * Checks that the result of the search has a better score than the base configuration,
+	 * or is the base configuration itself.
+	 * 
+	 * @param tuner   the tuner after the search
+	 * @param base    the base configuration
+	 * @param result  the result of the search
+	 * @param name    file name, used in failure messages
+	 */
+	private static void assertBaseConfigIsKept(DecompileAutoTuner tuner, HashMap<String, String> base, HashMap<String, String> result, String name) {
+		double baseScore   = tuner.getScore(base);
+		double resultScore = tuner.getScore(result);
+		assertFalse( Double.isNaN(baseScore), name );
+		assertTrue( resultScore >= baseScore, name );
+		if (resultScore == baseScore)
+			assertEquals( base, result, name );
+	}
+	
+	/**
+	 * Parses a working MidicaPL test file so that it's the currently loaded sequence.
+	 * 
+	 * @param name  file name without the extension
+	 * @throws ParseException if the file cannot be parsed.
+	 */
+	private static void parse(String name) throws ParseException {
+		File file = new File(TestUtil.getTestfileDirectory() + "working" + File.separator + name + ".midica");
+		new MidicaPLParser(true).parse(file);
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is the test class for {@link ChannelNoteHistory}.
+ * 
+ * The window of each cursor is compared with the result of the former
+ * tree map based note history calculation (see {@link #getOldNoteHistory(TreeMap, long)}).
+ * 
+ * @author Jan Trukenmüller
+ */
+class ChannelNoteHistoryTest {
+	
+	/**
+	 * Tests a channel without notes.
+	 */
+	@Test
+	void testEmpty() {
+		ChannelNoteHistory history = ChannelNoteHistory.create(new TreeMap<>());
+		assertSame( ChannelNoteHistory.EMPTY, history );
+		assertEquals( 0, history.moveCursor(0, 100) );
+		assertEquals( 0, history.moveCursor(5, 100) );
+		assertEquals( 0, history.moveCursor(-1, 0) );
+		assertEquals( 0, history.getWindowStart(0) );
+		assertEquals( 0, history.getWindowEnd(0) );
+	}
+	
+	/**
+	 * Moves the cursor forward tick by tick, like during playback.
+	 */
+	@Test
+	void testForwardSteps() {
+		TreeMap<Long, TreeMap<Byte, Byte>> channelHistory = createChannelHistory();
+		ChannelNoteHistory                 history        = ChannelNoteHistory.create(channelHistory);
+		long                               lastTick       = channelHistory.lastKey() + 10;
+		
+		int cursor = 0;
+		for (long tick = 0; tick <= lastTick; tick++) {
+			cursor = history.moveCursor(cursor, tick);
+			assertEquals( getOldNoteHistory(channelHistory, tick), getWindow(history, cursor), "tick: " + tick );
+		}
+		assertEquals( history.size(), cursor );
+	}
+	
+	/**
+	 * Moves the cursor forward with steps of different sizes, including steps over
+	 * more notes than the cursor is moved step by step.
+	 */
+	@Test
+	void testForwardJumps() {
+		TreeMap<Long, TreeMap<Byte, Byte>> channelHistory = createChannelHistory();
+		ChannelNoteHistory                 history        = ChannelNoteHistory.create(channelHistory);
+		long                               lastTick       = channelHistory.lastKey() + 10;
+		
+		for (long step : new long[] { 7, 60, 250, 1000 }) {
+			int cursor = 0;
+			for (long tick = 0; tick <= lastTick; tick += step) {
+				cursor = history.moveCursor(cursor, tick);
+				assertEquals( getOldNoteHistory(channelHistory, tick), getWindow(history, cursor), "step: " + step + ", tick: " + tick );
+			}
+		}
+	}
+	
+	/**
+	 * Moves the cursor backwards, e.g. after rewinding or moving the progress slider.
+	 */
+	@Test
+	void testBackwardJumps() {
+		TreeMap<Long, TreeMap<Byte, Byte>> channelHistory = createChannelHistory();
+		ChannelNoteHistory                 history        = ChannelNoteHistory.create(channelHistory);
+		long                               lastTick       = channelHistory.lastKey() + 10;
+		
+		for (long step : new long[] { 1, 13, 300, lastTick }) {
+			int cursor = history.moveCursor(0, lastTick);
+			for (long tick = lastTick; tick >= 0; tick -= step) {
+				cursor = history.moveCursor(cursor, tick);
+				assertEquals( getOldNoteHistory(channelHistory, tick), getWindow(history, cursor), "step: " + step + ", tick: " + tick );
+			}
+		}
+		
+		// alternating
+		int cursor = 0;
+		for (long tick : new long[] { 500, 10, 1200, 1199, 0, lastTick, 480, 481, 479 }) {
+			cursor = history.moveCursor(cursor, tick);
+			assertEquals( getOldNoteHistory(channelHistory, tick), getWindow(history, cursor), "tick: " + tick );
+		}
+	}
+	
+	/**
+	 * Uses cursors that are out of range, e.g. cursors from the history of another sequence.
+	 */
+	@Test
+	void testOutOfRangeCursors() {
+		TreeMap<Long, TreeMap<Byte, Byte>> channelHistory = createChannelHistory();
+		ChannelNoteHistory                 history        = ChannelNoteHistory.create(channelHistory);
+		long                               lastTick       = channelHistory.lastKey() + 10;
+		int                                size           = history.size();
+		
+		for (int cursor : new int[] { -1, -100, Integer.MIN_VALUE, size + 1, size + 100, Integer.MAX_VALUE }) {
+			for (long tick : new long[] { 0, 1, 240, 479, 480, 1000, lastTick }) {
+				int moved = history.moveCursor(cursor, tick);
+				assertEquals( getOldNoteHistory(channelHistory, tick), getWindow(history, moved), "cursor: " + cursor + ", tick: " + tick );
+			}
+		}
+	}
+	
+	/**
+	 * Creates the note history of a channel with single notes and chords.
+	 * 
+	 * Contains more notes than the cursor is moved step by step, chords with more notes
+	 * than the past and future buffers, and a gap.
+	 * 
+	 * @return tick -- note -- velocity
+	 */
+	private static TreeMap<Long, TreeMap<Byte, Byte>> createChannelHistory() {
+		TreeMap<Long, TreeMap<Byte, Byte>> channelHistory = new TreeMap<>();
+		
+		// single notes and small chords
+		for (int i = 0; i < 40; i++) {
+			long tick  = 10 + i * 24;
+			int  notes = 1 + i % 3;
+			for (int n = 0; n < notes; n++) {
+				addNote(channelHistory, tick, 60 + (i * 7 + n * 4) % 24, 50 + i);
+			}
+		}
+		
+		// big chords
+		for (int n = 0; n < 8; n++) {
+			addNote(channelHistory, 1200, 40 + n * 3, 100);
+			addNote(channelHistory, 1210, 41 + n * 3, 90);
+		}
+		
+		// after a gap
+		for (int i = 0; i < 30; i++) {
+			addNote(channelHistory, 3000 + i * 5, 30 + i, 64);
+		}
+		
+		return channelHistory;
+	}
+	
+	/**
+	 * Adds a note to a channel history.
+	 * 
+	 * @param channelHistory  tick -- note -- velocity
+	 * @param tick            the tick
+	 * @param note            the note number
+	 * @param velocity        the velocity
+	 */
+	private static void addNote(TreeMap<Long, TreeMap<Byte, Byte>> channelHistory, long tick, int note, int velocity) {
+		TreeMap<Byte, Byte> notesAtTick = channelHistory.get(tick);
+		if (null == notesAtTick) {
+			notesAtTick = new TreeMap<>();
+			channelHistory.put(tick, notesAtTick);
+		}
+		notesAtTick.put((byte) note, (byte) velocity);
+	}
+	
+	/**
+	 * Returns the notes of the window at the given cursor, in the same format as
+	 * {@link #getOldNoteHistory(TreeMap, long)}.
+	 * 
+	 * @param history  the note history
+	 * @param cursor   the cursor
+	 * @return the rows of the window.
+	 */
+	private static ArrayList<String> getWindow(ChannelNoteHistory history, int cursor) {
+		ArrayList<String> result = new ArrayList<>();
+		for (int i = history.getWindowStart(cursor); i < history.getWindowEnd(cursor); i++) {
+			int future = i < cursor ? 0 : 1;
+			result.add(history.getNote(i) + "/" + history.getVelocity(i) + "/" + history.getTick(i) + "/" + future);
+		}
+		return result;
+	}
+	
+	/**
+	 * Calculates the note history at the given tick like the player did before
+	 * the note history has been stored in primitive arrays.
+	 * 
+	 * Each row contains note number, velocity, tick and the past/future marker
+	 * (**0** = presence or past, **1** = future), separated by slashes.
+	 * 
+	 * @param channelHistory  tick -- note -- velocity
+	 * @param tick            tickstamp of the sequence
+	 * @return the note history.
+	 */
+	private static ArrayList<String> getOldNoteHistory(TreeMap<Long, TreeMap<Byte, Byte>> channelHistory, long tick) {
+		ArrayList<String> result = new ArrayList<>();
+		
+		// get past notes
+		long lastTick = tick;
+		int i = 0;
+		PAST:
+		while (i < SequenceAnalyzer.NOTE_HISTORY_BUFFER_SIZE_PAST) {
+			Entry<Long, TreeMap<Byte, Byte>> notesAtTickEntry = channelHistory.floorEntry(lastTick);
+			if (null == notesAtTickEntry)
+				break PAST;
+			lastTick = notesAtTickEntry.getKey();
+			NavigableMap<Byte, Byte> notesAtTick = notesAtTickEntry.getValue().descendingMap();
+			for (Entry<Byte, Byte> noteEntry : notesAtTick.entrySet()) {
+				result.add(noteEntry.getKey() + "/" + noteEntry.getValue() + "/" + lastTick + "/0");
+				i++;
+				if (i >= SequenceAnalyzer.NOTE_HISTORY_BUFFER_SIZE_PAST)
+					break PAST;
+			}
+			lastTick--;
+		}
+		Collections.reverse(result);
+		
+		// get future notes
+		long nextTick = tick + 1;
+		i = 0;
+		FUTURE:
+		while (i < SequenceAnalyzer.NOTE_HISTORY_BUFFER_SIZE_FUTURE) {
+			Entry<Long, TreeMap<Byte, Byte>> notesAtTickEntry = channelHistory.ceilingEntry(nextTick);
+			if (null == notesAtTickEntry)
+				break FUTURE;
+			nextTick = notesAtTickEntry.getKey();
+			for (Entry<Byte, Byte> noteEntry : notesAtTickEntry.getValue().entrySet()) {
+				result.add(noteEntry.getKey() + "/" + noteEntry.getValue() + "/" + nextTick + "/1");
+				i++;
+				if (i >= SequenceAnalyzer.NOTE_HISTORY_BUFFER_SIZE_FUTURE)
+					break FUTURE;
+			}
+			nextTick++;
+		}
+		
+		return result;
+	}
+}
@@ -0,0 +1,371 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is the test class for {@link EventScheduler}.
+ * 
+ * The scheduler sends its events to a receiver that records each message
+ * together with the time of arrival.
+ * 
+ * @author Jan Trukenmüller
+ */
+class EventSchedulerTest {
+	
+	private static final int RESOLUTION = 480;
+	
+	private EventScheduler scheduler;
+	private Recorder       recorder;
+	
+	/**
+	 * Opens the scheduler and connects the recording receiver.
+	 */
+	@BeforeEach
+	void setUp() {
+		scheduler = new EventScheduler();
+		scheduler.open();
+		recorder = new Recorder();
+		scheduler.getTransmitter().setReceiver(recorder);
+	}
+	
+	/**
+	 * Closes the scheduler.
+	 */
+	@AfterEach
+	void tearDown() {
+		scheduler.close();
+	}
+	
+	/**
+	 * Tests that the events are sent ordered by tick and, on the same tick, by track.
+	 * Also tests muted and solo tracks.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	void testEventOrder() throws InvalidMidiDataException, InterruptedException {
+		Sequence seq    = new Sequence(Sequence.PPQ, RESOLUTION);
+		Track    track0 = seq.createTrack();
+		Track    track1 = seq.createTrack();
+		Track    track2 = seq.createTrack();
+		track0.add(createTempoEvent(50_000, 0));
+		track0.add(createEvent(ShortMessage.NOTE_ON,  0, 60, 100, 48));
+		track0.add(createEvent(ShortMessage.NOTE_OFF, 0, 60,   0, 96));
+		track1.add(createEvent(ShortMessage.NOTE_ON,  1, 61, 100,  0));
+		track1.add(createEvent(ShortMessage.NOTE_OFF, 1, 61,   0, 48));
+		track2.add(createEvent(ShortMessage.NOTE_ON,  2, 62, 100, 48));
+		track2.add(createEvent(ShortMessage.NOTE_ON,  2, 63, 100, 24));
+		
+		// all tracks
+		scheduler.setSequence(seq);
+		playToEnd();
+		assertEquals( list("91/61", "92/63", "90/60", "81/61", "92/62", "80/60"), recorder.getNotes() );
+		
+		// muted track: no note-on, but note-off
+		recorder.clear();
+		scheduler.setTrackMute(1, true);
+		scheduler.setTickPosition(0);
+		playToEnd();
+		assertEquals( list("92/63", "90/60", "81/61", "92/62", "80/60"), recorder.getNotes() );
+		
+		// solo track
+		recorder.clear();
+		scheduler.setTrackMute(1, false);
+		scheduler.setTrackSolo(2, true);
+		assertTrue( scheduler.getTrackSolo(2) );
+		scheduler.setTickPosition(0);
+		playToEnd();
+		assertEquals( list("92/63", "81/61", "92/62", "80/60"), recorder.getNotes() );
+	}
+	
+	/**
+	 * Tests that the last program changes, controller values and pitch bends before
+	 * a new position are sent after changing the position.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	@Test
+	void testChase() throws InvalidMidiDataException {
+		Sequence seq   = new Sequence(Sequence.PPQ, RESOLUTION);
+		Track    track = seq.createTrack();
+		track.add(createEvent(ShortMessage.PROGRAM_CHANGE, 0,  5,   0,    0));
+		track.add(createEvent(ShortMessage.CONTROL_CHANGE, 0,  7, 100,    0));
+		track.add(createEvent(ShortMessage.CONTROL_CHANGE, 0, 10,  20,    0));
+		track.add(createEvent(ShortMessage.PITCH_BEND,     0,  0,  70,  200));
+		track.add(createEvent(ShortMessage.PROGRAM_CHANGE, 0, 10,   0,  480));
+		track.add(createEvent(ShortMessage.CONTROL_CHANGE, 0,  7,  50,  480));
+		track.add(createEvent(ShortMessage.PROGRAM_CHANGE, 3, 40,   0,  600));
+		track.add(createEvent(ShortMessage.NOTE_ON,        0, 60, 100,  480));
+		track.add(createEvent(ShortMessage.PROGRAM_CHANGE, 0, 20,   0, 1000));
+		track.add(createEvent(ShortMessage.NOTE_OFF,       0, 60,   0, 1200));
+		scheduler.setSequence(seq);
+		
+		// controllers first, then program change and pitch bend - no notes
+		scheduler.setTickPosition(720);
+		assertEquals( list("B0/07/32", "B0/0A/14", "C0/0A", "E0/00/46", "C3/28"), recorder.getMessages() );
+		assertEquals( 720, scheduler.getTickPosition() );
+		
+		// before the first pitch bend
+		recorder.clear();
+		scheduler.setTickPosition(100);
+		assertEquals( list("B0/07/64", "B0/0A/14", "C0/05"), recorder.getMessages() );
+		
+		// at the position of an event: the event itself is not chased
+		recorder.clear();
+		scheduler.setTickPosition(480);
+		assertEquals( list("B0/07/64", "B0/0A/14", "C0/05", "E0/00/46"), recorder.getMessages() );
+	}
+	
+	/**
+	 * Tests that stopping keeps the position and that starting again continues there,
+	 * without losing or repeating events.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	void testStopStart() throws InvalidMidiDataException, InterruptedException {
+		Sequence seq   = new Sequence(Sequence.PPQ, RESOLUTION);
+		Track    track = seq.createTrack();
+		track.add(createTempoEvent(100_000, 0)); // 0.1 seconds per quarter note
+		int count = 100;
+		for (int i = 0; i < count; i++) {
+			track.add(createEvent(ShortMessage.NOTE_ON, 0, i, 100, i * 24));
+		}
+		scheduler.setSequence(seq);
+		
+		scheduler.start();
+		Thread.sleep(200);
+		scheduler.stop();
+		long position = scheduler.getTickPosition();
+		assertTrue( position > 0 && position < scheduler.getTickLength(), "position: " + position );
+		ArrayList<String> beforeStop = recorder.getNotes();
+		assertFalse( beforeStop.isEmpty() );
+		
+		// stopped: no events, same position
+		Thread.sleep(100);
+		assertEquals( position, scheduler.getTickPosition() );
+		assertEquals( beforeStop, recorder.getNotes() );
+		assertFalse( scheduler.isRunning() );
+		
+		// continue
+		playToEnd();
+		ArrayList<String> expected = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			expected.add("90/" + i);
+		}
+		assertEquals( expected, recorder.getNotes() );
+		assertEquals( scheduler.getTickLength(), scheduler.getTickPosition() );
+		
+		// all notes off after stopping
+		assertTrue( recorder.getMessages().contains("B0/7B/00") );
+	}
+	
+	/**
+	 * Tests the deadlines of the events with a tempo factor, and that the sequence
+	 * ends at the end of track, not at the last event.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	@Test
+	void testTempoFactor() throws InvalidMidiDataException, InterruptedException {
+		Sequence seq   = new Sequence(Sequence.PPQ, RESOLUTION);
+		Track    track = seq.createTrack();
+		track.add(createTempoEvent(200_000, 0)); // 0.2 seconds per quarter note
+		track.add(createEvent(ShortMessage.NOTE_ON, 0, 60, 100,    0));
+		track.add(createEvent(ShortMessage.NOTE_ON, 0, 61, 100,  480));
+		track.add(createTempoEvent(400_000, 960));
+		track.add(createEvent(ShortMessage.NOTE_ON, 0, 62, 100,  960));
+		track.add(createEvent(ShortMessage.NOTE_ON, 0, 63, 100, 1440));
+		track.add(new MidiEvent(new MetaMessage(MidiListener.META_END_OF_SEQUENCE, new byte[0], 0), 1920));
+		scheduler.setSequence(seq);
+		assertEquals( 1_200_000, scheduler.getMicrosecondLength() );
+		
+		final CountDownLatch finished = new CountDownLatch(1);
+		final long[]         endNanos = new long[1];
+		scheduler.addMetaEventListener(msg -> {
+			if (MidiListener.META_END_OF_SEQUENCE == msg.getType()) {
+				endNanos[0] = System.nanoTime();
+				finished.countDown();
+			}
+		});
+		
+		// double speed: 0, 100, 200, 400 milliseconds, end at 600 milliseconds
+		scheduler.setTempoFactor(2);
+		long startNanos = System.nanoTime();
+		scheduler.start();
+		assertTrue( finished.await(5, TimeUnit.SECONDS) );
+		
+		long[] expected = { 0, 100, 200, 400 };
+		long[] arrivals = recorder.getArrivals();
+		assertEquals( expected.length, arrivals.length );
+		for (int i = 0; i < expected.length; i++) {
+			long millis = (arrivals[i] - startNanos) / 1_000_000;
+			assertTrue( Math.abs(millis - expected[i]) < 40, "event " + i + ": " + millis + " ms" );
+		}
+		long endMillis = (endNanos[0] - startNanos) / 1_000_000;
+		assertTrue( endMillis >= 590 && endMillis < 700, "end: " + endMillis + " ms" );
+	}
+	
+	/**
+	 * Starts the scheduler and waits until the end of the sequence is reached.
+	 * 
+	 * @throws InterruptedException if the test is interrupted.
+	 */
+	private void playToEnd() throws InterruptedException {
+		scheduler.start();
+		long timeout = System.currentTimeMillis() + 5000;
+		while (scheduler.isRunning()) {
+			assertTrue( System.currentTimeMillis() < timeout, "end of sequence not reached" );
+			Thread.sleep(5);
+		}
+	}
+	
+	/**
+	 * Creates a channel message event.
+	 * 
+	 * @param command  the command
+	 * @param channel  the channel
+	 * @param data1    first data byte
+	 * @param data2    second data byte
+	 * @param tick     the tick
+	 * @return the event.
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	private static MidiEvent createEvent(int command, int channel, int data1, int data2, long tick) throws InvalidMidiDataException {
+		return new MidiEvent(new ShortMessage(command, channel, data1, data2), tick);
+	}
+	
+	/**
+	 * Creates a tempo change event.
+	 * 
+	 * @param mpq   tempo in microseconds per quarter note
+	 * @param tick  tick of the tempo change
+	 * @return the event.
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	private static MidiEvent createTempoEvent(int mpq, long tick) throws InvalidMidiDataException {
+		byte[] data = { (byte) (mpq >> 16), (byte) (mpq >> 8), (byte) mpq };
+		return new MidiEvent(new MetaMessage(MidiListener.META_SET_TEMPO, data, 3), tick);
+	}
+	
+	/**
+	 * Creates a list of strings.
+	 * 
+	 * @param elements  the elements
+	 * @return the list.
+	 */
+	private static ArrayList<String> list(String... elements) {
+		ArrayList<String> list = new ArrayList<>();
+		for (String element : elements) {
+			list.add(element);
+		}
+		return list;
+	}
+	
+	/**
+	 * Receiver that records all received messages and the time of their arrival.
+	 */
+	private static class Recorder implements Receiver {
+		
+		private final ArrayList<MidiMessage> messages = new ArrayList<>();
+		private final ArrayList<Long>        arrivals = new ArrayList<>();
+		
+		@Override
+		public synchronized void send(MidiMessage msg, long timeStamp) {
+			messages.add(msg);
+			arrivals.add(System.nanoTime());
+		}
+		
+		@Override
+		public void close() {
+		}
+		
+		/**
+		 * Forgets all received messages.
+		 */
+		synchronized void clear() {
+			messages.clear();
+			arrivals.clear();
+		}
+		
+		/**
+		 * Returns all received messages as hex bytes, separated by slashes.
+		 * 
+		 * @return the messages.
+		 */
+		synchronized ArrayList<String> getMessages() {
+			ArrayList<String> result = new ArrayList<>();
+			for (MidiMessage msg : messages) {
+				StringBuilder str = new StringBuilder();
+				for (int i = 0; i < msg.getLength(); i++) {
+					if (i > 0)
+						str.append("/");
+					str.append(String.format("%02X", msg.getMessage()[i]));
+				}
+				result.add(str.toString());
+			}
+			return result;
+		}
+		
+		/**
+		 * Returns the received note-on and note-off messages as hex status byte and decimal note number.
+		 * 
+		 * @return the notes.
+		 */
+		synchronized ArrayList<String> getNotes() {
+			ArrayList<String> result = new ArrayList<>();
+			for (MidiMessage msg : messages) {
+				ShortMessage shortMsg = (ShortMessage) msg;
+				int          command  = shortMsg.getCommand();
+				if (ShortMessage.NOTE_ON == command || ShortMessage.NOTE_OFF == command)
+					result.add(String.format("%02X/%d", shortMsg.getStatus(), shortMsg.getData1()));
+			}
+			return result;
+		}
+		
+		/**
+		 * Returns the arrival times ({@link System#nanoTime()}) of all received note-on messages.
+		 * 
+		 * @return the arrival times.
+		 */
+		synchronized long[] getArrivals() {
+			ArrayList<Long> result = new ArrayList<>();
+			for (int i = 0; i < messages.size(); i++) {
+				if (ShortMessage.NOTE_ON == ((ShortMessage) messages.get(i)).getCommand())
+					result.add(arrivals.get(i));
+			}
+			long[] array = new long[result.size()];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = result.get(i);
+			}
+			return array;
+		}
+	}
+}
@@ -8,8 +8,14 @@
 package org.midica.midi;
 
 import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -29,6 +35,7 @@ import javax.sound.midi.Track;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.midica.TestUtil;
+import org.midica.file.CacheWriter;
 import org.midica.file.read.MidiParser;
 import org.midica.file.read.ParseException;
 import org.midica.ui.model.IMessageType;
@@ -244,7 +251,6 @@ public class SequenceAnalyzerTest {
 		// parse and get tree
 		parseMidiFile(filename, events);
 		MidicaTreeModel model = (MidicaTreeModel) SequenceAnalyzer.getSequenceInfo().get("banks_per_channel");
-		model.postprocess();
 		MidicaTreeNode rootNode = (MidicaTreeNode) model.getRoot();
 		assertEquals( "Per Channel", rootNode.getName() );
 		
@@ -719,6 +725,52 @@ public class SequenceAnalyzerTest {
 		}
 	}
 	
+	/**
+	 * Tests restoring the analysis results from a snapshot after a failed parsing.
+	 * 
+	 * @throws ParseException if something went wrong.
+	 * @throws IOException if something went wrong.
+	 */
+	@Test
+	void testSnapshot() throws ParseException, IOException {
+		String dir = TestUtil.getTestfileDirectory() + "midi" + File.separator;
+		
+		// analysis results of the played sequence
+		parser.parse(new File(dir + "bank-program-note.mid"));
+		byte[] results = serialize();
+		SequenceAnalyzer.Snapshot snapshot = SequenceAnalyzer.takeSnapshot();
+		assertNotNull( snapshot );
+		
+		// parsing another file changes the results
+		parser.parse(new File(dir + "pitch-bend.mid"));
+		assertFalse( Arrays.equals(results, serialize()) );
+		
+		// failed parsing
+		assertThrows( ParseException.class, () -> parser.parse(new File(dir + "not-existing.mid")) );
+		assertNull( SequenceAnalyzer.getNoteHistory() );
+		
+		// restore
+		assertTrue( SequenceAnalyzer.restoreSnapshot(snapshot) );
+		assertArrayEquals( results, serialize() );
+		assertNotNull( SequenceAnalyzer.getNoteHistory() );
+		assertNotNull( SequenceAnalyzer.getChannelNoteHistory((byte) 0) );
+		assertNotNull( SequenceAnalyzer.getUiTimeline() );
+	}
+	
+	/**
+	 * Serializes the current analysis results.
+	 * 
+	 * @return the serialized results.
+	 * @throws IOException if something went wrong.
+	 */
+	private static byte[] serialize() throws IOException {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		CacheWriter           writer = new CacheWriter(stream);
+		SequenceAnalyzer.writeToCache(writer);
+		writer.flush();
+		return stream.toByteArray();
+	}
+	
 	/**
 	 * Parses the file, or creates and parses it, if requested.
 	 * 
@@ -741,10 +793,6 @@ public class SequenceAnalyzerTest {
 		// parse
 		parser.parse(file);
 		
-		// postprocess tree model and connect nodes with each other
-		MidicaTreeModel model = (MidicaTreeModel) SequenceAnalyzer.getSequenceInfo().get("msg_tree_model");
-		model.postprocess();
-		
 		return (ArrayList<SingleMessage>) SequenceAnalyzer.getSequenceInfo().get("messages");
 	}
 	
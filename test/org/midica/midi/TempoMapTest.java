@@ -0,0 +1,133 @@
+/*
+ * This Source Code Form is subject to the terms of the
+ * Mozilla Public License, v. 2.0. 
+ * If a copy of the MPL was not distributed with this file,
+ * You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.midica.midi;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Track;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * This is the test class for {@link org.midica.midi.TempoMap}.
+ * 
+ * @author Jan Trukenmüller
+ */
+public class TempoMapTest {
+	
+	/**
+	 * Tests the conversion with the default tempo (no tempo change at all).
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	@Test
+	void testDefaultTempo() throws InvalidMidiDataException {
+		Sequence seq = new Sequence(Sequence.PPQ, 480);
+		seq.createTrack();
+		TempoMap map = TempoMap.fromSequence(seq);
+		
+		assertEquals(1, map.getSegmentCount());
+		assertEquals(500_000, map.getMpq(0));
+		assertEquals(0, map.tickToMicros(0));
+		assertEquals(500_000, map.tickToMicros(480));
+		assertEquals(960, map.microsToTick(1_000_000));
+	}
+	
+	/**
+	 * Tests the conversion in both directions with several tempo changes.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	@Test
+	void testTempoChanges() throws InvalidMidiDataException {
+		Sequence seq   = new Sequence(Sequence.PPQ, 480);
+		Track    track = seq.createTrack();
+		track.add(createTempoEvent(  250_000,  960)); // 240 BPM after 2 quarters
+		track.add(createTempoEvent(1_000_000, 1920)); //  60 BPM after 4 quarters
+		
+		TempoMap map = TempoMap.fromSequence(seq);
+		assertEquals(3, map.getSegmentCount());
+		
+		// tick --> microseconds
+		assertEquals(1_000_000, map.tickToMicros(960));
+		assertEquals(1_250_000, map.tickToMicros(1440));
+		assertEquals(1_500_000, map.tickToMicros(1920));
+		assertEquals(2_500_000, map.tickToMicros(2400));
+		
+		// microseconds --> tick
+		assertEquals(960,  map.microsToTick(1_000_000));
+		assertEquals(1440, map.microsToTick(1_250_000));
+		assertEquals(2400, map.microsToTick(2_500_000));
+		
+		// tempo
+		assertEquals(500_000,   map.getMpq(959));
+		assertEquals(250_000,   map.getMpq(960));
+		assertEquals(1_000_000, map.getMpq(5000));
+	}
+	
+	/**
+	 * Tests sequences with an SMPTE based division type.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	@Test
+	void testSmpte() throws InvalidMidiDataException {
+		Sequence seq = new Sequence(Sequence.SMPTE_25, 40);
+		seq.createTrack().add(createTempoEvent(250_000, 0));
+		TempoMap map = TempoMap.fromSequence(seq);
+		
+		assertEquals(1_000_000, map.tickToMicros(1000));
+		assertEquals(1000, map.microsToTick(1_000_000));
+	}
+	
+	/**
+	 * Tests the conversion of time strings, as entered in the jump field of the player,
+	 * into ticks.
+	 * 
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	@Test
+	void testTimeStrings() throws InvalidMidiDataException {
+		Sequence seq = new Sequence(Sequence.PPQ, 480);
+		seq.createTrack().add(createTempoEvent(250_000, 960)); // 240 BPM after 2 quarters
+		TempoMap map = TempoMap.fromSequence(seq);
+		
+		assertEquals(960,  map.microsToTick(MidiDevices.timeStringToMicroseconds("00:00:01")));
+		assertEquals(1440, map.microsToTick(MidiDevices.timeStringToMicroseconds("0:01.250")));
+		assertEquals(1440, map.microsToTick(MidiDevices.timeStringToMicroseconds("1.25")));
+		assertEquals(3_723_004_000L, MidiDevices.timeStringToMicroseconds("01:02:03.004"));
+		assertEquals(61_000_000,     MidiDevices.timeStringToMicroseconds(" 1:01 "));
+		
+		// round trip
+		long micros = 3_723_004_000L;
+		assertEquals(micros, MidiDevices.timeStringToMicroseconds(MidiDevices.microsecondsToPreciseTimeString(micros)));
+		
+		// invalid
+		for (String time : new String[] {"", ":", "1:60", "1:2:3:4", "1.", "1.2345", "-1", "a:01", "01:01.x"}) {
+			assertThrows(NumberFormatException.class, () -> MidiDevices.timeStringToMicroseconds(time), time);
+		}
+	}
+	
+	/**
+	 * Creates a tempo change event.
+	 * 
+	 * @param mpq   tempo in microseconds per quarter note
+	 * @param tick  tick of the tempo change
+	 * @return the event.
+	 * @throws InvalidMidiDataException on invalid MIDI data.
+	 */
+	private static MidiEvent createTempoEvent(int mpq, long tick) throws InvalidMidiDataException {
+		byte[] data = { (byte) (mpq >> 16), (byte) (mpq >> 8), (byte) mpq };
+		return new MidiEvent(new MetaMessage(MidiListener.META_SET_TEMPO, data, 3), tick);
+	}
+}